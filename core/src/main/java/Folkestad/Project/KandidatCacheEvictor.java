@@ -0,0 +1,38 @@
+package folkestad.project;
+
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import folkestad.KandidatStortingsvalg;
+import folkestad.KandidaterOppdatertEvent;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Tømmer andrenivå-cachen for kandidater og alle spørringscacher når kandidater er importert.
+ * Hibernate vet ikke om endringer gjort med JdbcTemplate, så dette må gjøres eksplisitt.
+ */
+@Component
+public class KandidatCacheEvictor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidatCacheEvictor.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Tømmer kandidat-cachen.
+     *
+     * @param event hendelsen om at kandidater er oppdatert
+     */
+    @EventListener
+    public void onKandidaterOppdatert(final KandidaterOppdatertEvent event) {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictEntityData(KandidatStortingsvalg.class);
+        sessionFactory.getCache().evictQueryRegions();
+        LOGGER.info("Tømte kandidat-cachen etter at {} kandidater ble oppdatert", event.antall());
+    }
+}
@@ -0,0 +1,134 @@
+package folkestad.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import folkestad.Artikkel;
+import folkestad.ArtikkelRepository;
+import folkestad.KandidatLink;
+import folkestad.KandidatLinkRad;
+import folkestad.KandidatLinkerLagretEvent;
+import folkestad.KandidatLinkRepository;
+import folkestad.KandidatOmtaleDagRepository;
+import folkestad.KandidatStortingsvalg;
+import folkestad.KandidatStortingsvalgRepository;
+import folkestad.project.pipeline.WriteBehindEntry;
+
+/**
+ * Lagrer nye kandidatlenker og oppdaterer omtale-aggregatet i én transaksjon,
+ * slik at aggregatet alltid samsvarer med lenkene. Publiserer {@link KandidatLinkerLagretEvent}
+ * med de nye lenkene, som analysen bruker etter at transaksjonen er fullført.
+ */
+@Component
+public class KandidatLinkWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidatLinkWriter.class);
+
+    @Autowired
+    private KandidatLinkRepository kandidatLinkRepository;
+
+    @Autowired
+    private KandidatOmtaleDagRepository kandidatOmtaleDagRepository;
+
+    @Autowired
+    private KandidatStortingsvalgRepository kandidatRepository;
+
+    @Autowired
+    private ArtikkelRepository artikkelRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Lagrer kandidatlenkene og legger de som faktisk ble lagt inn til i omtale-aggregatet.
+     * Lenker som en annen skriver har lagret i mellomtiden, telles ikke og publiseres ikke.
+     *
+     * @param links nye lenker; kandidat og artikkel må være satt
+     * @return antall lenker som ble lagt inn
+     */
+    @Transactional
+    public int lagre(final List<KandidatLink> links) {
+        List<KandidatLink> lagret = kandidatLinkRepository.batchInsert(links);
+        if (lagret.isEmpty()) {
+            return 0;
+        }
+        kandidatOmtaleDagRepository.leggTil(lagret);
+
+        List<KandidatLinkRad> rader = new ArrayList<>(lagret.size());
+        for (KandidatLink link : lagret) {
+            rader.add(KandidatLinkRad.fra(link));
+        }
+        eventPublisher.publishEvent(new KandidatLinkerLagretEvent(rader));
+        return lagret.size();
+    }
+
+    /**
+     * Gjør omtaler fra write-behind-loggen om til kandidatlenker og lagrer de som ikke finnes fra før.
+     * Omtaler som allerede er lagret hoppes over, slik at en logg kan spilles av flere ganger uten
+     * at omtale-aggregatet telles dobbelt.
+     *
+     * @param omtaler omtaler i rekkefølgen de ble logget
+     * @return antall nye lenker
+     */
+    @Transactional
+    public int lagreOmtaler(final List<WriteBehindEntry.Omtale> omtaler) {
+        if (omtaler.isEmpty()) {
+            return 0;
+        }
+        Set<String> navn = new HashSet<>();
+        for (WriteBehindEntry.Omtale omtale : omtaler) {
+            navn.add(omtale.kandidatNavn());
+        }
+        Map<String, KandidatStortingsvalg> kandidatMap = kandidatRepository.findByNavnIn(navn)
+                .stream()
+                .collect(Collectors.toMap(KandidatStortingsvalg::getNavn, kandidat -> kandidat));
+
+        Map<String, Artikkel> artikler = new HashMap<>();
+        for (WriteBehindEntry.Omtale omtale : omtaler) {
+            if (kandidatMap.containsKey(omtale.kandidatNavn())) {
+                artikler.computeIfAbsent(omtale.url(), url -> Artikkel.ny(url, null));
+            }
+        }
+        Map<String, Long> artikkelIder = artikkelRepository.finnEllerOpprett(artikler.values());
+        Map<Long, Set<String>> existingNavnByArtikkel =
+                kandidatLinkRepository.findKandidatNavnByArtikkelIder(artikkelIder.values());
+
+        List<KandidatLink> nyeLinks = new ArrayList<>();
+        Map<Long, Set<String>> lagtTil = new HashMap<>();
+        for (WriteBehindEntry.Omtale omtale : omtaler) {
+            KandidatStortingsvalg kandidat = kandidatMap.get(omtale.kandidatNavn());
+            if (kandidat == null) {
+                LOGGER.debug("Kandidat '{}' ikke funnet i database", omtale.kandidatNavn());
+                continue;
+            }
+            Artikkel artikkel = artikler.get(omtale.url());
+            Set<String> existingNavn = existingNavnByArtikkel.getOrDefault(artikkel.getId(), Collections.emptySet());
+            boolean ny = lagtTil.computeIfAbsent(artikkel.getId(), id -> new HashSet<>()).add(omtale.kandidatNavn());
+            if (ny && !existingNavn.contains(omtale.kandidatNavn())) {
+                KandidatLink kandidatLink = KandidatLink.create(artikkel, kandidat);
+                if (omtale.tidspunkt() != null) {
+                    kandidatLink.setScrapedAt(omtale.tidspunkt());
+                }
+                nyeLinks.add(kandidatLink);
+            }
+        }
+
+        if (nyeLinks.isEmpty()) {
+            return 0;
+        }
+        return lagre(nyeLinks);
+    }
+}
@@ -1,25 +1,24 @@
 package folkestad.project;
 
+import java.time.LocalDateTime;
 import java.util.Set;
 import java.util.List;
-import java.util.Map;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import folkestad.project.extractors.KandidatNameExtractor;
+import folkestad.project.pipeline.WriteBehindEntry;
+import folkestad.project.pipeline.WriteBehindFlusher;
+import folkestad.project.pipeline.WriteBehindLog;
 // import folkestad.project.extractors.NorwegianNameExtractor; // Removed unused import
 import folkestad.project.scrapers.DagbladetScraper;
 import folkestad.project.scrapers.E24Scraper;
 import folkestad.project.scrapers.NRKScraper;
 import folkestad.project.scrapers.VGScraper;
 import folkestad.project.scrapers.ScraperFactory;
-import folkestad.KandidatStortingsvalg;
 import folkestad.KandidatStortingsvalgRepository;
-import folkestad.KandidatLink;
-import folkestad.KandidatLinkRepository;
 import folkestad.Nettsted;
 
 /**
@@ -36,7 +35,10 @@ public final class ScraperStart {
     private KandidatNameExtractor kandidatNameExtractor;
 
     @Autowired
-    private KandidatLinkRepository kandidatLinkRepository;
+    private WriteBehindLog writeBehindLog;
+
+    @Autowired
+    private WriteBehindFlusher writeBehindFlusher;
 
     @Autowired
     private KandidatStortingsvalgRepository kandidatRepository;
@@ -178,67 +180,32 @@ public final class ScraperStart {
     }
 
     /**
-     * Prosesserer og lagrer kandidater og deres lenker fra PersonArticleIndex.
+     * Legger kandidatomtalene fra PersonArticleIndex i write-behind-loggen og skriver dem til databasen.
+     * Omtalene er lagret på disk før databasen berøres, så de går ikke tapt om databasen er nede;
+     * da blir de liggende i loggen og skrives ved neste flush.
      *
      * @param personArticleIndex Indeks med kandidater og deres artikler
      */
     private void processAndSaveKandidater(final PersonArticleIndex personArticleIndex) {
         LOGGER.info("=== Prosesserer kandidater ===");
 
-        try {
-            Set<String> allKandidatNames = personArticleIndex.getAllPersons();
-            LOGGER.info("Behandler {} kandidatnavn", allKandidatNames.size());
-
-            List<KandidatStortingsvalg> existingKandidatList = kandidatRepository.findAllWithLinks();
-            LOGGER.info("Hentet {} eksisterende kandidater fra database", existingKandidatList.size());
-
-            Map<String, KandidatStortingsvalg> existingKandidatMap = existingKandidatList
-                    .stream()
-                    .collect(Collectors.toMap(KandidatStortingsvalg::getNavn, kandidat -> kandidat));
-
-            List<KandidatLink> kandidatLinksToSave = new ArrayList<>();
-            int newLinksCount = 0;
-
-            for (String kandidatName : allKandidatNames) {
-                KandidatStortingsvalg kandidat = existingKandidatMap.get(kandidatName);
-                if (kandidat != null) {
-                    Set<String> articleUrlsForKandidat = personArticleIndex.getArticlesForPerson(kandidatName);
-
-                    Set<String> existingLinks = kandidat.getLinks().stream()
-                            .map(link -> link.getLink())
-                            .collect(Collectors.toSet());
-
-                    List<String> newLinksForKandidat = new ArrayList<>();
-                    for (String articleUrl : articleUrlsForKandidat) {
-                        if (!existingLinks.contains(articleUrl)) {
-                            KandidatLink kandidatLink = KandidatLink.createWithDetectedNettsted(articleUrl, kandidat);
-                            kandidatLinksToSave.add(kandidatLink);
-                            newLinksForKandidat.add(articleUrl);
-                            newLinksCount++;
-                        }
-                    }
-                    if (!newLinksForKandidat.isEmpty()) {
-                        LOGGER.info("Kandidat '{}' får {} nye linker: {}", kandidatName, newLinksForKandidat.size(), newLinksForKandidat);
-                    }
-                } else {
-                    LOGGER.debug("Kandidat '{}' ikke funnet i database", kandidatName);
-                }
-            }
-
-            LOGGER.info("Fant {} nye kandidatlenker", newLinksCount);
+        Set<String> allKandidatNames = personArticleIndex.getAllPersons();
+        LOGGER.info("Behandler {} kandidatnavn", allKandidatNames.size());
 
-            if (!kandidatLinksToSave.isEmpty()) {
-                LOGGER.info("Lagrer {} nye kandidatlenker...", kandidatLinksToSave.size());
-                // Anta at du har en kandidatLinkRepository
-                kandidatLinkRepository.saveAll(kandidatLinksToSave);
-                LOGGER.info("Lagring av kandidatlenker fullført");
-            } else {
-                LOGGER.info("Ingen nye kandidatlenker å lagre");
+        LocalDateTime tidspunkt = LocalDateTime.now();
+        List<WriteBehindEntry.Omtale> omtaler = new ArrayList<>();
+        for (String kandidatName : allKandidatNames) {
+            for (String articleUrl : personArticleIndex.getArticlesForPerson(kandidatName)) {
+                omtaler.add(new WriteBehindEntry.Omtale(kandidatName, articleUrl, tidspunkt));
             }
+        }
+        writeBehindLog.append(omtaler);
+        LOGGER.info("La {} omtaler i write-behind-loggen", omtaler.size());
 
-        } catch (Exception e) {
-            LOGGER.error("Feil under prosessering av kandidater: ", e);
-            throw e;
+        if (writeBehindFlusher.flush()) {
+            LOGGER.info("Lagring av kandidatlenker fullført");
+        } else {
+            LOGGER.warn("Kandidatlenker ble ikke lagret nå, de skrives fra write-behind-loggen senere");
         }
     }
 }
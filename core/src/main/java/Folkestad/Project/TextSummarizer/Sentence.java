@@ -1,5 +1,7 @@
 package folkestad.project.TextSummarizer;
 
+import java.util.Arrays;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -27,24 +29,107 @@ public class Sentence {
      */
     private int noOfWords;
     /**
-     * Selve setningsteksten.
+     * Teksten setningen er hentet fra.
+     */
+    private CharSequence source;
+    /**
+     * Startposisjon (inklusiv) i kildeteksten.
+     */
+    private int start;
+    /**
+     * Sluttposisjon (eksklusiv) i kildeteksten.
+     */
+    private int end;
+    /**
+     * Sortert liste med 64-bits hasher av ordene i setningen, uten hensyn til store/små bokstaver.
+     * Ord sammenlignes bare på hash, så to ulike ord med samme hash regnes som like.
+     */
+    private long[] wordHashes;
+    /**
+     * Selve setningsteksten, opprettes først når den trengs.
      */
     private String value;
 
     /**
-     * Oppretter en ny Sentence med gitt nummer, tekst, lengde og avsnittsnummer.
+     * Oppretter en ny Sentence som et intervall i kildeteksten.
+     * Ordene hashes én gang her, slik at sammenligning av setninger ikke trenger delstrenger.
      *
      * @param number          Setningens nummer i avsnittet
-     * @param value           Setningstekst
-     * @param stringLength    Lengde på setningen (antall tegn)
+     * @param source          Teksten setningen er hentet fra
+     * @param start           Startposisjon (inklusiv)
+     * @param end             Sluttposisjon (eksklusiv)
      * @param paragraphNumber Nummeret til avsnittet
      */
-    public Sentence(final int number, final String value, final int stringLength, final int paragraphNumber) {
+    public Sentence(final int number, final CharSequence source, final int start, final int end,
+            final int paragraphNumber) {
         this.number = number;
-        this.value = value;
-        this.stringLength = this.value.length();
-        this.noOfWords = this.value.split("\\s+").length;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.stringLength = end - start;
+        this.wordHashes = hashWords(source, start, end);
+        this.noOfWords = wordHashes.length;
         this.score = 0.0;
         this.paragraphNumber = paragraphNumber;
     }
+
+    /**
+     * Returnerer setningsteksten, og oppretter den fra kildeteksten ved første kall.
+     *
+     * @return Setningstekst
+     */
+    public String getValue() {
+        if (value == null) {
+            value = source.subSequence(start, end).toString();
+        }
+        return value;
+    }
+
+    /**
+     * Hasher hvert ord (skilt med mellomrom) i intervallet og returnerer hashene sortert.
+     * <p>
+     * Hashen er et polynom over tegnene med 64 biter. Ulike ord kan i prinsippet få samme hash og
+     * telles da som felles ord. Det er så sjeldent at det ikke merkes i poengsummene, og det er
+     * billigere enn å lagre ordenes posisjoner for å sammenligne teksten ved like hasher.
+     * </p>
+     *
+     * @param text  kildeteksten
+     * @param from  startposisjon (inklusiv)
+     * @param to    sluttposisjon (eksklusiv)
+     * @return sorterte ord-hasher
+     */
+    private static long[] hashWords(final CharSequence text, final int from, final int to) {
+        int count = 0;
+        boolean inWord = false;
+        for (int i = from; i < to; i++) {
+            boolean whitespace = Character.isWhitespace(text.charAt(i));
+            if (!whitespace && !inWord) {
+                count++;
+            }
+            inWord = !whitespace;
+        }
+
+        long[] hashes = new long[count];
+        int index = -1;
+        long hash = 0L;
+        inWord = false;
+        for (int i = from; i <= to; i++) {
+            boolean whitespace = i == to || Character.isWhitespace(text.charAt(i));
+            if (!whitespace) {
+                char c = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+                if (!inWord) {
+                    index++;
+                    hash = 1125899906842597L;
+                }
+                hash = 31 * hash + c;
+                inWord = true;
+            } else if (inWord) {
+                hashes[index] = hash;
+                inWord = false;
+            }
+        }
+
+        Arrays.sort(hashes);
+        return hashes;
+    }
 }
@@ -0,0 +1,225 @@
+package folkestad.project.TextSummarizer;
+
+/**
+ * Deler en tekst i setninger i én gjennomgang og gir hver setning som et tegnintervall
+ * (start inklusiv, slutt eksklusiv) i den opprinnelige teksten, uten å opprette delstrenger.
+ * <p>
+ * Punktum avslutter bare en setning når det ikke er del av et desimaltall ("3.5"), en kjent
+ * norsk forkortelse ("f.eks.", "bl.a.", "kl."), en initial ("J. Støre") eller et ordenstall
+ * foran små bokstaver ("17. mai"). Punktumet tas ikke med i setningen, mens '!' og '?' beholdes.
+ * En tom linje starter et nytt avsnitt.
+ * </p>
+ */
+public final class SentenceSegmenter {
+
+    /** Norske forkortelser uten siste punktum, med små bokstaver. */
+    private static final String[] ABBREVIATIONS = {
+        "bl.a", "f.eks", "dvs", "osv", "mv", "m.m", "ca", "nr", "kl", "jf", "pst", "mill", "mrd",
+        "kr", "st", "dr", "prof", "t.o.m", "fr.o.m", "o.l", "e.l", "o.a", "evt", "ev", "inkl",
+        "ekskl", "p.t", "gr", "etc", "mht", "vedr", "iht", "ift", "hhv", "m.a.o", "ang", "tlf",
+        "avd", "red", "jr", "sr", "ref", "vs", "mnd", "stk", "forts", "adm", "dir"
+    };
+
+    private final CharSequence text;
+    private int position;
+    private int paragraph;
+    private boolean paragraphHasSentence;
+
+    private int start;
+    private int end;
+    private int sentenceParagraph;
+
+    /**
+     * Oppretter en segmenterer for en tekst.
+     *
+     * @param text teksten som skal deles i setninger
+     */
+    public SentenceSegmenter(final CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Finner neste setning.
+     *
+     * @return true hvis en ny setning ble funnet, false når teksten er lest ferdig
+     */
+    public boolean next() {
+        int length = text.length();
+        int sentenceStart = -1;
+        int lastContent = -1;
+        int newlines = 0;
+
+        while (position < length) {
+            char c = text.charAt(position);
+
+            if (c == '\n') {
+                newlines++;
+                position++;
+                if (newlines == 2) {
+                    if (sentenceStart >= 0) {
+                        emit(sentenceStart, lastContent + 1);
+                        startNewParagraph();
+                        return true;
+                    }
+                    if (paragraphHasSentence) {
+                        startNewParagraph();
+                    }
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                position++;
+                continue;
+            }
+
+            newlines = 0;
+            if (sentenceStart < 0) {
+                sentenceStart = position;
+            }
+
+            if (c == '.' && isSentenceEndingPeriod(position)) {
+                position++;
+                if (lastContent >= sentenceStart) {
+                    emit(sentenceStart, lastContent + 1);
+                    return true;
+                }
+                sentenceStart = -1;
+                continue;
+            }
+            if (c == '!' || c == '?') {
+                position++;
+                while (position < length && (text.charAt(position) == '!' || text.charAt(position) == '?')) {
+                    position++;
+                }
+                emit(sentenceStart, position);
+                return true;
+            }
+
+            lastContent = position;
+            position++;
+        }
+
+        if (sentenceStart >= 0 && lastContent >= sentenceStart) {
+            emit(sentenceStart, lastContent + 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return startposisjon (inklusiv) for gjeldende setning
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return sluttposisjon (eksklusiv) for gjeldende setning
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return avsnittsnummeret til gjeldende setning
+     */
+    public int getSentenceParagraph() {
+        return sentenceParagraph;
+    }
+
+    /**
+     * @return nummeret til siste avsnitt som er lest
+     */
+    public int getParagraph() {
+        return paragraph;
+    }
+
+    /**
+     * Setter gjeldende setning.
+     *
+     * @param sentenceStart startposisjon (inklusiv)
+     * @param sentenceEnd   sluttposisjon (eksklusiv)
+     */
+    private void emit(final int sentenceStart, final int sentenceEnd) {
+        this.start = sentenceStart;
+        this.end = sentenceEnd;
+        this.sentenceParagraph = paragraph;
+        this.paragraphHasSentence = true;
+    }
+
+    /**
+     * Går videre til neste avsnitt.
+     */
+    private void startNewParagraph() {
+        paragraph++;
+        paragraphHasSentence = false;
+    }
+
+    /**
+     * Avgjør om punktumet på gitt posisjon avslutter en setning.
+     *
+     * @param dot posisjonen til punktumet
+     * @return true hvis punktumet avslutter setningen
+     */
+    private boolean isSentenceEndingPeriod(final int dot) {
+        int length = text.length();
+        if (dot + 1 < length && text.charAt(dot + 1) == '.') {
+            return false;
+        }
+        if (dot > 0 && dot + 1 < length
+                && Character.isDigit(text.charAt(dot - 1)) && Character.isDigit(text.charAt(dot + 1))) {
+            return false;
+        }
+
+        int tokenStart = dot;
+        while (tokenStart > 0 && !isTokenBoundary(text.charAt(tokenStart - 1))) {
+            tokenStart--;
+        }
+        if (dot - tokenStart == 1 && Character.isLetter(text.charAt(tokenStart))) {
+            return false;
+        }
+        if (isAbbreviation(tokenStart, dot)) {
+            return false;
+        }
+
+        int next = dot + 1;
+        while (next < length && Character.isWhitespace(text.charAt(next))) {
+            next++;
+        }
+        return next >= length || !Character.isLowerCase(text.charAt(next));
+    }
+
+    /**
+     * Sjekker om ordet i gitt intervall er en kjent forkortelse, uten hensyn til store/små bokstaver.
+     *
+     * @param tokenStart startposisjon for ordet
+     * @param tokenEnd   posisjonen til punktumet etter ordet
+     * @return true hvis ordet er en forkortelse
+     */
+    private boolean isAbbreviation(final int tokenStart, final int tokenEnd) {
+        int tokenLength = tokenEnd - tokenStart;
+        for (String abbreviation : ABBREVIATIONS) {
+            if (abbreviation.length() != tokenLength) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < tokenLength && matches; i++) {
+                matches = Character.toLowerCase(text.charAt(tokenStart + i)) == abbreviation.charAt(i);
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sjekker om et tegn skiller ord fra hverandre ved oppslag av forkortelser.
+     *
+     * @param c tegnet som skal sjekkes
+     * @return true hvis tegnet er mellomrom eller en åpnende parentes/anførselstegn
+     */
+    private static boolean isTokenBoundary(final char c) {
+        return Character.isWhitespace(c) || c == '(' || c == '«' || c == '"' || c == '“' || c == '[';
+    }
+}
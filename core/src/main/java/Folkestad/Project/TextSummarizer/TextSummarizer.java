@@ -74,52 +74,19 @@ public class TextSummarizer {
 
     /**
      * Ekstraherer setninger fra tekst og grupperer dem etter avsnitt.
+     * Setningene lagres som intervaller i teksten; delstrenger opprettes bare for
+     * setningene som havner i sammendraget.
      *
      * @param inputText Tekst som skal deles opp i setninger
      */
-    private void extractSentenceFromContext(final String inputText) {
-        String[] lines = inputText.split("\n");
-        int prevChar = -1;
-
-        StringBuilder currentSentence = new StringBuilder();
-
-        for (String line : lines) {
-            for (int i = 0; i < line.length(); i++) {
-                char nextChar = line.charAt(i);
-
-                if (nextChar != '.') {
-                    currentSentence.append(nextChar);
-                } else {
-                    // Funnet slutt på setning
-                    String sentenceText = currentSentence.toString().trim();
-                    if (sentenceText.length() > 0) {
-                        sentences.add(new Sentence(noOfSentences, sentenceText, sentenceText.length(), noOfParagraphs));
-                        noOfSentences++;
-                    }
-                    currentSentence.setLength(0);
-                }
-
-                // Sjekk for ny paragraf (to linefeed etter hverandre)
-                if (nextChar == '\n' && prevChar == '\n') {
-                    noOfParagraphs++;
-                }
-
-                prevChar = nextChar;
-            }
-
-            // Legg til linefeed på slutten av hver linje
-            if (currentSentence.length() > 0) {
-                currentSentence.append('\n');
-            }
-            prevChar = '\n';
-        }
-
-        // Legg til siste setning hvis den ikke ender med punktum
-        String lastSentence = currentSentence.toString().trim();
-        if (lastSentence.length() > 0) {
-            sentences.add(new Sentence(noOfSentences, lastSentence, lastSentence.length(), noOfParagraphs));
+    private void extractSentenceFromContext(final CharSequence inputText) {
+        SentenceSegmenter segmenter = new SentenceSegmenter(inputText);
+        while (segmenter.next()) {
+            sentences.add(new Sentence(noOfSentences, inputText, segmenter.getStart(), segmenter.getEnd(),
+                    segmenter.getSentenceParagraph()));
             noOfSentences++;
         }
+        noOfParagraphs = segmenter.getParagraph();
     }
 
     /**
@@ -144,19 +111,39 @@ public class TextSummarizer {
 
     /**
      * Finner antall felles ord mellom to setninger.
+     * Teller ordpar som er like uten hensyn til store/små bokstaver, ved å flette
+     * de sorterte ord-hashene til setningene. Ord med samme hash regnes som like, også
+     * i det sjeldne tilfellet at hashene kolliderer (se {@link Sentence}).
      *
      * @param str1 Første setning
      * @param str2 Andre setning
      * @return Antall felles ord
      */
     private double noOfCommonWords(final Sentence str1, final Sentence str2) {
+        long[] words1 = str1.getWordHashes();
+        long[] words2 = str2.getWordHashes();
         double commonCount = 0;
 
-        for (String str1Word : str1.getValue().split("\\s+")) {
-            for (String str2Word : str2.getValue().split("\\s+")) {
-                if (str1Word.compareToIgnoreCase(str2Word) == 0) {
-                    commonCount++;
+        int i = 0;
+        int j = 0;
+        while (i < words1.length && j < words2.length) {
+            if (words1[i] < words2[j]) {
+                i++;
+            } else if (words1[i] > words2[j]) {
+                j++;
+            } else {
+                long word = words1[i];
+                int count1 = 0;
+                while (i < words1.length && words1[i] == word) {
+                    count1++;
+                    i++;
+                }
+                int count2 = 0;
+                while (j < words2.length && words2[j] == word) {
+                    count2++;
+                    j++;
                 }
+                commonCount += (double) count1 * count2;
             }
         }
 
@@ -0,0 +1,14 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDateTime;
+
+/**
+ * Uforanderlig resultat av én analyse for alle kilder, publisert samlet av {@link KandidateAnalysis}.
+ * En leser som henter et snapshot ser alltid data fra samme oppdatering, uten låsing.
+ * Analysedata for en kilde lages fra omtalelageret når de spørres etter.
+ *
+ * @param omtaler       uforanderlig utsnitt av omtalelageret
+ * @param sistOppdatert tidspunktet analysen ble bygget
+ */
+public record AnalysisSnapshot(OmtaleUtsnitt omtaler, LocalDateTime sistOppdatert) {
+}
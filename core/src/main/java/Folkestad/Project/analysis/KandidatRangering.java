@@ -0,0 +1,128 @@
+package folkestad.project.analysis;
+
+/**
+ * Finner de høyest rangerte kandidatene etter poeng uten å sortere alle. De beste holdes i en heap
+ * av kandidat-id-er med plass til antall kandidater som skal returneres, der den svakest rangerte
+ * står først. Høyere poeng rangeres foran, og kandidater med like mange poeng rangeres alfabetisk.
+ */
+final class KandidatRangering {
+
+    private final MentionStore lager;
+    private final double[] poeng;
+    private final int[] heap;
+    private int stoerrelse;
+
+    /**
+     * Oppretter en tom rangering.
+     *
+     * @param lager  det frosne lageret kandidat-id-ene gjelder
+     * @param plasser hvor mange kandidater som skal returneres
+     */
+    KandidatRangering(final MentionStore lager, final int plasser) {
+        this.lager = lager;
+        poeng = new double[lager.antallKandidater()];
+        heap = new int[Math.min(plasser, lager.antallKandidater())];
+    }
+
+    /**
+     * Tar med en kandidat i rangeringen. Hver kandidat må bare legges til én gang.
+     *
+     * @param kandidat       kandidat-id
+     * @param kandidatPoeng  kandidatens poeng
+     */
+    void leggTil(final int kandidat, final double kandidatPoeng) {
+        poeng[kandidat] = kandidatPoeng;
+        if (stoerrelse < heap.length) {
+            heap[stoerrelse] = kandidat;
+            flyttOpp(stoerrelse);
+            stoerrelse++;
+        } else if (stoerrelse > 0 && foran(kandidat, heap[0])) {
+            heap[0] = kandidat;
+            flyttNed(stoerrelse);
+        }
+    }
+
+    /**
+     * Tømmer heapen og returnerer kandidatene, best først.
+     *
+     * @return kandidat-id-er
+     */
+    int[] rangert() {
+        int[] rangert = new int[stoerrelse];
+        for (int i = stoerrelse - 1; i >= 0; i--) {
+            rangert[i] = heap[0];
+            heap[0] = heap[i];
+            flyttNed(i);
+        }
+        stoerrelse = 0;
+        return rangert;
+    }
+
+    /**
+     * Sjekker om en kandidat rangeres foran en annen: høyere poeng først, og alfabetisk ved likt.
+     *
+     * @param a kandidat-id
+     * @param b kandidat-id
+     * @return true hvis a rangeres foran b
+     */
+    private boolean foran(final int a, final int b) {
+        if (poeng[a] != poeng[b]) {
+            return poeng[a] > poeng[b];
+        }
+        return lager.navn(a).compareTo(lager.navn(b)) < 0;
+    }
+
+    /**
+     * Flytter et nytt element opp i heapen.
+     *
+     * @param i plassen til det nye elementet
+     */
+    private void flyttOpp(final int i) {
+        int barn = i;
+        while (barn > 0) {
+            int forelder = (barn - 1) >>> 1;
+            if (!foran(heap[forelder], heap[barn])) {
+                return;
+            }
+            bytt(forelder, barn);
+            barn = forelder;
+        }
+    }
+
+    /**
+     * Flytter det første elementet ned i heapen.
+     *
+     * @param antall antall elementer i bruk
+     */
+    private void flyttNed(final int antall) {
+        int forelder = 0;
+        while (true) {
+            int svakest = forelder;
+            int venstre = 2 * forelder + 1;
+            int hoeyre = venstre + 1;
+            if (venstre < antall && foran(heap[svakest], heap[venstre])) {
+                svakest = venstre;
+            }
+            if (hoeyre < antall && foran(heap[svakest], heap[hoeyre])) {
+                svakest = hoeyre;
+            }
+            if (svakest == forelder) {
+                return;
+            }
+            bytt(forelder, svakest);
+            forelder = svakest;
+        }
+    }
+
+    /**
+     * Bytter plass på to elementer i heapen.
+     *
+     * @param i plass
+     * @param j plass
+     */
+    private void bytt(final int i, final int j) {
+        int k = heap[i];
+        heap[i] = heap[j];
+        heap[j] = k;
+    }
+}
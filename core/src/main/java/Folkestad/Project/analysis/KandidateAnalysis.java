@@ -1,68 +1,209 @@
 package folkestad.project.analysis;
 
+import folkestad.KandidatLinkRad;
 import folkestad.KandidatLinkRepository;
+import folkestad.KandidatLinkerLagretEvent;
+import folkestad.KandidatOmtaleDag;
+import folkestad.KandidatOmtaleDagRepository;
+import folkestad.KandidatOmtaleRad;
+import folkestad.KandidaterOppdatertEvent;
+import folkestad.Nettsted;
 import folkestad.project.DataDTO;
-import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 /**
  * Service for å håndtere kandidat analyse med caching.
- * Holder analysedata for VG, NRK, E24 og samlet (ALT)
+ * Holder alle kandidatomtaler i et kolonnebasert {@link MentionStore}, og analysedata for hvert
+ * nettsted og samlet (ALT) lages fra det når de spørres etter.
+ * <p>
+ * Analysen bygges fullt fra databasen første gang. Deretter holdes summene i minnet, og nye
+ * kandidatlenker legges til når {@link KandidatLinkerLagretEvent} kommer, slik at en oppdatering
+ * koster i forhold til antall nye lenker og ikke hele historikken. En full oppbygging kan
+ * fortsatt kjøres med {@link #verifiser()} for å kontrollere og rette opp summene.
+ * </p>
+ * <p>
+ * Resultatet publiseres som ett {@link AnalysisSnapshot} med ett atomisk bytte, så lesere aldri
+ * ser en blanding av gammel og ny analyse og aldri venter på en oppdatering.
+ * </p>
  */
 @Service
-@Getter
 public class KandidateAnalysis {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidateAnalysis.class);
+
     @Autowired
     private KandidatLinkRepository kandidatLinkRepository;
 
-    private DataDTO dataVG;
-    private DataDTO dataNRK;
-    private DataDTO dataE24;
-    private DataDTO dataAlt;
-    private DataDTO dataDagbladet;
+    @Autowired
+    private KandidatOmtaleDagRepository kandidatOmtaleDagRepository;
+
+    private MentionStore analyse;
 
-    private LocalDateTime sistOppdatert;
+    private final AtomicReference<AnalysisSnapshot> snapshot = new AtomicReference<>();
 
     /**
      * Utfører kandidat-analyse og oppdaterer cache for alle kilder.
-     * Henter data fra database og filtrerer per kilde.
+     * Strømmer de aktive kandidatlenkene fra databasen én gang, og hver rad fordeles én gang til
+     * analysen for sitt nettsted og til ALT. Antall omtaler per kandidat, parti og kilde beregnes
+     * fra omtale-aggregatet, som også dekker arkiverte lenker. Artikkellistene inneholder bare
+     * lenker innenfor oppbevaringstiden.
      *
      * Ingen parametre.
-     * Setter analysedata for VG, NRK, E24, Dagbladet og ALT.
+     * Setter analysedata for alle nettsteder og ALT.
      */
-    public void analyzeKandidatData() {
-        List<Object[]> rawData = kandidatLinkRepository.findKandidatNavnWithLinks();
-
-        dataVG = KildeDataAnalyzer.analyzeDataByKilde(rawData, "vg.no");
-        dataNRK = KildeDataAnalyzer.analyzeDataByKilde(rawData, "nrk.no");
-        dataE24 = KildeDataAnalyzer.analyzeDataByKilde(rawData, "e24.no");
-        dataAlt = KildeDataAnalyzer.analyzeDataByKilde(rawData, "ALT");
-        dataDagbladet = KildeDataAnalyzer.analyzeDataByKilde(rawData, "dagbladet.no");
-
-        sistOppdatert = LocalDateTime.now();
+    @Transactional(readOnly = true)
+    public synchronized void analyzeKandidatData() {
+        analyse = byggFraDatabase();
+        publiser();
     }
 
     /**
-     * Oppdaterer analyse-dataene fra database ved å kjøre analyse på nytt.
+     * Sørger for at analysedata finnes. Kjører full analyse bare hvis den ikke er bygget ennå,
+     * siden nye lenker ellers allerede er lagt til fortløpende.
      *
      * Ingen parametre.
      * Ingen returverdi.
      */
-    public void oppdater() {
-        analyzeKandidatData();
+    @Transactional(readOnly = true)
+    public synchronized void oppdater() {
+        if (analyse == null) {
+            analyzeKandidatData();
+        }
+    }
+
+    /**
+     * Bygger analysen på nytt fra databasen og sammenligner med summene som er oppdatert
+     * fortløpende. Avvik logges, og den nye analysen tas i bruk uansett.
+     *
+     * @return true hvis den fortløpende analysen stemte med databasen
+     */
+    @Transactional(readOnly = true)
+    public synchronized boolean verifiser() {
+        if (analyse == null) {
+            analyzeKandidatData();
+            return true;
+        }
+        AnalysisSnapshot gammel = snapshot.get();
+
+        analyse = byggFraDatabase();
+        publiser();
+        AnalysisSnapshot ny = snapshot.get();
+
+        boolean likt = sammenlign(MentionStore.ALT, gammel.omtaler().data(null), ny.omtaler().data(null));
+        for (Nettsted nettsted : Nettsted.values()) {
+            Set<Nettsted> kilde = Set.of(nettsted);
+            likt &= sammenlign(nettsted.getDomain(), gammel.omtaler().data(kilde), ny.omtaler().data(kilde));
+        }
+        if (likt) {
+            LOGGER.info("Verifisering av analysen fant ingen avvik");
+        }
+        return likt;
+    }
+
+    /**
+     * Legger til nylig lagrede kandidatlenker i analysen etter at transaksjonen som lagret dem er fullført.
+     *
+     * @param event hendelsen med de nye lenkene
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onKandidatLinkerLagret(final KandidatLinkerLagretEvent event) {
+        if (analyse == null) {
+            return;
+        }
+        int nye = analyse.leggTilNye(event.rader());
+        if (nye > 0) {
+            publiser();
+            LOGGER.debug("La til {} nye kandidatlenker i analysen", nye);
+        }
+    }
+
+    /**
+     * Forkaster analysen når kandidatene er endret, slik at neste oppdatering bygger alt på nytt
+     * med nye partinavn, alder og kjønn.
+     *
+     * @param event hendelsen om at kandidater er oppdatert
+     */
+    @EventListener
+    public synchronized void onKandidaterOppdatert(final KandidaterOppdatertEvent event) {
+        analyse = null;
+    }
+
+    /**
+     * Returnerer siste publiserte analyse. Lesere bør hente snapshotet én gang per forespørsel
+     * og bruke det videre, slik at alle data kommer fra samme oppdatering.
+     *
+     * @return siste analyse, eller null hvis analysen ikke er kjørt
+     */
+    public AnalysisSnapshot getSnapshot() {
+        return snapshot.get();
     }
 
     /**
      * Sjekker om analysedata er tilgjengelig.
      *
-     * @return true hvis analyse er kjørt og dataAlt er satt, ellers false
+     * @return true hvis analyse er kjørt, ellers false
      */
     public boolean erDataTilgjengelig() {
-        return dataAlt != null;
+        return snapshot.get() != null;
     }
-}
 
+    /**
+     * Bygger en ny analyse fra kandidatlenkene og omtale-aggregatet i databasen.
+     *
+     * @return analysen
+     */
+    private MentionStore byggFraDatabase() {
+        MentionStore ny = new MentionStore();
+        try (Stream<KandidatLinkRad> rader = kandidatLinkRepository.streamAlleKandidatLinker()) {
+            rader.forEach(ny::leggTil);
+        }
+        for (KandidatOmtaleRad rad : kandidatOmtaleDagRepository.summerOmtaler()) {
+            ny.leggTilOmtaler(rad);
+        }
+        try (Stream<KandidatOmtaleDag> dager = kandidatOmtaleDagRepository.streamAlleDager()) {
+            dager.forEach(dag -> ny.leggTilOmtaleDag(dag.getKandidatNavn(), dag.getNettsted(), dag.getDag(),
+                    dag.getAntall()));
+        }
+        return ny;
+    }
+
+    /**
+     * Fryser omtalelageret og publiserer det som et nytt snapshot.
+     */
+    private void publiser() {
+        snapshot.set(new AnalysisSnapshot(analyse.frys(), LocalDateTime.now()));
+    }
+
+    /**
+     * Sammenligner totalsummene for én kilde og logger avvik.
+     *
+     * @param kilde kilden
+     * @param gammel dataDTO fra den fortløpende analysen
+     * @param ny    dataDTO fra full oppbygging
+     * @return true hvis summene er like
+     */
+    private static boolean sammenlign(final String kilde, final DataDTO gammel, final DataDTO ny) {
+        if (gammel == null || ny == null) {
+            return gammel == ny;
+        }
+        boolean likt = gammel.getTotaltAntallArtikler() == ny.getTotaltAntallArtikler()
+                && gammel.getAllePersonernevnt().size() == ny.getAllePersonernevnt().size()
+                && gammel.getPartiMentions().equals(ny.getPartiMentions());
+        if (!likt) {
+            LOGGER.warn("Avvik i analysen for {}: {} artikler og {} personer fortløpende, {} artikler og {} personer "
+                    + "fra databasen", kilde, gammel.getTotaltAntallArtikler(), gammel.getAllePersonernevnt().size(),
+                    ny.getTotaltAntallArtikler(), ny.getAllePersonernevnt().size());
+        }
+        return likt;
+    }
+}
@@ -0,0 +1,69 @@
+package folkestad.project.analysis;
+
+/**
+ * Bygger og holder {@link OmtaleKube}-en til et frosset {@link MentionStore}. Kuben bygges første
+ * gang den trengs. Celler arvet fra kuben til forrige utsnitt gjenbrukes, og bare dagstall fra første
+ * endrede dag legges til på nytt.
+ */
+final class KubeCache {
+
+    private final MentionStore lager;
+    private volatile OmtaleKube kube;
+    private OmtaleKube arvetKube;
+    private int fraDag;
+
+    /**
+     * Oppretter kubecachen for et frosset lager. Har forrige utsnitt bygget kuben, arves den; ellers
+     * arves kuben forrige utsnitt selv arvet, fra den tidligste av de endrede dagene.
+     *
+     * @param lager         det frosne lageret
+     * @param forrige       kubecachen til forrige utsnitt, eller null
+     * @param foersteNyeDag første dag med nye dagstall siden forrige utsnitt
+     */
+    KubeCache(final MentionStore lager, final KubeCache forrige, final int foersteNyeDag) {
+        this.lager = lager;
+        fraDag = foersteNyeDag;
+        if (forrige == null) {
+            return;
+        }
+        synchronized (forrige) {
+            if (forrige.kube != null) {
+                arvetKube = forrige.kube;
+            } else if (forrige.arvetKube != null) {
+                arvetKube = forrige.arvetKube;
+                fraDag = Math.min(fraDag, forrige.fraDag);
+            }
+        }
+    }
+
+    /**
+     * Returnerer kuben, og bygger den første gang.
+     *
+     * @return kuben
+     */
+    OmtaleKube kube() {
+        OmtaleKube ferdig = kube;
+        if (ferdig != null) {
+            return ferdig;
+        }
+        synchronized (this) {
+            if (kube != null) {
+                return kube;
+            }
+            int byggFra = Integer.MIN_VALUE;
+            if (arvetKube != null) {
+                byggFra = fraDag;
+            }
+            OmtaleKube.Bygger bygger = new OmtaleKube.Bygger(arvetKube, byggFra);
+            for (int k = 0; k < lager.antallKandidater(); k++) {
+                bygger.kandidat(k, lager.parti(k), lager.kjoenn(k), lager.valgdistrikt(k), lager.alder(k));
+            }
+            for (int i = lager.foersteDagrad(byggFra); i < lager.antallDager(); i++) {
+                bygger.leggTil(lager.dagDag(i), lager.dagNettsted(i), lager.dagKandidat(i), lager.dagAntall(i));
+            }
+            kube = bygger.bygg();
+            arvetKube = null;
+            return kube;
+        }
+    }
+}
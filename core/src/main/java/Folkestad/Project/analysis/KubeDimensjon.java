@@ -0,0 +1,59 @@
+package folkestad.project.analysis;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Dimensjonene i {@link OmtaleKube}, som kan brukes til å gruppere og filtrere omtaler.
+ */
+public enum KubeDimensjon {
+
+    /** Nettstedet omtalene kommer fra. */
+    KILDE("kilde"),
+    /** Kandidatens parti. */
+    PARTI("parti"),
+    /** Kandidatens kjønn. */
+    KJOENN("kjoenn"),
+    /** Kandidatens valgdistrikt. */
+    VALGDISTRIKT("valgdistrikt"),
+    /** Kandidatens aldersgruppe. */
+    ALDERSGRUPPE("aldersgruppe"),
+    /** Dagen omtalene er fra. */
+    DAG("dag");
+
+    private final String parameter;
+
+    /**
+     * Konstruktør for KubeDimensjon.
+     *
+     * @param parameter navnet dimensjonen har i API-et
+     */
+    KubeDimensjon(final String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * Returnerer navnet dimensjonen har i API-et.
+     *
+     * @return navnet
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Finner dimensjonen for et navn slik det oppgis i API-et.
+     *
+     * @param navn navnet, uten hensyn til store bokstaver
+     * @return Optional med dimensjonen, tom hvis navnet er ukjent
+     */
+    public static Optional<KubeDimensjon> fraParameter(final String navn) {
+        if (navn == null) {
+            return Optional.empty();
+        }
+        String normalisert = navn.trim().toLowerCase();
+        return Arrays.stream(values())
+                .filter(dimensjon -> dimensjon.parameter.equals(normalisert))
+                .findFirst();
+    }
+}
@@ -0,0 +1,21 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import folkestad.Nettsted;
+
+/**
+ * Et oppslag i {@link OmtaleKube}: hvilke omtaler som skal tas med, og hvilke dimensjoner de skal
+ * grupperes etter. Dimensjoner som ikke grupperes summeres opp.
+ *
+ * @param nettsteder nettstedene, eller null for alle kilder
+ * @param fraDato    første dag (inklusiv), eller null for ingen nedre grense
+ * @param tilDato    siste dag (inklusiv), eller null for ingen øvre grense
+ * @param grupper    dimensjonene resultatet grupperes etter
+ * @param filter     tillatte verdier per dimensjon; dimensjoner som ikke er med filtreres ikke
+ */
+public record KubeSpoerring(Set<Nettsted> nettsteder, LocalDate fraDato, LocalDate tilDato,
+        Set<KubeDimensjon> grupper, Map<KubeDimensjon, Set<String>> filter) {
+}
@@ -0,0 +1,873 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import folkestad.KandidatLinkRad;
+import folkestad.KandidatOmtaleRad;
+import folkestad.Nettsted;
+
+/**
+ * Kolonnebasert lager for alle kandidatomtaler i analysen.
+ * <p>
+ * Kandidater og artikler lagres én gang hver og får et heltall som id. Hver kandidatlenke er
+ * én rad i parallelle primitive tabeller (kandidat-id, artikkel-id, nettsted og epoch-dag), og
+ * dagstallene fra omtale-aggregatet lagres på samme måte. Radene holdes sortert på dag, så et
+ * datointervall er en sammenhengende del av tabellene og finnes med binærsøk. Summen av omtaler
+ * per kandidat og nettsted ligger i én int-tabell, og bitmasker per kandidat viser hvilke kilder
+ * kandidaten finnes i. Hvert nettsted har sin bit, så en vilkårlig kombinasjon av nettsteder
+ * velges ved å filtrere radene på en bitmaske.
+ * </p>
+ * <p>
+ * Lageret bygges og oppdateres av én skriver. {@link #frys()} gir et uforanderlig
+ * {@link OmtaleUtsnitt} over et frosset lager som deler tabellene med skriveren: nye rader legges
+ * etter utsnittets lengde og er usynlige for det, og tabellene byttes ut i stedet for å endres når
+ * de må utvides eller sorteres på nytt. Oppslagene gjøres av utsnittets samarbeidspartnere, som
+ * leser det frosne lageret gjennom de pakkesynlige metodene her.
+ * </p>
+ * <p>
+ * Tekstverdier slås opp i en felles ordbok mens lageret bygges, så hvert navn, parti, kjønn,
+ * valgdistrikt og hver URL finnes én gang i minnet uansett hvor mange rader som viser til dem.
+ * Kandidater som er omtalt i samme artikkel holdes i en {@link SamomtaleGraf}, som oppdateres for
+ * hver ny lenke og fryses sammen med lageret.
+ * </p>
+ */
+public final class MentionStore {
+
+    /**
+     * Kildenavnet som brukes for alle kilder samlet.
+     */
+    public static final String ALT = "ALT";
+
+    /** Plassen for alle kilder samlet, etter én plass per nettsted. */
+    static final int ALT_PLASS = Nettsted.values().length;
+    /** Antall plasser per kandidat: ett per nettsted og ett for ALT. */
+    static final int PLASSER = ALT_PLASS + 1;
+    /** Bitmasken for alle kilder samlet. */
+    static final int ALT_BIT = 1 << ALT_PLASS;
+    /** Dagen til lenker uten tidspunkt. */
+    static final int INGEN_DAG = Integer.MIN_VALUE;
+
+    private static final byte UKJENT_NETTSTED = -1;
+    private static final int INGEN_ALDER = -1;
+    private static final int START_KAPASITET = 64;
+
+    private final boolean frosset;
+
+    // Kandidater, indeksert på kandidat-id
+    private final Map<String, Integer> kandidatIder;
+    private final Map<String, String> partiCache;
+    private final Map<String, String> ordbok;
+    private String[] navn;
+    private String[] parti;
+    private String[] kjoenn;
+    private String[] valgdistrikt;
+    private int[] alder;
+    private int[] kildeMaske;
+    private int[] omtaleMaske;
+    private int[] omtaler;
+    private int antallKandidater;
+
+    // Artikler, indeksert på artikkel-id
+    private String[] urler;
+    private int[] urlTabell;
+    private int antallUrler;
+
+    // Kandidatlenker, sortert på dag etter frys()
+    private int[] lenkeKandidat;
+    private int[] lenkeArtikkel;
+    private int[] lenkeDag;
+    private byte[] lenkeNettsted;
+    private int antallLenker;
+    private boolean lenkerSortert;
+    private int lenkeRekkefoelge;
+    private int[] lenkeTabell;
+
+    // Dagstall fra omtale-aggregatet, sortert på dag etter frys()
+    private int[] dagKandidat;
+    private int[] dagDag;
+    private int[] dagAntall;
+    private byte[] dagNettsted;
+    private int antallDager;
+    private boolean dagerSortert;
+    private int foersteNyeDag = Integer.MAX_VALUE;
+
+    // Kandidater omtalt i samme artikkel
+    private final SamomtaleGraf samomtaler;
+
+    // Forrige utsnitt, som neste utsnitt kan arve artikler og kubeceller fra
+    private OmtaleUtsnitt forrigeUtsnitt;
+
+    /**
+     * Oppretter et tomt lager.
+     */
+    MentionStore() {
+        frosset = false;
+        kandidatIder = new HashMap<>();
+        partiCache = new HashMap<>();
+        ordbok = new HashMap<>();
+        navn = new String[START_KAPASITET];
+        parti = new String[START_KAPASITET];
+        kjoenn = new String[START_KAPASITET];
+        valgdistrikt = new String[START_KAPASITET];
+        alder = new int[START_KAPASITET];
+        kildeMaske = new int[START_KAPASITET];
+        omtaleMaske = new int[START_KAPASITET];
+        omtaler = new int[START_KAPASITET * PLASSER];
+        urler = new String[START_KAPASITET];
+        urlTabell = new int[START_KAPASITET * 2];
+        lenkeKandidat = new int[START_KAPASITET];
+        lenkeArtikkel = new int[START_KAPASITET];
+        lenkeDag = new int[START_KAPASITET];
+        lenkeNettsted = new byte[START_KAPASITET];
+        lenkerSortert = true;
+        lenkeTabell = new int[START_KAPASITET * 2];
+        dagKandidat = new int[START_KAPASITET];
+        dagDag = new int[START_KAPASITET];
+        dagAntall = new int[START_KAPASITET];
+        dagNettsted = new byte[START_KAPASITET];
+        dagerSortert = true;
+        samomtaler = new SamomtaleGraf();
+    }
+
+    /**
+     * Lager et frosset lager fra et sortert lager. Tabeller som bare utvides deles, mens summer og
+     * bitmasker, som endres på plass, kopieres.
+     *
+     * @param lager lageret som fryses
+     */
+    private MentionStore(final MentionStore lager) {
+        frosset = true;
+        kandidatIder = Map.copyOf(lager.kandidatIder);
+        partiCache = null;
+        ordbok = null;
+        navn = lager.navn;
+        parti = lager.parti;
+        kjoenn = lager.kjoenn;
+        valgdistrikt = lager.valgdistrikt;
+        alder = lager.alder;
+        antallKandidater = lager.antallKandidater;
+        kildeMaske = Arrays.copyOf(lager.kildeMaske, antallKandidater);
+        omtaleMaske = Arrays.copyOf(lager.omtaleMaske, antallKandidater);
+        omtaler = Arrays.copyOf(lager.omtaler, antallKandidater * PLASSER);
+        urler = lager.urler;
+        antallUrler = lager.antallUrler;
+        lenkeKandidat = lager.lenkeKandidat;
+        lenkeArtikkel = lager.lenkeArtikkel;
+        lenkeDag = lager.lenkeDag;
+        lenkeNettsted = lager.lenkeNettsted;
+        antallLenker = lager.antallLenker;
+        lenkerSortert = true;
+        lenkeRekkefoelge = lager.lenkeRekkefoelge;
+        dagKandidat = lager.dagKandidat;
+        dagDag = lager.dagDag;
+        dagAntall = lager.dagAntall;
+        dagNettsted = lager.dagNettsted;
+        antallDager = lager.antallDager;
+        dagerSortert = true;
+        samomtaler = lager.samomtaler.frys(antallKandidater);
+    }
+
+    /**
+     * Legger til én kandidatlenke. Lenker lageret allerede har hoppes over.
+     *
+     * @param rad kandidatlenke fra databasen
+     * @return true hvis lenken var ny
+     */
+    boolean leggTil(final KandidatLinkRad rad) {
+        sjekkSkrivbar();
+        int kandidat = kandidatId(rad.navn(), rad.partinavn(), rad.alder(), rad.kjoenn(), rad.valgdistrikt());
+        int artikkel = artikkelId(rad.url());
+        int tabellPlass = finnLenke(kandidat, artikkel);
+        if (lenkeTabell[tabellPlass] != 0) {
+            return false;
+        }
+        int dag = INGEN_DAG;
+        if (rad.scrapedAt() != null) {
+            dag = (int) rad.scrapedAt().toLocalDate().toEpochDay();
+        }
+        if (antallLenker == lenkeKandidat.length) {
+            int kapasitet = antallLenker * 2;
+            lenkeKandidat = Arrays.copyOf(lenkeKandidat, kapasitet);
+            lenkeArtikkel = Arrays.copyOf(lenkeArtikkel, kapasitet);
+            lenkeDag = Arrays.copyOf(lenkeDag, kapasitet);
+            lenkeNettsted = Arrays.copyOf(lenkeNettsted, kapasitet);
+        }
+        if (antallLenker > 0 && dag < lenkeDag[antallLenker - 1]) {
+            lenkerSortert = false;
+        }
+        lenkeKandidat[antallLenker] = kandidat;
+        lenkeArtikkel[antallLenker] = artikkel;
+        lenkeDag[antallLenker] = dag;
+        lenkeNettsted[antallLenker] = nettstedKode(rad.nettsted());
+        samomtaler.leggTil(kandidat, artikkel, dag, lenkeNettsted[antallLenker]);
+        antallLenker++;
+        lenkeTabell[tabellPlass] = antallLenker;
+        if (antallLenker * 4 > lenkeTabell.length * 3) {
+            byggLenkeTabell(lenkeTabell.length * 2);
+        }
+        kildeMaske[kandidat] |= kildeBits(rad.nettsted());
+        return true;
+    }
+
+    /**
+     * Legger til summerte omtaler for en kandidat på ett nettsted, både for nettstedet og for ALT.
+     * Kandidater som bare har arkiverte lenker tas med uten artikler.
+     *
+     * @param rad summerte omtaler fra omtale-aggregatet
+     */
+    void leggTilOmtaler(final KandidatOmtaleRad rad) {
+        sjekkSkrivbar();
+        int kandidat = kandidatId(rad.navn(), rad.partinavn(), rad.alder(), rad.kjoenn(), rad.valgdistrikt());
+        int antall = rad.antall().intValue();
+        if (rad.nettsted() != null) {
+            omtaler[kandidat * PLASSER + rad.nettsted().ordinal()] += antall;
+        }
+        omtaler[kandidat * PLASSER + ALT_PLASS] += antall;
+        int bits = kildeBits(rad.nettsted());
+        kildeMaske[kandidat] |= bits;
+        omtaleMaske[kandidat] |= bits;
+    }
+
+    /**
+     * Legger til antall omtaler for en kandidat på én dag. Dagstall for kandidater lageret ikke
+     * kjenner fra lenker eller summerte omtaler hoppes over.
+     *
+     * @param kandidatNavn kandidatens navn
+     * @param nettsted     nettstedet omtalene kommer fra
+     * @param dag          dagen
+     * @param antall       antall omtaler den dagen
+     */
+    void leggTilOmtaleDag(final String kandidatNavn, final Nettsted nettsted, final LocalDate dag, final long antall) {
+        sjekkSkrivbar();
+        Integer kandidat = kandidatIder.get(kandidatNavn);
+        if (kandidat == null) {
+            return;
+        }
+        int epochDag = (int) dag.toEpochDay();
+        if (antallDager == dagKandidat.length) {
+            int kapasitet = antallDager * 2;
+            dagKandidat = Arrays.copyOf(dagKandidat, kapasitet);
+            dagDag = Arrays.copyOf(dagDag, kapasitet);
+            dagAntall = Arrays.copyOf(dagAntall, kapasitet);
+            dagNettsted = Arrays.copyOf(dagNettsted, kapasitet);
+        }
+        if (antallDager > 0 && epochDag < dagDag[antallDager - 1]) {
+            dagerSortert = false;
+        }
+        dagKandidat[antallDager] = kandidat;
+        dagDag[antallDager] = epochDag;
+        dagAntall[antallDager] = (int) antall;
+        dagNettsted[antallDager] = nettstedKode(nettsted);
+        antallDager++;
+        foersteNyeDag = Math.min(foersteNyeDag, epochDag);
+    }
+
+    /**
+     * Legger til lenker som er lagret etter at lageret ble bygget. Hver ny lenke teller også som
+     * én omtale, slik den gjør i omtale-aggregatet.
+     *
+     * @param rader nylig lagrede kandidatlenker
+     * @return antall lenker som var nye for lageret
+     */
+    int leggTilNye(final List<KandidatLinkRad> rader) {
+        int nye = 0;
+        for (KandidatLinkRad rad : rader) {
+            if (!leggTil(rad)) {
+                continue;
+            }
+            nye++;
+            if (rad.nettsted() != null && rad.scrapedAt() != null) {
+                leggTilOmtaler(new KandidatOmtaleRad(rad.navn(), rad.partinavn(), rad.alder(), rad.kjoenn(),
+                        rad.valgdistrikt(), rad.nettsted(), 1L));
+                leggTilOmtaleDag(rad.navn(), rad.nettsted(), rad.scrapedAt().toLocalDate(), 1L);
+            }
+        }
+        return nye;
+    }
+
+    /**
+     * Sorterer nye rader på dag og lager et uforanderlig utsnitt av lageret slik det er nå. Utsnittet
+     * arver artiklene til forrige utsnitt når radene ikke er sortert om siden, og kubecellene for
+     * dager uten nye dagstall.
+     *
+     * @return utsnittet
+     */
+    OmtaleUtsnitt frys() {
+        sjekkSkrivbar();
+        if (!lenkerSortert) {
+            sorterLenker();
+        }
+        if (!dagerSortert) {
+            sorterDager();
+        }
+        OmtaleUtsnitt utsnitt = new OmtaleUtsnitt(new MentionStore(this), forrigeUtsnitt, foersteNyeDag);
+        foersteNyeDag = Integer.MAX_VALUE;
+        forrigeUtsnitt = utsnitt;
+        return utsnitt;
+    }
+
+    /**
+     * Finner id-en til en kandidat, og registrerer kandidaten hvis den er ny.
+     *
+     * @param kandidatNavn      kandidatens navn
+     * @param partinavn         partinavn slik det står i kandidatlisten
+     * @param kandidatAlder     kandidatens alder
+     * @param kandidatKjoenn    kandidatens kjønn
+     * @param kandidatDistrikt  kandidatens valgdistrikt
+     * @return kandidat-id
+     */
+    private int kandidatId(final String kandidatNavn, final String partinavn, final Integer kandidatAlder,
+            final String kandidatKjoenn, final String kandidatDistrikt) {
+        Integer id = kandidatIder.get(kandidatNavn);
+        if (id != null) {
+            return id;
+        }
+        if (antallKandidater == navn.length) {
+            int kapasitet = antallKandidater * 2;
+            navn = Arrays.copyOf(navn, kapasitet);
+            parti = Arrays.copyOf(parti, kapasitet);
+            kjoenn = Arrays.copyOf(kjoenn, kapasitet);
+            valgdistrikt = Arrays.copyOf(valgdistrikt, kapasitet);
+            alder = Arrays.copyOf(alder, kapasitet);
+            kildeMaske = Arrays.copyOf(kildeMaske, kapasitet);
+            omtaleMaske = Arrays.copyOf(omtaleMaske, kapasitet);
+            omtaler = Arrays.copyOf(omtaler, kapasitet * PLASSER);
+        }
+        int ny = antallKandidater;
+        navn[ny] = kandidatNavn;
+        parti[ny] = partiCache.computeIfAbsent(partinavn, p -> felles(PartiNameNormalizer.normalizePartiName(p)));
+        kjoenn[ny] = felles(kandidatKjoenn);
+        valgdistrikt[ny] = felles(kandidatDistrikt);
+        alder[ny] = INGEN_ALDER;
+        if (kandidatAlder != null) {
+            alder[ny] = kandidatAlder;
+        }
+        kandidatIder.put(kandidatNavn, ny);
+        antallKandidater++;
+        return ny;
+    }
+
+    /**
+     * Slår opp en tekstverdi i ordboken, slik at like verdier deler samme streng.
+     *
+     * @param verdi verdien, kan være null
+     * @return den delte strengen, eller null
+     */
+    private String felles(final String verdi) {
+        if (verdi == null) {
+            return null;
+        }
+        return ordbok.computeIfAbsent(verdi, v -> v);
+    }
+
+    /**
+     * Finner id-en til en artikkel, og registrerer artikkelen hvis den er ny. URL-ene slås opp i en
+     * åpen hashtabell som bare inneholder id-er.
+     *
+     * @param url URL til artikkelen
+     * @return artikkel-id
+     */
+    private int artikkelId(final String url) {
+        int maske = urlTabell.length - 1;
+        int i = spre(Objects.hashCode(url)) & maske;
+        while (urlTabell[i] != 0) {
+            int id = urlTabell[i] - 1;
+            if (Objects.equals(urler[id], url)) {
+                return id;
+            }
+            i = (i + 1) & maske;
+        }
+        if (antallUrler == urler.length) {
+            urler = Arrays.copyOf(urler, antallUrler * 2);
+        }
+        int ny = antallUrler;
+        urler[ny] = url;
+        urlTabell[i] = ny + 1;
+        antallUrler++;
+        if (antallUrler * 4 > urlTabell.length * 3) {
+            int[] tabell = new int[urlTabell.length * 2];
+            int nyMaske = tabell.length - 1;
+            for (int id = 0; id < antallUrler; id++) {
+                int j = spre(Objects.hashCode(urler[id])) & nyMaske;
+                while (tabell[j] != 0) {
+                    j = (j + 1) & nyMaske;
+                }
+                tabell[j] = id + 1;
+            }
+            urlTabell = tabell;
+        }
+        return ny;
+    }
+
+    /**
+     * Finner plassen til koblingen mellom en kandidat og en artikkel i lenketabellen, som er en åpen
+     * hashtabell med radnummer + 1, der 0 betyr ledig plass.
+     *
+     * @param kandidat kandidat-id
+     * @param artikkel artikkel-id
+     * @return plassen der raden for koblingen står, eller den ledige plassen den skal settes inn på
+     */
+    private int finnLenke(final int kandidat, final int artikkel) {
+        int maske = lenkeTabell.length - 1;
+        int i = lenkeHash(kandidat, artikkel) & maske;
+        while (lenkeTabell[i] != 0) {
+            int rad = lenkeTabell[i] - 1;
+            if (lenkeKandidat[rad] == kandidat && lenkeArtikkel[rad] == artikkel) {
+                return i;
+            }
+            i = (i + 1) & maske;
+        }
+        return i;
+    }
+
+    /**
+     * Bygger lenketabellen på nytt fra radene, etter utvidelse eller sortering.
+     *
+     * @param stoerrelse antall plasser, en toerpotens
+     */
+    private void byggLenkeTabell(final int stoerrelse) {
+        int[] tabell = new int[stoerrelse];
+        int maske = stoerrelse - 1;
+        for (int rad = 0; rad < antallLenker; rad++) {
+            int i = lenkeHash(lenkeKandidat[rad], lenkeArtikkel[rad]) & maske;
+            while (tabell[i] != 0) {
+                i = (i + 1) & maske;
+            }
+            tabell[i] = rad + 1;
+        }
+        lenkeTabell = tabell;
+    }
+
+    /**
+     * Beregner hashverdien for koblingen mellom en kandidat og en artikkel.
+     *
+     * @param kandidat kandidat-id
+     * @param artikkel artikkel-id
+     * @return hashverdien
+     */
+    private static int lenkeHash(final int kandidat, final int artikkel) {
+        return spre(kandidat * 0x01000193 ^ artikkel);
+    }
+
+    /**
+     * Sorterer lenketabellene på dag i nye tabeller, slik at utsnitt som deler de gamle ikke endres.
+     */
+    private void sorterLenker() {
+        int[] rekkefoelge = sortertRekkefoelge(lenkeDag, antallLenker);
+        int kapasitet = lenkeKandidat.length;
+        int[] kandidater = new int[kapasitet];
+        int[] artikler = new int[kapasitet];
+        int[] dager = new int[kapasitet];
+        byte[] nettsteder = new byte[kapasitet];
+        for (int i = 0; i < antallLenker; i++) {
+            int fra = rekkefoelge[i];
+            kandidater[i] = lenkeKandidat[fra];
+            artikler[i] = lenkeArtikkel[fra];
+            dager[i] = lenkeDag[fra];
+            nettsteder[i] = lenkeNettsted[fra];
+        }
+        lenkeKandidat = kandidater;
+        lenkeArtikkel = artikler;
+        lenkeDag = dager;
+        lenkeNettsted = nettsteder;
+        lenkerSortert = true;
+        lenkeRekkefoelge++;
+        byggLenkeTabell(lenkeTabell.length);
+    }
+
+    /**
+     * Sorterer dagstallene på dag i nye tabeller, slik at utsnitt som deler de gamle ikke endres.
+     */
+    private void sorterDager() {
+        int[] rekkefoelge = sortertRekkefoelge(dagDag, antallDager);
+        int kapasitet = dagKandidat.length;
+        int[] kandidater = new int[kapasitet];
+        int[] dager = new int[kapasitet];
+        int[] antall = new int[kapasitet];
+        byte[] nettsteder = new byte[kapasitet];
+        for (int i = 0; i < antallDager; i++) {
+            int fra = rekkefoelge[i];
+            kandidater[i] = dagKandidat[fra];
+            dager[i] = dagDag[fra];
+            antall[i] = dagAntall[fra];
+            nettsteder[i] = dagNettsted[fra];
+        }
+        dagKandidat = kandidater;
+        dagDag = dager;
+        dagAntall = antall;
+        dagNettsted = nettsteder;
+        dagerSortert = true;
+    }
+
+    /**
+     * Finner rekkefølgen som sorterer radene på dag. Dag og radnummer pakkes i én long, så
+     * sorteringen går på primitive verdier og er stabil.
+     *
+     * @param dager epoch-dag per rad
+     * @param antall antall rader
+     * @return radnumrene i sortert rekkefølge
+     */
+    private static int[] sortertRekkefoelge(final int[] dager, final int antall) {
+        long[] noekler = new long[antall];
+        for (int i = 0; i < antall; i++) {
+            noekler[i] = (long) dager[i] << Integer.SIZE | i;
+        }
+        Arrays.sort(noekler);
+        int[] rekkefoelge = new int[antall];
+        for (int i = 0; i < antall; i++) {
+            rekkefoelge[i] = (int) noekler[i];
+        }
+        return rekkefoelge;
+    }
+
+    /**
+     * Finner første rad med dag større enn eller lik nøkkelen.
+     *
+     * @param dager   sorterte epoch-dager
+     * @param antall  antall rader i bruk
+     * @param noekkel dagen det søkes etter
+     * @return radnummeret, eller antall hvis alle dager er mindre
+     */
+    private static int foersteIndeks(final int[] dager, final int antall, final long noekkel) {
+        int lav = 0;
+        int hoey = antall;
+        while (lav < hoey) {
+            int midt = (lav + hoey) >>> 1;
+            if (dager[midt] < noekkel) {
+                lav = midt + 1;
+            } else {
+                hoey = midt;
+            }
+        }
+        return lav;
+    }
+
+    /**
+     * Sprer bitene i en hashverdi, så nøkler som bare skiller seg i de høye bitene fordeles jevnt.
+     *
+     * @param hash hashverdien
+     * @return spredt hashverdi
+     */
+    private static int spre(final int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finner plassen en rad telles på for kildene i en bitmaske.
+     *
+     * @param nettstedKode nettstedets kode i raden
+     * @param maske        bit per nettsted, eller {@code ALT_BIT} for alle kilder
+     * @return nettstedets plass, {@code ALT_PLASS} for alle kilder, eller -1 hvis raden ikke hører til
+     */
+    static int plassForRad(final byte nettstedKode, final int maske) {
+        if (maske == ALT_BIT) {
+            return ALT_PLASS;
+        }
+        if (nettstedKode != UKJENT_NETTSTED && (maske & 1 << nettstedKode) != 0) {
+            return nettstedKode;
+        }
+        return -1;
+    }
+
+    /**
+     * Lager bitmasken for et utvalg nettsteder.
+     *
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @return bit per nettsted, eller {@code ALT_BIT} for alle kilder
+     * @throws IllegalArgumentException hvis ingen nettsteder er valgt
+     */
+    static int maske(final Set<Nettsted> nettsteder) {
+        if (nettsteder == null) {
+            return ALT_BIT;
+        }
+        if (nettsteder.isEmpty()) {
+            throw new IllegalArgumentException("Ingen kilder er valgt");
+        }
+        int maske = 0;
+        for (Nettsted nettsted : nettsteder) {
+            maske |= 1 << nettsted.ordinal();
+        }
+        return maske;
+    }
+
+    /**
+     * Koder et nettsted som en byte i radtabellene.
+     *
+     * @param nettsted nettstedet, eller null hvis ukjent
+     * @return koden
+     */
+    private static byte nettstedKode(final Nettsted nettsted) {
+        if (nettsted == null) {
+            return UKJENT_NETTSTED;
+        }
+        return (byte) nettsted.ordinal();
+    }
+
+    /**
+     * Finner bitene for kildene en rad med gitt nettsted hører til.
+     *
+     * @param nettsted nettstedet, eller null hvis ukjent
+     * @return bit for nettstedet og for ALT
+     */
+    private static int kildeBits(final Nettsted nettsted) {
+        if (nettsted == null) {
+            return ALT_BIT;
+        }
+        return ALT_BIT | 1 << nettsted.ordinal();
+    }
+
+    /**
+     * Sikrer at lageret ikke er et frosset utsnitt.
+     *
+     * @throws IllegalStateException hvis lageret er frosset
+     */
+    private void sjekkSkrivbar() {
+        if (frosset) {
+            throw new IllegalStateException("Et frosset utsnitt av omtalelageret kan ikke endres");
+        }
+    }
+
+    /**
+     * Antall kandidater i lageret.
+     *
+     * @return antall kandidater; kandidat-id-er går fra 0 til antallet
+     */
+    int antallKandidater() {
+        return antallKandidater;
+    }
+
+    /**
+     * Slår opp id-en til en kandidat.
+     *
+     * @param kandidatNavn kandidatens navn
+     * @return kandidat-id, eller -1 hvis kandidaten er ukjent
+     */
+    int finnKandidat(final String kandidatNavn) {
+        Integer kandidat = kandidatIder.get(kandidatNavn);
+        if (kandidat == null) {
+            return -1;
+        }
+        return kandidat;
+    }
+
+    /**
+     * Kandidatens navn.
+     *
+     * @param kandidat kandidat-id
+     * @return navnet
+     */
+    String navn(final int kandidat) {
+        return navn[kandidat];
+    }
+
+    /**
+     * Kandidatens normaliserte partinavn.
+     *
+     * @param kandidat kandidat-id
+     * @return partinavnet, eller null
+     */
+    String parti(final int kandidat) {
+        return parti[kandidat];
+    }
+
+    /**
+     * Kandidatens kjønn.
+     *
+     * @param kandidat kandidat-id
+     * @return kjønnet, eller null
+     */
+    String kjoenn(final int kandidat) {
+        return kjoenn[kandidat];
+    }
+
+    /**
+     * Kandidatens valgdistrikt.
+     *
+     * @param kandidat kandidat-id
+     * @return valgdistriktet, eller null
+     */
+    String valgdistrikt(final int kandidat) {
+        return valgdistrikt[kandidat];
+    }
+
+    /**
+     * Kandidatens alder.
+     *
+     * @param kandidat kandidat-id
+     * @return alderen, eller null hvis den er ukjent
+     */
+    Integer alder(final int kandidat) {
+        if (alder[kandidat] == INGEN_ALDER) {
+            return null;
+        }
+        return alder[kandidat];
+    }
+
+    /**
+     * Kildene kandidaten finnes i, fra lenker eller summerte omtaler.
+     *
+     * @param kandidat kandidat-id
+     * @return bit per nettsted og {@code ALT_BIT}
+     */
+    int kildeMaske(final int kandidat) {
+        return kildeMaske[kandidat];
+    }
+
+    /**
+     * Summerte omtaler for en kandidat på én plass fra omtale-aggregatet.
+     *
+     * @param kandidat kandidat-id
+     * @param plass    nettstedets plass, eller {@code ALT_PLASS}
+     * @return antall omtaler, eller null hvis aggregatet ikke har tall for plassen
+     */
+    Integer omtaler(final int kandidat, final int plass) {
+        if ((omtaleMaske[kandidat] & 1 << plass) == 0) {
+            return null;
+        }
+        return omtaler[kandidat * PLASSER + plass];
+    }
+
+    /**
+     * Antall kandidatlenker.
+     *
+     * @return antall lenkerader
+     */
+    int antallLenker() {
+        return antallLenker;
+    }
+
+    /**
+     * Kandidaten i en lenkerad.
+     *
+     * @param rad radnummer
+     * @return kandidat-id
+     */
+    int lenkeKandidat(final int rad) {
+        return lenkeKandidat[rad];
+    }
+
+    /**
+     * Dagen til en lenkerad.
+     *
+     * @param rad radnummer
+     * @return epoch-dag, eller {@code INGEN_DAG}
+     */
+    int lenkeDag(final int rad) {
+        return lenkeDag[rad];
+    }
+
+    /**
+     * Nettstedet til en lenkerad.
+     *
+     * @param rad radnummer
+     * @return nettstedets kode
+     */
+    byte lenkeNettsted(final int rad) {
+        return lenkeNettsted[rad];
+    }
+
+    /**
+     * URL-en til artikkelen i en lenkerad.
+     *
+     * @param rad radnummer
+     * @return URL-en
+     */
+    String lenkeUrl(final int rad) {
+        return urler[lenkeArtikkel[rad]];
+    }
+
+    /**
+     * Teller hvor mange ganger lenkeradene er sortert om, så et utsnitt vet om radnumrene fra forrige
+     * utsnitt fortsatt gjelder.
+     *
+     * @return antall omsorteringer
+     */
+    int lenkeRekkefoelge() {
+        return lenkeRekkefoelge;
+    }
+
+    /**
+     * Første lenkerad med dag større enn eller lik en dag.
+     *
+     * @param dag epoch-dag
+     * @return radnummeret, eller antall lenker hvis alle er eldre
+     */
+    int foersteLenke(final long dag) {
+        return foersteIndeks(lenkeDag, antallLenker, dag);
+    }
+
+    /**
+     * Antall dagstall.
+     *
+     * @return antall dagrader
+     */
+    int antallDager() {
+        return antallDager;
+    }
+
+    /**
+     * Kandidaten i en dagrad.
+     *
+     * @param rad radnummer
+     * @return kandidat-id
+     */
+    int dagKandidat(final int rad) {
+        return dagKandidat[rad];
+    }
+
+    /**
+     * Dagen til en dagrad.
+     *
+     * @param rad radnummer
+     * @return epoch-dag
+     */
+    int dagDag(final int rad) {
+        return dagDag[rad];
+    }
+
+    /**
+     * Antall omtaler i en dagrad.
+     *
+     * @param rad radnummer
+     * @return antall omtaler
+     */
+    int dagAntall(final int rad) {
+        return dagAntall[rad];
+    }
+
+    /**
+     * Nettstedet til en dagrad.
+     *
+     * @param rad radnummer
+     * @return nettstedets kode
+     */
+    byte dagNettsted(final int rad) {
+        return dagNettsted[rad];
+    }
+
+    /**
+     * Første dagrad med dag større enn eller lik en dag.
+     *
+     * @param dag epoch-dag
+     * @return radnummeret, eller antall dagrader hvis alle er eldre
+     */
+    int foersteDagrad(final long dag) {
+        return foersteIndeks(dagDag, antallDager, dag);
+    }
+
+    /**
+     * Samomtalegrafen, frosset sammen med lageret.
+     *
+     * @return grafen
+     */
+    SamomtaleGraf samomtaleGraf() {
+        return samomtaler;
+    }
+}
@@ -0,0 +1,559 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import folkestad.Nettsted;
+import folkestad.project.KubeCelleDTO;
+
+/**
+ * Forhåndsberegnet kube over omtaler per nettsted, parti, kjønn, valgdistrikt, aldersgruppe og dag.
+ * <p>
+ * Hver celle er én kombinasjon av dimensjonene med antall omtaler og kandidatene som er omtalt.
+ * Dimensjonsverdiene er kodet som heltall og pakket i én long per celle, og cellene er sortert på
+ * dag, så et datointervall er en sammenhengende del av tabellene. Et oppslag grupperer cellene
+ * etter de valgte dimensjonene og summerer resten. Antall ulike kandidater telles med en tabell
+ * per kandidat, siden en kandidat bare kan høre til én verdi av parti, kjønn, distrikt og alder.
+ * </p>
+ * <p>
+ * Kuben lages av {@link KubeCache} for utsnittet den hører til. Celler for dager uten
+ * nye omtaler gjenbrukes fra forrige kube, så en oppdatering bare bygger dagene som er endret.
+ * </p>
+ */
+public final class OmtaleKube {
+
+    private static final String UKJENT = "ukjent";
+    private static final String[] ALDERSGRUPPER = {"under 30", "30-39", "40-49", "50-59", "60+", UKJENT};
+    private static final Nettsted[] NETTSTEDER = Nettsted.values();
+
+    private static final int ALDER_BITER = 4;
+    private static final int DISTRIKT_BITER = 10;
+    private static final int KJOENN_BITER = 6;
+    private static final int PARTI_BITER = 12;
+    private static final int NETTSTED_BITER = 5;
+    private static final int DISTRIKT_SKIFT = ALDER_BITER;
+    private static final int KJOENN_SKIFT = DISTRIKT_SKIFT + DISTRIKT_BITER;
+    private static final int PARTI_SKIFT = KJOENN_SKIFT + KJOENN_BITER;
+    private static final int NETTSTED_SKIFT = PARTI_SKIFT + PARTI_BITER;
+    private static final int NOEKKEL_BITER = NETTSTED_SKIFT + NETTSTED_BITER;
+    private static final int KANDIDAT_BITER = 26;
+
+    private final String[] partier;
+    private final String[] kjoenn;
+    private final String[] distrikter;
+    private final int antallKandidater;
+
+    private final int[] celleDag;
+    private final long[] celleNoekkel;
+    private final long[] celleOmtaler;
+    private final int[] celleStart;
+    private final int[] celleKandidater;
+    private final int antallCeller;
+
+    /**
+     * Lager kuben fra en bygger.
+     *
+     * @param bygger byggeren med alle celler
+     */
+    private OmtaleKube(final Bygger bygger) {
+        partier = bygger.partier.toArray(new String[0]);
+        kjoenn = bygger.kjoenn.toArray(new String[0]);
+        distrikter = bygger.distrikter.toArray(new String[0]);
+        antallKandidater = bygger.antallKandidater;
+        celleDag = bygger.celleDag;
+        celleNoekkel = bygger.celleNoekkel;
+        celleOmtaler = bygger.celleOmtaler;
+        celleStart = bygger.celleStart;
+        celleKandidater = bygger.celleKandidater;
+        antallCeller = bygger.antallCeller;
+    }
+
+    /**
+     * Grupperer omtalene som passer oppslaget etter de valgte dimensjonene.
+     *
+     * @param spoerring hva som skal tas med og grupperes
+     * @return én celle per gruppe, sortert med flest omtaler først
+     */
+    public List<KubeCelleDTO> spoer(final KubeSpoerring spoerring) {
+        int start = 0;
+        int slutt = antallCeller;
+        if (spoerring.fraDato() != null) {
+            start = foersteIndeks(spoerring.fraDato().toEpochDay());
+        }
+        if (spoerring.tilDato() != null) {
+            slutt = foersteIndeks(spoerring.tilDato().toEpochDay() + 1);
+        }
+
+        int nettstedMaske = -1;
+        if (spoerring.nettsteder() != null) {
+            nettstedMaske = 0;
+            for (Nettsted nettsted : spoerring.nettsteder()) {
+                nettstedMaske |= 1 << (nettsted.ordinal() + 1);
+            }
+        }
+        Map<KubeDimensjon, Set<String>> filter = spoerring.filter();
+        boolean[] tillattParti = tillatte(filter.get(KubeDimensjon.PARTI), partier);
+        boolean[] tillattKjoenn = tillatte(filter.get(KubeDimensjon.KJOENN), kjoenn);
+        boolean[] tillattDistrikt = tillatte(filter.get(KubeDimensjon.VALGDISTRIKT), distrikter);
+        boolean[] tillattAlder = tillatte(filter.get(KubeDimensjon.ALDERSGRUPPE), ALDERSGRUPPER);
+
+        Set<KubeDimensjon> grupper = spoerring.grupper();
+        boolean kildeGruppert = grupper.contains(KubeDimensjon.KILDE);
+        boolean dagGruppert = grupper.contains(KubeDimensjon.DAG);
+        long gruppeMaske = gruppeMaske(grupper);
+
+        int plasserPerKandidat = 1;
+        if (kildeGruppert) {
+            plasserPerKandidat = NETTSTEDER.length + 1;
+        }
+        int[] sett = new int[antallKandidater * plasserPerKandidat];
+        Grupper summer = new Grupper();
+        long forrigeNoekkel = -1;
+        int gruppe = -1;
+        for (int c = start; c < slutt; c++) {
+            long noekkel = celleNoekkel[c];
+            int nettsted = felt(noekkel, NETTSTED_SKIFT, NETTSTED_BITER);
+            if ((nettstedMaske & 1 << nettsted) == 0
+                    || !tillatt(tillattParti, felt(noekkel, PARTI_SKIFT, PARTI_BITER))
+                    || !tillatt(tillattKjoenn, felt(noekkel, KJOENN_SKIFT, KJOENN_BITER))
+                    || !tillatt(tillattDistrikt, felt(noekkel, DISTRIKT_SKIFT, DISTRIKT_BITER))
+                    || !tillatt(tillattAlder, felt(noekkel, 0, ALDER_BITER))) {
+                continue;
+            }
+            long gruppeNoekkel = noekkel & gruppeMaske;
+            int stempel = 1;
+            if (dagGruppert) {
+                gruppeNoekkel |= (long) celleDag[c] << NOEKKEL_BITER;
+                stempel = celleDag[c] - celleDag[start] + 1;
+            }
+            if (gruppe < 0 || gruppeNoekkel != forrigeNoekkel) {
+                // Cellene er sortert på nøkkel innen hver dag, så like grupper kommer ofte etter hverandre
+                gruppe = summer.gruppe(gruppeNoekkel);
+                forrigeNoekkel = gruppeNoekkel;
+            }
+            summer.omtaler[gruppe] += celleOmtaler[c];
+            int plass = 0;
+            if (kildeGruppert) {
+                plass = nettsted;
+            }
+            for (int i = celleStart[c]; i < celleStart[c + 1]; i++) {
+                int indeks = celleKandidater[i] * plasserPerKandidat + plass;
+                if (sett[indeks] != stempel) {
+                    sett[indeks] = stempel;
+                    summer.kandidater[gruppe]++;
+                }
+            }
+        }
+
+        List<KubeCelleDTO> resultat = new ArrayList<>(summer.antall);
+        for (int g = 0; g < summer.antall; g++) {
+            resultat.add(new KubeCelleDTO(dimensjoner(summer.noekler[g], grupper), summer.omtaler[g],
+                    summer.kandidater[g]));
+        }
+        resultat.sort((a, b) -> Long.compare(b.getAntallOmtaler(), a.getAntallOmtaler()));
+        return resultat;
+    }
+
+    /**
+     * Lager verdien for hver gruppert dimensjon fra en gruppenøkkel.
+     *
+     * @param gruppeNoekkel pakket gruppenøkkel
+     * @param grupper       dimensjonene det er gruppert etter
+     * @return dimensjonens navn i API-et → verdi, i samme rekkefølge som {@link KubeDimensjon}
+     */
+    private Map<String, String> dimensjoner(final long gruppeNoekkel, final Set<KubeDimensjon> grupper) {
+        Map<String, String> verdier = new LinkedHashMap<>();
+        for (KubeDimensjon dimensjon : KubeDimensjon.values()) {
+            if (grupper.contains(dimensjon)) {
+                verdier.put(dimensjon.getParameter(), verdi(dimensjon, gruppeNoekkel));
+            }
+        }
+        return verdier;
+    }
+
+    /**
+     * Finner verdien til én dimensjon i en gruppenøkkel.
+     *
+     * @param dimensjon     dimensjonen
+     * @param gruppeNoekkel pakket gruppenøkkel
+     * @return verdien slik den vises i API-et
+     */
+    private String verdi(final KubeDimensjon dimensjon, final long gruppeNoekkel) {
+        switch (dimensjon) {
+            case KILDE:
+                int nettsted = felt(gruppeNoekkel, NETTSTED_SKIFT, NETTSTED_BITER);
+                if (nettsted == 0) {
+                    return UKJENT;
+                }
+                return NETTSTEDER[nettsted - 1].getDomain();
+            case PARTI:
+                return partier[felt(gruppeNoekkel, PARTI_SKIFT, PARTI_BITER)];
+            case KJOENN:
+                return kjoenn[felt(gruppeNoekkel, KJOENN_SKIFT, KJOENN_BITER)];
+            case VALGDISTRIKT:
+                return distrikter[felt(gruppeNoekkel, DISTRIKT_SKIFT, DISTRIKT_BITER)];
+            case ALDERSGRUPPE:
+                return ALDERSGRUPPER[felt(gruppeNoekkel, 0, ALDER_BITER)];
+            case DAG:
+                return LocalDate.ofEpochDay(gruppeNoekkel >> NOEKKEL_BITER).toString();
+            default:
+                throw new IllegalArgumentException("Ukjent dimensjon: " + dimensjon);
+        }
+    }
+
+    /**
+     * Lager masken som beholder bitene for de grupperte dimensjonene i en cellenøkkel.
+     *
+     * @param grupper dimensjonene det grupperes etter
+     * @return masken
+     */
+    private static long gruppeMaske(final Set<KubeDimensjon> grupper) {
+        long maske = 0;
+        if (grupper.contains(KubeDimensjon.KILDE)) {
+            maske |= feltMaske(NETTSTED_SKIFT, NETTSTED_BITER);
+        }
+        if (grupper.contains(KubeDimensjon.PARTI)) {
+            maske |= feltMaske(PARTI_SKIFT, PARTI_BITER);
+        }
+        if (grupper.contains(KubeDimensjon.KJOENN)) {
+            maske |= feltMaske(KJOENN_SKIFT, KJOENN_BITER);
+        }
+        if (grupper.contains(KubeDimensjon.VALGDISTRIKT)) {
+            maske |= feltMaske(DISTRIKT_SKIFT, DISTRIKT_BITER);
+        }
+        if (grupper.contains(KubeDimensjon.ALDERSGRUPPE)) {
+            maske |= feltMaske(0, ALDER_BITER);
+        }
+        return maske;
+    }
+
+    /**
+     * Finner hvilke koder i en ordbok som er tillatt av et filter. Store og små bokstaver skilles ikke.
+     *
+     * @param verdier tillatte verdier, eller null for ingen filtrering
+     * @param ordbok  verdiene indeksert på kode
+     * @return tillatt per kode, eller null for ingen filtrering
+     */
+    private static boolean[] tillatte(final Set<String> verdier, final String[] ordbok) {
+        if (verdier == null) {
+            return null;
+        }
+        boolean[] tillatt = new boolean[ordbok.length];
+        for (int i = 0; i < ordbok.length; i++) {
+            for (String verdi : verdier) {
+                if (ordbok[i].equalsIgnoreCase(verdi.trim())) {
+                    tillatt[i] = true;
+                }
+            }
+        }
+        return tillatt;
+    }
+
+    /**
+     * Sjekker om en kode er tillatt.
+     *
+     * @param tillatt tillatt per kode, eller null for ingen filtrering
+     * @param kode    koden
+     * @return true hvis koden er tillatt
+     */
+    private static boolean tillatt(final boolean[] tillatt, final int kode) {
+        return tillatt == null || tillatt[kode];
+    }
+
+    /**
+     * Henter ett felt fra en pakket nøkkel.
+     *
+     * @param noekkel nøkkelen
+     * @param skift   feltets første bit
+     * @param biter   antall biter i feltet
+     * @return feltets verdi
+     */
+    private static int felt(final long noekkel, final int skift, final int biter) {
+        return (int) (noekkel >>> skift & (1L << biter) - 1);
+    }
+
+    /**
+     * Lager masken for ett felt i en pakket nøkkel.
+     *
+     * @param skift feltets første bit
+     * @param biter antall biter i feltet
+     * @return masken
+     */
+    private static long feltMaske(final int skift, final int biter) {
+        return ((1L << biter) - 1) << skift;
+    }
+
+    /**
+     * Finner første celle med dag større enn eller lik nøkkelen.
+     *
+     * @param dag dagen det søkes etter
+     * @return celleindeksen, eller antall celler hvis alle dager er mindre
+     */
+    private int foersteIndeks(final long dag) {
+        int lav = 0;
+        int hoey = antallCeller;
+        while (lav < hoey) {
+            int midt = (lav + hoey) >>> 1;
+            if (celleDag[midt] < dag) {
+                lav = midt + 1;
+            } else {
+                hoey = midt;
+            }
+        }
+        return lav;
+    }
+
+    /**
+     * Finner aldersgruppen for en alder.
+     *
+     * @param alder alderen, eller null hvis ukjent
+     * @return indeksen i {@code ALDERSGRUPPER}
+     */
+    private static int aldersgruppe(final Integer alder) {
+        if (alder == null) {
+            return ALDERSGRUPPER.length - 1;
+        }
+        return Math.min(Math.max(alder / 10 - 2, 0), ALDERSGRUPPER.length - 2);
+    }
+
+    /**
+     * Summer per gruppe i et oppslag, med grupper funnet fra gruppenøkkelen i en åpen hashtabell.
+     */
+    private static final class Grupper {
+
+        private long[] noekler = new long[16];
+        private long[] omtaler = new long[16];
+        private int[] kandidater = new int[16];
+        private int[] tabell = new int[32];
+        private int antall;
+
+        /**
+         * Finner gruppen for en nøkkel, og oppretter den hvis den er ny.
+         *
+         * @param noekkel gruppenøkkelen
+         * @return gruppens indeks
+         */
+        int gruppe(final long noekkel) {
+            int i = plass(tabell, noekkel);
+            if (tabell[i] != 0) {
+                return tabell[i] - 1;
+            }
+            if (antall == noekler.length) {
+                noekler = Arrays.copyOf(noekler, antall * 2);
+                omtaler = Arrays.copyOf(omtaler, antall * 2);
+                kandidater = Arrays.copyOf(kandidater, antall * 2);
+            }
+            noekler[antall] = noekkel;
+            antall++;
+            tabell[i] = antall;
+            if (antall * 2 > tabell.length) {
+                tabell = new int[tabell.length * 2];
+                for (int g = 0; g < antall; g++) {
+                    tabell[plass(tabell, noekler[g])] = g + 1;
+                }
+            }
+            return antall - 1;
+        }
+
+        /**
+         * Finner plassen til en nøkkel i tabellen, eller den ledige plassen den skal inn på.
+         *
+         * @param hashTabell tabellen, med gruppeindeks + 1 og 0 for ledig
+         * @param noekkel    gruppenøkkelen
+         * @return plassen i tabellen
+         */
+        private int plass(final int[] hashTabell, final long noekkel) {
+            int maske = hashTabell.length - 1;
+            int i = Long.hashCode(noekkel * 0x9E3779B97F4A7C15L) & maske;
+            while (hashTabell[i] != 0 && noekler[hashTabell[i] - 1] != noekkel) {
+                i = (i + 1) & maske;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Bygger en kube fra dagstall som kommer sortert på dag. Celler fra en tidligere kube for dager
+     * før første endrede dag kopieres, og nye dagstall samles per dag og kandidat før de blir celler.
+     */
+    static final class Bygger {
+
+        private final Map<String, Integer> partiIder = new HashMap<>();
+        private final Map<String, Integer> kjoennIder = new HashMap<>();
+        private final Map<String, Integer> distriktIder = new HashMap<>();
+        private final List<String> partier = new ArrayList<>();
+        private final List<String> kjoenn = new ArrayList<>();
+        private final List<String> distrikter = new ArrayList<>();
+        private long[] kandidatNoekkel = new long[64];
+        private int antallKandidater;
+
+        private int[] celleDag;
+        private long[] celleNoekkel;
+        private long[] celleOmtaler;
+        private int[] celleStart;
+        private int[] celleKandidater;
+        private int antallCeller;
+
+        private final Map<Long, Long> dagensOmtaler = new HashMap<>();
+        private int dag;
+
+        /**
+         * Oppretter en bygger som starter med cellene til en tidligere kube fram til en dag.
+         *
+         * @param forrige tidligere kube fra samme omtalelager, eller null
+         * @param fraDag  første dag som bygges på nytt; celler før denne dagen kopieres
+         */
+        Bygger(final OmtaleKube forrige, final int fraDag) {
+            if (forrige == null) {
+                celleDag = new int[64];
+                celleNoekkel = new long[64];
+                celleOmtaler = new long[64];
+                celleStart = new int[65];
+                celleKandidater = new int[64];
+                return;
+            }
+            antallCeller = forrige.foersteIndeks(fraDag);
+            int kapasitet = Math.max(antallCeller * 2, 64);
+            celleDag = Arrays.copyOf(forrige.celleDag, kapasitet);
+            celleNoekkel = Arrays.copyOf(forrige.celleNoekkel, kapasitet);
+            celleOmtaler = Arrays.copyOf(forrige.celleOmtaler, kapasitet);
+            celleStart = Arrays.copyOf(forrige.celleStart, kapasitet + 1);
+            celleKandidater = Arrays.copyOf(forrige.celleKandidater,
+                    Math.max(forrige.celleStart[antallCeller] * 2, 64));
+        }
+
+        /**
+         * Registrerer en kandidats egenskaper. Kandidatene må registreres i id-rekkefølge, slik at
+         * kodene for parti, kjønn og distrikt blir de samme som i kuben cellene kopieres fra.
+         *
+         * @param kandidat     kandidat-id
+         * @param parti        kandidatens parti
+         * @param kandidatKjoenn kandidatens kjønn
+         * @param valgdistrikt kandidatens valgdistrikt
+         * @param alder        kandidatens alder
+         */
+        void kandidat(final int kandidat, final String parti, final String kandidatKjoenn, final String valgdistrikt,
+                final Integer alder) {
+            if (kandidat == kandidatNoekkel.length) {
+                kandidatNoekkel = Arrays.copyOf(kandidatNoekkel, kandidat * 2);
+            }
+            kandidatNoekkel[kandidat] = (long) kode(parti, partiIder, partier, PARTI_BITER) << PARTI_SKIFT
+                    | (long) kode(kandidatKjoenn, kjoennIder, kjoenn, KJOENN_BITER) << KJOENN_SKIFT
+                    | (long) kode(valgdistrikt, distriktIder, distrikter, DISTRIKT_BITER) << DISTRIKT_SKIFT
+                    | aldersgruppe(alder);
+            antallKandidater = kandidat + 1;
+        }
+
+        /**
+         * Legger til omtaler for en kandidat på en dag. Dagstallene må komme sortert på dag.
+         *
+         * @param omtaleDag    epoch-dag
+         * @param nettstedKode nettstedets ordinal, eller -1 hvis ukjent
+         * @param kandidat     kandidat-id
+         * @param antall       antall omtaler
+         */
+        void leggTil(final int omtaleDag, final byte nettstedKode, final int kandidat, final int antall) {
+            if (omtaleDag != dag) {
+                avsluttDag();
+                dag = omtaleDag;
+            }
+            long noekkel = kandidatNoekkel[kandidat] | (long) (nettstedKode + 1) << NETTSTED_SKIFT;
+            dagensOmtaler.merge(noekkel << KANDIDAT_BITER | kandidat, (long) antall, Long::sum);
+        }
+
+        /**
+         * Lager kuben.
+         *
+         * @return kuben
+         */
+        OmtaleKube bygg() {
+            avsluttDag();
+            return new OmtaleKube(this);
+        }
+
+        /**
+         * Gjør omtalene for gjeldende dag om til celler, én per kombinasjon av nettsted og egenskaper.
+         */
+        private void avsluttDag() {
+            if (dagensOmtaler.isEmpty()) {
+                return;
+            }
+            long[] noekler = new long[dagensOmtaler.size()];
+            int n = 0;
+            for (Long noekkel : dagensOmtaler.keySet()) {
+                noekler[n++] = noekkel;
+            }
+            Arrays.sort(noekler);
+            long kandidatMaske = (1L << KANDIDAT_BITER) - 1;
+            for (long noekkel : noekler) {
+                long celle = noekkel >>> KANDIDAT_BITER;
+                if (antallCeller == 0 || celleDag[antallCeller - 1] != dag
+                        || celleNoekkel[antallCeller - 1] != celle) {
+                    nyCelle(celle);
+                }
+                int i = celleStart[antallCeller];
+                if (i == celleKandidater.length) {
+                    celleKandidater = Arrays.copyOf(celleKandidater, i * 2);
+                }
+                celleKandidater[i] = (int) (noekkel & kandidatMaske);
+                celleStart[antallCeller] = i + 1;
+                celleOmtaler[antallCeller - 1] += dagensOmtaler.get(noekkel);
+            }
+            dagensOmtaler.clear();
+        }
+
+        /**
+         * Starter en ny celle for gjeldende dag.
+         *
+         * @param noekkel cellens pakkede nøkkel
+         */
+        private void nyCelle(final long noekkel) {
+            if (antallCeller == celleDag.length) {
+                int kapasitet = antallCeller * 2;
+                celleDag = Arrays.copyOf(celleDag, kapasitet);
+                celleNoekkel = Arrays.copyOf(celleNoekkel, kapasitet);
+                celleOmtaler = Arrays.copyOf(celleOmtaler, kapasitet);
+                celleStart = Arrays.copyOf(celleStart, kapasitet + 1);
+            }
+            celleDag[antallCeller] = dag;
+            celleNoekkel[antallCeller] = noekkel;
+            celleOmtaler[antallCeller] = 0;
+            celleStart[antallCeller + 1] = celleStart[antallCeller];
+            antallCeller++;
+        }
+
+        /**
+         * Finner koden for en verdi, og gir nye verdier neste ledige kode.
+         *
+         * @param verdi   verdien, null regnes som ukjent
+         * @param ider    verdi → kode
+         * @param verdier verdiene indeksert på kode
+         * @param biter   antall biter koden har plass til
+         * @return koden
+         * @throws IllegalStateException hvis det er flere verdier enn koden har plass til
+         */
+        private static int kode(final String verdi, final Map<String, Integer> ider, final List<String> verdier,
+                final int biter) {
+            String navn = UKJENT;
+            if (verdi != null && !verdi.isBlank()) {
+                navn = verdi;
+            }
+            Integer id = ider.get(navn);
+            if (id != null) {
+                return id;
+            }
+            if (verdier.size() == 1 << biter) {
+                throw new IllegalStateException("For mange ulike verdier i omtalekuben: " + navn);
+            }
+            ider.put(navn, verdier.size());
+            verdier.add(navn);
+            return verdier.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import folkestad.Nettsted;
+import folkestad.project.DataDTO;
+import folkestad.project.SamomtaleDTO;
+import folkestad.project.TopKandidatDTO;
+
+/**
+ * Uforanderlig utsnitt av {@link MentionStore}, laget med {@link MentionStore#frys()}.
+ * <p>
+ * Utsnittet holder et frosset lager og delegerer hvert oppslag til samarbeidspartneren for det:
+ * {@link Tidsindeks} for dataDTO per kilde og datointervall, {@link Toppliste} for topp og trend,
+ * {@link KubeCache} for omtalekuben og {@link SamomtaleRangering} for samomtaler. Alle leser det
+ * samme frosne lageret, så oppslag fra flere tråder trenger ingen låsing utover det
+ * samarbeidspartnerne bruker for å bygge artikler og kube første gang.
+ * </p>
+ */
+public final class OmtaleUtsnitt {
+
+    private final MentionStore lager;
+    private final Tidsindeks tidsindeks;
+    private final Toppliste toppliste;
+    private final KubeCache kubeCache;
+    private final SamomtaleRangering samomtaleRangering;
+
+    /**
+     * Lager et utsnitt over et frosset lager. Artiklene til forrige utsnitt arves når lenkeradene ikke
+     * er sortert om siden, og kuben arves fram til første dag med nye dagstall.
+     *
+     * @param lager         det frosne lageret
+     * @param forrige       forrige utsnitt av samme lager, eller null
+     * @param foersteNyeDag første dag med nye dagstall siden forrige utsnitt
+     */
+    OmtaleUtsnitt(final MentionStore lager, final OmtaleUtsnitt forrige, final int foersteNyeDag) {
+        this.lager = lager;
+        Tidsindeks forrigeIndeks = null;
+        KubeCache forrigeKube = null;
+        if (forrige != null) {
+            forrigeKube = forrige.kubeCache;
+            if (forrige.lager.lenkeRekkefoelge() == lager.lenkeRekkefoelge()) {
+                forrigeIndeks = forrige.tidsindeks;
+            }
+        }
+        tidsindeks = new Tidsindeks(lager, forrigeIndeks);
+        toppliste = new Toppliste(lager);
+        kubeCache = new KubeCache(lager, forrigeKube, foersteNyeDag);
+        samomtaleRangering = new SamomtaleRangering(lager);
+    }
+
+    /**
+     * Lager dataDTO for ett eller flere nettsteder med alle artikler og omtaler.
+     *
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @return dataDTO for kildene, den samme ved hvert kall
+     * @throws IllegalArgumentException hvis ingen nettsteder er valgt
+     * @see Tidsindeks#data(Set)
+     */
+    public DataDTO data(final Set<Nettsted> nettsteder) {
+        return tidsindeks.data(nettsteder);
+    }
+
+    /**
+     * Lager dataDTO for ett eller flere nettsteder begrenset til et datointervall.
+     *
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @param fraDato    første dag (inklusiv)
+     * @param tilDato    siste dag (inklusiv)
+     * @return ny dataDTO for intervallet
+     * @throws IllegalArgumentException hvis ingen nettsteder er valgt
+     * @see Tidsindeks#data(Set, LocalDate, LocalDate)
+     */
+    public DataDTO data(final Set<Nettsted> nettsteder, final LocalDate fraDato, final LocalDate tilDato) {
+        return tidsindeks.data(nettsteder, fraDato, tilDato);
+    }
+
+    /**
+     * Finner kandidatene med flest omtaler de siste dagene, eller størst økning fra dagene før.
+     *
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @param antall     hvor mange kandidater som skal returneres
+     * @param vindu      antall dager i vinduet, til og med sisteDag
+     * @param sisteDag   siste dag i vinduet
+     * @param etterTrend true for å rangere etter trend, false for å rangere etter antall omtaler
+     * @return kandidatene, best først
+     * @throws IllegalArgumentException hvis antall eller vindu er mindre enn 1, eller ingen nettsteder er valgt
+     * @see Toppliste#topp(Set, int, int, LocalDate, boolean)
+     */
+    public List<TopKandidatDTO> topp(final Set<Nettsted> nettsteder, final int antall, final int vindu,
+            final LocalDate sisteDag, final boolean etterTrend) {
+        return toppliste.topp(nettsteder, antall, vindu, sisteDag, etterTrend);
+    }
+
+    /**
+     * Finner kandidatene som oftest er omtalt i samme artikkel som en kandidat.
+     *
+     * @param kandidatNavn kandidatens navn
+     * @param nettsteder   nettstedene, eller null for alle kilder
+     * @param fraDato      første dag (inklusiv), eller null for ingen nedre grense
+     * @param tilDato      siste dag (inklusiv), eller null for ingen øvre grense
+     * @param antall       hvor mange kandidater som skal returneres
+     * @return Optional med kandidatene, tom hvis kandidaten er ukjent
+     * @throws IllegalArgumentException hvis antall er mindre enn 1, eller ingen nettsteder er valgt
+     * @see SamomtaleRangering#samomtaler(String, Set, LocalDate, LocalDate, int)
+     */
+    public Optional<List<SamomtaleDTO>> samomtaler(final String kandidatNavn, final Set<Nettsted> nettsteder,
+            final LocalDate fraDato, final LocalDate tilDato, final int antall) {
+        return samomtaleRangering.samomtaler(kandidatNavn, nettsteder, fraDato, tilDato, antall);
+    }
+
+    /**
+     * Returnerer omtalekuben for utsnittet, og bygger den første gang.
+     *
+     * @return kuben
+     * @see KubeCache#kube()
+     */
+    public OmtaleKube kube() {
+        return kubeCache.kube();
+    }
+}
@@ -0,0 +1,215 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+
+import folkestad.Nettsted;
+
+/**
+ * Graf over kandidater som er omtalt i samme artikkel.
+ * <p>
+ * Hver kandidat har en naboliste i primitive tabeller med én rad per felles artikkel: naboens
+ * kandidat-id, dagen og nettstedet. Grafen oppdateres for hver ny kandidatlenke. Skriveren holder
+ * en lenket liste over kandidatene i hver artikkel, og en ny lenke gir en rad i begge retninger
+ * for hver kandidat som allerede er i artikkelen. Et oppslag leser bare kandidatens egen naboliste.
+ * </p>
+ * <p>
+ * Som i {@link MentionStore} legges nye rader etter lengden et frosset utsnitt kjenner, og lister
+ * som må utvides kopieres, så utsnittet kan dele listene med skriveren.
+ * </p>
+ */
+final class SamomtaleGraf {
+
+    /** Samme verdi som {@link MentionStore} bruker for lenker uten dag. */
+    private static final int INGEN_DAG = Integer.MIN_VALUE;
+    private static final int START_KAPASITET = 64;
+    private static final int START_NABOER = 4;
+
+    private final boolean frosset;
+
+    // Naboer, indeksert på kandidat-id og deretter radnummer i kandidatens liste
+    private int[][] naboKandidat;
+    private int[][] naboDag;
+    private byte[][] naboNettsted;
+    private int[] antallNaboer;
+
+    // Kandidatene i hver artikkel, som lenkede lister over medlemsrader; bare hos skriveren
+    private int[] artikkelSiste;
+    private int[] medlemKandidat;
+    private int[] medlemDag;
+    private int[] medlemForrige;
+    private int antallMedlemmer;
+
+    /**
+     * Oppretter en tom graf.
+     */
+    SamomtaleGraf() {
+        frosset = false;
+        naboKandidat = new int[START_KAPASITET][];
+        naboDag = new int[START_KAPASITET][];
+        naboNettsted = new byte[START_KAPASITET][];
+        antallNaboer = new int[START_KAPASITET];
+        artikkelSiste = new int[START_KAPASITET];
+        medlemKandidat = new int[START_KAPASITET];
+        medlemDag = new int[START_KAPASITET];
+        medlemForrige = new int[START_KAPASITET];
+    }
+
+    /**
+     * Lager et frosset utsnitt av en graf. Nabolistene deles, mens tabellene over dem og antall
+     * naboer kopieres.
+     *
+     * @param graf             grafen utsnittet lages fra
+     * @param antallKandidater antall kandidater i utsnittet
+     */
+    private SamomtaleGraf(final SamomtaleGraf graf, final int antallKandidater) {
+        frosset = true;
+        naboKandidat = Arrays.copyOf(graf.naboKandidat, antallKandidater);
+        naboDag = Arrays.copyOf(graf.naboDag, antallKandidater);
+        naboNettsted = Arrays.copyOf(graf.naboNettsted, antallKandidater);
+        antallNaboer = Arrays.copyOf(graf.antallNaboer, antallKandidater);
+    }
+
+    /**
+     * Legger til en ny kandidatlenke, og kobler kandidaten til alle kandidatene som allerede er i
+     * artikkelen. Hver lenke må bare legges til én gang.
+     *
+     * @param kandidat     kandidat-id
+     * @param artikkel     artikkel-id
+     * @param dag          epoch-dag for lenken
+     * @param nettstedKode nettstedets ordinal, eller -1 hvis ukjent
+     * @throws IllegalStateException hvis grafen er frosset
+     */
+    void leggTil(final int kandidat, final int artikkel, final int dag, final byte nettstedKode) {
+        if (frosset) {
+            throw new IllegalStateException("Et frosset utsnitt av samomtalegrafen kan ikke endres");
+        }
+        if (artikkel >= artikkelSiste.length) {
+            artikkelSiste = Arrays.copyOf(artikkelSiste, Math.max(artikkel + 1, artikkelSiste.length * 2));
+        }
+        for (int m = artikkelSiste[artikkel] - 1; m >= 0; m = medlemForrige[m]) {
+            int annen = medlemKandidat[m];
+            if (annen == kandidat) {
+                continue;
+            }
+            int felles = medlemDag[m];
+            if (felles == INGEN_DAG) {
+                felles = dag;
+            }
+            leggTilNabo(kandidat, annen, felles, nettstedKode);
+            leggTilNabo(annen, kandidat, felles, nettstedKode);
+        }
+
+        if (antallMedlemmer == medlemKandidat.length) {
+            int kapasitet = antallMedlemmer * 2;
+            medlemKandidat = Arrays.copyOf(medlemKandidat, kapasitet);
+            medlemDag = Arrays.copyOf(medlemDag, kapasitet);
+            medlemForrige = Arrays.copyOf(medlemForrige, kapasitet);
+        }
+        medlemKandidat[antallMedlemmer] = kandidat;
+        medlemDag[antallMedlemmer] = dag;
+        medlemForrige[antallMedlemmer] = artikkelSiste[artikkel] - 1;
+        antallMedlemmer++;
+        artikkelSiste[artikkel] = antallMedlemmer;
+    }
+
+    /**
+     * Lager et uforanderlig utsnitt av grafen slik den er nå.
+     *
+     * @param antallKandidater antall kandidater i lageret
+     * @return utsnittet
+     */
+    SamomtaleGraf frys(final int antallKandidater) {
+        return new SamomtaleGraf(this, antallKandidater);
+    }
+
+    /**
+     * Teller felles artikler mellom en kandidat og hver av naboene.
+     *
+     * @param kandidat   kandidat-id
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @param fraDato    første dag (inklusiv), eller null for ingen nedre grense
+     * @param tilDato    siste dag (inklusiv), eller null for ingen øvre grense
+     * @param antall     fylles med antall felles artikler per kandidat-id; må være nullstilt
+     * @return naboene med minst én felles artikkel
+     * @throws IllegalArgumentException hvis ingen nettsteder er valgt
+     */
+    int[] tell(final int kandidat, final Set<Nettsted> nettsteder, final LocalDate fraDato, final LocalDate tilDato,
+            final int[] antall) {
+        int nettstedMaske = -1;
+        if (nettsteder != null) {
+            if (nettsteder.isEmpty()) {
+                throw new IllegalArgumentException("Ingen kilder er valgt");
+            }
+            nettstedMaske = 0;
+            for (Nettsted nettsted : nettsteder) {
+                nettstedMaske |= 1 << (nettsted.ordinal() + 1);
+            }
+        }
+        long fra = Long.MIN_VALUE;
+        if (fraDato != null) {
+            fra = fraDato.toEpochDay();
+        }
+        long til = Long.MAX_VALUE;
+        if (tilDato != null) {
+            til = tilDato.toEpochDay();
+        }
+        boolean utenDag = fraDato == null && tilDato == null;
+
+        if (kandidat >= antallNaboer.length || antallNaboer[kandidat] == 0) {
+            return new int[0];
+        }
+        int[] kandidater = naboKandidat[kandidat];
+        int[] dager = naboDag[kandidat];
+        byte[] koder = naboNettsted[kandidat];
+        int[] naboer = new int[Math.min(antallNaboer[kandidat], antall.length)];
+        int antallFunnet = 0;
+        for (int i = 0; i < antallNaboer[kandidat]; i++) {
+            if ((nettstedMaske & 1 << (koder[i] + 1)) == 0) {
+                continue;
+            }
+            if (dager[i] == INGEN_DAG && !utenDag || dager[i] < fra || dager[i] > til) {
+                continue;
+            }
+            int nabo = kandidater[i];
+            if (antall[nabo] == 0) {
+                naboer[antallFunnet++] = nabo;
+            }
+            antall[nabo]++;
+        }
+        return Arrays.copyOf(naboer, antallFunnet);
+    }
+
+    /**
+     * Legger én felles artikkel til en kandidats naboliste.
+     *
+     * @param kandidat     kandidat-id
+     * @param nabo         kandidat-id til naboen
+     * @param dag          epoch-dag for artikkelen
+     * @param nettstedKode nettstedets ordinal, eller -1 hvis ukjent
+     */
+    private void leggTilNabo(final int kandidat, final int nabo, final int dag, final byte nettstedKode) {
+        if (kandidat >= antallNaboer.length) {
+            int kapasitet = Math.max(kandidat + 1, antallNaboer.length * 2);
+            naboKandidat = Arrays.copyOf(naboKandidat, kapasitet);
+            naboDag = Arrays.copyOf(naboDag, kapasitet);
+            naboNettsted = Arrays.copyOf(naboNettsted, kapasitet);
+            antallNaboer = Arrays.copyOf(antallNaboer, kapasitet);
+        }
+        int n = antallNaboer[kandidat];
+        if (naboKandidat[kandidat] == null) {
+            naboKandidat[kandidat] = new int[START_NABOER];
+            naboDag[kandidat] = new int[START_NABOER];
+            naboNettsted[kandidat] = new byte[START_NABOER];
+        } else if (n == naboKandidat[kandidat].length) {
+            naboKandidat[kandidat] = Arrays.copyOf(naboKandidat[kandidat], n * 2);
+            naboDag[kandidat] = Arrays.copyOf(naboDag[kandidat], n * 2);
+            naboNettsted[kandidat] = Arrays.copyOf(naboNettsted[kandidat], n * 2);
+        }
+        naboKandidat[kandidat][n] = nabo;
+        naboDag[kandidat][n] = dag;
+        naboNettsted[kandidat][n] = nettstedKode;
+        antallNaboer[kandidat] = n + 1;
+    }
+}
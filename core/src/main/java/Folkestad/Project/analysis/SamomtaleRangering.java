@@ -0,0 +1,65 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import folkestad.Nettsted;
+import folkestad.project.SamomtaleDTO;
+
+/**
+ * Finner kandidatene som oftest er omtalt i samme artikkel som en kandidat, fra den frosne
+ * {@link SamomtaleGraf}-en til et {@link MentionStore}. Et oppslag leser bare kandidatens egen
+ * naboliste.
+ */
+final class SamomtaleRangering {
+
+    private final MentionStore lager;
+
+    /**
+     * Oppretter rangeringen for et frosset lager.
+     *
+     * @param lager det frosne lageret
+     */
+    SamomtaleRangering(final MentionStore lager) {
+        this.lager = lager;
+    }
+
+    /**
+     * Finner kandidatene som oftest er omtalt i samme artikkel som en kandidat.
+     *
+     * @param kandidatNavn kandidatens navn
+     * @param nettsteder   nettstedene, eller null for alle kilder
+     * @param fraDato      første dag (inklusiv), eller null for ingen nedre grense
+     * @param tilDato      siste dag (inklusiv), eller null for ingen øvre grense
+     * @param antall       hvor mange kandidater som skal returneres
+     * @return Optional med kandidatene, flest felles artikler først, tom hvis kandidaten er ukjent
+     * @throws IllegalArgumentException hvis antall er mindre enn 1, eller ingen nettsteder er valgt
+     */
+    Optional<List<SamomtaleDTO>> samomtaler(final String kandidatNavn, final Set<Nettsted> nettsteder,
+            final LocalDate fraDato, final LocalDate tilDato, final int antall) {
+        if (antall < 1) {
+            throw new IllegalArgumentException("Antall må være minst 1");
+        }
+        int kandidat = lager.finnKandidat(kandidatNavn);
+        if (kandidat < 0) {
+            return Optional.empty();
+        }
+        int[] felles = new int[lager.antallKandidater()];
+        int[] naboer = lager.samomtaleGraf().tell(kandidat, nettsteder, fraDato, tilDato, felles);
+
+        KandidatRangering rangering = new KandidatRangering(lager, antall);
+        for (int k : naboer) {
+            rangering.leggTil(k, felles[k]);
+        }
+
+        int[] rangert = rangering.rangert();
+        SamomtaleDTO[] topp = new SamomtaleDTO[rangert.length];
+        for (int i = 0; i < rangert.length; i++) {
+            int k = rangert[i];
+            topp[i] = new SamomtaleDTO(lager.navn(k), lager.parti(k), lager.valgdistrikt(k), felles[k]);
+        }
+        return Optional.of(List.of(topp));
+    }
+}
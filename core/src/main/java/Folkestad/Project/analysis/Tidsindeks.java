@@ -0,0 +1,328 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import folkestad.Nettsted;
+import folkestad.project.ArtikelDTO;
+import folkestad.project.DataDTO;
+import folkestad.project.Person;
+
+/**
+ * Lager {@link DataDTO} for kilder og datointervaller fra et frosset {@link MentionStore}.
+ * <p>
+ * Lenkene og dagstallene i lageret er sortert på dag, så et datointervall finnes med binærsøk.
+ * {@link DataDTO} og {@link Person} lages først når de spørres, for én kombinasjon av kilder om
+ * gangen, og dataDTO uten datobegrensning lages bare én gang per kombinasjon.
+ * </p>
+ * <p>
+ * Indeksen lager én {@link ArtikelDTO} per lenke første gang den spørres, og alle dataDTO-er fra
+ * den, både for ALT, for hvert nettsted og for datointervaller, deler disse. Artikler fra forrige
+ * utsnitt gjenbrukes når radene ikke er sortert om siden.
+ * </p>
+ */
+final class Tidsindeks {
+
+    private static final Nettsted[] NETTSTEDER = Nettsted.values();
+
+    private final MentionStore lager;
+    private final Map<Integer, DataDTO> utvalg = new ConcurrentHashMap<>();
+    private volatile ArtikelDTO[] artikler;
+    private ArtikelDTO[] arvedeArtikler;
+
+    /**
+     * Oppretter indeksen for et frosset lager.
+     *
+     * @param lager   det frosne lageret
+     * @param forrige indeksen til forrige utsnitt med samme radrekkefølge, eller null
+     */
+    Tidsindeks(final MentionStore lager, final Tidsindeks forrige) {
+        this.lager = lager;
+        if (forrige != null) {
+            arvedeArtikler = forrige.artikler;
+        }
+    }
+
+    /**
+     * Lager dataDTO for ett eller flere nettsteder med alle artikler og omtaler. For hvert nettsted
+     * hentes antall omtaler per kandidat fra omtale-aggregatet når det finnes, ellers telles lenkene,
+     * og for flere nettsteder summeres tallene. Samme uforanderlige dataDTO returneres ved neste kall.
+     *
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @return dataDTO for kildene
+     * @throws IllegalArgumentException hvis ingen nettsteder er valgt
+     */
+    DataDTO data(final Set<Nettsted> nettsteder) {
+        return utvalg.computeIfAbsent(MentionStore.maske(nettsteder), this::byggData);
+    }
+
+    /**
+     * Lager dataDTO for ett eller flere nettsteder begrenset til et datointervall. Antall omtaler
+     * hentes bare fra dagstallene, som også dekker arkiverte lenker, og for flere nettsteder summeres
+     * tallene. Artikkellistene inneholder lenkene i intervallet. Kandidater uten omtaler i intervallet
+     * tas ikke med.
+     *
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @param fraDato    første dag (inklusiv)
+     * @param tilDato    siste dag (inklusiv)
+     * @return ny dataDTO for intervallet
+     * @throws IllegalArgumentException hvis ingen nettsteder er valgt
+     */
+    DataDTO data(final Set<Nettsted> nettsteder, final LocalDate fraDato, final LocalDate tilDato) {
+        int maske = MentionStore.maske(nettsteder);
+        long fra = fraDato.toEpochDay();
+        long til = tilDato.toEpochDay();
+        int start = lager.foersteLenke(fra);
+        int slutt = lager.foersteLenke(til + 1);
+        int[] lenker = tellLenker(maske, start, slutt);
+        ArtikelDTO[][] perKandidat = artiklerPerKandidat(maske, start, slutt, lenker);
+
+        int antallKandidater = lager.antallKandidater();
+        long[] omtalerIIntervall = new long[antallKandidater * MentionStore.PLASSER];
+        int sisteDag = lager.foersteDagrad(til + 1);
+        for (int i = lager.foersteDagrad(fra); i < sisteDag; i++) {
+            int plass = MentionStore.plassForRad(lager.dagNettsted(i), maske);
+            if (plass >= 0) {
+                omtalerIIntervall[lager.dagKandidat(i) * MentionStore.PLASSER + plass] += lager.dagAntall(i);
+            }
+        }
+
+        List<Person> personer = new ArrayList<>();
+        for (int k = 0; k < antallKandidater; k++) {
+            if ((lager.kildeMaske(k) & maske) == 0) {
+                continue;
+            }
+            long antall = 0;
+            for (int rest = maske; rest != 0; rest &= rest - 1) {
+                antall += omtalerIIntervall[k * MentionStore.PLASSER + Integer.numberOfTrailingZeros(rest)];
+            }
+            if (antall > 0) {
+                personer.add(lagPerson(k, perKandidat[k], (int) antall));
+            }
+        }
+        return byggDataDTO(personer, kildeNavn(maske));
+    }
+
+    /**
+     * Lager dataDTO for kildene i en bitmaske uten datobegrensning.
+     *
+     * @param maske bit per nettsted, eller {@code ALT_BIT} for alle kilder
+     * @return ny dataDTO for kildene
+     */
+    private DataDTO byggData(final int maske) {
+        int[] lenker = tellLenker(maske, 0, lager.antallLenker());
+        ArtikelDTO[][] perKandidat = artiklerPerKandidat(maske, 0, lager.antallLenker(), lenker);
+        List<Person> personer = new ArrayList<>();
+        for (int k = 0; k < lager.antallKandidater(); k++) {
+            if ((lager.kildeMaske(k) & maske) == 0) {
+                continue;
+            }
+            long antall = 0;
+            for (int rest = maske; rest != 0; rest &= rest - 1) {
+                int plass = Integer.numberOfTrailingZeros(rest);
+                Integer omtaler = lager.omtaler(k, plass);
+                if (omtaler != null) {
+                    antall += omtaler;
+                } else {
+                    antall += lenker[k * MentionStore.PLASSER + plass];
+                }
+            }
+            personer.add(lagPerson(k, perKandidat[k], (int) antall));
+        }
+        return byggDataDTO(personer, kildeNavn(maske));
+    }
+
+    /**
+     * Teller lenkene i et område av lenkeradene per kandidat og plass for kildene i en bitmaske.
+     *
+     * @param maske bit per nettsted, eller {@code ALT_BIT} for alle kilder
+     * @param start første rad (inklusiv)
+     * @param slutt siste rad (eksklusiv)
+     * @return antall lenker, indeksert på kandidat-id * {@code PLASSER} + plass
+     */
+    private int[] tellLenker(final int maske, final int start, final int slutt) {
+        int[] antall = new int[lager.antallKandidater() * MentionStore.PLASSER];
+        for (int i = start; i < slutt; i++) {
+            int plass = MentionStore.plassForRad(lager.lenkeNettsted(i), maske);
+            if (plass >= 0) {
+                antall[lager.lenkeKandidat(i) * MentionStore.PLASSER + plass]++;
+            }
+        }
+        return antall;
+    }
+
+    /**
+     * Samler artiklene i et område av lenkeradene per kandidat for kildene i en bitmaske.
+     *
+     * @param maske  bit per nettsted, eller {@code ALT_BIT} for alle kilder
+     * @param start  første rad (inklusiv)
+     * @param slutt  siste rad (eksklusiv)
+     * @param lenker antall lenker per kandidat og plass i området, fra {@link #tellLenker(int, int, int)}
+     * @return artiklene til hver kandidat, indeksert på kandidat-id
+     */
+    private ArtikelDTO[][] artiklerPerKandidat(final int maske, final int start, final int slutt,
+            final int[] lenker) {
+        int antallKandidater = lager.antallKandidater();
+        ArtikelDTO[][] perKandidat = new ArtikelDTO[antallKandidater][];
+        int[] fylt = new int[antallKandidater];
+        for (int k = 0; k < antallKandidater; k++) {
+            int antall = 0;
+            for (int plass = 0; plass < MentionStore.PLASSER; plass++) {
+                antall += lenker[k * MentionStore.PLASSER + plass];
+            }
+            perKandidat[k] = new ArtikelDTO[antall];
+        }
+        ArtikelDTO[] alleArtikler = artikler();
+        for (int i = start; i < slutt; i++) {
+            if (MentionStore.plassForRad(lager.lenkeNettsted(i), maske) >= 0) {
+                int kandidat = lager.lenkeKandidat(i);
+                perKandidat[kandidat][fylt[kandidat]++] = alleArtikler[i];
+            }
+        }
+        return perKandidat;
+    }
+
+    /**
+     * Returnerer artikkelen for hver lenke i lageret, og lager dem første gang. Radene er sortert
+     * på dag, så lenker fra samme dag deler én {@link LocalDate}.
+     *
+     * @return artiklene, indeksert på radnummer
+     */
+    private ArtikelDTO[] artikler() {
+        ArtikelDTO[] ferdige = artikler;
+        if (ferdige != null) {
+            return ferdige;
+        }
+        synchronized (this) {
+            if (artikler != null) {
+                return artikler;
+            }
+            int antallLenker = lager.antallLenker();
+            ferdige = new ArtikelDTO[antallLenker];
+            int start = 0;
+            if (arvedeArtikler != null) {
+                start = Math.min(arvedeArtikler.length, antallLenker);
+                System.arraycopy(arvedeArtikler, 0, ferdige, 0, start);
+                arvedeArtikler = null;
+            }
+            LocalDate dato = null;
+            int datoDag = MentionStore.INGEN_DAG;
+            for (int i = start; i < antallLenker; i++) {
+                LocalDate scraped = null;
+                int dag = lager.lenkeDag(i);
+                if (dag != MentionStore.INGEN_DAG) {
+                    if (dag != datoDag) {
+                        datoDag = dag;
+                        dato = LocalDate.ofEpochDay(datoDag);
+                    }
+                    scraped = dato;
+                }
+                ferdige[i] = new ArtikelDTO(lager.lenkeUrl(i), scraped);
+            }
+            artikler = ferdige;
+            return ferdige;
+        }
+    }
+
+    /**
+     * Lager personen for en kandidat.
+     *
+     * @param kandidat          kandidat-id
+     * @param kandidatArtikler  kandidatens artikler
+     * @param antall            antall omtaler
+     * @return personen
+     */
+    private Person lagPerson(final int kandidat, final ArtikelDTO[] kandidatArtikler, final int antall) {
+        return new Person(lager.navn(kandidat), lager.alder(kandidat), lager.kjoenn(kandidat), lager.parti(kandidat),
+                lager.valgdistrikt(kandidat), List.of(kandidatArtikler), antall);
+    }
+
+    /**
+     * Finner kildenavnet som brukes i dataDTO. Flere nettsteder skrives som domenene skilt med "+".
+     *
+     * @param maske bit per nettsted, eller {@code ALT_BIT} for alle kilder
+     * @return kildenavnet
+     */
+    private static String kildeNavn(final int maske) {
+        if (maske == MentionStore.ALT_BIT) {
+            return MentionStore.ALT;
+        }
+        StringJoiner navn = new StringJoiner("+");
+        for (int rest = maske; rest != 0; rest &= rest - 1) {
+            navn.add(NETTSTEDER[Integer.numberOfTrailingZeros(rest)].getDomain());
+        }
+        return navn.toString();
+    }
+
+    /**
+     * Beregner statistikk for en samling personer der antall artikler allerede er satt. Listene og
+     * tabellene i resultatet kan ikke endres, siden et utsnitt deler samme dataDTO mellom forespørsler.
+     * Personer uten parti telles ikke i partifordelingen.
+     *
+     * @param personer personene som skal være med
+     * @param kilde    kilden dataene gjelder
+     * @return dataDTO med statistikk for personene
+     */
+    private static DataDTO byggDataDTO(final List<Person> personer, final String kilde) {
+        Map<String, Integer> kjoennRatio = new HashMap<>();
+        Map<String, Integer> partiMentions = new HashMap<>();
+        long aldersSum = 0;
+        int antallMedAlder = 0;
+        int totaltAntallArtikler = 0;
+
+        for (Person person : personer) {
+            int antall = person.getAntallArtikler();
+            if (person.getParti() != null) {
+                partiMentions.merge(person.getParti(), antall, Integer::sum);
+            }
+            if (person.getAlder() != null) {
+                aldersSum += person.getAlder();
+                antallMedAlder++;
+            }
+            if (person.getKjoenn() != null && !person.getKjoenn().isEmpty()) {
+                kjoennRatio.merge(person.getKjoenn(), 1, Integer::sum);
+            }
+            totaltAntallArtikler += antall;
+        }
+
+        double gjennomsnittligAlder = 0.0;
+        if (antallMedAlder > 0) {
+            gjennomsnittligAlder = (double) aldersSum / antallMedAlder;
+        }
+        return new DataDTO(
+                gjennomsnittligAlder,
+                totaltAntallArtikler,
+                List.copyOf(personer),
+                Map.copyOf(kjoennRatio),
+                beregnProsent(kjoennRatio),
+                Map.copyOf(partiMentions),
+                beregnProsent(partiMentions),
+                kilde);
+    }
+
+    /**
+     * Beregner prosentvis fordeling av antall per nøkkel.
+     *
+     * @param antallPerNoekkel antall per parti eller kjønn
+     * @return prosent-andel (0-100) per nøkkel
+     */
+    private static Map<String, Double> beregnProsent(final Map<String, Integer> antallPerNoekkel) {
+        int totaltAntall = antallPerNoekkel.values().stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        if (totaltAntall == 0) {
+            return Map.of();
+        }
+        return antallPerNoekkel.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(
+                        Map.Entry::getKey,
+                        entry -> (entry.getValue() * 100.0) / totaltAntall));
+    }
+}
@@ -0,0 +1,95 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import folkestad.Nettsted;
+import folkestad.project.TopKandidatDTO;
+
+/**
+ * Finner de mest omtalte kandidatene, eller kandidatene med størst økning, i et frosset
+ * {@link MentionStore}. Tallene hentes fra dagstallene, som er sortert på dag, så bare radene i
+ * de to vinduene leses og ingen dataDTO lages.
+ */
+final class Toppliste {
+
+    private final MentionStore lager;
+
+    /**
+     * Oppretter topplisten for et frosset lager.
+     *
+     * @param lager det frosne lageret
+     */
+    Toppliste(final MentionStore lager) {
+        this.lager = lager;
+    }
+
+    /**
+     * Finner kandidatene med flest omtaler de siste dagene, eller kandidatene med størst økning fra
+     * like mange dager før.
+     *
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @param antall     hvor mange kandidater som skal returneres
+     * @param vindu      antall dager i vinduet, til og med sisteDag
+     * @param sisteDag   siste dag i vinduet
+     * @param etterTrend true for å rangere etter trend, false for å rangere etter antall omtaler
+     * @return kandidatene, best først, bare kandidater med omtaler i vinduet
+     * @throws IllegalArgumentException hvis antall eller vindu er mindre enn 1, eller ingen nettsteder er valgt
+     */
+    List<TopKandidatDTO> topp(final Set<Nettsted> nettsteder, final int antall, final int vindu,
+            final LocalDate sisteDag, final boolean etterTrend) {
+        if (antall < 1 || vindu < 1) {
+            throw new IllegalArgumentException("Antall og vindu må være minst 1");
+        }
+        int maske = MentionStore.maske(nettsteder);
+        long slutt = sisteDag.toEpochDay();
+        long start = slutt - vindu + 1;
+        int[] naa = new int[lager.antallKandidater()];
+        int[] foer = new int[lager.antallKandidater()];
+        int sisteRad = lager.foersteDagrad(slutt + 1);
+        for (int i = lager.foersteDagrad(start - vindu); i < sisteRad; i++) {
+            if (MentionStore.plassForRad(lager.dagNettsted(i), maske) < 0) {
+                continue;
+            }
+            if (lager.dagDag(i) >= start) {
+                naa[lager.dagKandidat(i)] += lager.dagAntall(i);
+            } else {
+                foer[lager.dagKandidat(i)] += lager.dagAntall(i);
+            }
+        }
+
+        KandidatRangering rangering = new KandidatRangering(lager, antall);
+        for (int k = 0; k < lager.antallKandidater(); k++) {
+            if (naa[k] == 0) {
+                continue;
+            }
+            double poeng = naa[k];
+            if (etterTrend) {
+                poeng = trend(naa[k], foer[k]);
+            }
+            rangering.leggTil(k, poeng);
+        }
+
+        int[] rangert = rangering.rangert();
+        TopKandidatDTO[] topp = new TopKandidatDTO[rangert.length];
+        for (int i = 0; i < rangert.length; i++) {
+            int k = rangert[i];
+            topp[i] = new TopKandidatDTO(lager.navn(k), lager.parti(k), lager.valgdistrikt(k), naa[k], foer[k],
+                    trend(naa[k], foer[k]));
+        }
+        return List.of(topp);
+    }
+
+    /**
+     * Beregner trend som økningen fra forrige vindu delt på kvadratroten av forrige antall + 1,
+     * slik at en økning fra få omtaler ikke veier tyngre enn en like stor relativ økning fra mange.
+     *
+     * @param naa   antall omtaler i vinduet
+     * @param foer  antall omtaler i vinduet før
+     * @return trenden
+     */
+    static double trend(final int naa, final int foer) {
+        return (naa - foer) / Math.sqrt(foer + 1.0);
+    }
+}
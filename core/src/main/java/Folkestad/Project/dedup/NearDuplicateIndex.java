@@ -0,0 +1,145 @@
+package folkestad.project.dedup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * NearDuplicateIndex finner nesten-like artikler (f.eks. NTB-saker publisert under flere URL-er)
+ * ved hjelp av SimHash og locality-sensitive hashing i minnet.
+ * <p>
+ * Fingeravtrykket deles i {@value #BANDS} bånd á {@value #BAND_BITS} bit. To fingeravtrykk med
+ * Hamming-avstand mindre enn antall bånd er garantert like i minst ett bånd, så et oppslag
+ * trenger bare å sammenligne mot artiklene i de samme båndbøttene i stedet for hele indeksen.
+ * Indeksen holder de sist registrerte artiklene og fjerner de eldste når kapasiteten er nådd.
+ * Derfor kan {@code dedup.max-hamming-distance} være høyst {@code BANDS - 1}; større verdier
+ * avvises ved oppstart, siden nesten-duplikater ellers ville blitt oversett uten varsel.
+ * </p>
+ */
+@Component
+public class NearDuplicateIndex {
+
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 16;
+    private static final long BAND_MASK = (1L << BAND_BITS) - 1;
+
+    @Value("${dedup.max-hamming-distance:3}")
+    private int maxHammingDistance;
+
+    @Value("${dedup.min-words:40}")
+    private int minWords;
+
+    @Value("${dedup.capacity:50000}")
+    private int capacity;
+
+    private final Map<Integer, List<Entry>> buckets = new HashMap<>();
+    private final Map<String, Entry> entriesByUrl = new HashMap<>();
+    private final ArrayDeque<Entry> insertionOrder = new ArrayDeque<>();
+
+    /**
+     * En registrert artikkel.
+     *
+     * @param url         artikkelens URL
+     * @param fingerprint artikkelens SimHash
+     */
+    private record Entry(String url, long fingerprint) {
+    }
+
+    /**
+     * Sjekker at maksimal Hamming-avstand er innenfor det båndinndelingen garanterer å finne.
+     *
+     * @throws IllegalStateException hvis avstanden er negativ eller større enn antall bånd minus én
+     */
+    @PostConstruct
+    public void validerAvstand() {
+        if (maxHammingDistance < 0 || maxHammingDistance > BANDS - 1) {
+            throw new IllegalStateException("dedup.max-hamming-distance må være mellom 0 og " + (BANDS - 1)
+                    + " med " + BANDS + " bånd, var " + maxHammingDistance);
+        }
+    }
+
+    /**
+     * Slår opp en artikkel mot indeksen. Finnes en nesten-lik artikkel under en annen URL
+     * returneres dens URL; ellers registreres artikkelen som original.
+     * Svært korte tekster gir upålitelige fingeravtrykk og blir verken slått opp eller registrert.
+     *
+     * @param url  normalisert artikkel-URL
+     * @param text artikkeltekst
+     * @return URL til originalartikkelen hvis dette er et nesten-duplikat, ellers tom
+     */
+    public synchronized Optional<String> findOrRegister(final String url, final CharSequence text) {
+        if (entriesByUrl.containsKey(url) || SimHash.countWords(text) < minWords) {
+            return Optional.empty();
+        }
+
+        long fingerprint = SimHash.fingerprint(text);
+        for (int band = 0; band < BANDS; band++) {
+            List<Entry> bucket = buckets.get(bucketKey(fingerprint, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (Entry entry : bucket) {
+                if (SimHash.hammingDistance(entry.fingerprint(), fingerprint) <= maxHammingDistance) {
+                    return Optional.of(entry.url());
+                }
+            }
+        }
+
+        register(new Entry(url, fingerprint));
+        return Optional.empty();
+    }
+
+    /**
+     * Returnerer antall artikler i indeksen.
+     *
+     * @return antall registrerte artikler
+     */
+    public synchronized int size() {
+        return entriesByUrl.size();
+    }
+
+    /**
+     * Registrerer en artikkel i alle bånd og fjerner den eldste hvis kapasiteten er nådd.
+     *
+     * @param entry artikkelen som skal registreres
+     */
+    private void register(final Entry entry) {
+        if (insertionOrder.size() >= capacity) {
+            Entry oldest = insertionOrder.pollFirst();
+            entriesByUrl.remove(oldest.url());
+            for (int band = 0; band < BANDS; band++) {
+                int key = bucketKey(oldest.fingerprint(), band);
+                List<Entry> bucket = buckets.get(key);
+                bucket.remove(oldest);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+
+        insertionOrder.addLast(entry);
+        entriesByUrl.put(entry.url(), entry);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bucketKey(entry.fingerprint(), band), k -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    /**
+     * Beregner bøttenøkkelen for ett bånd av et fingeravtrykk.
+     *
+     * @param fingerprint SimHash-fingeravtrykk
+     * @param band        båndnummer
+     * @return nøkkel som består av båndnummer og båndets bit
+     */
+    private static int bucketKey(final long fingerprint, final int band) {
+        return (band << BAND_BITS) | (int) ((fingerprint >>> (band * BAND_BITS)) & BAND_MASK);
+    }
+}
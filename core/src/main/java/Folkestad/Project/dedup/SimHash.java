@@ -0,0 +1,140 @@
+package folkestad.project.dedup;
+
+/**
+ * Beregner 64-bits SimHash-fingeravtrykk av artikkeltekst.
+ * Teksten deles i ord (bokstaver og sifre, uten hensyn til store/små bokstaver), og hvert
+ * overlappende ord-triplett (shingle) bidrar med sin hash til fingeravtrykket. Tekster med
+ * nesten likt innhold får fingeravtrykk med liten Hamming-avstand.
+ */
+public final class SimHash {
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long SHINGLE_PRIME = 0x9E3779B97F4A7C15L;
+
+    private SimHash() {
+    }
+
+    /**
+     * Beregner SimHash-fingeravtrykket for en tekst i én gjennomgang uten å opprette delstrenger.
+     *
+     * @param text teksten som skal fingeravtrykkes
+     * @return 64-bits fingeravtrykk, 0 for tom tekst
+     */
+    public static long fingerprint(final CharSequence text) {
+        int[] weights = new int[Long.SIZE];
+        long[] window = new long[SHINGLE_SIZE];
+        int tokenCount = 0;
+
+        long tokenHash = FNV_OFFSET;
+        boolean inToken = false;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar) {
+                tokenHash ^= Character.toLowerCase(text.charAt(i));
+                tokenHash *= FNV_PRIME;
+                inToken = true;
+            } else if (inToken) {
+                window[tokenCount % SHINGLE_SIZE] = tokenHash;
+                tokenCount++;
+                if (tokenCount >= SHINGLE_SIZE) {
+                    addToWeights(weights, shingleHash(window, tokenCount));
+                }
+                tokenHash = FNV_OFFSET;
+                inToken = false;
+            }
+        }
+
+        if (tokenCount > 0 && tokenCount < SHINGLE_SIZE) {
+            for (int i = 0; i < tokenCount; i++) {
+                addToWeights(weights, mix(window[i]));
+            }
+        }
+
+        long fingerprint = 0L;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Teller antall ord i en tekst.
+     *
+     * @param text teksten som skal telles
+     * @return antall ord
+     */
+    public static int countWords(final CharSequence text) {
+        int count = 0;
+        boolean inToken = false;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                if (!inToken) {
+                    count++;
+                }
+                inToken = true;
+            } else {
+                inToken = false;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Beregner Hamming-avstanden mellom to fingeravtrykk.
+     *
+     * @param first  første fingeravtrykk
+     * @param second andre fingeravtrykk
+     * @return antall bit som er forskjellige
+     */
+    public static int hammingDistance(final long first, final long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    /**
+     * Kombinerer de siste ordene i vinduet, i rekkefølge, til én shingle-hash.
+     *
+     * @param window     ringbuffer med ord-hasher
+     * @param tokenCount antall ord lest så langt
+     * @return shingle-hash
+     */
+    private static long shingleHash(final long[] window, final int tokenCount) {
+        long hash = 0L;
+        for (int i = tokenCount - SHINGLE_SIZE; i < tokenCount; i++) {
+            hash = hash * SHINGLE_PRIME + window[i % SHINGLE_SIZE];
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Legger én hash til bitvektene: +1 for hver satt bit, -1 ellers.
+     *
+     * @param weights bitvekter
+     * @param hash    hash som skal legges til
+     */
+    private static void addToWeights(final int[] weights, final long hash) {
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            weights[bit] += (int) ((hash >>> bit) & 1L) * 2 - 1;
+        }
+    }
+
+    /**
+     * Fordeler bitene i en hash jevnt (finaliseringssteget fra MurmurHash3).
+     *
+     * @param value verdien som skal blandes
+     * @return blandet verdi
+     */
+    private static long mix(final long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -8,9 +8,11 @@ import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import folkestad.KandidatStortingsvalg;
 import folkestad.KandidatStortingsvalgRepository;
+import folkestad.KandidaterOppdatertEvent;
 
 @Component
 public class KandidatNameExtractor extends NorwegianNameExtractor {
@@ -18,8 +20,8 @@ public class KandidatNameExtractor extends NorwegianNameExtractor {
     @Autowired
     private KandidatStortingsvalgRepository kandidatRepository;
 
-    private Map<String, String> kandidatNamesMap = null;
-    private Map<String, String> kjentEtternavnMap = null;
+    private volatile Map<String, String> kandidatNamesMap = null;
+    private volatile Map<String, String> kjentEtternavnMap = null;
     
     private static final Pattern ETTERNAVN_PATTERN = Pattern.compile("\\b([A-ZÆØÅÁÉÍÓÚÝÞÐ][a-zæøåáéíóúýþðA-ZÆØÅÁÉÍÓÚÝÞÐ]+)\\b");
 
@@ -29,13 +31,14 @@ public class KandidatNameExtractor extends NorwegianNameExtractor {
 
     /**
      * Laster kandidatnavn og bygger opp kjente etternavn-map.
+     * Mapene bygges ferdig før de publiseres, slik at andre tråder aldri ser dem halvfulle.
      */
-    private void loadKandidatNames() {
+    private synchronized void loadKandidatNames() {
         if (kandidatNamesMap == null) {
             List<KandidatStortingsvalg> allKandidater = kandidatRepository.findAll();
 
-            kandidatNamesMap = new HashMap<>();
-            kjentEtternavnMap = new HashMap<>();
+            Map<String, String> navn = new HashMap<>();
+            Map<String, String> etternavnMap = new HashMap<>();
 
             for (KandidatStortingsvalg kandidat : allKandidater) {
                 if (kandidat.getNavn() != null && !kandidat.getNavn().trim().isEmpty()) {
@@ -43,20 +46,32 @@ public class KandidatNameExtractor extends NorwegianNameExtractor {
                     String lowerCaseName = originalName.toLowerCase();
 
                     // Legg til fullstendig navn i normal map
-                    kandidatNamesMap.put(lowerCaseName, originalName);
+                    navn.put(lowerCaseName, originalName);
 
                     // Sjekk om dette er en kjent politiker som ofte refereres med bare etternavn
                     if (erKjentPolitiker(originalName)) {
                         String etternavn = hentEtternavn(originalName);
                         if (etternavn != null && !etternavn.isEmpty()) {
-                            kjentEtternavnMap.put(etternavn.toLowerCase(), originalName);
+                            etternavnMap.put(etternavn.toLowerCase(), originalName);
                         }
                     }
                 }
             }
+            kjentEtternavnMap = etternavnMap;
+            kandidatNamesMap = navn;
         }
     }
 
+    /**
+     * Glemmer de lastede kandidatnavnene etter en import, slik at de lastes på nytt ved neste uttrekk.
+     *
+     * @param event hendelsen om at kandidater er oppdatert
+     */
+    @EventListener
+    public synchronized void onKandidaterOppdatert(final KandidaterOppdatertEvent event) {
+        kandidatNamesMap = null;
+    }
+
     /**
      * Sjekker om en person er en kjent politiker som ofte refereres med bare etternavn.
      * 
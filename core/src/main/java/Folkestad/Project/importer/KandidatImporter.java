@@ -0,0 +1,369 @@
+package folkestad.project.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import folkestad.KandidatStortingsvalg;
+import folkestad.KandidatStortingsvalgRepository;
+import folkestad.KandidaterOppdatertEvent;
+
+/**
+ * Importerer kandidatlister (CSV eller JSON) til kandidat_stortingsvalg.
+ * <p>
+ * Filen leses rad for rad og lagres i JDBC-batcher med navn som nøkkel, så minnebruken er begrenset
+ * av batch-størrelsen og ikke av filen. CSV-filer kan bruke semikolon eller komma som skilletegn og
+ * må ha en overskriftsrad. JSON-filer må inneholde en liste med flate objekter. Kolonnenavn
+ * sammenlignes uten hensyn til store bokstaver, mellomrom og æ/ø/å, så både "Fødselsdato" og
+ * "foedselsdato" gjenkjennes. Alder regnes ut fra fødselsdato og dagens dato når fødselsdato finnes.
+ * </p>
+ * <p>
+ * Når importen er ferdig publiseres {@link KandidaterOppdatertEvent}, slik at cacher og navneuttrekk
+ * lastes på nytt.
+ * </p>
+ */
+@Component
+public class KandidatImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidatImporter.class);
+
+    private static final DateTimeFormatter NORSK_DATO = DateTimeFormatter.ofPattern("d.M.yyyy");
+    private static final int ISO_DATO_LENGDE = 10;
+
+    private static final Map<String, String> KOLONNER = new HashMap<>();
+
+    static {
+        KOLONNER.put("navn", "navn");
+        KOLONNER.put("valg", "valg");
+        KOLONNER.put("valgdistrikt", "valgdistrikt");
+        KOLONNER.put("partikode", "partikode");
+        KOLONNER.put("partinavn", "partinavn");
+        KOLONNER.put("displayorder", "displayOrder");
+        KOLONNER.put("visningsrekkefolge", "displayOrder");
+        KOLONNER.put("rekkefolge", "displayOrder");
+        KOLONNER.put("kandidatnr", "kandidatnr");
+        KOLONNER.put("kandidatnummer", "kandidatnr");
+        KOLONNER.put("bosted", "bosted");
+        KOLONNER.put("stilling", "stilling");
+        KOLONNER.put("foedselsdato", "foedselsdato");
+        KOLONNER.put("fodselsdato", "foedselsdato");
+        KOLONNER.put("alder", "alder");
+        KOLONNER.put("kjoenn", "kjoenn");
+        KOLONNER.put("kjonn", "kjoenn");
+    }
+
+    @Autowired
+    private KandidatStortingsvalgRepository kandidatRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Clock clock;
+
+    @Value("${jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Importerer en kandidatliste. Formatet bestemmes av filendelsen (.json, ellers CSV).
+     *
+     * @param fil filen som skal importeres
+     * @return antall kandidater som ble lagret
+     */
+    public int importer(final Path fil) {
+        long start = System.currentTimeMillis();
+        LocalDate referansedato = LocalDate.now(clock);
+        List<KandidatStortingsvalg> batch = new ArrayList<>(batchSize);
+        int[] antall = {0};
+        int[] hoppetOver = {0};
+
+        Consumer<Map<String, String>> rad = verdier -> {
+            KandidatStortingsvalg kandidat = tilKandidat(verdier, referansedato);
+            if (kandidat == null) {
+                hoppetOver[0]++;
+                return;
+            }
+            batch.add(kandidat);
+            if (batch.size() >= batchSize) {
+                antall[0] += kandidatRepository.upsert(batch);
+                batch.clear();
+            }
+        };
+
+        try (BufferedReader reader = Files.newBufferedReader(fil, StandardCharsets.UTF_8)) {
+            if (fil.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+                lesJson(reader, rad);
+            } else {
+                lesCsv(reader, rad);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke lese kandidatliste " + fil, e);
+        }
+        antall[0] += kandidatRepository.upsert(batch);
+
+        LOGGER.info("Importerte {} kandidater fra {} på {} ms ({} rader uten navn hoppet over)",
+                antall[0], fil.getFileName(), System.currentTimeMillis() - start, hoppetOver[0]);
+        eventPublisher.publishEvent(new KandidaterOppdatertEvent(antall[0]));
+        return antall[0];
+    }
+
+    /**
+     * Leser en CSV-fil med overskriftsrad og gir hver rad videre som kolonne → verdi.
+     *
+     * @param reader filen
+     * @param rad    mottaker for hver rad
+     * @throws IOException hvis lesingen feiler
+     */
+    private static void lesCsv(final BufferedReader reader, final Consumer<Map<String, String>> rad)
+            throws IOException {
+        String overskrift = reader.readLine();
+        if (overskrift == null) {
+            return;
+        }
+        if (!overskrift.isEmpty() && overskrift.charAt(0) == '\uFEFF') {
+            overskrift = overskrift.substring(1);
+        }
+        char skilletegn = ',';
+        if (overskrift.indexOf(';') >= 0) {
+            skilletegn = ';';
+        }
+
+        List<String> kolonner = new ArrayList<>();
+        for (String kolonne : splittCsv(overskrift, reader, skilletegn)) {
+            kolonner.add(KOLONNER.get(normaliserKolonne(kolonne)));
+        }
+
+        String linje;
+        while ((linje = reader.readLine()) != null) {
+            if (linje.isBlank()) {
+                continue;
+            }
+            List<String> felter = splittCsv(linje, reader, skilletegn);
+            Map<String, String> verdier = new HashMap<>();
+            for (int i = 0; i < felter.size() && i < kolonner.size(); i++) {
+                if (kolonner.get(i) != null) {
+                    verdier.put(kolonner.get(i), felter.get(i));
+                }
+            }
+            rad.accept(verdier);
+        }
+    }
+
+    /**
+     * Deler en CSV-linje i felter. Felter i anførselstegn kan inneholde skilletegn, doble
+     * anførselstegn og linjeskift; i så fall leses neste linje fra filen.
+     *
+     * @param linje      linjen som skal deles
+     * @param reader     filen, for felter som fortsetter på neste linje
+     * @param skilletegn skilletegnet
+     * @return feltene i linjen
+     * @throws IOException hvis lesingen feiler
+     */
+    private static List<String> splittCsv(final String linje, final BufferedReader reader, final char skilletegn)
+            throws IOException {
+        List<String> felter = new ArrayList<>();
+        StringBuilder felt = new StringBuilder();
+        boolean iAnfoersel = false;
+        String gjeldende = linje;
+        int i = 0;
+        while (true) {
+            if (i >= gjeldende.length()) {
+                if (!iAnfoersel) {
+                    break;
+                }
+                String neste = reader.readLine();
+                if (neste == null) {
+                    break;
+                }
+                felt.append('\n');
+                gjeldende = neste;
+                i = 0;
+                continue;
+            }
+            char c = gjeldende.charAt(i);
+            if (iAnfoersel) {
+                if (c == '"' && i + 1 < gjeldende.length() && gjeldende.charAt(i + 1) == '"') {
+                    felt.append('"');
+                    i++;
+                } else if (c == '"') {
+                    iAnfoersel = false;
+                } else {
+                    felt.append(c);
+                }
+            } else if (c == '"') {
+                iAnfoersel = true;
+            } else if (c == skilletegn) {
+                felter.add(felt.toString().trim());
+                felt.setLength(0);
+            } else {
+                felt.append(c);
+            }
+            i++;
+        }
+        felter.add(felt.toString().trim());
+        return felter;
+    }
+
+    /**
+     * Leser en JSON-liste med flate objekter og gir hvert objekt videre som kolonne → verdi.
+     * Listen kan ligge på toppnivå eller som første liste inne i et objekt.
+     *
+     * @param reader filen
+     * @param rad    mottaker for hvert objekt
+     * @throws IOException hvis lesingen feiler
+     */
+    private static void lesJson(final Reader reader, final Consumer<Map<String, String>> rad) throws IOException {
+        try (JsonParser parser = new JsonFactory().createParser(reader)) {
+            JsonToken token = parser.nextToken();
+            while (token != null && token != JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            if (token == null) {
+                return;
+            }
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Map<String, String> verdier = new HashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String kolonne = KOLONNER.get(normaliserKolonne(parser.currentName()));
+                    JsonToken verdi = parser.nextToken();
+                    if (verdi.isStructStart()) {
+                        parser.skipChildren();
+                    } else if (kolonne != null && verdi != JsonToken.VALUE_NULL) {
+                        verdier.put(kolonne, parser.getValueAsString());
+                    }
+                }
+                rad.accept(verdier);
+            }
+        }
+    }
+
+    /**
+     * Lager en kandidat av verdiene i én rad.
+     *
+     * @param verdier       kolonne → verdi
+     * @param referansedato datoen alder regnes ut fra
+     * @return kandidaten, eller null hvis raden mangler navn
+     */
+    private static KandidatStortingsvalg tilKandidat(final Map<String, String> verdier,
+            final LocalDate referansedato) {
+        String navn = tomTilNull(verdier.get("navn"));
+        if (navn == null) {
+            return null;
+        }
+        LocalDate foedselsdato = tilDato(verdier.get("foedselsdato"));
+        Integer alder = tilHeltall(verdier.get("alder"));
+        if (foedselsdato != null) {
+            alder = Period.between(foedselsdato, referansedato).getYears();
+        }
+        return KandidatStortingsvalg.builder()
+                .navn(navn)
+                .valg(tomTilNull(verdier.get("valg")))
+                .valgdistrikt(tomTilNull(verdier.get("valgdistrikt")))
+                .partikode(tomTilNull(verdier.get("partikode")))
+                .partinavn(tomTilNull(verdier.get("partinavn")))
+                .displayOrder(tilHeltall(verdier.get("displayOrder")))
+                .kandidatnr(tilHeltall(verdier.get("kandidatnr")))
+                .bosted(tomTilNull(verdier.get("bosted")))
+                .stilling(tomTilNull(verdier.get("stilling")))
+                .foedselsdato(foedselsdato)
+                .alder(alder)
+                .kjoenn(tomTilNull(verdier.get("kjoenn")))
+                .build();
+    }
+
+    /**
+     * Normaliserer et kolonnenavn: små bokstaver, æ/ø/å erstattet og alt annet enn bokstaver og tall fjernet.
+     *
+     * @param kolonne kolonnenavnet fra filen
+     * @return normalisert navn
+     */
+    private static String normaliserKolonne(final String kolonne) {
+        String navn = kolonne.toLowerCase(Locale.ROOT)
+                .replace("æ", "ae")
+                .replace("ø", "o")
+                .replace("å", "a");
+        return navn.replaceAll("[^a-z0-9]", "");
+    }
+
+    /**
+     * Tolker en dato på formen yyyy-MM-dd (eventuelt med klokkeslett etter) eller dd.MM.yyyy.
+     *
+     * @param verdi teksten
+     * @return datoen, eller null hvis den mangler eller ikke kan tolkes
+     */
+    private static LocalDate tilDato(final String verdi) {
+        String tekst = tomTilNull(verdi);
+        if (tekst == null) {
+            return null;
+        }
+        try {
+            if (tekst.contains(".")) {
+                return LocalDate.parse(tekst, NORSK_DATO);
+            }
+            if (tekst.length() > ISO_DATO_LENGDE) {
+                tekst = tekst.substring(0, ISO_DATO_LENGDE);
+            }
+            return LocalDate.parse(tekst);
+        } catch (DateTimeParseException e) {
+            LOGGER.debug("Ugyldig dato i kandidatliste: {}", verdi);
+            return null;
+        }
+    }
+
+    /**
+     * Tolker et heltall.
+     *
+     * @param verdi teksten
+     * @return tallet, eller null hvis det mangler eller ikke kan tolkes
+     */
+    private static Integer tilHeltall(final String verdi) {
+        String tekst = tomTilNull(verdi);
+        if (tekst == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(tekst);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Fjerner mellomrom rundt en verdi og gjør tomme verdier om til null.
+     *
+     * @param verdi teksten
+     * @return teksten uten mellomrom rundt, eller null
+     */
+    private static String tomTilNull(final String verdi) {
+        if (verdi == null || verdi.isBlank()) {
+            return null;
+        }
+        return verdi.trim();
+    }
+}
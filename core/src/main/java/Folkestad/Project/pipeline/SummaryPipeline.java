@@ -0,0 +1,294 @@
+package folkestad.project.pipeline;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import folkestad.Artikkel;
+import folkestad.Innlegg;
+import folkestad.InnleggRepository;
+import folkestad.project.TextSummarizer.SummaryResult;
+import folkestad.project.TextSummarizer.TextSummarizer;
+import folkestad.project.dedup.SimHash;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * SummaryPipeline genererer og lagrer artikkelsammendrag i bakgrunnen, frikoblet fra scraping-løkken.
+ * Scraperne legger artikler i en begrenset kø, og dedikerte arbeidertråder tømmer køen i batcher.
+ * Ferdige sammendrag legges i {@link WriteBehindLog} og skrives til databasen av
+ * {@link WriteBehindFlusher}, slik at et databasebrudd ikke stopper eller mister sammendrag.
+ * Når køen er full blokkerer {@link #submit(String, String)} til det er plass (backpressure).
+ * Ved avslutning tømmes køen før arbeiderne stopper.
+ */
+@Component
+public class SummaryPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SummaryPipeline.class);
+
+    @Autowired
+    private InnleggRepository innleggRepository;
+
+    @Autowired
+    private WriteBehindLog writeBehindLog;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${summary.pipeline.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${summary.pipeline.workers:2}")
+    private int workerCount;
+
+    @Value("${summary.pipeline.batch-size:20}")
+    private int batchSize;
+
+    @Value("${summary.pipeline.poll-timeout-ms:2000}")
+    private long pollTimeoutMs;
+
+    @Value("${summary.pipeline.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private BlockingQueue<SummaryTask> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicBoolean accepting = new AtomicBoolean(false);
+
+    private Timer latencyTimer;
+    private Timer summarizeTimer;
+    private Counter loggedCounter;
+
+    /**
+     * En artikkel som venter på sammendrag.
+     *
+     * @param link           normalisert artikkel-URL
+     * @param originalText   full artikkeltekst, null for duplikater
+     * @param duplikatAv     URL til originalartikkelen hvis dette er et nesten-duplikat, ellers null
+     * @param enqueuedNanos  tidspunkt artikkelen ble lagt i køen
+     */
+    private record SummaryTask(String link, String originalText, String duplikatAv, long enqueuedNanos) {
+    }
+
+    /**
+     * Oppretter køen, registrerer metrikker og starter arbeidertrådene.
+     */
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            registry = Metrics.globalRegistry;
+        }
+        Gauge.builder("summary.pipeline.queue.depth", queue, BlockingQueue::size)
+                .description("Antall artikler som venter på sammendrag")
+                .register(registry);
+        latencyTimer = Timer.builder("summary.pipeline.latency")
+                .description("Tid fra artikkel legges i køen til sammendraget er skrevet til write-behind-loggen")
+                .register(registry);
+        summarizeTimer = Timer.builder("summary.pipeline.summarize")
+                .description("Tid brukt på å generere ett sammendrag")
+                .register(registry);
+        loggedCounter = Counter.builder("summary.pipeline.logged")
+                .description("Antall sammendrag skrevet til write-behind-loggen, før de lagres i databasen")
+                .register(registry);
+
+        accepting.set(true);
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "summary-worker-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        LOGGER.info("SummaryPipeline startet med {} arbeidere, kø-kapasitet {} og batch-størrelse {}",
+                workerCount, queueCapacity, batchSize);
+    }
+
+    /**
+     * Legger en artikkel i køen for sammendrag. Blokkerer når køen er full.
+     *
+     * @param link         normalisert artikkel-URL
+     * @param originalText full artikkeltekst
+     */
+    public void submit(final String link, final String originalText) {
+        enqueue(new SummaryTask(link, originalText, null, System.nanoTime()));
+    }
+
+    /**
+     * Registrerer at en artikkel er et nesten-duplikat av en annen. Det lagres et innlegg som
+     * peker på originalen, uten at sammendraget genereres på nytt.
+     *
+     * @param link       normalisert URL til duplikatet
+     * @param duplikatAv normalisert URL til originalartikkelen
+     */
+    public void submitDuplicate(final String link, final String duplikatAv) {
+        enqueue(new SummaryTask(link, null, duplikatAv, System.nanoTime()));
+    }
+
+    /**
+     * Legger en oppgave i køen og blokkerer når køen er full.
+     *
+     * @param task oppgaven som skal legges i køen
+     */
+    private void enqueue(final SummaryTask task) {
+        if (!accepting.get()) {
+            LOGGER.warn("SummaryPipeline er stengt, hopper over sammendrag for {}", task.link());
+            return;
+        }
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Avbrutt mens sammendrag for {} ventet på plass i køen", task.link());
+        }
+    }
+
+    /**
+     * Returnerer antall artikler som venter på sammendrag.
+     *
+     * @return nåværende kødybde
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stopper mottak av nye artikler, lar arbeiderne tømme køen og venter på at de avslutter.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!accepting.getAndSet(false)) {
+            return;
+        }
+        LOGGER.info("Stopper SummaryPipeline, {} artikler gjenstår i køen", queue.size());
+
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        for (Thread worker : workers) {
+            long remaining = deadline - System.currentTimeMillis();
+            try {
+                if (remaining > 0) {
+                    worker.join(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (worker.isAlive()) {
+                LOGGER.warn("{} ble ikke ferdig innen tidsfristen, avbryter", worker.getName());
+                worker.interrupt();
+            }
+        }
+        if (!queue.isEmpty()) {
+            LOGGER.warn("{} artikler i køen ble ikke oppsummert før avslutning", queue.size());
+        }
+        LOGGER.info("SummaryPipeline stoppet");
+    }
+
+    /**
+     * Arbeiderløkke: henter batcher fra køen til pipelinen er stengt og køen er tom.
+     * Hver arbeider har sin egen TextSummarizer siden den holder intern tilstand.
+     */
+    private void runWorker() {
+        TextSummarizer textSummarizer = new TextSummarizer();
+        List<SummaryTask> batch = new ArrayList<>(batchSize);
+
+        while (true) {
+            SummaryTask first;
+            try {
+                first = queue.poll(pollTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (!accepting.get() && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                processBatch(batch, textSummarizer);
+            } catch (RuntimeException e) {
+                LOGGER.error("Feil under prosessering av {} sammendrag: ", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Oppsummerer artiklene i en batch som ikke allerede er lagret, og legger dem i write-behind-loggen.
+     * Hele batchen sjekkes mot databasen med én spørring; er databasen utilgjengelig, oppsummeres alle
+     * og duplikater filtreres bort når loggen skrives.
+     *
+     * @param batch          artikler hentet fra køen
+     * @param textSummarizer arbeiderens egen TextSummarizer
+     */
+    private void processBatch(final List<SummaryTask> batch, final TextSummarizer textSummarizer) {
+        Set<String> links = new HashSet<>();
+        for (SummaryTask task : batch) {
+            links.add(task.link());
+        }
+        Set<String> eksisterende = new HashSet<>();
+        try {
+            eksisterende.addAll(innleggRepository.findExistingLinks(links));
+        } catch (DataAccessException e) {
+            LOGGER.warn("Kunne ikke sjekke eksisterende innlegg, lagres via write-behind-loggen: {}", e.getMessage());
+        }
+
+        Map<String, Innlegg> nyeInnlegg = new LinkedHashMap<>();
+        for (SummaryTask task : batch) {
+            if (eksisterende.contains(task.link()) || nyeInnlegg.containsKey(task.link())) {
+                continue;
+            }
+            if (task.duplikatAv() != null) {
+                Innlegg duplikat = new Innlegg();
+                duplikat.setArtikkel(Artikkel.ny(task.link(), null));
+                duplikat.setDuplikatAv(Artikkel.ny(task.duplikatAv(), null));
+                nyeInnlegg.put(task.link(), duplikat);
+                continue;
+            }
+            long start = System.nanoTime();
+            SummaryResult summaryResult = textSummarizer.summarize(task.originalText());
+            summarizeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            Innlegg innlegg = new Innlegg();
+            innlegg.setArtikkel(Artikkel.ny(task.link(), SimHash.fingerprint(task.originalText())));
+            innlegg.setSammendragWithStats(summaryResult.getSummary(), task.originalText());
+            nyeInnlegg.put(task.link(), innlegg);
+        }
+
+        if (!nyeInnlegg.isEmpty()) {
+            List<WriteBehindEntry.Sammendrag> entries = new ArrayList<>();
+            for (Innlegg innlegg : nyeInnlegg.values()) {
+                entries.add(WriteBehindEntry.Sammendrag.fraInnlegg(innlegg));
+            }
+            writeBehindLog.append(entries);
+            loggedCounter.increment(entries.size());
+        }
+
+        long now = System.nanoTime();
+        for (SummaryTask task : batch) {
+            latencyTimer.record(now - task.enqueuedNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package folkestad.project.pipeline;
+
+import java.time.LocalDateTime;
+
+import folkestad.Artikkel;
+import folkestad.Innlegg;
+
+/**
+ * En post i {@link WriteBehindLog}: enten en kandidatomtale eller et ferdig sammendrag
+ * som venter på å bli skrevet til databasen.
+ */
+public sealed interface WriteBehindEntry permits WriteBehindEntry.Omtale, WriteBehindEntry.Sammendrag {
+
+    /**
+     * En kandidat nevnt i en artikkel.
+     *
+     * @param kandidatNavn kandidatens navn
+     * @param url          normalisert artikkel-URL
+     * @param tidspunkt    tidspunktet omtalen ble funnet
+     */
+    record Omtale(String kandidatNavn, String url, LocalDateTime tidspunkt) implements WriteBehindEntry {
+    }
+
+    /**
+     * Et sammendrag av en artikkel, eller en markering av at artikkelen er et nesten-duplikat.
+     *
+     * @param link                normalisert artikkel-URL
+     * @param duplikatAv          URL til originalartikkelen, eller null
+     * @param sammendrag          sammendragstekst, eller null for duplikater
+     * @param kompresjonRatio     kompresjonsrate
+     * @param antallOrdOriginal   antall ord i originalteksten
+     * @param antallOrdSammendrag antall ord i sammendraget
+     * @param opprettet           tidspunktet sammendraget ble laget
+     * @param innholdHash         SimHash av artikkelteksten, eller null
+     */
+    record Sammendrag(String link, String duplikatAv, String sammendrag, Double kompresjonRatio,
+            Integer antallOrdOriginal, Integer antallOrdSammendrag, LocalDateTime opprettet, Long innholdHash)
+            implements WriteBehindEntry {
+
+        /**
+         * Lager en post fra et innlegg som ennå ikke er lagret.
+         *
+         * @param innlegg innlegget; artikkel må være satt
+         * @return posten
+         */
+        public static Sammendrag fraInnlegg(final Innlegg innlegg) {
+            return new Sammendrag(innlegg.getLink(), innlegg.getDuplikatAvLink(), innlegg.getSammendrag(),
+                    innlegg.getKompresjonRatio(), innlegg.getAntallOrdOriginal(), innlegg.getAntallOrdSammendrag(),
+                    innlegg.getOpprettetDato(), innlegg.getArtikkel().getInnholdHash());
+        }
+
+        /**
+         * Gjenoppretter innlegget posten ble laget fra.
+         *
+         * @return nytt, ulagret innlegg
+         */
+        public Innlegg tilInnlegg() {
+            Innlegg innlegg = new Innlegg();
+            innlegg.setArtikkel(Artikkel.ny(link, innholdHash));
+            if (duplikatAv != null) {
+                innlegg.setDuplikatAv(Artikkel.ny(duplikatAv, null));
+            }
+            innlegg.setSammendrag(sammendrag);
+            innlegg.setKompresjonRatio(kompresjonRatio);
+            innlegg.setAntallOrdOriginal(antallOrdOriginal);
+            innlegg.setAntallOrdSammendrag(antallOrdSammendrag);
+            innlegg.setOpprettetDato(opprettet);
+            return innlegg;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package folkestad.project.pipeline;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import folkestad.Innlegg;
+import folkestad.InnleggRepository;
+import folkestad.project.KandidatLinkWriter;
+
+/**
+ * Skriver poster fra {@link WriteBehindLog} til databasen i batcher. Kjøres med fast intervall,
+ * og kan i tillegg kalles direkte når data må være synlig med en gang. Ventende segmenter fra
+ * forrige kjøring spilles av når applikasjonen er klar, før den planlagte skrapingen starter.
+ * <p>
+ * Et segment slettes først når alle postene er lagret. Feiler databasen, blir segmentet liggende
+ * og prøves igjen ved neste kjøring, mens senere segmenter skrives som vanlig. Både innlegg og
+ * kandidatlenker lagres idempotent, så et segment som ble delvis skrevet før en feil, eller som
+ * skrives etter et nyere segment, kan trygt skrives på nytt.
+ * </p>
+ * <p>
+ * Et segment som har feilet {@code write-behind.max-attempts} ganger mens andre segmenter ble
+ * skrevet, settes i karantene, slik at det ikke stopper resten av loggen. Feiler alle segmenter i
+ * en kjøring, regnes det som at databasen er nede, og ingen forsøk telles. Korrupte segmenter
+ * settes i karantene med en gang, etter at postene foran feilen er skrevet.
+ * </p>
+ */
+@Component
+public class WriteBehindFlusher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindFlusher.class);
+
+    @Autowired
+    private WriteBehindLog writeBehindLog;
+
+    @Autowired
+    private InnleggRepository innleggRepository;
+
+    @Autowired
+    private KandidatLinkWriter kandidatLinkWriter;
+
+    @Value("${write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    /** Mislykkede forsøk per segment siden oppstart. */
+    private final Map<Path, Integer> attempts = new HashMap<>();
+
+    /**
+     * Spiller av segmenter som ble liggende fra forrige kjøring, så de ikke venter på første
+     * planlagte flush.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replay() {
+        int pending = writeBehindLog.pendingSegments().size();
+        if (pending > 0) {
+            LOGGER.info("Spiller av {} write-behind-segmenter fra forrige kjøring", pending);
+            flush();
+        }
+    }
+
+    /**
+     * Roterer det aktive segmentet og skriver alle ventende segmenter til databasen, eldste først.
+     *
+     * @return true hvis alle segmenter ble skrevet
+     */
+    @Scheduled(fixedDelayString = "${write-behind.flush-interval-ms:30000}",
+            initialDelayString = "${write-behind.flush-interval-ms:30000}")
+    public synchronized boolean flush() {
+        writeBehindLog.rotate();
+        List<Path> failed = new ArrayList<>();
+        boolean anyWritten = false;
+        boolean allWritten = true;
+        for (Path segment : writeBehindLog.pendingSegments()) {
+            try {
+                WriteBehindLog.ReadResult result = writeBehindLog.read(segment);
+                apply(result.entries());
+                attempts.remove(segment);
+                anyWritten = true;
+                if (result.corrupt()) {
+                    LOGGER.error("Skrev {} poster fra det korrupte segmentet {}, resten er satt i karantene i {}",
+                            result.entries().size(), segment.getFileName(), writeBehindLog.quarantine(segment));
+                    allWritten = false;
+                } else {
+                    writeBehindLog.delete(segment);
+                    LOGGER.debug("Skrev {} poster fra {}", result.entries().size(), segment.getFileName());
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Kunne ikke skrive {} til databasen, prøver igjen senere: {}",
+                        segment.getFileName(), e.getMessage());
+                failed.add(segment);
+                allWritten = false;
+            }
+        }
+        if (anyWritten) {
+            for (Path segment : failed) {
+                int count = attempts.merge(segment, 1, Integer::sum);
+                if (count >= maxAttempts) {
+                    quarantine(segment, count);
+                }
+            }
+        }
+        return allWritten;
+    }
+
+    /**
+     * Setter et segment som har feilet for mange ganger i karantene. Feiler flyttingen, prøves
+     * segmentet på nytt ved neste kjøring.
+     *
+     * @param segment segmentfilen
+     * @param count   antall mislykkede forsøk
+     */
+    private void quarantine(final Path segment, final int count) {
+        try {
+            LOGGER.error("{} feilet {} ganger mens andre segmenter ble skrevet, satt i karantene i {}",
+                    segment.getFileName(), count, writeBehindLog.quarantine(segment));
+            attempts.remove(segment);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Kunne ikke sette {} i karantene: {}", segment.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Lagrer postene fra ett segment i batcher.
+     *
+     * @param entries postene i segmentet
+     */
+    private void apply(final List<WriteBehindEntry> entries) {
+        List<WriteBehindEntry.Omtale> omtaler = new ArrayList<>();
+        List<Innlegg> innlegg = new ArrayList<>();
+        for (WriteBehindEntry entry : entries) {
+            if (entry instanceof WriteBehindEntry.Omtale omtale) {
+                omtaler.add(omtale);
+            } else if (entry instanceof WriteBehindEntry.Sammendrag sammendrag) {
+                innlegg.add(sammendrag.tilInnlegg());
+            }
+        }
+
+        for (int from = 0; from < innlegg.size(); from += batchSize) {
+            innleggRepository.insertIgnoringExisting(innlegg.subList(from, Math.min(from + batchSize, innlegg.size())));
+        }
+        int nyeLinks = 0;
+        for (int from = 0; from < omtaler.size(); from += batchSize) {
+            nyeLinks += kandidatLinkWriter.lagreOmtaler(
+                    omtaler.subList(from, Math.min(from + batchSize, omtaler.size())));
+        }
+        if (nyeLinks > 0) {
+            LOGGER.info("Lagret {} nye kandidatlenker fra write-behind-loggen", nyeLinks);
+        }
+    }
+}
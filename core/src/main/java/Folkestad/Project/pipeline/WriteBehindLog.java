@@ -0,0 +1,510 @@
+package folkestad.project.pipeline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Lokal, kun-tilføyende logg for omtaler og sammendrag som ennå ikke er skrevet til databasen.
+ * <p>
+ * Poster skrives til en aktiv segmentfil med {@link FileChannel}, og filen synkroniseres til disk
+ * én gang per {@link #append(List)}-kall i stedet for per post. {@link #rotate()} lukker det aktive
+ * segmentet og gjør det klart for {@link WriteBehindFlusher}, som skriver det til databasen og
+ * sletter det. Ved oppstart blir et gjenværende aktivt segment rotert til et segment merket
+ * {@value #INTERRUPTED_SUFFIX}, slik at poster fra en avbrutt kjøring spilles av på nytt.
+ * </p>
+ * <p>
+ * Hver post lagres som lengde (int), CRC32 (int) og innhold. En halvskrevet post på slutten av
+ * et avbrutt segment, f.eks. etter strømbrudd, blir oppdaget av sjekksummen og hoppet over.
+ * Roterte segmenter er synkronisert før de lukkes, så der regnes en ødelagt post som korrupsjon,
+ * det samme gjør en ødelagt post med flere poster etter seg. Et korrupt segment flyttes til
+ * {@value #QUARANTINE_DIR} med {@link #quarantine(Path)} og slettes aldri.
+ * </p>
+ */
+@Component
+public class WriteBehindLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindLog.class);
+
+    private static final String ACTIVE_FILE = "aktiv.log";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INTERRUPTED_SUFFIX = "-avbrutt.log";
+    private static final String QUARANTINE_DIR = "karantene";
+
+    private static final byte TYPE_OMTALE = 1;
+    private static final byte TYPE_SAMMENDRAG = 2;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    @Value("${write-behind.dir:data/write-behind}")
+    private String directory;
+
+    private Path dir;
+    private Path activePath;
+    private FileChannel channel;
+    private long segmentSequence;
+
+    /**
+     * Postene som kunne leses fra et segment.
+     *
+     * @param entries hele poster i rekkefølge, fram til en eventuell ødelagt post
+     * @param corrupt true hvis segmentet har en ødelagt post som ikke er en halvskrevet hale i et
+     *                avbrutt segment; segmentet skal da settes i karantene i stedet for å slettes
+     */
+    public record ReadResult(List<WriteBehindEntry> entries, boolean corrupt) {
+    }
+
+    /**
+     * Åpner loggen og roterer et eventuelt aktivt segment fra forrige kjøring.
+     */
+    @PostConstruct
+    public synchronized void open() {
+        try {
+            dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            activePath = dir.resolve(ACTIVE_FILE);
+            if (Files.exists(activePath) && Files.size(activePath) > 0) {
+                Path segment = nextSegmentPath(INTERRUPTED_SUFFIX);
+                Files.move(activePath, segment, StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.info("Fant uskrevne poster fra forrige kjøring, spilles av fra {}", segment.getFileName());
+            }
+            openActive();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke åpne write-behind-logg i " + directory, e);
+        }
+    }
+
+    /**
+     * Legger postene til i det aktive segmentet og synkroniserer filen til disk én gang.
+     *
+     * @param entries postene som skal lagres
+     */
+    public synchronized void append(final List<? extends WriteBehindEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (WriteBehindEntry entry : entries) {
+                byte[] body = encode(entry);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                out.writeInt(body.length);
+                out.writeInt((int) crc.getValue());
+                out.write(body);
+            }
+            out.flush();
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke skrive til write-behind-logg", e);
+        }
+    }
+
+    /**
+     * Lukker det aktive segmentet og starter et nytt, hvis det aktive inneholder poster.
+     *
+     * @return true hvis et segment ble rotert
+     */
+    public synchronized boolean rotate() {
+        try {
+            if (channel.size() == 0) {
+                return false;
+            }
+            channel.force(false);
+            channel.close();
+            Files.move(activePath, nextSegmentPath(SEGMENT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+            openActive();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke rotere write-behind-logg", e);
+        }
+    }
+
+    /**
+     * Returnerer roterte segmenter som venter på å bli skrevet til databasen, eldste først.
+     *
+     * @return ventende segmenter
+     */
+    public List<Path> pendingSegments() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke liste write-behind-segmenter", e);
+        }
+    }
+
+    /**
+     * Leser alle hele poster i et segment. En ødelagt post på slutten av et avbrutt segment hoppes
+     * over; en ødelagt post ellers gjør segmentet korrupt, og lesingen stopper der.
+     *
+     * @param segment segmentfilen
+     * @return postene fram til en eventuell ødelagt post, og om segmentet er korrupt
+     */
+    public ReadResult read(final Path segment) {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke lese " + segment, e);
+        }
+
+        List<WriteBehindEntry> entries = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            if (buffer.remaining() < HEADER_BYTES) {
+                return tornTail(segment, entries, "ufullstendig posthode");
+            }
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (length > buffer.remaining()) {
+                return tornTail(segment, entries, "posten går forbi slutten av filen");
+            }
+            if (length <= 0) {
+                if (onlyZeros(buffer, start)) {
+                    return tornTail(segment, entries, "nullfylt hale");
+                }
+                return corrupt(segment, entries, "ugyldig lengde " + length + " ved byte " + start);
+            }
+            byte[] body = new byte[length];
+            buffer.get(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != expectedCrc) {
+                if (!buffer.hasRemaining()) {
+                    return tornTail(segment, entries, "feil sjekksum i siste post");
+                }
+                return corrupt(segment, entries, "feil sjekksum ved byte " + start);
+            }
+            try {
+                entries.add(decode(ByteBuffer.wrap(body)));
+            } catch (RuntimeException e) {
+                return corrupt(segment, entries, "posten ved byte " + start + " kan ikke dekodes: " + e.getMessage());
+            }
+        }
+        return new ReadResult(entries, false);
+    }
+
+    /**
+     * Flytter et segment til karantenemappen, der det blir liggende til noen har sett på det.
+     *
+     * @param segment segmentfilen
+     * @return stien segmentet ble flyttet til
+     */
+    public Path quarantine(final Path segment) {
+        try {
+            Path quarantineDir = dir.resolve(QUARANTINE_DIR);
+            Files.createDirectories(quarantineDir);
+            Path target = quarantineDir.resolve(segment.getFileName());
+            Files.move(segment, target, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke sette " + segment + " i karantene", e);
+        }
+    }
+
+    /**
+     * Returnerer segmentene i karantene.
+     *
+     * @return segmentene i karantenemappen, sortert på navn
+     */
+    public List<Path> quarantinedSegments() {
+        Path quarantineDir = dir.resolve(QUARANTINE_DIR);
+        if (!Files.isDirectory(quarantineDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(quarantineDir)) {
+            return files.sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke liste segmenter i karantene", e);
+        }
+    }
+
+    /**
+     * Sletter et segment som er skrevet til databasen.
+     *
+     * @param segment segmentfilen
+     */
+    public void delete(final Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke slette " + segment, e);
+        }
+    }
+
+    /**
+     * Synkroniserer og lukker det aktive segmentet.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Kunne ikke lukke write-behind-logg: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Åpner en ny, tom aktiv segmentfil.
+     *
+     * @throws IOException hvis filen ikke kan åpnes
+     */
+    private void openActive() throws IOException {
+        channel = FileChannel.open(activePath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Lager et segmentnavn som sorteres etter rotasjonstidspunkt.
+     *
+     * @param suffix filendelsen, {@value #SEGMENT_SUFFIX} eller {@value #INTERRUPTED_SUFFIX}
+     * @return sti til neste segment
+     */
+    private Path nextSegmentPath(final String suffix) {
+        segmentSequence++;
+        return dir.resolve(String.format("%s%020d-%06d%s",
+                SEGMENT_PREFIX, System.currentTimeMillis(), segmentSequence, suffix));
+    }
+
+    /**
+     * Avslutter lesingen ved en ødelagt post som kan være en halvskrevet hale. Det godtas bare i et
+     * avbrutt segment, som var aktivt da forrige kjøring stoppet; ellers er segmentet korrupt.
+     *
+     * @param segment segmentfilen
+     * @param entries postene som er lest
+     * @param reason  hva som var galt
+     * @return resultatet av lesingen
+     */
+    private static ReadResult tornTail(final Path segment, final List<WriteBehindEntry> entries, final String reason) {
+        if (!segment.getFileName().toString().endsWith(INTERRUPTED_SUFFIX)) {
+            return corrupt(segment, entries, reason + " i et rotert segment");
+        }
+        LOGGER.warn("Halvskrevet post på slutten av {} ({}), hopper over den", segment.getFileName(), reason);
+        return new ReadResult(entries, false);
+    }
+
+    /**
+     * Avslutter lesingen av et korrupt segment.
+     *
+     * @param segment segmentfilen
+     * @param entries postene foran den ødelagte posten
+     * @param reason  hva som var galt
+     * @return resultatet av lesingen
+     */
+    private static ReadResult corrupt(final Path segment, final List<WriteBehindEntry> entries, final String reason) {
+        LOGGER.error("Korrupt write-behind-segment {}: {}; {} poster foran feilen kan leses",
+                segment.getFileName(), reason, entries.size());
+        return new ReadResult(entries, true);
+    }
+
+    /**
+     * Sjekker om resten av bufferen fra en posisjon bare består av nuller, slik filsystemet kan
+     * etterlate slutten av en fil etter strømbrudd.
+     *
+     * @param buffer bufferen
+     * @param start  posisjonen det sjekkes fra
+     * @return true hvis alle bytes fra posisjonen er null
+     */
+    private static boolean onlyZeros(final ByteBuffer buffer, final int start) {
+        for (int i = start; i < buffer.limit(); i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Koder en post til bytes.
+     *
+     * @param entry posten
+     * @return innholdet uten lengde og sjekksum
+     * @throws IOException hvis kodingen feiler
+     */
+    private static byte[] encode(final WriteBehindEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (entry instanceof WriteBehindEntry.Omtale omtale) {
+            out.writeByte(TYPE_OMTALE);
+            writeString(out, omtale.kandidatNavn());
+            writeString(out, omtale.url());
+            writeTime(out, omtale.tidspunkt());
+        } else if (entry instanceof WriteBehindEntry.Sammendrag sammendrag) {
+            out.writeByte(TYPE_SAMMENDRAG);
+            writeString(out, sammendrag.link());
+            writeString(out, sammendrag.duplikatAv());
+            writeString(out, sammendrag.sammendrag());
+            out.writeBoolean(sammendrag.kompresjonRatio() != null);
+            if (sammendrag.kompresjonRatio() != null) {
+                out.writeDouble(sammendrag.kompresjonRatio());
+            }
+            writeInteger(out, sammendrag.antallOrdOriginal());
+            writeInteger(out, sammendrag.antallOrdSammendrag());
+            writeTime(out, sammendrag.opprettet());
+            out.writeBoolean(sammendrag.innholdHash() != null);
+            if (sammendrag.innholdHash() != null) {
+                out.writeLong(sammendrag.innholdHash());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Dekoder en post.
+     *
+     * @param in innholdet uten lengde og sjekksum
+     * @return posten
+     */
+    private static WriteBehindEntry decode(final ByteBuffer in) {
+        byte type = in.get();
+        if (type == TYPE_OMTALE) {
+            return new WriteBehindEntry.Omtale(readString(in), readString(in), readTime(in));
+        }
+        if (type != TYPE_SAMMENDRAG) {
+            throw new IllegalStateException("Ukjent posttype i write-behind-logg: " + type);
+        }
+        String link = readString(in);
+        String duplikatAv = readString(in);
+        String sammendrag = readString(in);
+        Double kompresjonRatio = null;
+        if (in.get() != 0) {
+            kompresjonRatio = in.getDouble();
+        }
+        Integer antallOrdOriginal = readInteger(in);
+        Integer antallOrdSammendrag = readInteger(in);
+        LocalDateTime opprettet = readTime(in);
+        Long innholdHash = null;
+        if (in.get() != 0) {
+            innholdHash = in.getLong();
+        }
+        return new WriteBehindEntry.Sammendrag(link, duplikatAv, sammendrag, kompresjonRatio,
+                antallOrdOriginal, antallOrdSammendrag, opprettet, innholdHash);
+    }
+
+    /**
+     * Skriver en streng som lengde og UTF-8-bytes, -1 for null.
+     *
+     * @param out   strømmen
+     * @param value strengen
+     * @throws IOException hvis skrivingen feiler
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    /**
+     * Leser en streng skrevet med {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param in bufferen
+     * @return strengen, eller null
+     */
+    private static String readString(final ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skriver et heltall som kan være null.
+     *
+     * @param out   strømmen
+     * @param value verdien
+     * @throws IOException hvis skrivingen feiler
+     */
+    private static void writeInteger(final DataOutputStream out, final Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Leser et heltall skrevet med {@link #writeInteger(DataOutputStream, Integer)}.
+     *
+     * @param in bufferen
+     * @return verdien, eller null
+     */
+    private static Integer readInteger(final ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return in.getInt();
+    }
+
+    /**
+     * Skriver et tidspunkt som millisekunder siden epoken (UTC), med flagg for null.
+     *
+     * @param out   strømmen
+     * @param value tidspunktet
+     * @throws IOException hvis skrivingen feiler
+     */
+    private static void writeTime(final DataOutputStream out, final LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+    }
+
+    /**
+     * Leser et tidspunkt skrevet med {@link #writeTime(DataOutputStream, LocalDateTime)}.
+     *
+     * @param in bufferen
+     * @return tidspunktet, eller null
+     */
+    private static LocalDateTime readTime(final ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(in.getLong()), ZoneOffset.UTC);
+    }
+}
@@ -2,7 +2,9 @@ package folkestad.project.scrapers;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -10,11 +12,16 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
 import folkestad.project.PersonArticleIndex;
+import folkestad.project.dedup.NearDuplicateIndex;
+import folkestad.project.dedup.SimHash;
 import folkestad.project.extractors.NorwegianNameExtractor;
 import folkestad.project.TextSummarizer.TextSummarizer;
 import folkestad.project.TextSummarizer.SummaryResult;
+import folkestad.project.pipeline.SummaryPipeline;
+import folkestad.Artikkel;
 import folkestad.Innlegg;
 import folkestad.InnleggRepository;
+import folkestad.Nettsted;
 
 /**
  * Base class for web scrapers using Jsoup.
@@ -27,6 +34,10 @@ public abstract class Scraper {
 
     private InnleggRepository innleggRepository;
 
+    private SummaryPipeline summaryPipeline;
+
+    private NearDuplicateIndex nearDuplicateIndex;
+
     private static final org.slf4j.Logger LOGGER = org.slf4j.LoggerFactory.getLogger(Scraper.class);
 
     private final TextSummarizer textSummarizer = new TextSummarizer();
@@ -127,22 +138,79 @@ public abstract class Scraper {
      */
     /**
      * Processes and saves the summary of an article.
+     * When a SummaryPipeline is set, the article is queued for background summarization instead.
      *
      * @param articleUrl   URL of the article
      * @param originalText Full article text
      */
     protected void processAndSaveSummary(final String articleUrl, final String originalText) {
+        if (summaryPipeline != null) {
+            summaryPipeline.submit(articleUrl, originalText);
+            return;
+        }
+
         if (innleggRepository != null && innleggRepository.existsByLink(articleUrl)) {
             return;
         }
 
         SummaryResult summaryResult = textSummarizer.summarize(originalText);
         Innlegg innlegg = new Innlegg();
-        innlegg.setLink(articleUrl);
+        innlegg.setArtikkel(Artikkel.ny(articleUrl, SimHash.fingerprint(originalText)));
         innlegg.setSammendragWithStats(summaryResult.getSummary(), originalText);
 
         if (innleggRepository != null) {
-            innleggRepository.save(innlegg);
+            innleggRepository.insertIgnoringExisting(List.of(innlegg));
+        }
+    }
+
+    /**
+     * Looks up an article in the near-duplicate index, registering it as an original if no match is found.
+     *
+     * @param articleUrl normalized URL of the article
+     * @param text       full article text
+     * @return URL of the original article if this is a near-duplicate, otherwise empty
+     */
+    private Optional<String> findNearDuplicate(final String articleUrl, final String text) {
+        if (nearDuplicateIndex == null) {
+            return Optional.empty();
+        }
+        return nearDuplicateIndex.findOrRegister(articleUrl, text);
+    }
+
+    /**
+     * Chooses which URL the mentions of a near-duplicate are recorded under.
+     * Copies on the same site (e.g. regional NRK feeds) are folded into the original,
+     * while copies on other sites keep their own URL so per-source statistics stay correct.
+     *
+     * @param articleUrl  URL of the duplicate
+     * @param originalUrl URL of the original article
+     * @return URL to record the mentions under
+     */
+    private String mentionUrlForDuplicate(final String articleUrl, final String originalUrl) {
+        Optional<Nettsted> articleSite = Nettsted.parseFromUrl(articleUrl);
+        if (articleSite.isPresent() && articleSite.equals(Nettsted.parseFromUrl(originalUrl))) {
+            return originalUrl;
+        }
+        return articleUrl;
+    }
+
+    /**
+     * Records that an article is a near-duplicate of another, reusing the original's summary.
+     *
+     * @param articleUrl  URL of the duplicate
+     * @param originalUrl URL of the original article
+     */
+    protected void processDuplicate(final String articleUrl, final String originalUrl) {
+        if (summaryPipeline != null) {
+            summaryPipeline.submitDuplicate(articleUrl, originalUrl);
+            return;
+        }
+
+        if (innleggRepository != null && !innleggRepository.existsByLink(articleUrl)) {
+            Innlegg innlegg = new Innlegg();
+            innlegg.setArtikkel(Artikkel.ny(articleUrl, null));
+            innlegg.setDuplikatAv(Artikkel.ny(originalUrl, null));
+            innleggRepository.insertIgnoringExisting(List.of(innlegg));
         }
     }
 
@@ -174,8 +242,16 @@ public abstract class Scraper {
                     String text = getAllText(doc);
 
                     Set<String> names = extractor.extractNames(text);
-                    index.addMentions(names, normalizedUrl);
-                    if (names != null && !names.isEmpty()) {
+                    if (names == null || names.isEmpty()) {
+                        return;
+                    }
+
+                    Optional<String> original = findNearDuplicate(normalizedUrl, text);
+                    if (original.isPresent()) {
+                        index.addMentions(names, mentionUrlForDuplicate(normalizedUrl, original.get()));
+                        processDuplicate(normalizedUrl, original.get());
+                    } else {
+                        index.addMentions(names, normalizedUrl);
                         processAndSaveSummary(normalizedUrl, text);
                     }
                 });
@@ -191,6 +267,24 @@ public abstract class Scraper {
     public void setInnleggRepository(final InnleggRepository innleggRepository) {
         this.innleggRepository = innleggRepository;
     }
+
+    /**
+     * Sets the SummaryPipeline used for background summarization.
+     * Subclasses may override safely.
+     * @param summaryPipeline the pipeline to set
+     */
+    public void setSummaryPipeline(final SummaryPipeline summaryPipeline) {
+        this.summaryPipeline = summaryPipeline;
+    }
+
+    /**
+     * Sets the NearDuplicateIndex used to detect syndicated copies of articles.
+     * Subclasses may override safely.
+     * @param nearDuplicateIndex the index to set
+     */
+    public void setNearDuplicateIndex(final NearDuplicateIndex nearDuplicateIndex) {
+        this.nearDuplicateIndex = nearDuplicateIndex;
+    }
     /**
      * Normalizes a URL by removing query parameters. Subclasses may override safely.
      * @param url the URL to normalize
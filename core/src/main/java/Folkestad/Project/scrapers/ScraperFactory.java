@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import folkestad.InnleggRepository;
+import folkestad.project.dedup.NearDuplicateIndex;
+import folkestad.project.pipeline.SummaryPipeline;
 
 @Component
 public class ScraperFactory {
@@ -12,9 +14,14 @@ public class ScraperFactory {
     @Autowired
     private InnleggRepository innleggRepository;
 
+    @Autowired
+    private SummaryPipeline summaryPipeline;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
 
     /**
-     * Oppretter og returnerer en NRKScraper med repository-injeksjon.
+     * Oppretter og returnerer en NRKScraper med repository- og pipeline-injeksjon.
      *
      * @param url Liste med URLer som skal skrapes
      * @return NRKScraper-instans
@@ -22,12 +29,14 @@ public class ScraperFactory {
     public NRKScraper createNRKScraper(final ArrayList<String> url) {
         NRKScraper scraper = new NRKScraper(url);
         scraper.setInnleggRepository(innleggRepository);
+        scraper.setSummaryPipeline(summaryPipeline);
+        scraper.setNearDuplicateIndex(nearDuplicateIndex);
         return scraper;
     }
 
 
     /**
-     * Oppretter og returnerer en VGScraper med repository-injeksjon.
+     * Oppretter og returnerer en VGScraper med repository- og pipeline-injeksjon.
      *
      * @param url Liste med URLer som skal skrapes
      * @return VGScraper-instans
@@ -35,11 +44,13 @@ public class ScraperFactory {
     public VGScraper createVGScraper(final ArrayList<String> url) {
         VGScraper scraper = new VGScraper(url);
         scraper.setInnleggRepository(innleggRepository);
+        scraper.setSummaryPipeline(summaryPipeline);
+        scraper.setNearDuplicateIndex(nearDuplicateIndex);
         return scraper;
     }
 
     /**
-     * Oppretter og returnerer en E24Scraper med repository-injeksjon.
+     * Oppretter og returnerer en E24Scraper med repository- og pipeline-injeksjon.
      *
      * @param url Liste med URLer som skal skrapes
      * @return E24Scraper-instans
@@ -47,11 +58,13 @@ public class ScraperFactory {
     public E24Scraper createE24Scraper(final ArrayList<String> url) {
         E24Scraper scraper = new E24Scraper(url);
         scraper.setInnleggRepository(innleggRepository);
+        scraper.setSummaryPipeline(summaryPipeline);
+        scraper.setNearDuplicateIndex(nearDuplicateIndex);
         return scraper;
     }
 
     /**
-     * Oppretter og returnerer en DagbladetScraper med repository-injeksjon.
+     * Oppretter og returnerer en DagbladetScraper med repository- og pipeline-injeksjon.
      *
      * @param url Liste med URLer som skal skrapes
      * @return DagbladetScraper-instans
@@ -59,6 +72,8 @@ public class ScraperFactory {
     public DagbladetScraper createDagbladetScraper(final ArrayList<String> url) {
         DagbladetScraper scraper = new DagbladetScraper(url);
         scraper.setInnleggRepository(innleggRepository);
+        scraper.setSummaryPipeline(summaryPipeline);
+        scraper.setNearDuplicateIndex(nearDuplicateIndex);
         return scraper;
     }
 }
@@ -0,0 +1,118 @@
+package folkestad.project.TextSummarizer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tester hvor {@link SentenceSegmenter} deler norsk tekst, og at intervallene og avsnittsnumrene stemmer.
+ */
+class SentenceSegmenterTest {
+
+    @Test
+    void forkortelserAvslutterIkkeSetningen() {
+        assertThat(setninger("Dette er f.eks. en test. Partiet vil bl.a. kutte skatten. Kl. 12 starter det."))
+                .containsExactly("Dette er f.eks. en test", "Partiet vil bl.a. kutte skatten", "Kl. 12 starter det");
+        assertThat(setninger("Det koster ca. 200 kr. Mange mener det, jf. Regjeringen."))
+                .containsExactly("Det koster ca. 200 kr. Mange mener det, jf. Regjeringen");
+    }
+
+    @Test
+    void desimaltallAvslutterIkkeSetningen() {
+        assertThat(setninger("Renten er 3.5 prosent. Veksten var 0.25 i fjor."))
+                .containsExactly("Renten er 3.5 prosent", "Veksten var 0.25 i fjor");
+    }
+
+    @Test
+    void initialerAvslutterIkkeSetningen() {
+        assertThat(setninger("Statsminister J. Støre kom. Han møtte E. Solberg. Begge talte."))
+                .containsExactly("Statsminister J. Støre kom", "Han møtte E. Solberg", "Begge talte");
+    }
+
+    @Test
+    void ordenstallForanSmaaBokstaverAvslutterIkkeSetningen() {
+        assertThat(setninger("Vi feirer 17. mai i Oslo. Det skjedde i 2025. Neste år blir bedre."))
+                .containsExactly("Vi feirer 17. mai i Oslo", "Det skjedde i 2025", "Neste år blir bedre");
+    }
+
+    @Test
+    void utropstegnOgSpoersmaalstegnBeholdes() {
+        assertThat(setninger("Hva nå?! Ingen vet! Hvorfor?"))
+                .containsExactly("Hva nå?!", "Ingen vet!", "Hvorfor?");
+    }
+
+    @Test
+    void tomLinjeStarterNyttAvsnitt() {
+        assertThat(setningerMedAvsnitt("Første setning. Andre setning uten punktum\n\nTredje setning.\n"
+                + "Fjerde setning på ny linje.\n\n\n\n  Femte setning."))
+                .containsExactly("0: Første setning", "0: Andre setning uten punktum", "1: Tredje setning",
+                        "1: Fjerde setning på ny linje", "2: Femte setning");
+        assertThat(setningerMedAvsnitt("\n\nInnledning.\n\n\n\nAvslutning."))
+                .containsExactly("0: Innledning", "1: Avslutning");
+    }
+
+    @Test
+    void enkeltLinjeskiftDelerIkkeSetningen() {
+        assertThat(setninger("En setning som\nfortsetter på neste linje. Ferdig."))
+                .containsExactly("En setning som\nfortsetter på neste linje", "Ferdig");
+    }
+
+    @Test
+    void intervalleneGjelderDenOpprinneligeTeksten() {
+        String tekst = "  Hei. Du er 3.5 m høy!\n\nSiste";
+        SentenceSegmenter segmenter = new SentenceSegmenter(tekst);
+
+        assertThat(segmenter.next()).isTrue();
+        assertThat(segmenter.getStart()).isEqualTo(2);
+        assertThat(segmenter.getEnd()).isEqualTo(5);
+        assertThat(segmenter.next()).isTrue();
+        assertThat(segmenter.getStart()).isEqualTo(7);
+        assertThat(segmenter.getEnd()).isEqualTo(tekst.indexOf('!') + 1);
+        assertThat(segmenter.next()).isTrue();
+        assertThat(segmenter.getStart()).isEqualTo(tekst.indexOf("Siste"));
+        assertThat(segmenter.getEnd()).isEqualTo(tekst.length());
+        assertThat(segmenter.getSentenceParagraph()).isEqualTo(1);
+        assertThat(segmenter.next()).isFalse();
+    }
+
+    @Test
+    void tomTekstGirIngenSetninger() {
+        assertThat(setninger("")).isEmpty();
+        assertThat(setninger("  \n\n \t")).isEmpty();
+        assertThat(setninger(". . .")).isEmpty();
+    }
+
+    /**
+     * Deler en tekst i setninger.
+     *
+     * @param tekst teksten
+     * @return setningene
+     */
+    private static List<String> setninger(final String tekst) {
+        List<String> setninger = new ArrayList<>();
+        SentenceSegmenter segmenter = new SentenceSegmenter(tekst);
+        while (segmenter.next()) {
+            setninger.add(tekst.substring(segmenter.getStart(), segmenter.getEnd()));
+        }
+        return setninger;
+    }
+
+    /**
+     * Deler en tekst i setninger med avsnittsnummer foran hver setning.
+     *
+     * @param tekst teksten
+     * @return "avsnitt: setning" for hver setning
+     */
+    private static List<String> setningerMedAvsnitt(final String tekst) {
+        List<String> setninger = new ArrayList<>();
+        SentenceSegmenter segmenter = new SentenceSegmenter(tekst);
+        while (segmenter.next()) {
+            setninger.add(segmenter.getSentenceParagraph() + ": "
+                    + tekst.substring(segmenter.getStart(), segmenter.getEnd()));
+        }
+        return setninger;
+    }
+}
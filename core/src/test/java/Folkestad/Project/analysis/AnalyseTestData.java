@@ -0,0 +1,256 @@
+package folkestad.project.analysis;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import folkestad.KandidatLinkRad;
+import folkestad.KandidatOmtaleRad;
+import folkestad.Nettsted;
+
+/**
+ * Syntetisk analysegrunnlag for tester og målinger av {@link MentionStore}.
+ * <p>
+ * Hver artikkel har én dag og ett nettsted, og hver kandidat har faste egenskaper. Dagstallene
+ * lages fra lenkene, slik omtale-aggregatet gjør, pluss omtaler fra arkiverte lenker før første
+ * lenkedag. Noen kandidater har bare arkiverte omtaler.
+ * </p>
+ * <p>
+ * {@link #haandlaget()} gir et lite grunnlag der de forventede tallene er regnet ut for hånd.
+ * </p>
+ */
+final class AnalyseTestData {
+
+    /** Første dag med lenker. */
+    static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    /** Antall dager lenkene fordeles på. */
+    static final int DAGER = 300;
+
+    static final String[] PARTIER = {"Arbeiderpartiet", "Høyre", "Fremskrittspartiet", "Senterpartiet", "SV",
+        "Rødt", "Venstre", "KrF", "MDG"};
+    static final String[] DISTRIKTER = {"Oslo", "Akershus", "Bergen", "Trøndelag", "Nordland", "Rogaland"};
+
+    private static final Nettsted[] NETTSTEDER = Nettsted.values();
+
+    /**
+     * Én rad fra omtale-aggregatet.
+     *
+     * @param navn     kandidatens navn
+     * @param nettsted nettstedet
+     * @param dag      dagen
+     * @param antall   antall omtaler
+     */
+    record Dag(String navn, Nettsted nettsted, LocalDate dag, long antall) {
+    }
+
+    private final int kandidater;
+    private final List<KandidatLinkRad> lenker = new ArrayList<>();
+    private final List<Dag> arkiv = new ArrayList<>();
+
+    /**
+     * Lager grunnlaget.
+     *
+     * @param kandidater antall kandidater med lenker
+     * @param artikler   antall artikler
+     * @param antall     antall lenker som trekkes; like par av kandidat og artikkel tas med én gang
+     * @param seed       frø for tilfeldige tall
+     */
+    AnalyseTestData(final int kandidater, final int artikler, final int antall, final long seed) {
+        this.kandidater = kandidater;
+        Random random = new Random(seed);
+        Set<Long> par = new HashSet<>();
+        for (int i = 0; i < antall; i++) {
+            int k = random.nextInt(kandidater);
+            int a = random.nextInt(artikler);
+            if (par.add((long) k * artikler + a)) {
+                lenker.add(lenke(k, a));
+            }
+        }
+        int medArkiv = kandidater + kandidater / 20;
+        for (int k = 0; k < medArkiv; k += 5) {
+            int dager = 1 + random.nextInt(5);
+            for (int d = 0; d < dager; d++) {
+                arkiv.add(new Dag(navn(k), NETTSTEDER[random.nextInt(NETTSTEDER.length)],
+                        START.minusDays(1 + random.nextInt(60)), 1 + random.nextInt(3)));
+            }
+        }
+    }
+
+    /**
+     * Lager et grunnlag med gitte lenker og arkiverte omtaler.
+     *
+     * @param kandidater antall kandidater med lenker
+     * @param lenker     lenkene, som kandidat- og artikkelnummer
+     * @param arkiv      arkiverte omtaler
+     */
+    private AnalyseTestData(final int kandidater, final int[][] lenker, final List<Dag> arkiv) {
+        this.kandidater = kandidater;
+        for (int[] lenke : lenker) {
+            this.lenker.add(lenke(lenke[0], lenke[1]));
+        }
+        this.arkiv.addAll(arkiv);
+    }
+
+    /**
+     * Lager et lite grunnlag der tallene er regnet ut for hånd. Artikkel a er på nettsted a % 5 og dag
+     * {@code START} + a, og kandidat k har parti, kjønn, alder og distrikt fra k som ellers:
+     * <pre>
+     * Kandidat 0  Arbeiderpartiet     M  20  artikkel 0 (NRK, 1.1.), 1 (VG, 2.1.), 2 (E24, 3.1.)
+     *                                        arkivert: VG 31.12.2024, 1 omtale
+     * Kandidat 1  Høyre               K  21  artikkel 0 (NRK, 1.1.), 6 (VG, 7.1.)
+     * Kandidat 2  Fremskrittspartiet  M  22  artikkel 1 (VG, 2.1.)
+     * Kandidat 5  Rødt                K  25  arkivert: NRK 20.12.2024, 2 omtaler
+     * </pre>
+     * Lenkene kommer i rekkefølgen over, kandidat for kandidat.
+     *
+     * @return grunnlaget
+     */
+    static AnalyseTestData haandlaget() {
+        return new AnalyseTestData(3, new int[][] {{0, 0}, {1, 0}, {0, 1}, {2, 1}, {0, 2}, {1, 6}},
+                List.of(new Dag(navn(0), Nettsted.VG, START.minusDays(1), 1),
+                        new Dag(navn(5), Nettsted.NRK, START.minusDays(12), 2)));
+    }
+
+    /**
+     * Lager lenken mellom en kandidat og en artikkel.
+     *
+     * @param k kandidat-indeks
+     * @param a artikkelnummer
+     * @return lenken
+     */
+    private static KandidatLinkRad lenke(final int k, final int a) {
+        Nettsted nettsted = NETTSTEDER[a % NETTSTEDER.length];
+        return new KandidatLinkRad(navn(k), PARTIER[k % PARTIER.length], alder(k), kjoenn(k),
+                DISTRIKTER[k % DISTRIKTER.length], url(a), nettsted, START.plusDays(a % DAGER).atTime(12, 0));
+    }
+
+    /**
+     * URL-en til en artikkel.
+     *
+     * @param a artikkelnummer
+     * @return URL-en
+     */
+    static String url(final int a) {
+        return "https://www." + NETTSTEDER[a % NETTSTEDER.length].getDomain() + "/nyheter/artikkel-" + a;
+    }
+
+    /**
+     * Kandidatnavnet for en kandidat-indeks.
+     *
+     * @param k kandidat-indeks
+     * @return navnet
+     */
+    static String navn(final int k) {
+        return "Kandidat " + k;
+    }
+
+    /**
+     * Alderen for en kandidat-indeks.
+     *
+     * @param k kandidat-indeks
+     * @return alderen
+     */
+    static int alder(final int k) {
+        return 20 + k % 60;
+    }
+
+    /**
+     * Kjønnet for en kandidat-indeks.
+     *
+     * @param k kandidat-indeks
+     * @return "M" eller "K"
+     */
+    static String kjoenn(final int k) {
+        if (k % 2 == 0) {
+            return "M";
+        }
+        return "K";
+    }
+
+    /**
+     * Alle lenkene, i tilfeldig rekkefølge.
+     *
+     * @return lenkene
+     */
+    List<KandidatLinkRad> lenker() {
+        return lenker;
+    }
+
+    /**
+     * Dagstallene for de første lenkene og alle arkiverte omtaler.
+     *
+     * @param antallLenker antall lenker fra starten av {@link #lenker()} som er lagret
+     * @return dagstallene
+     */
+    List<Dag> dager(final int antallLenker) {
+        Map<String, Dag> perDag = new LinkedHashMap<>();
+        for (Dag dag : arkiv) {
+            leggTil(perDag, dag);
+        }
+        for (KandidatLinkRad rad : lenker.subList(0, antallLenker)) {
+            leggTil(perDag, new Dag(rad.navn(), rad.nettsted(), rad.scrapedAt().toLocalDate(), 1));
+        }
+        return new ArrayList<>(perDag.values());
+    }
+
+    /**
+     * Legger omtaler til dagstallet for samme kandidat, nettsted og dag.
+     *
+     * @param perDag dagstall per kandidat, nettsted og dag
+     * @param dag    omtalene som legges til
+     */
+    private static void leggTil(final Map<String, Dag> perDag, final Dag dag) {
+        perDag.merge(dag.navn() + "|" + dag.nettsted() + "|" + dag.dag(), dag,
+                (a, b) -> new Dag(a.navn(), a.nettsted(), a.dag(), a.antall() + b.antall()));
+    }
+
+    /**
+     * Summerte omtaler per kandidat og nettsted fra dagstallene.
+     *
+     * @param dager dagstallene
+     * @return summene
+     */
+    List<KandidatOmtaleRad> omtaler(final List<Dag> dager) {
+        Map<String, KandidatOmtaleRad> sum = new LinkedHashMap<>();
+        for (Dag dag : dager) {
+            int k = Integer.parseInt(dag.navn().substring("Kandidat ".length()));
+            sum.merge(dag.navn() + "|" + dag.nettsted(), new KandidatOmtaleRad(dag.navn(), PARTIER[k % PARTIER.length],
+                    alder(k), kjoenn(k), DISTRIKTER[k % DISTRIKTER.length], dag.nettsted(), dag.antall()),
+                    (a, b) -> new KandidatOmtaleRad(a.navn(), a.partinavn(), a.alder(), a.kjoenn(), a.valgdistrikt(),
+                            a.nettsted(), a.antall() + b.antall()));
+        }
+        return new ArrayList<>(sum.values());
+    }
+
+    /**
+     * Bygger et omtalelager med de første lenkene, slik {@link KandidateAnalysis} bygger det fra databasen.
+     *
+     * @param antallLenker antall lenker fra starten av {@link #lenker()}
+     * @return lageret
+     */
+    MentionStore byggLager(final int antallLenker) {
+        MentionStore lager = new MentionStore();
+        List<Dag> dager = dager(antallLenker);
+        lenker.subList(0, antallLenker).forEach(lager::leggTil);
+        omtaler(dager).forEach(lager::leggTilOmtaler);
+        for (Dag dag : dager) {
+            lager.leggTilOmtaleDag(dag.navn(), dag.nettsted(), dag.dag(), dag.antall());
+        }
+        return lager;
+    }
+
+    /**
+     * Antall kandidater med lenker.
+     *
+     * @return antall kandidater
+     */
+    int kandidater() {
+        return kandidater;
+    }
+}
@@ -0,0 +1,181 @@
+package folkestad.project.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import folkestad.Nettsted;
+import folkestad.project.DataDTO;
+
+/**
+ * Målinger av minnebruk og svartider for {@link MentionStore}.
+ * <p>
+ * Kjøres bare med profilen benchmark: {@code mvn -B test -pl core -am -P benchmark}. Resultatene
+ * logges, og tallene i README er hentet herfra.
+ * </p>
+ */
+@Tag("benchmark")
+class MentionStoreBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MentionStoreBenchmark.class);
+
+    private static final int KANDIDATER = 4000;
+    private static final int ARTIKLER = 60000;
+    private static final int LENKER = 200000;
+    private static final int OPPVARMING = 2000;
+    private static final int RUNDER = 1000;
+
+    /** Holder på svarene, så oppslagene ikke kan optimaliseres bort. */
+    private static volatile Object sluk;
+
+    @Test
+    void beholdtMinne() {
+        long foerNy = brukt();
+        AnalyseTestData data = data();
+        MentionStore lager = data.byggLager(data.lenker().size());
+        OmtaleUtsnitt utsnitt = lager.frys();
+        data = null;
+        long medNy = brukt();
+        utsnitt.data(null);
+        for (Nettsted nettsted : Nettsted.values()) {
+            utsnitt.data(Set.of(nettsted));
+        }
+        long medVisninger = brukt();
+        assertThat(List.of(lager, utsnitt)).hasSize(2);
+
+        LOGGER.info("Beholdt heap etter full GC: MentionStore {} MB, MentionStore med ALT og hvert nettsted "
+                + "bygget {} MB", mb(medNy - foerNy), mb(medVisninger - foerNy));
+    }
+
+    @Test
+    void dataForAlt() {
+        AnalyseTestData data = data();
+        int lenker = data.lenker().size();
+        long[] foerste = new long[5];
+        for (int i = 0; i < foerste.length; i++) {
+            OmtaleUtsnitt utsnitt = data.byggLager(lenker).frys();
+            long start = System.nanoTime();
+            sluk = utsnitt.data(null);
+            foerste[i] = System.nanoTime() - start;
+        }
+        MentionStore lager = data.byggLager(lenker);
+        lager.frys().data(null);
+        double arvet = millis(() -> lager.frys().data(null), 20);
+        OmtaleUtsnitt utsnitt = lager.frys();
+        double intervall = millis(() -> utsnitt.data(null, AnalyseTestData.START.plusDays(100),
+                AnalyseTestData.START.plusDays(130)), 20);
+        LOGGER.info("DataDTO for ALT: første utsnitt {} ms, utsnitt som arver artiklene {} ms, 30 dager {} ms",
+                median(foerste), arvet, intervall);
+    }
+
+    @Test
+    void toppKubeOgSamomtaler() {
+        AnalyseTestData data = data();
+        int lenker = data.lenker().size();
+        OmtaleUtsnitt utsnitt = data.byggLager(lenker).frys();
+        int dagrader = data.dager(lenker).size();
+        LocalDate sisteDag = AnalyseTestData.START.plusDays(200);
+
+        double topp = mikros(() -> utsnitt.topp(null, 10, 14, sisteDag, true));
+        KubeSpoerring spoerring = new KubeSpoerring(null, sisteDag.minusDays(29), sisteDag,
+                EnumSet.of(KubeDimensjon.PARTI, KubeDimensjon.KILDE, KubeDimensjon.ALDERSGRUPPE), Map.of());
+        utsnitt.kube();
+        double kube = mikros(() -> utsnitt.kube().spoer(spoerring));
+        double samomtaler = mikros(() -> utsnitt.samomtaler(AnalyseTestData.navn(7), null, null, null, 10));
+        LOGGER.info("{} lenker, {} dagrader: topp/trend 14 dager {} us, kube 30 dager {} us, samomtaler {} us",
+                lenker, dagrader, topp, kube, samomtaler);
+    }
+
+    /**
+     * Lager måledataene: 4000 kandidater, 60000 artikler og 200000 trukne lenker.
+     *
+     * @return måledataene
+     */
+    private static AnalyseTestData data() {
+        return new AnalyseTestData(KANDIDATER, ARTIKLER, LENKER, 42);
+    }
+
+    /**
+     * Brukt heap etter gjentatte fulle GC-er.
+     *
+     * @return brukt heap i byte
+     */
+    private static long brukt() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Gjør byte om til megabyte med én desimal.
+     *
+     * @param bytes antall byte
+     * @return megabyte
+     */
+    private static double mb(final long bytes) {
+        return Math.round(bytes / 100_000.0) / 10.0;
+    }
+
+    /**
+     * Median svartid i millisekunder.
+     *
+     * @param oppslag oppslaget som måles
+     * @param runder  antall målinger
+     * @return median i millisekunder
+     */
+    private static double millis(final Supplier<DataDTO> oppslag, final int runder) {
+        long[] tider = new long[runder];
+        for (int i = 0; i < runder; i++) {
+            long start = System.nanoTime();
+            sluk = oppslag.get();
+            tider[i] = System.nanoTime() - start;
+        }
+        return median(tider);
+    }
+
+    /**
+     * Medianen av målte tider, i millisekunder.
+     *
+     * @param tider tider i nanosekunder; sorteres
+     * @return median i millisekunder
+     */
+    private static double median(final long[] tider) {
+        Arrays.sort(tider);
+        return Math.round(tider[tider.length / 2] / 100_000.0) / 10.0;
+    }
+
+    /**
+     * Gjennomsnittlig svartid i mikrosekunder etter oppvarming.
+     *
+     * @param oppslag oppslaget som måles
+     * @return gjennomsnitt i mikrosekunder
+     */
+    private static double mikros(final Supplier<?> oppslag) {
+        for (int i = 0; i < OPPVARMING; i++) {
+            sluk = oppslag.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNDER; i++) {
+            sluk = oppslag.get();
+        }
+        return Math.round((System.nanoTime() - start) / (double) RUNDER / 100.0) / 10.0;
+    }
+}
@@ -0,0 +1,421 @@
+package folkestad.project.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import folkestad.KandidatLinkRad;
+import folkestad.Nettsted;
+import folkestad.project.ArtikelDTO;
+import folkestad.project.DataDTO;
+import folkestad.project.KubeCelleDTO;
+import folkestad.project.Person;
+import folkestad.project.SamomtaleDTO;
+import folkestad.project.TopKandidatDTO;
+
+/**
+ * Sjekker {@link MentionStore} mot tall regnet ut for hånd på {@link AnalyseTestData#haandlaget()}, og
+ * topp, kube og samomtaler mot en enkel opptelling av et større syntetisk grunnlag. Lageret bygges med
+ * en del av lenkene og får resten som nye lenker, slik analysen oppdateres mens applikasjonen kjører.
+ */
+class MentionStoreLikhetTest {
+
+    private static final List<Set<Nettsted>> UTVALG = List.of(EnumSet.of(Nettsted.VG),
+            EnumSet.of(Nettsted.NRK, Nettsted.E24));
+
+    private static AnalyseTestData data;
+    private static int halvparten;
+
+    @BeforeAll
+    static void lagData() {
+        data = new AnalyseTestData(300, 3000, 12000, 1);
+        halvparten = data.lenker().size() / 2;
+    }
+
+    @Test
+    void girHaandberegnedeTallForAlleKilder() {
+        OmtaleUtsnitt utsnitt = AnalyseTestData.haandlaget().byggLager(6).frys();
+
+        DataDTO alt = utsnitt.data(null);
+        assertThat(personer(alt)).containsExactly(entry("Kandidat 0", "4 [0, 1, 2]"), entry("Kandidat 1", "2 [0, 6]"),
+                entry("Kandidat 2", "1 [1]"), entry("Kandidat 5", "2 []"));
+        assertThat(alt.getKilde()).isEqualTo(MentionStore.ALT);
+        assertThat(alt.getTotaltAntallArtikler()).isEqualTo(9);
+        assertThat(alt.getGjennomsnittligAlder()).isEqualTo(22.0);
+        assertThat(alt.getKjoennRatio()).isEqualTo(Map.of("M", 2, "K", 2));
+        assertThat(alt.getKjoennProsentFordeling()).isEqualTo(Map.of("M", 50.0, "K", 50.0));
+        assertThat(alt.getPartiMentions())
+                .isEqualTo(Map.of("Arbeiderpartiet", 4, "Høyre", 2, "Fremskrittspartiet", 1, "Rødt", 2));
+        assertThat(alt.getPartiProsentFordeling()).isEqualTo(Map.of("Arbeiderpartiet", 400.0 / 9,
+                "Høyre", 200.0 / 9, "Fremskrittspartiet", 100.0 / 9, "Rødt", 200.0 / 9));
+    }
+
+    @Test
+    void girHaandberegnedeTallPerNettsted() {
+        OmtaleUtsnitt utsnitt = AnalyseTestData.haandlaget().byggLager(6).frys();
+
+        DataDTO nrk = utsnitt.data(Set.of(Nettsted.NRK));
+        assertThat(personer(nrk)).containsExactly(entry("Kandidat 0", "1 [0]"), entry("Kandidat 1", "1 [0]"),
+                entry("Kandidat 5", "2 []"));
+        assertThat(nrk.getKilde()).isEqualTo("nrk.no");
+        assertThat(nrk.getTotaltAntallArtikler()).isEqualTo(4);
+        assertThat(nrk.getGjennomsnittligAlder()).isEqualTo(22.0);
+        assertThat(nrk.getKjoennRatio()).isEqualTo(Map.of("M", 1, "K", 2));
+        assertThat(nrk.getPartiMentions()).isEqualTo(Map.of("Arbeiderpartiet", 1, "Høyre", 1, "Rødt", 2));
+
+        // Arkivert VG-omtale for kandidat 0 telles med, men gir ingen artikkel
+        DataDTO vg = utsnitt.data(Set.of(Nettsted.VG));
+        assertThat(personer(vg)).containsExactly(entry("Kandidat 0", "2 [1]"), entry("Kandidat 1", "1 [6]"),
+                entry("Kandidat 2", "1 [1]"));
+        assertThat(vg.getTotaltAntallArtikler()).isEqualTo(4);
+        assertThat(vg.getGjennomsnittligAlder()).isEqualTo(21.0);
+
+        assertThat(personer(utsnitt.data(Set.of(Nettsted.E24)))).containsExactly(entry("Kandidat 0", "1 [2]"));
+
+        DataDTO aftenposten = utsnitt.data(Set.of(Nettsted.AFTENPOSTEN));
+        assertThat(aftenposten.getAllePersonernevnt()).isEmpty();
+        assertThat(aftenposten.getTotaltAntallArtikler()).isZero();
+        assertThat(aftenposten.getGjennomsnittligAlder()).isZero();
+        assertThat(aftenposten.getPartiProsentFordeling()).isEmpty();
+
+        DataDTO nrkOgE24 = utsnitt.data(EnumSet.of(Nettsted.NRK, Nettsted.E24));
+        assertThat(personer(nrkOgE24)).containsExactly(entry("Kandidat 0", "2 [0, 2]"), entry("Kandidat 1", "1 [0]"),
+                entry("Kandidat 5", "2 []"));
+        assertThat(nrkOgE24.getKilde()).isEqualTo("nrk.no+e24.no");
+        assertThat(nrkOgE24.getTotaltAntallArtikler()).isEqualTo(5);
+    }
+
+    @Test
+    void girHaandberegnedeTallForIntervaller() {
+        OmtaleUtsnitt utsnitt = AnalyseTestData.haandlaget().byggLager(6).frys();
+        LocalDate start = AnalyseTestData.START;
+
+        DataDTO toDager = utsnitt.data(null, start, start.plusDays(1));
+        assertThat(personer(toDager)).containsExactly(entry("Kandidat 0", "2 [0, 1]"), entry("Kandidat 1", "1 [0]"),
+                entry("Kandidat 2", "1 [1]"));
+        assertThat(toDager.getTotaltAntallArtikler()).isEqualTo(4);
+
+        // Bare arkiverte omtaler: kandidatene er med uten artikler
+        DataDTO desember = utsnitt.data(null, LocalDate.of(2024, 12, 1), LocalDate.of(2024, 12, 31));
+        assertThat(personer(desember)).containsExactly(entry("Kandidat 0", "1 []"), entry("Kandidat 5", "2 []"));
+        assertThat(desember.getPartiMentions()).isEqualTo(Map.of("Arbeiderpartiet", 1, "Rødt", 2));
+
+        assertThat(personer(utsnitt.data(Set.of(Nettsted.VG), start, start.plusDays(1))))
+                .containsExactly(entry("Kandidat 0", "1 [1]"), entry("Kandidat 2", "1 [1]"));
+        assertThat(personer(utsnitt.data(Set.of(Nettsted.VG), start.plusDays(6), start.plusDays(6))))
+                .containsExactly(entry("Kandidat 1", "1 [6]"));
+        assertThat(utsnitt.data(null, start.plusDays(3), start.plusDays(5)).getAllePersonernevnt()).isEmpty();
+    }
+
+    @Test
+    void nyeLenkerGirSammeTallSomFullOppbygging() {
+        AnalyseTestData haandlaget = AnalyseTestData.haandlaget();
+        MentionStore lager = haandlaget.byggLager(3);
+        OmtaleUtsnitt foer = lager.frys();
+        assertThat(personer(foer.data(null))).containsExactly(entry("Kandidat 0", "3 [0, 1]"),
+                entry("Kandidat 1", "1 [0]"), entry("Kandidat 5", "2 []"));
+        assertThat(foer.data(null).getTotaltAntallArtikler()).isEqualTo(6);
+
+        assertThat(lager.leggTilNye(haandlaget.lenker().subList(3, 6))).isEqualTo(3);
+        assertThat(lager.leggTilNye(haandlaget.lenker().subList(0, 6))).isZero();
+        OmtaleUtsnitt etter = lager.frys();
+        OmtaleUtsnitt fullt = haandlaget.byggLager(6).frys();
+        assertThat(personer(etter.data(null))).isEqualTo(personer(fullt.data(null)));
+        for (Nettsted nettsted : Nettsted.values()) {
+            assertThat(personer(etter.data(Set.of(nettsted)))).as("%s", nettsted)
+                    .isEqualTo(personer(fullt.data(Set.of(nettsted))));
+        }
+        LocalDate start = AnalyseTestData.START;
+        assertThat(personer(etter.data(null, start, start.plusDays(6))))
+                .isEqualTo(personer(fullt.data(null, start, start.plusDays(6))));
+        // Det første utsnittet er uendret
+        assertThat(foer.data(null).getTotaltAntallArtikler()).isEqualTo(6);
+    }
+
+    @Test
+    void intervallTellerBareDagstall() {
+        OmtaleUtsnitt utsnitt = data.byggLager(data.lenker().size()).frys();
+        LocalDate fra = AnalyseTestData.START.minusDays(20);
+        LocalDate til = AnalyseTestData.START.plusDays(10);
+
+        Map<String, Long> forventet = new TreeMap<>();
+        for (AnalyseTestData.Dag dag : data.dager(data.lenker().size())) {
+            if (!dag.dag().isBefore(fra) && !dag.dag().isAfter(til)) {
+                forventet.merge(dag.navn(), dag.antall(), Long::sum);
+            }
+        }
+        Map<String, Long> faktisk = new TreeMap<>();
+        for (Person person : utsnitt.data(null, fra, til).getAllePersonernevnt()) {
+            faktisk.put(person.getNavn(), (long) person.getAntallArtikler());
+        }
+        assertThat(faktisk).isEqualTo(forventet);
+    }
+
+    @Test
+    void toppOgTrendStemmerMedOpptelling() {
+        MentionStore lager = data.byggLager(halvparten);
+        lager.frys();
+        lager.leggTilNye(data.lenker().subList(halvparten, data.lenker().size()));
+        OmtaleUtsnitt utsnitt = lager.frys();
+        List<AnalyseTestData.Dag> dager = data.dager(data.lenker().size());
+        LocalDate sisteDag = AnalyseTestData.START.plusDays(200);
+
+        for (Set<Nettsted> nettsteder : medAlle(UTVALG)) {
+            for (int vindu : new int[] {7, 30}) {
+                for (boolean etterTrend : new boolean[] {false, true}) {
+                    assertThat(beskriv(utsnitt.topp(nettsteder, 15, vindu, sisteDag, etterTrend)))
+                            .as("%s, vindu %d, trend %b", nettsteder, vindu, etterTrend)
+                            .isEqualTo(toppVedOpptelling(dager, nettsteder, 15, vindu, sisteDag, etterTrend));
+                }
+            }
+        }
+    }
+
+    @Test
+    void kubenStemmerMedOpptelling() {
+        MentionStore lager = data.byggLager(halvparten);
+        lager.frys().kube();
+        lager.leggTilNye(data.lenker().subList(halvparten, data.lenker().size()));
+        OmtaleUtsnitt utsnitt = lager.frys();
+        List<AnalyseTestData.Dag> dager = data.dager(data.lenker().size());
+        LocalDate fra = AnalyseTestData.START.plusDays(100);
+        LocalDate til = AnalyseTestData.START.plusDays(130);
+
+        for (Set<Nettsted> nettsteder : medAlle(UTVALG)) {
+            List<KubeCelleDTO> celler = utsnitt.kube().spoer(new KubeSpoerring(nettsteder, fra, til,
+                    EnumSet.of(KubeDimensjon.PARTI, KubeDimensjon.DAG), Map.of(KubeDimensjon.KJOENN, Set.of("k"))));
+            Map<String, String> faktisk = new TreeMap<>();
+            for (KubeCelleDTO celle : celler) {
+                faktisk.put(celle.getDimensjoner().get("parti") + "|" + celle.getDimensjoner().get("dag"),
+                        celle.getAntallOmtaler() + "/" + celle.getAntallKandidater());
+            }
+            assertThat(faktisk).as("%s", nettsteder).isEqualTo(kubeVedOpptelling(dager, nettsteder, fra, til));
+        }
+    }
+
+    @Test
+    void samomtalerStemmerMedOpptelling() {
+        MentionStore lager = data.byggLager(halvparten);
+        lager.frys();
+        lager.leggTilNye(data.lenker().subList(halvparten, data.lenker().size()));
+        OmtaleUtsnitt utsnitt = lager.frys();
+        LocalDate fra = AnalyseTestData.START.plusDays(50);
+        LocalDate til = AnalyseTestData.START.plusDays(150);
+
+        for (int k = 0; k < 20; k++) {
+            String navn = AnalyseTestData.navn(k);
+            for (Set<Nettsted> nettsteder : medAlle(UTVALG)) {
+                sammenlignSamomtaler(utsnitt, navn, nettsteder, null, null);
+                sammenlignSamomtaler(utsnitt, navn, nettsteder, fra, til);
+            }
+        }
+        assertThat(utsnitt.samomtaler("Ukjent", null, null, null, 5)).isEmpty();
+    }
+
+    /**
+     * Beskriver personene i en dataDTO som antall omtaler og artikkelnumre, sortert på navn.
+     *
+     * @param data dataDTO
+     * @return "antall [artikkelnumre]" per kandidatnavn
+     */
+    private static Map<String, String> personer(final DataDTO data) {
+        Map<String, String> personer = new TreeMap<>();
+        for (Person person : data.getAllePersonernevnt()) {
+            List<Integer> artikler = new ArrayList<>();
+            for (ArtikelDTO artikkel : person.getLenker()) {
+                String lenke = artikkel.getLenke();
+                artikler.add(Integer.parseInt(lenke.substring(lenke.lastIndexOf('-') + 1)));
+            }
+            Collections.sort(artikler);
+            personer.put(person.getNavn(), person.getAntallArtikler() + " " + artikler);
+        }
+        return personer;
+    }
+
+    /**
+     * Legger til null, som betyr alle kilder, foran nettstedutvalgene.
+     *
+     * @param utvalg nettstedutvalg
+     * @return null fulgt av utvalgene
+     */
+    private static List<Set<Nettsted>> medAlle(final List<Set<Nettsted>> utvalg) {
+        List<Set<Nettsted>> alle = new ArrayList<>();
+        alle.add(null);
+        alle.addAll(utvalg);
+        return alle;
+    }
+
+    /**
+     * Sjekker om et nettsted er med i et utvalg.
+     *
+     * @param nettsteder utvalget, eller null for alle
+     * @param nettsted   nettstedet
+     * @return true hvis nettstedet er med
+     */
+    private static boolean med(final Set<Nettsted> nettsteder, final Nettsted nettsted) {
+        return nettsteder == null || nettsteder.contains(nettsted);
+    }
+
+    /**
+     * Beskriver topplisten som tekst.
+     *
+     * @param topp kandidatene
+     * @return én linje per kandidat
+     */
+    private static List<String> beskriv(final List<TopKandidatDTO> topp) {
+        List<String> linjer = new ArrayList<>();
+        for (TopKandidatDTO kandidat : topp) {
+            linjer.add(kandidat.getNavn() + " " + kandidat.getAntallOmtaler() + " " + kandidat.getAntallForrigeVindu()
+                    + " " + kandidat.getTrend());
+        }
+        return linjer;
+    }
+
+    /**
+     * Finner topplisten ved å telle dagstallene direkte.
+     *
+     * @param dager      dagstallene
+     * @param nettsteder nettstedene, eller null for alle
+     * @param antall     antall kandidater
+     * @param vindu      antall dager
+     * @param sisteDag   siste dag i vinduet
+     * @param etterTrend true for å rangere etter trend
+     * @return én linje per kandidat, som {@link #beskriv(List)}
+     */
+    private static List<String> toppVedOpptelling(final List<AnalyseTestData.Dag> dager,
+            final Set<Nettsted> nettsteder, final int antall, final int vindu, final LocalDate sisteDag,
+            final boolean etterTrend) {
+        LocalDate start = sisteDag.minusDays(vindu - 1);
+        LocalDate startFoer = start.minusDays(vindu);
+        Map<String, int[]> tall = new HashMap<>();
+        for (AnalyseTestData.Dag dag : dager) {
+            if (!med(nettsteder, dag.nettsted()) || dag.dag().isBefore(startFoer) || dag.dag().isAfter(sisteDag)) {
+                continue;
+            }
+            int[] naaOgFoer = tall.computeIfAbsent(dag.navn(), navn -> new int[2]);
+            if (dag.dag().isBefore(start)) {
+                naaOgFoer[1] += (int) dag.antall();
+            } else {
+                naaOgFoer[0] += (int) dag.antall();
+            }
+        }
+        List<Map.Entry<String, int[]>> kandidater = new ArrayList<>();
+        for (Map.Entry<String, int[]> kandidat : tall.entrySet()) {
+            if (kandidat.getValue()[0] > 0) {
+                kandidater.add(kandidat);
+            }
+        }
+        kandidater.sort((a, b) -> {
+            int sammenligning = Double.compare(poeng(b.getValue(), etterTrend), poeng(a.getValue(), etterTrend));
+            if (sammenligning != 0) {
+                return sammenligning;
+            }
+            return a.getKey().compareTo(b.getKey());
+        });
+        List<String> linjer = new ArrayList<>();
+        for (Map.Entry<String, int[]> kandidat : kandidater.subList(0, Math.min(antall, kandidater.size()))) {
+            int naa = kandidat.getValue()[0];
+            int foer = kandidat.getValue()[1];
+            linjer.add(kandidat.getKey() + " " + naa + " " + foer + " " + (naa - foer) / Math.sqrt(foer + 1.0));
+        }
+        return linjer;
+    }
+
+    /**
+     * Poeng for rangering i topplisten.
+     *
+     * @param naaOgFoer omtaler i vinduet og i vinduet før
+     * @param etterTrend true for trend, false for antall omtaler
+     * @return poengene
+     */
+    private static double poeng(final int[] naaOgFoer, final boolean etterTrend) {
+        if (etterTrend) {
+            return (naaOgFoer[0] - naaOgFoer[1]) / Math.sqrt(naaOgFoer[1] + 1.0);
+        }
+        return naaOgFoer[0];
+    }
+
+    /**
+     * Grupperer omtaler av kvinnelige kandidater på parti og dag ved å telle dagstallene direkte.
+     *
+     * @param dager      dagstallene
+     * @param nettsteder nettstedene, eller null for alle
+     * @param fra        første dag
+     * @param til        siste dag
+     * @return "omtaler/kandidater" per "parti|dag"
+     */
+    private static Map<String, String> kubeVedOpptelling(final List<AnalyseTestData.Dag> dager,
+            final Set<Nettsted> nettsteder, final LocalDate fra, final LocalDate til) {
+        Map<String, long[]> omtaler = new TreeMap<>();
+        Map<String, Set<String>> kandidater = new HashMap<>();
+        for (AnalyseTestData.Dag dag : dager) {
+            int k = Integer.parseInt(dag.navn().substring("Kandidat ".length()));
+            if (!med(nettsteder, dag.nettsted()) || dag.dag().isBefore(fra) || dag.dag().isAfter(til)
+                    || !"K".equals(AnalyseTestData.kjoenn(k))) {
+                continue;
+            }
+            String parti = PartiNameNormalizer.normalizePartiName(
+                    AnalyseTestData.PARTIER[k % AnalyseTestData.PARTIER.length]);
+            String gruppe = parti + "|" + dag.dag();
+            omtaler.computeIfAbsent(gruppe, g -> new long[1])[0] += dag.antall();
+            kandidater.computeIfAbsent(gruppe, g -> new HashSet<>()).add(dag.navn());
+        }
+        Map<String, String> resultat = new TreeMap<>();
+        omtaler.forEach((gruppe, antall) -> resultat.put(gruppe, antall[0] + "/" + kandidater.get(gruppe).size()));
+        return resultat;
+    }
+
+    /**
+     * Sammenligner samomtalene for én kandidat med en selvkobling av lenkene.
+     *
+     * @param utsnitt    frosset omtalelager med alle lenkene
+     * @param navn       kandidatens navn
+     * @param nettsteder nettstedene, eller null for alle
+     * @param fra        første dag, eller null
+     * @param til        siste dag, eller null
+     */
+    private static void sammenlignSamomtaler(final OmtaleUtsnitt utsnitt, final String navn,
+            final Set<Nettsted> nettsteder, final LocalDate fra, final LocalDate til) {
+        Map<String, Set<String>> perUrl = new HashMap<>();
+        for (KandidatLinkRad rad : data.lenker()) {
+            perUrl.computeIfAbsent(rad.url(), url -> new HashSet<>()).add(rad.navn());
+        }
+        Map<String, Integer> forventet = new HashMap<>();
+        for (KandidatLinkRad rad : data.lenker()) {
+            LocalDate dag = rad.scrapedAt().toLocalDate();
+            if (!rad.navn().equals(navn) || !med(nettsteder, rad.nettsted())
+                    || fra != null && (dag.isBefore(fra) || dag.isAfter(til))) {
+                continue;
+            }
+            for (String annen : perUrl.get(rad.url())) {
+                if (!annen.equals(navn)) {
+                    forventet.merge(annen, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<SamomtaleDTO> samomtaler = utsnitt.samomtaler(navn, nettsteder, fra, til, Integer.MAX_VALUE).orElseThrow();
+        Map<String, Integer> faktisk = new HashMap<>();
+        for (int i = 0; i < samomtaler.size(); i++) {
+            faktisk.put(samomtaler.get(i).getNavn(), samomtaler.get(i).getAntallArtikler());
+            if (i > 0) {
+                assertThat(samomtaler.get(i).getAntallArtikler())
+                        .isLessThanOrEqualTo(samomtaler.get(i - 1).getAntallArtikler());
+            }
+        }
+        assertThat(faktisk).as("%s %s %s", navn, nettsteder, fra).isEqualTo(forventet);
+    }
+}
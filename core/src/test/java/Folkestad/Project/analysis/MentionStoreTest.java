@@ -0,0 +1,65 @@
+package folkestad.project.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import folkestad.KandidatLinkRad;
+import folkestad.Nettsted;
+import folkestad.project.ArtikelDTO;
+import folkestad.project.DataDTO;
+import folkestad.project.Person;
+
+/**
+ * Tester at dataDTO-ene et utsnitt av {@link MentionStore} deler mellom forespørsler ikke kan endres.
+ */
+class MentionStoreTest {
+
+    private static final LocalDateTime TIDSPUNKT = LocalDateTime.of(2025, 8, 1, 12, 0);
+
+    private OmtaleUtsnitt utsnitt;
+
+    @BeforeEach
+    void byggUtsnitt() {
+        MentionStore lager = new MentionStore();
+        lager.leggTil(new KandidatLinkRad("Ola Nordmann", "Høyre", 50, "M", "Oslo",
+                "https://www.nrk.no/norge/sak-1.1", Nettsted.NRK, TIDSPUNKT));
+        lager.leggTil(new KandidatLinkRad("Kari Nordmann", "Arbeiderpartiet", 40, "K", "Oslo",
+                "https://www.nrk.no/norge/sak-1.1", Nettsted.NRK, TIDSPUNKT));
+        utsnitt = lager.frys();
+    }
+
+    @Test
+    void returnererSammeDataDtoForSammeKilder() {
+        assertSame(utsnitt.data(null), utsnitt.data(null));
+        assertSame(utsnitt.data(Set.of(Nettsted.NRK)), utsnitt.data(Set.of(Nettsted.NRK)));
+    }
+
+    @Test
+    void delteDataDtoKanIkkeEndres() {
+        DataDTO data = utsnitt.data(null);
+        Person person = data.getAllePersonernevnt().get(0);
+
+        assertThrows(UnsupportedOperationException.class, () -> data.getAllePersonernevnt().clear());
+        assertThrows(UnsupportedOperationException.class, () -> data.getKjoennRatio().put("M", 10));
+        assertThrows(UnsupportedOperationException.class, () -> data.getKjoennProsentFordeling().clear());
+        assertThrows(UnsupportedOperationException.class, () -> data.getPartiMentions().remove("Høyre"));
+        assertThrows(UnsupportedOperationException.class, () -> data.getPartiProsentFordeling().clear());
+        assertThrows(UnsupportedOperationException.class,
+                () -> person.getLenker().set(0, new ArtikelDTO("https://www.vg.no/", LocalDate.now())));
+    }
+
+    @Test
+    void dataForIntervallKanIkkeEndres() {
+        DataDTO data = utsnitt.data(null, TIDSPUNKT.toLocalDate(), TIDSPUNKT.toLocalDate());
+
+        assertThrows(UnsupportedOperationException.class, () -> data.getAllePersonernevnt().remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> data.getPartiMentions().clear());
+    }
+}
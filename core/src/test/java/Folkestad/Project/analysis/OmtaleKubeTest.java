@@ -0,0 +1,134 @@
+package folkestad.project.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import folkestad.Nettsted;
+import folkestad.project.KubeCelleDTO;
+
+/**
+ * Tester gruppering og filtrering i {@link OmtaleKube} mot tall regnet ut for hånd på
+ * {@link AnalyseTestData#haandlaget()}. Alle kandidatene der er under 30 år.
+ */
+class OmtaleKubeTest {
+
+    private static final LocalDate START = AnalyseTestData.START;
+
+    private OmtaleKube kube;
+
+    @BeforeEach
+    void byggKube() {
+        kube = AnalyseTestData.haandlaget().byggLager(6).frys().kube();
+    }
+
+    @Test
+    void utenGrupperingGirEnCelleMedAlt() {
+        assertThat(spoer(null, null, null, Set.of(), Map.of()))
+                .containsExactly(new KubeCelleDTO(Map.of(), 9, 4));
+    }
+
+    @Test
+    void grupperPaaPartiSortertMedFlestOmtalerFoerst() {
+        List<KubeCelleDTO> celler = spoer(null, null, null, Set.of(KubeDimensjon.PARTI), Map.of());
+
+        assertThat(celler).containsExactlyInAnyOrder(celle("parti", "Arbeiderpartiet", 4, 1),
+                celle("parti", "Høyre", 2, 1), celle("parti", "Rødt", 2, 1),
+                celle("parti", "Fremskrittspartiet", 1, 1));
+        assertThat(celler.get(0)).isEqualTo(celle("parti", "Arbeiderpartiet", 4, 1));
+        assertThat(celler.get(3)).isEqualTo(celle("parti", "Fremskrittspartiet", 1, 1));
+    }
+
+    @Test
+    void kandidatTellesEnGangPerKildeNaarDetGrupperesPaaKilde() {
+        // Kandidat 0 har to VG-omtaler på ulike dager, men er bare én kandidat der
+        assertThat(spoer(null, null, null, Set.of(KubeDimensjon.KILDE), Map.of())).containsExactlyInAnyOrder(
+                celle("kilde", "nrk.no", 4, 3), celle("kilde", "vg.no", 4, 3), celle("kilde", "e24.no", 1, 1));
+    }
+
+    @Test
+    void filtrererPaaDimensjonerUtenHensynTilStoreBokstaver() {
+        assertThat(spoer(null, null, null, Set.of(KubeDimensjon.KILDE), Map.of(KubeDimensjon.KJOENN, Set.of("k"))))
+                .containsExactlyInAnyOrder(celle("kilde", "nrk.no", 3, 2), celle("kilde", "vg.no", 1, 1));
+        assertThat(spoer(null, null, null, Set.of(KubeDimensjon.PARTI),
+                Map.of(KubeDimensjon.VALGDISTRIKT, Set.of(" oslo "))))
+                .containsExactly(celle("parti", "Arbeiderpartiet", 4, 1));
+        assertThat(spoer(null, null, null, Set.of(KubeDimensjon.ALDERSGRUPPE),
+                Map.of(KubeDimensjon.PARTI, Set.of("Høyre", "Rødt"))))
+                .containsExactly(celle("aldersgruppe", "under 30", 4, 2));
+    }
+
+    @Test
+    void filtrererPaaNettstedOgPartiSammen() {
+        assertThat(spoer(Set.of(Nettsted.NRK), null, null, Set.of(KubeDimensjon.KJOENN),
+                Map.of(KubeDimensjon.PARTI, Set.of("Høyre", "Rødt"))))
+                .containsExactly(celle("kjoenn", "K", 3, 2));
+    }
+
+    @Test
+    void grupperPaaDagInnenforIntervallet() {
+        assertThat(spoer(Set.of(Nettsted.VG), START.minusDays(1), START.plusDays(1), Set.of(KubeDimensjon.DAG),
+                Map.of())).containsExactlyInAnyOrder(celle("dag", "2024-12-31", 1, 1),
+                        celle("dag", "2025-01-02", 2, 2));
+        // Kandidat 0 er omtalt på tre dager, og telles én gang per dag
+        assertThat(spoer(null, START, null, Set.of(KubeDimensjon.DAG),
+                Map.of(KubeDimensjon.PARTI, Set.of("Arbeiderpartiet")))).containsExactlyInAnyOrder(
+                        celle("dag", "2025-01-01", 1, 1), celle("dag", "2025-01-02", 1, 1),
+                        celle("dag", "2025-01-03", 1, 1));
+    }
+
+    @Test
+    void tomtUtsnittGirIngenCeller() {
+        Set<KubeDimensjon> parti = Set.of(KubeDimensjon.PARTI);
+        assertThat(spoer(null, START.plusDays(3), START.plusDays(5), parti, Map.of())).isEmpty();
+        assertThat(spoer(null, START.plusDays(30), null, parti, Map.of())).isEmpty();
+        assertThat(spoer(Set.of(Nettsted.AFTENPOSTEN), null, null, parti, Map.of())).isEmpty();
+        assertThat(spoer(Set.of(), null, null, parti, Map.of())).isEmpty();
+        assertThat(spoer(null, null, null, parti, Map.of(KubeDimensjon.PARTI, Set.of("Venstre")))).isEmpty();
+        assertThat(spoer(null, null, null, parti, Map.of(KubeDimensjon.KJOENN, Set.of()))).isEmpty();
+        assertThat(spoer(Set.of(Nettsted.E24), null, null, parti, Map.of(KubeDimensjon.KJOENN, Set.of("K"))))
+                .isEmpty();
+    }
+
+    @Test
+    void tomtLagerGirIngenCeller() {
+        OmtaleKube tom = new MentionStore().frys().kube();
+        assertThat(tom.spoer(new KubeSpoerring(null, null, null, Set.of(KubeDimensjon.PARTI), Map.of())))
+                .isEmpty();
+    }
+
+    /**
+     * Gjør et oppslag i kuben.
+     *
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @param fra        første dag, eller null
+     * @param til        siste dag, eller null
+     * @param grupper    dimensjonene det grupperes etter
+     * @param filter     tillatte verdier per dimensjon
+     * @return cellene
+     */
+    private List<KubeCelleDTO> spoer(final Set<Nettsted> nettsteder, final LocalDate fra, final LocalDate til,
+            final Set<KubeDimensjon> grupper, final Map<KubeDimensjon, Set<String>> filter) {
+        return kube.spoer(new KubeSpoerring(nettsteder, fra, til, grupper, filter));
+    }
+
+    /**
+     * Lager en forventet celle gruppert på én dimensjon.
+     *
+     * @param dimensjon  dimensjonens navn i API-et
+     * @param verdi      verdien
+     * @param omtaler    antall omtaler
+     * @param kandidater antall kandidater
+     * @return cellen
+     */
+    private static KubeCelleDTO celle(final String dimensjon, final String verdi, final long omtaler,
+            final int kandidater) {
+        return new KubeCelleDTO(Map.of(dimensjon, verdi), omtaler, kandidater);
+    }
+}
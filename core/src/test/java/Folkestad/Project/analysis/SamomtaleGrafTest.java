@@ -0,0 +1,123 @@
+package folkestad.project.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import folkestad.Nettsted;
+import folkestad.project.SamomtaleDTO;
+
+/**
+ * Tester vektene i {@link SamomtaleGraf}, at de er like i begge retninger, filtrering på kilde og dag,
+ * og at et frosset utsnitt ikke ser senere lenker.
+ */
+class SamomtaleGrafTest {
+
+    private static final int DAG = (int) AnalyseTestData.START.toEpochDay();
+    private static final byte NRK = (byte) Nettsted.NRK.ordinal();
+    private static final byte VG = (byte) Nettsted.VG.ordinal();
+    private static final int KANDIDATER = 4;
+
+    private SamomtaleGraf graf;
+
+    /**
+     * Artikkel 0 (NRK, dag 0) nevner kandidat 0, 1 og 2, artikkel 1 (VG, dag 1) nevner 0 og 1, og
+     * artikkel 2 (VG, dag 2) nevner bare 3.
+     */
+    @BeforeEach
+    void byggGraf() {
+        graf = new SamomtaleGraf();
+        graf.leggTil(0, 0, DAG, NRK);
+        graf.leggTil(1, 0, DAG, NRK);
+        graf.leggTil(2, 0, DAG, NRK);
+        graf.leggTil(1, 1, DAG + 1, VG);
+        graf.leggTil(0, 1, DAG + 1, VG);
+        graf.leggTil(3, 2, DAG + 2, VG);
+    }
+
+    @Test
+    void vektenErAntallFellesArtikler() {
+        int[] antall = new int[KANDIDATER];
+        assertThat(graf.tell(0, null, null, null, antall)).containsExactlyInAnyOrder(1, 2);
+        assertThat(antall).containsExactly(0, 2, 1, 0);
+
+        assertThat(tell(3, null, null, null)).containsOnly(0);
+    }
+
+    @Test
+    void vekteneErLikeIBeggeRetninger() {
+        for (Set<Nettsted> nettsteder : Arrays.asList(null, Set.of(Nettsted.NRK), Set.of(Nettsted.VG))) {
+            int[][] vekter = new int[KANDIDATER][];
+            for (int k = 0; k < KANDIDATER; k++) {
+                vekter[k] = tell(k, nettsteder, null, null);
+            }
+            for (int a = 0; a < KANDIDATER; a++) {
+                assertThat(vekter[a][a]).isZero();
+                for (int b = 0; b < KANDIDATER; b++) {
+                    assertThat(vekter[a][b]).as("%d og %d i %s", a, b, nettsteder).isEqualTo(vekter[b][a]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void filtrererPaaKildeOgDag() {
+        assertThat(tell(0, Set.of(Nettsted.NRK), null, null)).containsExactly(0, 1, 1, 0);
+        assertThat(tell(0, Set.of(Nettsted.E24), null, null)).containsOnly(0);
+        LocalDate dag1 = LocalDate.ofEpochDay(DAG + 1);
+        assertThat(tell(0, null, dag1, null)).containsExactly(0, 1, 0, 0);
+        assertThat(tell(2, null, dag1, dag1)).containsOnly(0);
+        assertThat(tell(0, null, null, LocalDate.ofEpochDay(DAG))).containsExactly(0, 1, 1, 0);
+        assertThatThrownBy(() -> tell(0, Set.of(), null, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void frossetUtsnittSerIkkeSenereLenker() {
+        SamomtaleGraf utsnitt = graf.frys(KANDIDATER);
+        graf.leggTil(2, 1, DAG + 1, VG);
+        graf.leggTil(3, 0, DAG, NRK);
+
+        int[] antall = new int[KANDIDATER];
+        utsnitt.tell(0, null, null, null, antall);
+        assertThat(antall).containsExactly(0, 2, 1, 0);
+        assertThat(tell(0, null, null, null)).containsExactly(0, 2, 2, 1);
+        assertThat(tell(3, null, null, null)).containsExactly(1, 1, 1, 0);
+        assertThatThrownBy(() -> utsnitt.leggTil(0, 3, DAG, NRK)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void utsnittetRangererSamomtalerForKandidaten() {
+        OmtaleUtsnitt utsnitt = AnalyseTestData.haandlaget().byggLager(6).frys();
+
+        assertThat(utsnitt.samomtaler("Kandidat 0", null, null, null, 5).orElseThrow()).containsExactlyInAnyOrder(
+                new SamomtaleDTO("Kandidat 1", "Høyre", "Akershus", 1),
+                new SamomtaleDTO("Kandidat 2", "Fremskrittspartiet", "Bergen", 1));
+        assertThat(utsnitt.samomtaler("Kandidat 2", null, null, null, 5).orElseThrow())
+                .containsExactly(new SamomtaleDTO("Kandidat 0", "Arbeiderpartiet", "Oslo", 1));
+        assertThat(utsnitt.samomtaler("Kandidat 1", Set.of(Nettsted.VG), null, null, 5).orElseThrow()).isEmpty();
+        assertThat(utsnitt.samomtaler("Kandidat 5", null, null, null, 5).orElseThrow()).isEmpty();
+        assertThat(utsnitt.samomtaler("Ukjent", null, null, null, 5)).isEmpty();
+    }
+
+    /**
+     * Teller felles artikler for en kandidat i grafen.
+     *
+     * @param kandidat   kandidat-id
+     * @param nettsteder nettstedene, eller null for alle kilder
+     * @param fra        første dag, eller null
+     * @param til        siste dag, eller null
+     * @return antall felles artikler per kandidat-id
+     */
+    private int[] tell(final int kandidat, final Set<Nettsted> nettsteder, final LocalDate fra,
+            final LocalDate til) {
+        int[] antall = new int[KANDIDATER];
+        graf.tell(kandidat, nettsteder, fra, til, antall);
+        return antall;
+    }
+}
@@ -0,0 +1,110 @@
+package folkestad.project.dedup;
+
+import static folkestad.project.dedup.SimHashTest.tekst;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tester at {@link NearDuplicateIndex} finner nesten-duplikater innenfor avstandsgrensen, glemmer de
+ * eldste artiklene når kapasiteten er nådd, og avviser avstander båndinndelingen ikke kan garantere å finne.
+ */
+class NearDuplicateIndexTest {
+
+    private static final String ORIGINAL = "https://www.nrk.no/sak-1";
+    private static final String KOPI = "https://www.vg.no/sak-1";
+
+    /**
+     * Lager en indeks med gitt maksimal Hamming-avstand, minst 40 ord og plass til 50 artikler.
+     *
+     * @param avstand maksimal Hamming-avstand
+     * @return indeksen
+     */
+    private static NearDuplicateIndex indeks(final int avstand) {
+        NearDuplicateIndex indeks = new NearDuplicateIndex();
+        ReflectionTestUtils.setField(indeks, "maxHammingDistance", avstand);
+        ReflectionTestUtils.setField(indeks, "minWords", 40);
+        ReflectionTestUtils.setField(indeks, "capacity", 50);
+        return indeks;
+    }
+
+    /**
+     * Avstanden mellom originalteksten og kopien der det siste ordet er endret.
+     *
+     * @return Hamming-avstanden
+     */
+    private static int avstandTilKopi() {
+        return SimHash.hammingDistance(SimHash.fingerprint(tekst(2, null)), SimHash.fingerprint(tekst(2, "endret")));
+    }
+
+    @Test
+    void godtarAvstanderOppTilAntallBaandMinusEn() {
+        assertDoesNotThrow(() -> indeks(0).validerAvstand());
+        assertDoesNotThrow(() -> indeks(3).validerAvstand());
+    }
+
+    @Test
+    void avviserAvstandSomBaandeneIkkeDekker() {
+        assertThrows(IllegalStateException.class, () -> indeks(4).validerAvstand());
+        assertThrows(IllegalStateException.class, () -> indeks(-1).validerAvstand());
+    }
+
+    @Test
+    void finnerOriginalenInnenforAvstanden() {
+        int avstand = avstandTilKopi();
+        assertThat(avstand).isBetween(1, 3);
+        NearDuplicateIndex indeks = indeks(avstand);
+
+        assertThat(indeks.findOrRegister(ORIGINAL, tekst(2, null))).isEmpty();
+        assertThat(indeks.findOrRegister(KOPI, tekst(2, "endret"))).isEqualTo(Optional.of(ORIGINAL));
+        assertThat(indeks.findOrRegister("https://www.e24.no/sak-1", tekst(2, null))).contains(ORIGINAL);
+        // Kopien registreres ikke, og en kjent URL slås ikke opp på nytt
+        assertThat(indeks.findOrRegister(ORIGINAL, tekst(2, "endret"))).isEmpty();
+        assertThat(indeks.size()).isEqualTo(1);
+    }
+
+    @Test
+    void registrererTekstUtenforAvstandenSomNyOriginal() {
+        NearDuplicateIndex indeks = indeks(avstandTilKopi() - 1);
+
+        assertThat(indeks.findOrRegister(ORIGINAL, tekst(2, null))).isEmpty();
+        assertThat(indeks.findOrRegister(KOPI, tekst(2, "endret"))).isEmpty();
+        assertThat(indeks.findOrRegister("https://www.e24.no/sak-2", tekst(3, null))).isEmpty();
+        assertThat(indeks.size()).isEqualTo(3);
+    }
+
+    @Test
+    void kortTekstBlirVerkenSlaattOppEllerRegistrert() {
+        NearDuplicateIndex indeks = indeks(3);
+        String kort = "Kort melding om at regjeringen legger fram budsjettet i dag.";
+
+        assertThat(indeks.findOrRegister(ORIGINAL, kort)).isEmpty();
+        assertThat(indeks.findOrRegister(KOPI, kort)).isEmpty();
+        assertThat(indeks.size()).isZero();
+    }
+
+    @Test
+    void fjernerDeEldsteArtikleneNaarKapasitetenErNaadd() {
+        NearDuplicateIndex indeks = indeks(3);
+        ReflectionTestUtils.setField(indeks, "capacity", 2);
+        indeks.findOrRegister("https://www.nrk.no/a", tekst(10, null));
+        indeks.findOrRegister("https://www.nrk.no/b", tekst(11, null));
+        indeks.findOrRegister("https://www.nrk.no/c", tekst(12, null));
+        assertThat(indeks.size()).isEqualTo(2);
+
+        // a er fjernet, b og c er igjen; et oppslag som treffer registrerer ingenting
+        assertThat(indeks.findOrRegister("https://www.vg.no/b", tekst(11, null))).contains("https://www.nrk.no/b");
+        assertThat(indeks.findOrRegister("https://www.vg.no/c", tekst(12, null))).contains("https://www.nrk.no/c");
+        assertThat(indeks.findOrRegister("https://www.vg.no/a", tekst(10, null))).isEmpty();
+
+        // vg.no/a ble registrert og fjernet b, som nå er den eldste
+        assertThat(indeks.size()).isEqualTo(2);
+        assertThat(indeks.findOrRegister("https://www.e24.no/b", tekst(11, null))).isEmpty();
+        assertThat(indeks.findOrRegister("https://www.e24.no/a", tekst(10, null))).contains("https://www.vg.no/a");
+    }
+}
@@ -0,0 +1,73 @@
+package folkestad.project.dedup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tester at {@link SimHash} gir samme fingeravtrykk for samme ord, nære fingeravtrykk for nesten
+ * lik tekst og fjerne for ulik tekst.
+ */
+class SimHashTest {
+
+    @Test
+    void ignorererStoreBokstaverOgTegnsetting() {
+        assertThat(SimHash.fingerprint("Regjeringen legger fram statsbudsjettet i dag"))
+                .isEqualTo(SimHash.fingerprint("regjeringen, LEGGER fram «statsbudsjettet» i dag!"));
+    }
+
+    @Test
+    void rekkefoelgenPaaOrdeneTellerMed() {
+        assertThat(SimHash.fingerprint("Regjeringen legger fram statsbudsjettet i dag"))
+                .isNotEqualTo(SimHash.fingerprint("I dag legger regjeringen fram statsbudsjettet"));
+    }
+
+    @Test
+    void nestenLikTekstGirLitenAvstandOgUlikTekstStor() {
+        long original = SimHash.fingerprint(tekst(2, null));
+        assertThat(SimHash.hammingDistance(original, SimHash.fingerprint(tekst(2, "endret")))).isBetween(1, 3);
+        assertThat(SimHash.hammingDistance(original, SimHash.fingerprint(tekst(3, null)))).isGreaterThan(16);
+    }
+
+    @Test
+    void kortOgTomTekst() {
+        assertThat(SimHash.fingerprint("")).isZero();
+        assertThat(SimHash.fingerprint(" ,.- ")).isZero();
+        assertThat(SimHash.fingerprint("To ord")).isNotZero().isNotEqualTo(SimHash.fingerprint("Andre ord"));
+    }
+
+    @Test
+    void tellerOrdAvBokstaverOgSifre() {
+        assertThat(SimHash.countWords("")).isZero();
+        assertThat(SimHash.countWords("  Ap fikk 25,8 prosent – «rekord»! ")).isEqualTo(6);
+    }
+
+    @Test
+    void hammingAvstandErAntallUlikeBiter() {
+        assertThat(SimHash.hammingDistance(0L, 0L)).isZero();
+        assertThat(SimHash.hammingDistance(0b1011L, 0b0110L)).isEqualTo(3);
+        assertThat(SimHash.hammingDistance(0L, -1L)).isEqualTo(64);
+    }
+
+    /**
+     * Lager en syntetisk tekst på 60 ord, der alle ordene er unike for tekstnummeret.
+     *
+     * @param nummer tekstnummer
+     * @param sisteOrd ord som erstatter det siste ordet, eller null for å beholde det
+     * @return teksten
+     */
+    static String tekst(final int nummer, final String sisteOrd) {
+        StringBuilder tekst = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            if (i > 0) {
+                tekst.append(' ');
+            }
+            if (i == 59 && sisteOrd != null) {
+                tekst.append(sisteOrd);
+            } else {
+                tekst.append("ord").append(nummer).append('x').append(i);
+            }
+        }
+        return tekst.toString();
+    }
+}
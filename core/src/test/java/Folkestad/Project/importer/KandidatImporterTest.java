@@ -0,0 +1,218 @@
+package folkestad.project.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import folkestad.KandidatStortingsvalg;
+import folkestad.KandidatStortingsvalgRepository;
+import folkestad.KandidaterOppdatertEvent;
+
+/**
+ * Tester at {@link KandidatImporter} leser CSV og JSON riktig, regner ut alder og lagrer i batcher.
+ */
+class KandidatImporterTest {
+
+    /** Dagen før 45-årsdagen til en kandidat født 15.6.1980. */
+    private static final LocalDate I_DAG = LocalDate.of(2025, 6, 14);
+
+    @TempDir
+    private Path mappe;
+
+    private KandidatStortingsvalgRepository repository;
+    private ApplicationEventPublisher eventPublisher;
+    private KandidatImporter importer;
+
+    /** Kandidatene som er lagret, i rekkefølge. */
+    private final List<KandidatStortingsvalg> lagret = new ArrayList<>();
+
+    /** Størrelsen på hver batch som er lagret. */
+    private final List<Integer> batcher = new ArrayList<>();
+
+    @BeforeEach
+    void settOpp() {
+        repository = mock(KandidatStortingsvalgRepository.class);
+        when(repository.upsert(anyList())).thenAnswer(kall -> {
+            List<KandidatStortingsvalg> kandidater = kall.getArgument(0);
+            lagret.addAll(kandidater);
+            batcher.add(kandidater.size());
+            return kandidater.size();
+        });
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        importer = new KandidatImporter();
+        ReflectionTestUtils.setField(importer, "kandidatRepository", repository);
+        ReflectionTestUtils.setField(importer, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(importer, "clock",
+                Clock.fixed(I_DAG.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        ReflectionTestUtils.setField(importer, "batchSize", 500);
+    }
+
+    @Test
+    void leserCsvMedSemikolonOgFelterIAnfoerselstegn() throws IOException {
+        int antall = importer.importer(fil("kandidater.csv",
+                "Navn;Partinavn;Bosted;Stilling;Kandidatnr\n"
+                + "Ola Nordmann;Høyre;\"Oslo; sentrum\";\"Lærer, \"\"lektor\"\"\";1\n"
+                + "\n"
+                + "  Kari Nordmann  ;\"Arbeiderpartiet\";Bergen;\"Rådgiver\n"
+                + "og forfatter\";2\n"));
+
+        assertThat(antall).isEqualTo(2);
+        assertThat(lagret).hasSize(2);
+        KandidatStortingsvalg ola = lagret.get(0);
+        assertThat(ola.getNavn()).isEqualTo("Ola Nordmann");
+        assertThat(ola.getPartinavn()).isEqualTo("Høyre");
+        assertThat(ola.getBosted()).isEqualTo("Oslo; sentrum");
+        assertThat(ola.getStilling()).isEqualTo("Lærer, \"lektor\"");
+        assertThat(ola.getKandidatnr()).isEqualTo(1);
+        KandidatStortingsvalg kari = lagret.get(1);
+        assertThat(kari.getNavn()).isEqualTo("Kari Nordmann");
+        assertThat(kari.getPartinavn()).isEqualTo("Arbeiderpartiet");
+        assertThat(kari.getStilling()).isEqualTo("Rådgiver\nog forfatter");
+        assertThat(kari.getKandidatnr()).isEqualTo(2);
+        verify(eventPublisher).publishEvent(new KandidaterOppdatertEvent(2));
+    }
+
+    @Test
+    void leserCsvMedKommaOgByteOrderMarkIUtf8() throws IOException {
+        importer.importer(fil("kandidater.csv",
+                "\uFEFFNavn,Valgdistrikt,Kjønn,Fødselsdato\n"
+                + "Åse Ødegård,Sør-Trøndelag,K,1980-06-15\n"
+                + "\"Ærlig, Per\",Østfold,M,\n"));
+
+        assertThat(lagret).extracting(KandidatStortingsvalg::getNavn).containsExactly("Åse Ødegård", "Ærlig, Per");
+        KandidatStortingsvalg aase = lagret.get(0);
+        assertThat(aase.getValgdistrikt()).isEqualTo("Sør-Trøndelag");
+        assertThat(aase.getKjoenn()).isEqualTo("K");
+        assertThat(aase.getFoedselsdato()).isEqualTo(LocalDate.of(1980, 6, 15));
+        assertThat(lagret.get(1).getValgdistrikt()).isEqualTo("Østfold");
+        assertThat(lagret.get(1).getFoedselsdato()).isNull();
+    }
+
+    @Test
+    void tolererUgyldigeRader() throws IOException {
+        int antall = importer.importer(fil("kandidater.csv",
+                "Navn;Ukjent kolonne;Kandidatnr;Fødselsdato;Alder\n"
+                + ";x;1;;\n"
+                + "   ;x;2;;\n"
+                + "Ola Nordmann;x;tre;32.01.1980;40\n"
+                + "Kari Nordmann\n"
+                + "Per Hansen;x;4;;50;ekstra;felter\n"
+                + "Lise Berg;\"uavsluttet;5"));
+
+        assertThat(antall).isEqualTo(4);
+        assertThat(lagret).extracting(KandidatStortingsvalg::getNavn)
+                .containsExactly("Ola Nordmann", "Kari Nordmann", "Per Hansen", "Lise Berg");
+        KandidatStortingsvalg ola = lagret.get(0);
+        assertThat(ola.getKandidatnr()).isNull();
+        assertThat(ola.getFoedselsdato()).isNull();
+        assertThat(ola.getAlder()).isEqualTo(40);
+        assertThat(lagret.get(1).getKandidatnr()).isNull();
+        assertThat(lagret.get(2).getKandidatnr()).isEqualTo(4);
+        assertThat(lagret.get(2).getAlder()).isEqualTo(50);
+        // Et anførselstegn som aldri lukkes tar med resten av filen i feltet
+        assertThat(lagret.get(3).getKandidatnr()).isNull();
+    }
+
+    @Test
+    void tomFilGirIngenKandidater() throws IOException {
+        assertThat(importer.importer(fil("tom.csv", ""))).isZero();
+        assertThat(importer.importer(fil("tom.json", "{}"))).isZero();
+        assertThat(lagret).isEmpty();
+    }
+
+    @Test
+    void leserJsonListePaaToppnivaa() throws IOException {
+        int antall = importer.importer(fil("kandidater.json", """
+                [
+                  {"navn": "Ola Nordmann", "partinavn": "Høyre", "kandidatnr": 3, "alder": 61,
+                   "kjønn": "M", "bosted": null},
+                  {"Navn": "Kari Nordmann", "Visningsrekkefølge": "7", "Fødselsdato": "15.6.1980"},
+                  {"partinavn": "Rødt"}
+                ]
+                """));
+
+        assertThat(antall).isEqualTo(2);
+        KandidatStortingsvalg ola = lagret.get(0);
+        assertThat(ola.getNavn()).isEqualTo("Ola Nordmann");
+        assertThat(ola.getPartinavn()).isEqualTo("Høyre");
+        assertThat(ola.getKandidatnr()).isEqualTo(3);
+        assertThat(ola.getAlder()).isEqualTo(61);
+        assertThat(ola.getKjoenn()).isEqualTo("M");
+        assertThat(ola.getBosted()).isNull();
+        KandidatStortingsvalg kari = lagret.get(1);
+        assertThat(kari.getDisplayOrder()).isEqualTo(7);
+        assertThat(kari.getFoedselsdato()).isEqualTo(LocalDate.of(1980, 6, 15));
+    }
+
+    @Test
+    void leserFoersteJsonListeIEtObjektOgHopperOverNestedeVerdier() throws IOException {
+        importer.importer(fil("kandidater.json", """
+                {"valg": "Stortingsvalget 2025", "kandidater": [
+                  {"navn": "Ola Nordmann", "verv": ["leder", "nestleder"], "adresse": {"bosted": "Oslo"},
+                   "bosted": "Bergen"},
+                  {"navn": "Kari Nordmann"}
+                ]}
+                """));
+
+        assertThat(lagret).extracting(KandidatStortingsvalg::getNavn).containsExactly("Ola Nordmann", "Kari Nordmann");
+        assertThat(lagret.get(0).getBosted()).isEqualTo("Bergen");
+        assertThat(lagret.get(0).getValg()).isNull();
+    }
+
+    @Test
+    void regnerUtAlderFraFoedselsdatoFremforAlderskolonnen() throws IOException {
+        importer.importer(fil("kandidater.csv",
+                "navn;foedselsdato;alder\n"
+                + "Dagen før bursdag;1980-06-15;99\n"
+                + "På bursdagen;1980-06-14\n"
+                + "Norsk dato;14.06.1980\n"
+                + "Med klokkeslett;1980-06-14T08:30:00\n"
+                + "Bare alder;;33\n"));
+
+        assertThat(lagret).extracting(KandidatStortingsvalg::getAlder).containsExactly(44, 45, 45, 45, 33);
+        assertThat(lagret.get(3).getFoedselsdato()).isEqualTo(LocalDate.of(1980, 6, 14));
+    }
+
+    @Test
+    void lagrerIBatcherOgRapportererSummen() throws IOException {
+        ReflectionTestUtils.setField(importer, "batchSize", 2);
+        StringBuilder csv = new StringBuilder("navn\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("Kandidat ").append(i).append('\n');
+        }
+
+        assertThat(importer.importer(fil("kandidater.csv", csv.toString()))).isEqualTo(5);
+        assertThat(batcher).containsExactly(2, 2, 1);
+        verify(eventPublisher).publishEvent(new KandidaterOppdatertEvent(5));
+    }
+
+    /**
+     * Skriver en fil i UTF-8 i testmappen.
+     *
+     * @param navn     filnavnet
+     * @param innhold  innholdet
+     * @return filen
+     * @throws IOException hvis filen ikke kan skrives
+     */
+    private Path fil(final String navn, final String innhold) throws IOException {
+        return Files.writeString(mappe.resolve(navn), innhold, StandardCharsets.UTF_8);
+    }
+}
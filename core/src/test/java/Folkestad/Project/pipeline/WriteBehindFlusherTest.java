@@ -0,0 +1,170 @@
+package folkestad.project.pipeline;
+
+import static folkestad.project.pipeline.WriteBehindLogTest.aapne;
+import static folkestad.project.pipeline.WriteBehindLogTest.omtale;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import folkestad.InnleggRepository;
+import folkestad.project.KandidatLinkWriter;
+
+/**
+ * Tester at {@link WriteBehindFlusher} spiller av segmenter fra forrige kjøring, hopper forbi segmenter
+ * som feiler og setter dem i karantene etter gjentatte feil, uten å telle forsøk mens databasen er nede.
+ */
+class WriteBehindFlusherTest {
+
+    private static final String FEILER = "https://www.nrk.no/avvist";
+
+    @TempDir
+    private Path mappe;
+
+    private WriteBehindLog logg;
+    private KandidatLinkWriter kandidatLinkWriter;
+    private WriteBehindFlusher flusher;
+
+    /** Omtalene som er lagret, i rekkefølge. */
+    private final List<WriteBehindEntry.Omtale> lagret = new ArrayList<>();
+
+    /** Når true feiler all lagring, som om databasen er nede. */
+    private boolean databasenNede;
+
+    @BeforeEach
+    void settOpp() {
+        logg = aapne(mappe);
+        kandidatLinkWriter = mock(KandidatLinkWriter.class);
+        when(kandidatLinkWriter.lagreOmtaler(anyList())).thenAnswer(kall -> {
+            List<WriteBehindEntry.Omtale> omtaler = kall.getArgument(0);
+            if (databasenNede) {
+                throw new IllegalStateException("Ingen tilkobling");
+            }
+            if (omtaler.stream().anyMatch(omtale -> FEILER.equals(omtale.url()))) {
+                throw new IllegalStateException("Avvist av databasen");
+            }
+            lagret.addAll(omtaler);
+            return omtaler.size();
+        });
+        flusher = flusher(logg);
+    }
+
+    @AfterEach
+    void rydd() {
+        logg.close();
+    }
+
+    /**
+     * Lager en flusher for loggen, med høyst to forsøk før karantene.
+     *
+     * @param writeBehindLog loggen
+     * @return flusheren
+     */
+    private WriteBehindFlusher flusher(final WriteBehindLog writeBehindLog) {
+        WriteBehindFlusher ny = new WriteBehindFlusher();
+        ReflectionTestUtils.setField(ny, "writeBehindLog", writeBehindLog);
+        ReflectionTestUtils.setField(ny, "innleggRepository", mock(InnleggRepository.class));
+        ReflectionTestUtils.setField(ny, "kandidatLinkWriter", kandidatLinkWriter);
+        ReflectionTestUtils.setField(ny, "batchSize", 500);
+        ReflectionTestUtils.setField(ny, "maxAttempts", 2);
+        return ny;
+    }
+
+    @Test
+    void spillerAvSegmenterFraForrigeKjoeringVedOppstart() {
+        logg.append(List.of(omtale(1), omtale(2)));
+        logg.rotate();
+        logg.append(List.of(omtale(3)));
+        logg.close();
+
+        logg = aapne(mappe);
+        flusher(logg).replay();
+
+        assertThat(lagret).containsExactly(omtale(1), omtale(2), omtale(3));
+        assertThat(logg.pendingSegments()).isEmpty();
+    }
+
+    @Test
+    void avspillingUtenVentendeSegmenterRoererIkkeDatabasen() {
+        flusher.replay();
+        verify(kandidatLinkWriter, never()).lagreOmtaler(anyList());
+    }
+
+    @Test
+    void segmentSomFeilerStopperIkkeSenereSegmenterOgSettesIKaranteneEtterMaksForsoek() {
+        logg.append(List.of(avvist()));
+        logg.rotate();
+        logg.append(List.of(omtale(1)));
+
+        assertThat(flusher.flush()).isFalse();
+        assertThat(lagret).containsExactly(omtale(1));
+        assertThat(logg.pendingSegments()).hasSize(1);
+        assertThat(logg.quarantinedSegments()).isEmpty();
+
+        logg.append(List.of(omtale(2)));
+        assertThat(flusher.flush()).isFalse();
+        assertThat(lagret).containsExactly(omtale(1), omtale(2));
+        assertThat(logg.pendingSegments()).isEmpty();
+        assertThat(logg.quarantinedSegments()).hasSize(1);
+        assertThat(logg.read(logg.quarantinedSegments().get(0)).entries()).containsExactly(avvist());
+
+        assertThat(flusher.flush()).isTrue();
+    }
+
+    @Test
+    void tellerIkkeForsoekMensDatabasenErNede() {
+        logg.append(List.of(omtale(1)));
+        logg.rotate();
+        logg.append(List.of(omtale(2)));
+        databasenNede = true;
+        for (int i = 0; i < 5; i++) {
+            assertThat(flusher.flush()).isFalse();
+        }
+        assertThat(logg.pendingSegments()).hasSize(2);
+        assertThat(logg.quarantinedSegments()).isEmpty();
+
+        databasenNede = false;
+        assertThat(flusher.flush()).isTrue();
+        assertThat(lagret).containsExactly(omtale(1), omtale(2));
+        assertThat(logg.pendingSegments()).isEmpty();
+    }
+
+    @Test
+    void korruptSegmentSkrivesFramTilFeilenOgSettesIKaranteneMedEnGang() throws IOException {
+        logg.append(List.of(omtale(1), omtale(2)));
+        logg.rotate();
+        Path korrupt = logg.pendingSegments().get(0);
+        byte[] innhold = Files.readAllBytes(korrupt);
+        innhold[innhold.length / 2 + 12] ^= 0x01;
+        Files.write(korrupt, innhold);
+        logg.append(List.of(omtale(3)));
+
+        assertThat(flusher.flush()).isFalse();
+        assertThat(lagret).containsExactly(omtale(1), omtale(3));
+        assertThat(logg.pendingSegments()).isEmpty();
+        assertThat(logg.quarantinedSegments()).extracting(Path::getFileName).containsExactly(korrupt.getFileName());
+    }
+
+    /**
+     * En omtale databasen alltid avviser.
+     *
+     * @return omtalen
+     */
+    private static WriteBehindEntry.Omtale avvist() {
+        return new WriteBehindEntry.Omtale("Kandidat 0", FEILER, null);
+    }
+}
@@ -0,0 +1,209 @@
+package folkestad.project.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tester kodingen av poster i {@link WriteBehindLog}, rotasjon, og hvordan ødelagte poster skilles
+ * mellom en halvskrevet hale og korrupsjon.
+ */
+class WriteBehindLogTest {
+
+    private static final LocalDateTime TID = LocalDateTime.of(2025, 9, 8, 14, 30, 15, 123_000_000);
+
+    @TempDir
+    private Path mappe;
+
+    /**
+     * Åpner en logg i testmappen, slik Spring gjør ved oppstart.
+     *
+     * @param mappe mappen loggen ligger i
+     * @return den åpnede loggen
+     */
+    static WriteBehindLog aapne(final Path mappe) {
+        WriteBehindLog logg = new WriteBehindLog();
+        ReflectionTestUtils.setField(logg, "directory", mappe.toString());
+        logg.open();
+        return logg;
+    }
+
+    /**
+     * Lager en omtale for en artikkel.
+     *
+     * @param n artikkelnummer
+     * @return omtalen
+     */
+    static WriteBehindEntry.Omtale omtale(final int n) {
+        return new WriteBehindEntry.Omtale("Kandidat " + n, "https://www.nrk.no/sak-" + n, TID.plusMinutes(n));
+    }
+
+    @Test
+    void leserTilbakePosteneSomBleSkrevet() {
+        WriteBehindLog logg = aapne(mappe);
+        List<WriteBehindEntry> poster = List.of(
+                omtale(1),
+                new WriteBehindEntry.Omtale("Åse Ødegård", "https://www.vg.no/nyheter/æøå", null),
+                new WriteBehindEntry.Sammendrag("https://www.nrk.no/sak-2", null, "Et kort sammendrag.", 0.25,
+                        400, 100, TID, -42L),
+                new WriteBehindEntry.Sammendrag("https://www.nrk.no/sak-3", "https://www.nrk.no/sak-2", null, null,
+                        null, null, null, null));
+        logg.append(poster);
+        assertThat(logg.rotate()).isTrue();
+
+        List<Path> segmenter = logg.pendingSegments();
+        assertThat(segmenter).hasSize(1);
+        WriteBehindLog.ReadResult resultat = logg.read(segmenter.get(0));
+        assertThat(resultat.corrupt()).isFalse();
+        assertThat(resultat.entries()).isEqualTo(poster);
+        logg.close();
+    }
+
+    @Test
+    void rotererBareSegmenterMedPosterOgListerEldsteFoerst() {
+        WriteBehindLog logg = aapne(mappe);
+        assertThat(logg.rotate()).isFalse();
+        logg.append(List.of(omtale(1)));
+        assertThat(logg.rotate()).isTrue();
+        logg.append(List.of(omtale(2), omtale(3)));
+        assertThat(logg.rotate()).isTrue();
+        assertThat(logg.rotate()).isFalse();
+
+        List<Path> segmenter = logg.pendingSegments();
+        assertThat(segmenter).hasSize(2);
+        assertThat(logg.read(segmenter.get(0)).entries()).containsExactly(omtale(1));
+        assertThat(logg.read(segmenter.get(1)).entries()).containsExactly(omtale(2), omtale(3));
+
+        logg.delete(segmenter.get(0));
+        assertThat(logg.pendingSegments()).containsExactly(segmenter.get(1));
+        logg.close();
+    }
+
+    @Test
+    void godtarHalvskrevetHaleIAvbruttSegment() throws IOException {
+        WriteBehindLog logg = aapne(mappe);
+        logg.append(List.of(omtale(1), omtale(2)));
+        logg.close();
+        Path aktiv = mappe.resolve("aktiv.log");
+        kortNed(aktiv, 3);
+
+        WriteBehindLog etterOmstart = aapne(mappe);
+        List<Path> segmenter = etterOmstart.pendingSegments();
+        assertThat(segmenter).hasSize(1);
+        assertThat(segmenter.get(0).getFileName().toString()).endsWith("-avbrutt.log");
+        assertThat(Files.size(aktiv)).isZero();
+        WriteBehindLog.ReadResult resultat = etterOmstart.read(segmenter.get(0));
+        assertThat(resultat.corrupt()).isFalse();
+        assertThat(resultat.entries()).containsExactly(omtale(1));
+        etterOmstart.close();
+    }
+
+    @Test
+    void godtarNullfyltHaleIAvbruttSegment() throws IOException {
+        WriteBehindLog logg = aapne(mappe);
+        logg.append(List.of(omtale(1)));
+        logg.close();
+        Files.write(mappe.resolve("aktiv.log"), new byte[64], StandardOpenOption.APPEND);
+
+        WriteBehindLog etterOmstart = aapne(mappe);
+        WriteBehindLog.ReadResult resultat = etterOmstart.read(etterOmstart.pendingSegments().get(0));
+        assertThat(resultat.corrupt()).isFalse();
+        assertThat(resultat.entries()).containsExactly(omtale(1));
+        etterOmstart.close();
+    }
+
+    @Test
+    void halvskrevetHaleIRotertSegmentErKorrupt() throws IOException {
+        WriteBehindLog logg = aapne(mappe);
+        logg.append(List.of(omtale(1), omtale(2)));
+        logg.rotate();
+        Path segment = logg.pendingSegments().get(0);
+        kortNed(segment, 3);
+
+        WriteBehindLog.ReadResult resultat = logg.read(segment);
+        assertThat(resultat.corrupt()).isTrue();
+        assertThat(resultat.entries()).containsExactly(omtale(1));
+        logg.close();
+    }
+
+    @Test
+    void feilSjekksumMidtISegmentetErKorruptOgsaaIAvbruttSegment() throws IOException {
+        WriteBehindLog logg = aapne(mappe);
+        logg.append(List.of(omtale(1), omtale(2), omtale(3)));
+        logg.close();
+        Path aktiv = mappe.resolve("aktiv.log");
+        int postLengde = (int) Files.size(aktiv) / 3;
+        byte[] innhold = Files.readAllBytes(aktiv);
+        // Endrer en byte i innholdet til post nummer to, så sjekksummen ikke stemmer
+        innhold[postLengde + 12] ^= 0x01;
+        Files.write(aktiv, innhold);
+
+        WriteBehindLog etterOmstart = aapne(mappe);
+        WriteBehindLog.ReadResult resultat = etterOmstart.read(etterOmstart.pendingSegments().get(0));
+        assertThat(resultat.corrupt()).isTrue();
+        assertThat(resultat.entries()).containsExactly(omtale(1));
+        etterOmstart.close();
+    }
+
+    @Test
+    void ukjentPosttypeErKorrupt() throws IOException {
+        WriteBehindLog logg = aapne(mappe);
+        logg.append(List.of(omtale(1)));
+        logg.rotate();
+        Path segment = logg.pendingSegments().get(0);
+        // En hel post med gyldig sjekksum, men en posttype loggen ikke kjenner
+        byte[] kropp = {9, 0, 0, 0, 0};
+        CRC32 crc = new CRC32();
+        crc.update(kropp);
+        ByteBuffer ramme = ByteBuffer.allocate(8 + kropp.length);
+        ramme.putInt(kropp.length).putInt((int) crc.getValue()).put(kropp).flip();
+        try (FileChannel kanal = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            kanal.write(ramme);
+        }
+
+        WriteBehindLog.ReadResult resultat = logg.read(segment);
+        assertThat(resultat.corrupt()).isTrue();
+        assertThat(resultat.entries()).containsExactly(omtale(1));
+        logg.close();
+    }
+
+    @Test
+    void karanteneFlytterSegmentetUtAvKoeen() {
+        WriteBehindLog logg = aapne(mappe);
+        logg.append(List.of(omtale(1)));
+        logg.rotate();
+        Path segment = logg.pendingSegments().get(0);
+
+        Path flyttet = logg.quarantine(segment);
+        assertThat(logg.pendingSegments()).isEmpty();
+        assertThat(logg.quarantinedSegments()).containsExactly(flyttet);
+        assertThat(flyttet.getFileName()).isEqualTo(segment.getFileName());
+        assertThat(logg.read(flyttet).entries()).containsExactly(omtale(1));
+        logg.close();
+    }
+
+    /**
+     * Fjerner de siste bytene i en fil, som om skrivingen ble avbrutt.
+     *
+     * @param fil   filen
+     * @param bytes antall bytes som fjernes
+     * @throws IOException hvis filen ikke kan endres
+     */
+    private static void kortNed(final Path fil, final int bytes) throws IOException {
+        try (FileChannel kanal = FileChannel.open(fil, StandardOpenOption.WRITE)) {
+            kanal.truncate(kanal.size() - bytes);
+        }
+    }
+}
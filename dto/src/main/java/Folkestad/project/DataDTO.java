@@ -4,7 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,7 +20,7 @@ public class DataDTO {
     /** Totalt antall artikler analysert. */
     private int totaltAntallArtikler;
     /** Liste over alle personer nevnt i artikler. */
-    private ArrayList<Person> allePersonernevnt;
+    private List<Person> allePersonernevnt;
     /** Kjønnsfordeling (antall per kjønn). */
     private Map<String, Integer> kjoennRatio;
     /** Kjønnsfordeling i prosent. */
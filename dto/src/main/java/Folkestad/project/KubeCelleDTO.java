@@ -0,0 +1,22 @@
+package folkestad.project;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Map;
+
+/**
+ * DTO for én gruppe i et oppslag i omtalekuben.
+ * Inneholder verdien for hver dimensjon det er gruppert etter, antall omtaler og antall kandidater.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KubeCelleDTO {
+    /** Verdi per dimensjon det er gruppert etter, for eksempel parti → "Høyre". */
+    private Map<String, String> dimensjoner;
+    /** Antall omtaler i gruppen. */
+    private long antallOmtaler;
+    /** Antall ulike kandidater som er omtalt i gruppen. */
+    private int antallKandidater;
+}
@@ -25,4 +25,6 @@ public class SammendragDTO {
     private Integer antallOrdSammendrag;
     /** Dato sammendraget ble opprettet. */
     private LocalDateTime opprettetDato;
+    /** Link til originalartikkelen hvis artikkelen er et nesten-duplikat, ellers null. */
+    private String duplikatAv;
 }
@@ -0,0 +1,23 @@
+package folkestad.project;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for én kandidat som er omtalt i samme artikler som en annen kandidat.
+ * Inneholder kandidaten og antall felles artikler.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SamomtaleDTO {
+    /** Navn på kandidaten. */
+    private String navn;
+    /** Parti kandidaten tilhører. */
+    private String parti;
+    /** Valgdistrikt kandidaten representerer. */
+    private String valgdistrikt;
+    /** Antall artikler begge kandidatene er omtalt i. */
+    private int antallArtikler;
+}
@@ -0,0 +1,27 @@
+package folkestad.project;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for én kandidat i en topp-liste over de mest omtalte eller mest økende kandidatene.
+ * Inneholder kandidaten, antall omtaler i vinduet og i vinduet før, og trend.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopKandidatDTO {
+    /** Navn på kandidaten. */
+    private String navn;
+    /** Parti kandidaten tilhører. */
+    private String parti;
+    /** Valgdistrikt kandidaten representerer. */
+    private String valgdistrikt;
+    /** Antall omtaler i vinduet. */
+    private int antallOmtaler;
+    /** Antall omtaler i like mange dager før vinduet. */
+    private int antallForrigeVindu;
+    /** Endring fra forrige vindu, (antall - forrige) / kvadratroten av (forrige + 1). */
+    private double trend;
+}
@@ -0,0 +1,91 @@
+package folkestad;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Entitet som representerer en artikkel, lagret én gang per normalisert URL.
+ * Kandidatlenker og innlegg refererer til artikkelen med id i stedet for å gjenta hele URL-en.
+ * <p>
+ * URL-er med samme hash lagres som egne rader med økende {@code url_kollisjon}, siden hele URL-en er
+ * for lang til å inngå i en unik nøkkel.
+ * </p>
+ */
+@Entity
+@Table(name = "artikkel",
+        uniqueConstraints = @UniqueConstraint(name = "uk_artikkel_url_hash_kollisjon",
+                columnNames = {"url_hash", "url_kollisjon"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class Artikkel {
+
+    /** Unik ID for artikkelen. */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    /** Normalisert URL til artikkelen. */
+    @Column(name = "url", length = 1000, nullable = false)
+    private String url;
+
+    /** 64-bits hash av URL-en, se {@link LinkHash}. */
+    @Column(name = "url_hash", nullable = false)
+    private Long urlHash;
+
+    /** Løpenummer blant URL-er med samme hash, 0 for den første. */
+    @ColumnDefault("0")
+    @Column(name = "url_kollisjon", nullable = false)
+    private Integer urlKollisjon;
+
+    /** Nettstedet artikkelen er hentet fra. */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "nettsted", length = 50)
+    private Nettsted nettsted;
+
+    /** Tidspunktet artikkelen først ble sett av en scraper. */
+    @Column(name = "forst_sett")
+    private LocalDateTime forstSett;
+
+    /** SimHash av artikkelteksten, null hvis teksten ikke er analysert. */
+    @Column(name = "innhold_hash")
+    private Long innholdHash;
+
+    /**
+     * Oppretter en ny, ulagret artikkel for en URL med nettsted og hash beregnet fra URL-en.
+     *
+     * @param url         normalisert URL
+     * @param innholdHash SimHash av artikkelteksten, eller null
+     * @return ny artikkel uten id
+     */
+    public static Artikkel ny(final String url, final Long innholdHash) {
+        Artikkel artikkel = new Artikkel();
+        artikkel.setUrl(url);
+        artikkel.setUrlHash(LinkHash.of(url));
+        artikkel.setUrlKollisjon(0);
+        artikkel.setNettsted(Nettsted.parseFromUrl(url).orElse(null));
+        artikkel.setForstSett(LocalDateTime.now());
+        artikkel.setInnholdHash(innholdHash);
+        return artikkel;
+    }
+}
@@ -0,0 +1,8 @@
+package folkestad;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArtikkelRepository extends JpaRepository<Artikkel, Long>, ArtikkelRepositoryCustom {
+}
@@ -0,0 +1,23 @@
+package folkestad;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Egendefinerte operasjoner for artikler som går utenom JPA for å slå opp og opprette
+ * mange artikler med få rundturer mot databasen.
+ */
+public interface ArtikkelRepositoryCustom {
+
+    /**
+     * Finner id-en til hver artikkel, og oppretter artiklene som ikke finnes fra før.
+     * Id-en settes også på de gitte objektene. En eksisterende artikkel får innhold_hash
+     * fra argumentet hvis den ikke har én fra før. En URL med samme hash som en annen URL
+     * lagres som en egen rad.
+     *
+     * @param artikler artikler identifisert med URL
+     * @return id per URL
+     * @throws IllegalStateException hvis en artikkel ikke kunne opprettes
+     */
+    Map<String, Long> finnEllerOpprett(Collection<Artikkel> artikler);
+}
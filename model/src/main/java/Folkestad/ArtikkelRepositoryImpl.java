@@ -0,0 +1,154 @@
+package folkestad;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC-implementasjon av {@link ArtikkelRepositoryCustom}.
+ */
+public class ArtikkelRepositoryImpl implements ArtikkelRepositoryCustom {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtikkelRepositoryImpl.class);
+
+    // En rad med samme hash og annen URL er en hash-kollisjon og skal ikke endres
+    private static final String UPSERT_SQL = "INSERT INTO artikkel "
+            + "(url, url_hash, url_kollisjon, nettsted, forst_sett, innhold_hash) VALUES (?, ?, 0, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE innhold_hash = CASE WHEN url = VALUES(url) "
+            + "THEN COALESCE(innhold_hash, VALUES(innhold_hash)) ELSE innhold_hash END";
+
+    private static final String INSERT_KOLLISJON_SQL = "INSERT IGNORE INTO artikkel "
+            + "(url, url_hash, url_kollisjon, nettsted, forst_sett, innhold_hash) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_BY_HASH_SQL = "SELECT id, url FROM artikkel WHERE url_hash IN (%s)";
+
+    private static final String SELECT_KOLLISJONER_SQL =
+            "SELECT id, url, url_kollisjon FROM artikkel WHERE url_hash = ?";
+
+    /** Antall forsøk på å finne et ledig løpenummer når andre skrivere oppretter samme hash samtidig. */
+    private static final int MAKS_KOLLISJONSFORSOEK = 5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> finnEllerOpprett(final Collection<Artikkel> artikler) {
+        Map<String, Artikkel> perUrl = new LinkedHashMap<>();
+        for (Artikkel artikkel : artikler) {
+            perUrl.putIfAbsent(artikkel.getUrl(), artikkel);
+        }
+        if (perUrl.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Artikkel> unike = new ArrayList<>(perUrl.values());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, unike, batchSize, (ps, artikkel) -> {
+            ps.setString(1, artikkel.getUrl());
+            ps.setLong(2, LinkHash.of(artikkel.getUrl()));
+            settFelles(ps, artikkel, 3);
+        });
+
+        Map<String, Long> ider = new HashMap<>();
+        for (int fra = 0; fra < unike.size(); fra += batchSize) {
+            List<Artikkel> chunk = unike.subList(fra, Math.min(fra + batchSize, unike.size()));
+            Object[] hashes = chunk.stream().map(artikkel -> LinkHash.of(artikkel.getUrl())).toArray();
+            String sql = String.format(SELECT_BY_HASH_SQL, String.join(", ", Collections.nCopies(hashes.length, "?")));
+
+            jdbcTemplate.query(sql, rs -> {
+                String url = rs.getString(2);
+                // Sammenlign hele URL-en for å utelukke hash-kollisjoner
+                if (perUrl.containsKey(url)) {
+                    ider.put(url, rs.getLong(1));
+                }
+            }, hashes);
+        }
+
+        for (Artikkel artikkel : unike) {
+            if (!ider.containsKey(artikkel.getUrl())) {
+                ider.put(artikkel.getUrl(), opprettVedKollisjon(artikkel));
+            }
+        }
+        for (Artikkel artikkel : artikler) {
+            artikkel.setId(ider.get(artikkel.getUrl()));
+        }
+        return ider;
+    }
+
+    /**
+     * Finner eller oppretter en artikkel hvis URL-hash allerede brukes av en annen URL. Artikkelen får
+     * neste ledige løpenummer for hashen.
+     *
+     * @param artikkel artikkelen som ikke fikk en id i den vanlige upserten
+     * @return artikkelens id
+     * @throws IllegalStateException hvis artikkelen ikke kunne opprettes
+     */
+    private long opprettVedKollisjon(final Artikkel artikkel) {
+        long hash = LinkHash.of(artikkel.getUrl());
+        for (int forsoek = 0; forsoek < MAKS_KOLLISJONSFORSOEK; forsoek++) {
+            Long[] funnet = new Long[1];
+            int[] nesteKollisjon = new int[1];
+            jdbcTemplate.query(SELECT_KOLLISJONER_SQL, rs -> {
+                if (artikkel.getUrl().equals(rs.getString(2))) {
+                    funnet[0] = rs.getLong(1);
+                }
+                nesteKollisjon[0] = Math.max(nesteKollisjon[0], rs.getInt(3) + 1);
+            }, hash);
+            if (funnet[0] != null) {
+                return funnet[0];
+            }
+
+            LOGGER.warn("Hash-kollisjon for {}, lagres med løpenummer {}", artikkel.getUrl(), nesteKollisjon[0]);
+            jdbcTemplate.update(INSERT_KOLLISJON_SQL, ps -> {
+                ps.setString(1, artikkel.getUrl());
+                ps.setLong(2, hash);
+                ps.setInt(3, nesteKollisjon[0]);
+                settFelles(ps, artikkel, 4);
+            });
+        }
+        throw new IllegalStateException("Kunne ikke opprette artikkel for " + artikkel.getUrl()
+                + " etter " + MAKS_KOLLISJONSFORSOEK + " forsøk med hash-kollisjon");
+    }
+
+    /**
+     * Setter nettsted, første gang sett og innholdshash fra en gitt parameterposisjon.
+     *
+     * @param ps       setningen som fylles ut
+     * @param artikkel artikkelen verdiene hentes fra
+     * @param fra      posisjonen til nettstedet
+     * @throws SQLException hvis en parameter ikke kan settes
+     */
+    private static void settFelles(final PreparedStatement ps, final Artikkel artikkel, final int fra)
+            throws SQLException {
+        if (artikkel.getNettsted() != null) {
+            ps.setString(fra, artikkel.getNettsted().name());
+        } else {
+            ps.setNull(fra, Types.VARCHAR);
+        }
+        ps.setTimestamp(fra + 1, Timestamp.valueOf(artikkel.getForstSett()));
+        if (artikkel.getInnholdHash() != null) {
+            ps.setLong(fra + 2, artikkel.getInnholdHash());
+        } else {
+            ps.setNull(fra + 2, Types.BIGINT);
+        }
+    }
+}
@@ -7,8 +7,11 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
+import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
@@ -19,10 +22,11 @@ import lombok.Builder;
 
 /**
  * Entitet som representerer et lagret sammendrag av en artikkel.
- * Inneholder link, sammendrag, kompresjonsrate, ordtelling og opprettelsesdato.
+ * Inneholder artikkel, sammendrag, kompresjonsrate, ordtelling og opprettelsesdato.
  */
 @Entity
-@Table(name = "innlegg")
+@Table(name = "innlegg",
+        uniqueConstraints = @UniqueConstraint(name = "uk_innlegg_artikkel", columnNames = "artikkel_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -38,9 +42,10 @@ public class Innlegg {
     @EqualsAndHashCode.Include
     private Long id;
 
-    /** Link til artikkelen. */
-    @Column(name = "link", length = 1000, nullable = false, unique = true)
-    private String link;
+    /** Artikkelen innlegget oppsummerer. */
+    @ManyToOne
+    @JoinColumn(name = "artikkel_id")
+    private Artikkel artikkel;
 
     /** Sammendragsteksten. */
     @Lob
@@ -59,11 +64,40 @@ public class Innlegg {
     @Column(name = "antall_ord_sammendrag")
     private Integer antallOrdSammendrag;
 
+    /** Originalartikkelen hvis dette er et nesten-duplikat; sammendraget hentes derfra. */
+    @ManyToOne
+    @JoinColumn(name = "duplikat_av_id")
+    private Artikkel duplikatAv;
+
     /** Dato innlegget ble opprettet. */
     @Column(name = "opprettet_dato")
     @Builder.Default
     private LocalDateTime opprettetDato = LocalDateTime.now();
 
+    /**
+     * Returnerer URL-en til artikkelen innlegget oppsummerer.
+     *
+     * @return artikkelens URL, eller null hvis artikkel ikke er satt
+     */
+    public String getLink() {
+        if (artikkel == null) {
+            return null;
+        }
+        return artikkel.getUrl();
+    }
+
+    /**
+     * Returnerer URL-en til originalartikkelen hvis dette er et nesten-duplikat.
+     *
+     * @return originalens URL, eller null
+     */
+    public String getDuplikatAvLink() {
+        if (duplikatAv == null) {
+            return null;
+        }
+        return duplikatAv.getUrl();
+    }
+
     /**
      * Kalkulerer kompresjonsrate basert på antall ord i original og sammendrag.
      */
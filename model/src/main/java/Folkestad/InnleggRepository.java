@@ -4,21 +4,99 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * Repository for innlegg. Alle likhetsoppslag på lenke går via artikkelens indekserte url_hash,
+ * og hele URL-en sammenlignes bare for å utelukke hash-kollisjoner.
+ */
 @Repository
-public interface InnleggRepository extends JpaRepository<Innlegg, Long> {
-    Optional<Innlegg> findByLink(String link);
+public interface InnleggRepository extends JpaRepository<Innlegg, Long>, InnleggRepositoryCustom {
 
-    @Query(value = "SELECT * FROM innlegg WHERE link LIKE CONCAT(:baseUrl, '%') LIMIT 1", nativeQuery = true)
-    Optional<Innlegg> findByNormalizedUrl(@Param("baseUrl") String baseUrl);
+    /**
+     * Finner innlegg for artikler med gitt URL-hash.
+     *
+     * @param urlHash hash av artikkelens URL
+     * @return innleggene med hashen (normalt høyst ett)
+     */
+    @Query("SELECT i FROM Innlegg i JOIN FETCH i.artikkel a WHERE a.urlHash = :urlHash")
+    List<Innlegg> findByUrlHash(@Param("urlHash") Long urlHash);
 
-    boolean existsByLink(String link);
+    /**
+     * Finner URL-ene til artikler som har innlegg og en av de gitte hashene.
+     *
+     * @param hashes URL-hasher
+     * @return URL-ene med en av hashene
+     */
+    @Query("SELECT a.url FROM Innlegg i JOIN i.artikkel a WHERE a.urlHash IN :hashes")
+    List<String> findLinksByUrlHashIn(@Param("hashes") Collection<Long> hashes);
+
+    /**
+     * Finner innlegget for en artikkel.
+     *
+     * @param artikkelId artikkelens id
+     * @return innlegget, eller tom hvis det ikke finnes
+     */
+    Optional<Innlegg> findByArtikkelId(Long artikkelId);
+
+    /**
+     * Finner innlegget for en lenke.
+     *
+     * @param link lenken
+     * @return innlegget, eller tom hvis det ikke finnes
+     */
+    default Optional<Innlegg> findByLink(final String link) {
+        return findByUrlHash(LinkHash.of(link)).stream()
+                .filter(innlegg -> link.equals(innlegg.getLink()))
+                .findFirst();
+    }
+
+    /**
+     * Finner innlegget for en normalisert URL (uten query-parametere).
+     *
+     * @param baseUrl normalisert URL
+     * @return innlegget, eller tom hvis det ikke finnes
+     */
+    default Optional<Innlegg> findByNormalizedUrl(final String baseUrl) {
+        return findByLink(baseUrl);
+    }
+
+    /**
+     * Sjekker om det finnes et innlegg for en lenke.
+     *
+     * @param link lenken
+     * @return true hvis innlegget finnes
+     */
+    default boolean existsByLink(final String link) {
+        return findLinksByUrlHashIn(List.of(LinkHash.of(link))).contains(link);
+    }
+
+    /**
+     * Finner hvilke av de gitte linkene som allerede har et innlegg, med én spørring.
+     *
+     * @param links linker som skal sjekkes
+     * @return linkene som allerede finnes
+     */
+    default List<String> findExistingLinks(final Collection<String> links) {
+        if (links.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> hashes = new HashSet<>();
+        for (String link : links) {
+            hashes.add(LinkHash.of(link));
+        }
+        Set<String> wanted = new HashSet<>(links);
+        return findLinksByUrlHashIn(hashes).stream()
+                .filter(wanted::contains)
+                .toList();
+    }
 
     List<Innlegg> findBySammendragIsNotNull();
 
     long countBySammendragIsNotNull();
 
 }
-
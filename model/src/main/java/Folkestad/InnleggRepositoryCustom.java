@@ -0,0 +1,22 @@
+package folkestad;
+
+import java.util.List;
+
+/**
+ * Egendefinerte skriveoperasjoner for innlegg som går utenom JPA for å redusere antall
+ * databasekall.
+ */
+public interface InnleggRepositoryCustom {
+
+    /**
+     * Lagrer innleggene med flerrads-INSERT, én per bit på konfigurert batch-størrelse.
+     * Artiklene innleggene peker på slås opp eller opprettes først, slik at artikkel (og
+     * duplikatAv) bare trenger URL. Innlegg for en artikkel som allerede har innlegg blir stående uendret,
+     * og bare det første innlegget per artikkel i listen lagres. Et innlegg en annen skriver lagrer mellom
+     * oppslaget og INSERT-en telles som nytt, men blir ikke lagret to ganger.
+     *
+     * @param innlegg innleggene som skal lagres; artikkel må være satt
+     * @return antall innlegg som ble lagt inn
+     */
+    int insertIgnoringExisting(List<Innlegg> innlegg);
+}
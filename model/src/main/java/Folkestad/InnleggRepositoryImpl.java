@@ -0,0 +1,121 @@
+package folkestad;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC-implementasjon av {@link InnleggRepositoryCustom}.
+ * MySQL teller en rad som bare treffer ON DUPLICATE KEY som påvirket når driveren rapporterer funne
+ * rader, som er standard, så {@link #insertIgnoringExisting(List)} finner de nye innleggene med et
+ * oppslag før INSERT-en i stedet for å bruke oppdateringstallet.
+ */
+public class InnleggRepositoryImpl implements InnleggRepositoryCustom {
+
+    private static final String INSERT_PREFIX = "INSERT INTO innlegg "
+            + "(artikkel_id, sammendrag, kompresjon_ratio, antall_ord_original, antall_ord_sammendrag, "
+            + "opprettet_dato, duplikat_av_id) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final String ON_DUPLICATE = " ON DUPLICATE KEY UPDATE id = id";
+    private static final String SELECT_EKSISTERENDE_SQL = "SELECT artikkel_id FROM innlegg WHERE artikkel_id IN (%s)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArtikkelRepository artikkelRepository;
+
+    @Value("${jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int insertIgnoringExisting(final List<Innlegg> innlegg) {
+        List<Artikkel> artikler = new ArrayList<>();
+        for (Innlegg rad : innlegg) {
+            artikler.add(rad.getArtikkel());
+            if (rad.getDuplikatAv() != null) {
+                artikler.add(rad.getDuplikatAv());
+            }
+        }
+        artikkelRepository.finnEllerOpprett(artikler);
+
+        List<Innlegg> nye = utenEksisterende(innlegg);
+        for (int fra = 0; fra < nye.size(); fra += batchSize) {
+            insertChunk(nye.subList(fra, Math.min(fra + batchSize, nye.size())));
+        }
+        return nye.size();
+    }
+
+    /**
+     * Fjerner innlegg for artikler som allerede har innlegg, og innlegg for samme artikkel som et
+     * tidligere innlegg i listen.
+     *
+     * @param innlegg innleggene som skal lagres; artikkel-id må være satt
+     * @return innleggene som ikke finnes fra før, i samme rekkefølge
+     */
+    private List<Innlegg> utenEksisterende(final List<Innlegg> innlegg) {
+        Set<Long> ider = new LinkedHashSet<>();
+        for (Innlegg rad : innlegg) {
+            ider.add(rad.getArtikkel().getId());
+        }
+        List<Long> idListe = new ArrayList<>(ider);
+        Set<Long> kjente = new HashSet<>();
+        for (int fra = 0; fra < idListe.size(); fra += batchSize) {
+            Object[] chunk = idListe.subList(fra, Math.min(fra + batchSize, idListe.size())).toArray();
+            String placeholders = String.join(", ", Collections.nCopies(chunk.length, "?"));
+            kjente.addAll(jdbcTemplate.queryForList(String.format(SELECT_EKSISTERENDE_SQL, placeholders),
+                    Long.class, chunk));
+        }
+
+        List<Innlegg> nye = new ArrayList<>();
+        for (Innlegg rad : innlegg) {
+            if (kjente.add(rad.getArtikkel().getId())) {
+                nye.add(rad);
+            }
+        }
+        return nye;
+    }
+
+    /**
+     * Lagrer én bit med innlegg som én flerrads-INSERT. ON DUPLICATE KEY beholdes som sikkerhetsnett
+     * for innlegg en annen skriver har lagret etter oppslaget.
+     *
+     * @param innlegg innleggene i biten
+     */
+    private void insertChunk(final List<Innlegg> innlegg) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(innlegg.size() * 7);
+        for (int i = 0; i < innlegg.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+
+            Innlegg rad = innlegg.get(i);
+            args.add(rad.getArtikkel().getId());
+            args.add(rad.getSammendrag());
+            args.add(rad.getKompresjonRatio());
+            args.add(rad.getAntallOrdOriginal());
+            args.add(rad.getAntallOrdSammendrag());
+            args.add(rad.getOpprettetDato());
+            if (rad.getDuplikatAv() != null) {
+                args.add(rad.getDuplikatAv().getId());
+            } else {
+                args.add(null);
+            }
+        }
+        sql.append(ON_DUPLICATE);
+
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+}
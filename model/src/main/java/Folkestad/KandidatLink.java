@@ -1,14 +1,16 @@
 package folkestad;
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.Enumerated;
-import jakarta.persistence.EnumType;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Column;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
@@ -18,11 +20,15 @@ import lombok.EqualsAndHashCode;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(name = "kandidat_link",
+        uniqueConstraints = @UniqueConstraint(name = "uk_kandidat_link_artikkel_navn",
+                columnNames = {"artikkel_id", "kandidat_navn"}),
+        indexes = @Index(name = "idx_kandidat_link_scraped_at", columnList = "scraped_at"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = "kandidat")
+@ToString(exclude = {"kandidat", "artikkel"})
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class KandidatLink {
 
@@ -31,39 +37,28 @@ public class KandidatLink {
     @EqualsAndHashCode.Include
     private Long id;
 
-    @Column(length = 1000)
-    private String link;
+    /** Artikkelen kandidaten er nevnt i; URL og nettsted ligger på artikkelen. */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "artikkel_id")
+    private Artikkel artikkel;
 
     @Column(name = "scraped_at")
     private LocalDateTime scrapedAt;
 
-    @Enumerated(EnumType.STRING)
-    private Nettsted nettsted;
-
     @ManyToOne
     @JoinColumn(name = "kandidat_navn", nullable = false)
     private KandidatStortingsvalg kandidat;
 
     /**
-     * Setter lenken og identifiserer automatisk nettsted basert på URL-en.
-     *
-     * @param link URL-en som skal lagres
-     */
-    public void setLinkAndDetectNettsted(final String link) {
-        this.link = link;
-        this.nettsted = Nettsted.parseFromUrl(link).orElse(null);
-    }
-
-    /**
-     * Oppretter en KandidatLink med lenke og automatisk nettsted-identifisering.
+     * Oppretter en KandidatLink mellom en kandidat og en artikkel.
      *
-     * @param link     URL-en
+     * @param artikkel Artikkelen kandidaten er nevnt i; id må være satt
      * @param kandidat Kandidaten som lenken tilhører
-     * @return Ny KandidatLink med nettsted automatisk satt
+     * @return Ny KandidatLink
      */
-    public static KandidatLink createWithDetectedNettsted(final String link, final KandidatStortingsvalg kandidat) {
+    public static KandidatLink create(final Artikkel artikkel, final KandidatStortingsvalg kandidat) {
         KandidatLink kandidatLink = new KandidatLink();
-        kandidatLink.setLinkAndDetectNettsted(link);
+        kandidatLink.setArtikkel(artikkel);
         kandidatLink.setKandidat(kandidat);
         kandidatLink.setScrapedAt(LocalDateTime.now());
         return kandidatLink;
@@ -0,0 +1,50 @@
+package folkestad;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Arkiverte kandidatlenker. Lenker eldre enn oppbevaringstiden flyttes hit fra kandidat_link,
+ * slik at den aktive tabellen og indeksene holder seg små. Radene beholder sin opprinnelige id.
+ */
+@Entity
+@Table(name = "kandidat_link_arkiv",
+        uniqueConstraints = @UniqueConstraint(name = "uk_kandidat_link_arkiv_artikkel_navn",
+                columnNames = {"artikkel_id", "kandidat_navn"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = {"kandidat", "artikkel"})
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class KandidatLinkArkiv {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "artikkel_id")
+    private Artikkel artikkel;
+
+    @Column(name = "scraped_at")
+    private LocalDateTime scrapedAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "kandidat_navn", nullable = false)
+    private KandidatStortingsvalg kandidat;
+}
@@ -0,0 +1,34 @@
+package folkestad;
+
+import java.time.LocalDateTime;
+
+/**
+ * Én kandidatlenke med kandidatens egenskaper, brukt til å strømme analysegrunnlaget
+ * rad for rad fra databasen.
+ *
+ * @param navn         kandidatens navn
+ * @param partinavn    partinavn slik det står i kandidatlisten
+ * @param alder        kandidatens alder
+ * @param kjoenn       kandidatens kjønn
+ * @param valgdistrikt kandidatens valgdistrikt
+ * @param url          URL til artikkelen
+ * @param nettsted     nettstedet artikkelen er hentet fra, null hvis ukjent
+ * @param scrapedAt    tidspunktet lenken ble registrert
+ */
+public record KandidatLinkRad(String navn, String partinavn, Integer alder, String kjoenn, String valgdistrikt,
+        String url, Nettsted nettsted, LocalDateTime scrapedAt) {
+
+    /**
+     * Lager en rad fra en kandidatlenke der kandidat og artikkel er lastet.
+     *
+     * @param link kandidatlenken
+     * @return raden
+     */
+    public static KandidatLinkRad fra(final KandidatLink link) {
+        KandidatStortingsvalg kandidat = link.getKandidat();
+        Artikkel artikkel = link.getArtikkel();
+        return new KandidatLinkRad(kandidat.getNavn(), kandidat.getPartinavn(), kandidat.getAlder(),
+                kandidat.getKjoenn(), kandidat.getValgdistrikt(), artikkel.getUrl(), artikkel.getNettsted(),
+                link.getScrapedAt());
+    }
+}
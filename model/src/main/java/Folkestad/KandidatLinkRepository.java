@@ -1,31 +1,30 @@
 package folkestad;
 
-import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import jakarta.persistence.QueryHint;
 
-public interface KandidatLinkRepository extends JpaRepository<KandidatLink, Long> {
+public interface KandidatLinkRepository extends JpaRepository<KandidatLink, Long>, KandidatLinkRepositoryCustom {
 
     /**
-     * SQL-basert gruppering som returnerer alle lenker per kandidat.
-     * Returnerer én rad per kandidat med navn, parti, alder, kjønn,
-     * valgdistrikt(er) og alle lenker som kommaseparerte strenger.
+     * Strømmer alle kandidatlenker, én rad per lenke, i den rekkefølgen databasen leser dem.
+     * Radene sorteres ikke, siden analysen sorterer lenkene på dag selv. Fetch size
+     * {@link Integer#MIN_VALUE} får MySQL-driveren til å lese radene fortløpende i stedet for å
+     * laste hele resultatet i minnet. Må kalles i en transaksjon, og strømmen må lukkes etter bruk.
      *
-     * @return Liste med kandidatnavn, parti, alder, kjønn, valgdistrikt(er) og
-     *         deres samlede lenker
+     * @return strøm av kandidatlenker
      */
-    @Query(value = "SELECT ks.navn, "
-            + "ks.partinavn, "
-            + "ks.alder, "
-            + "ks.kjoenn, "
-            + "GROUP_CONCAT(DISTINCT ks.valgdistrikt ORDER BY ks.valgdistrikt SEPARATOR ',') as alle_valgdistrikt, "
-            + "GROUP_CONCAT(kl.link ORDER BY kl.link SEPARATOR ',') as alle_lenker, "
-            + "GROUP_CONCAT(DATE_FORMAT(kl.scraped_at, '%Y-%m-%d %H:%i:%s') ORDER BY kl.link SEPARATOR ',') as alle_scraped_at "
-            + "FROM kandidat_link kl "
-            + "JOIN kandidat_stortingsvalg ks ON kl.kandidat_navn = ks.navn "
-            + "GROUP BY ks.navn, ks.partinavn, ks.alder, ks.kjoenn "
-            + "ORDER BY ks.partinavn, ks.navn",
-            nativeQuery = true)
-    List<Object[]> findKandidatNavnWithLinks();
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new folkestad.KandidatLinkRad(k.navn, k.partinavn, k.alder, k.kjoenn, k.valgdistrikt, "
+            + "a.url, a.nettsted, kl.scrapedAt) "
+            + "FROM KandidatLink kl JOIN kl.kandidat k JOIN kl.artikkel a")
+    Stream<KandidatLinkRad> streamAlleKandidatLinker();
 }
-
@@ -0,0 +1,43 @@
+package folkestad;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Egendefinerte skriveoperasjoner for kandidatlenker som går utenom JPA.
+ * KandidatLink bruker IDENTITY-nøkler, som hindrer Hibernate i å batche INSERT-er.
+ */
+public interface KandidatLinkRepositoryCustom {
+
+    /**
+     * Lagrer kandidatlenker med JDBC batch-INSERT i biter på konfigurert størrelse.
+     * Par av kandidat og artikkel som allerede finnes, også i arkivet, blir hoppet over.
+     * Må kalles i en transaksjon, siden artiklene låses til den er ferdig.
+     *
+     * @param links lenkene som skal lagres; kandidat og artikkel-id må være satt
+     * @return lenkene som faktisk ble lagt inn
+     */
+    List<KandidatLink> batchInsert(List<KandidatLink> links);
+
+    /**
+     * Finner hvilke kandidater som allerede er koblet til hver av de gitte artiklene,
+     * i både aktive og arkiverte lenker. Slår bare opp de gitte artiklene, ikke hele historikken.
+     *
+     * @param artikkelIder id-er til artiklene som skal sjekkes
+     * @return kandidatnavn per artikkel-id, bare for artikler som har minst én kandidat
+     */
+    Map<Long, Set<String>> findKandidatNavnByArtikkelIder(Collection<Long> artikkelIder);
+
+    /**
+     * Flytter inntil {@code maksRader} lenker registrert før en grense til kandidat_link_arkiv.
+     * Bør kalles i en transaksjon, slik at kopiering og sletting skjer samlet.
+     *
+     * @param grense   lenker registrert før dette tidspunktet flyttes
+     * @param maksRader maksimalt antall rader som flyttes i dette kallet
+     * @return antall rader som ble flyttet
+     */
+    int arkiverEldreEnn(LocalDateTime grense, int maksRader);
+}
@@ -0,0 +1,156 @@
+package folkestad;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC-implementasjon av {@link KandidatLinkRepositoryCustom}.
+ * Med {@code rewriteBatchedStatements=true} i JDBC-URL-en slår MySQL-driveren sammen
+ * hver batch til én flerrads-INSERT. Driveren rapporterer da ikke antall rader per lenke, så
+ * {@link #batchInsert(List)} finner de nye lenkene med en låsende lesing før INSERT-en.
+ */
+public class KandidatLinkRepositoryImpl implements KandidatLinkRepositoryCustom {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidatLinkRepositoryImpl.class);
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO kandidat_link "
+            + "(artikkel_id, scraped_at, kandidat_navn) VALUES (?, ?, ?)";
+
+    private static final String LOCK_ARTIKKEL_SQL = "SELECT id FROM artikkel WHERE id IN (%s) ORDER BY id FOR UPDATE";
+
+    private static final String SELECT_LAAST_SQL = "SELECT artikkel_id, kandidat_navn FROM %s "
+            + "WHERE artikkel_id IN (%s) FOR UPDATE";
+
+    private static final String SELECT_BY_ARTIKKEL_SQL = "SELECT artikkel_id, kandidat_navn FROM kandidat_link "
+            + "WHERE artikkel_id IN (%1$s) "
+            + "UNION ALL SELECT artikkel_id, kandidat_navn FROM kandidat_link_arkiv WHERE artikkel_id IN (%1$s)";
+
+    private static final String SELECT_ARKIV_IDS_SQL = "SELECT id FROM kandidat_link WHERE scraped_at < ? "
+            + "ORDER BY id LIMIT ?";
+
+    private static final String COPY_TO_ARKIV_SQL = "INSERT IGNORE INTO kandidat_link_arkiv "
+            + "(id, artikkel_id, scraped_at, kandidat_navn) "
+            + "SELECT id, artikkel_id, scraped_at, kandidat_navn FROM kandidat_link WHERE id IN (%s)";
+
+    private static final String DELETE_SQL = "DELETE FROM kandidat_link WHERE id IN (%s)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KandidatLink> batchInsert(final List<KandidatLink> links) {
+        if (links.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        long start = System.nanoTime();
+        List<KandidatLink> nye = utenEksisterende(links);
+        // IGNORE beholdes som sikkerhetsnett; artikkellåsen gjør at ingen andre kan legge til samme par
+        jdbcTemplate.batchUpdate(INSERT_SQL, nye, batchSize, (ps, link) -> {
+            ps.setLong(1, link.getArtikkel().getId());
+            ps.setTimestamp(2, Timestamp.valueOf(link.getScrapedAt()));
+            ps.setString(3, link.getKandidat().getNavn());
+        });
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        LOGGER.info("Lagret {} av {} kandidatlenker i batcher på {} ({} ms, {} rader/s)",
+                nye.size(), links.size(), batchSize, elapsedMs, nye.size() * 1000L / elapsedMs);
+        return nye;
+    }
+
+    /**
+     * Fjerner lenker som allerede finnes, i aktive eller arkiverte lenker, og duplikater i listen.
+     * Artiklene låses i id-rekkefølge først, slik at samtidige skrivere for samme artikkel venter på
+     * hverandre. Lenkene leses med låsende lesing, som ser siste committede versjon og ikke
+     * transaksjonens øyeblikksbilde.
+     *
+     * @param links lenkene som skal lagres
+     * @return lenkene som ikke finnes fra før, i samme rekkefølge
+     */
+    private List<KandidatLink> utenEksisterende(final List<KandidatLink> links) {
+        Set<Long> sortert = new TreeSet<>();
+        for (KandidatLink link : links) {
+            sortert.add(link.getArtikkel().getId());
+        }
+        List<Long> idListe = new ArrayList<>(sortert);
+        Map<Long, Set<String>> kjente = new HashMap<>();
+
+        for (int fra = 0; fra < idListe.size(); fra += batchSize) {
+            Object[] chunk = idListe.subList(fra, Math.min(fra + batchSize, idListe.size())).toArray();
+            String placeholders = String.join(", ", Collections.nCopies(chunk.length, "?"));
+
+            jdbcTemplate.queryForList(String.format(LOCK_ARTIKKEL_SQL, placeholders), Long.class, chunk);
+            for (String tabell : List.of("kandidat_link", "kandidat_link_arkiv")) {
+                jdbcTemplate.query(String.format(SELECT_LAAST_SQL, tabell, placeholders), rs -> {
+                    kjente.computeIfAbsent(rs.getLong(1), k -> new HashSet<>()).add(rs.getString(2));
+                }, chunk);
+            }
+        }
+
+        List<KandidatLink> nye = new ArrayList<>();
+        for (KandidatLink link : links) {
+            if (kjente.computeIfAbsent(link.getArtikkel().getId(), k -> new HashSet<>())
+                    .add(link.getKandidat().getNavn())) {
+                nye.add(link);
+            }
+        }
+        return nye;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Long, Set<String>> findKandidatNavnByArtikkelIder(final Collection<Long> artikkelIder) {
+        List<Long> idListe = new ArrayList<>(new HashSet<>(artikkelIder));
+        Map<Long, Set<String>> result = new HashMap<>();
+
+        for (int fra = 0; fra < idListe.size(); fra += batchSize) {
+            List<Long> chunk = idListe.subList(fra, Math.min(fra + batchSize, idListe.size()));
+            String sql = String.format(SELECT_BY_ARTIKKEL_SQL, String.join(", ", Collections.nCopies(chunk.size(), "?")));
+
+            List<Object> args = new ArrayList<>(chunk);
+            args.addAll(chunk);
+            jdbcTemplate.query(sql, rs -> {
+                result.computeIfAbsent(rs.getLong(1), k -> new HashSet<>()).add(rs.getString(2));
+            }, args.toArray());
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int arkiverEldreEnn(final LocalDateTime grense, final int maksRader) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_ARKIV_IDS_SQL, Long.class, Timestamp.valueOf(grense), maksRader);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        jdbcTemplate.update(String.format(COPY_TO_ARKIV_SQL, placeholders), args);
+        return jdbcTemplate.update(String.format(DELETE_SQL, placeholders), args);
+    }
+}
@@ -0,0 +1,11 @@
+package folkestad;
+
+import java.util.List;
+
+/**
+ * Publiseres når nye kandidatlenker er lagret, slik at analysen kan oppdateres med bare de nye radene.
+ *
+ * @param rader de nye lenkene
+ */
+public record KandidatLinkerLagretEvent(List<KandidatLinkRad> rader) {
+}
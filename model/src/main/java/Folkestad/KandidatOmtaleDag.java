@@ -0,0 +1,52 @@
+package folkestad;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Forhåndsaggregert antall omtaler per kandidat, nettsted og dag.
+ * Oppdateres i samme transaksjon som nye kandidatlenker, slik at totaler kan beregnes
+ * uten å lese alle lenkene. Lenker til artikler med ukjent nettsted telles ikke.
+ */
+@Entity
+@Table(name = "kandidat_omtale_dag")
+@IdClass(KandidatOmtaleDagId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class KandidatOmtaleDag {
+
+    /** Kandidatens navn. */
+    @Id
+    @Column(name = "kandidat_navn")
+    private String kandidatNavn;
+
+    /** Nettstedet omtalene kommer fra. */
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "nettsted", length = 50)
+    private Nettsted nettsted;
+
+    /** Dagen omtalene ble registrert. */
+    @Id
+    @Column(name = "dag")
+    private LocalDate dag;
+
+    /** Antall kandidatlenker denne dagen. */
+    @Column(name = "antall", nullable = false)
+    private int antall;
+}
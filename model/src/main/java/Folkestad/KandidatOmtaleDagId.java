@@ -0,0 +1,26 @@
+package folkestad;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sammensatt nøkkel for {@link KandidatOmtaleDag}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KandidatOmtaleDagId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Kandidatens navn. */
+    private String kandidatNavn;
+    /** Nettstedet omtalene kommer fra. */
+    private Nettsted nettsted;
+    /** Dagen omtalene ble registrert. */
+    private LocalDate dag;
+}
@@ -0,0 +1,57 @@
+package folkestad;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface KandidatOmtaleDagRepository extends JpaRepository<KandidatOmtaleDag, KandidatOmtaleDagId>,
+        KandidatOmtaleDagRepositoryCustom {
+
+    /**
+     * Summerer alle omtaler per kandidat og nettsted.
+     *
+     * @return én rad per kandidat og nettsted
+     */
+    @Query("SELECT new folkestad.KandidatOmtaleRad(k.navn, k.partinavn, k.alder, k.kjoenn, k.valgdistrikt, "
+            + "o.nettsted, SUM(o.antall)) "
+            + "FROM KandidatOmtaleDag o JOIN KandidatStortingsvalg k ON k.navn = o.kandidatNavn "
+            + "GROUP BY k.navn, k.partinavn, k.alder, k.kjoenn, k.valgdistrikt, o.nettsted")
+    List<KandidatOmtaleRad> summerOmtaler();
+
+    /**
+     * Summerer omtaler per kandidat og nettsted for et datointervall.
+     *
+     * @param fraDato første dag (inklusiv)
+     * @param tilDato siste dag (inklusiv)
+     * @return én rad per kandidat og nettsted med omtaler i intervallet
+     */
+    @Query("SELECT new folkestad.KandidatOmtaleRad(k.navn, k.partinavn, k.alder, k.kjoenn, k.valgdistrikt, "
+            + "o.nettsted, SUM(o.antall)) "
+            + "FROM KandidatOmtaleDag o JOIN KandidatStortingsvalg k ON k.navn = o.kandidatNavn "
+            + "WHERE o.dag BETWEEN :fraDato AND :tilDato "
+            + "GROUP BY k.navn, k.partinavn, k.alder, k.kjoenn, k.valgdistrikt, o.nettsted")
+    List<KandidatOmtaleRad> summerOmtaler(@Param("fraDato") LocalDate fraDato, @Param("tilDato") LocalDate tilDato);
+
+    /**
+     * Strømmer alle dagsrader i omtale-aggregatet, sortert på kandidat og dag.
+     * Må kalles i en transaksjon, og strømmen må lukkes etter bruk.
+     *
+     * @return strøm av dagsrader
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM KandidatOmtaleDag o ORDER BY o.kandidatNavn, o.dag")
+    Stream<KandidatOmtaleDag> streamAlleDager();
+}
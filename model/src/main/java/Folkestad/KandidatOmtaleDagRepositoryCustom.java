@@ -0,0 +1,18 @@
+package folkestad;
+
+import java.util.List;
+
+/**
+ * Egendefinerte skriveoperasjoner for omtale-aggregatet.
+ */
+public interface KandidatOmtaleDagRepositoryCustom {
+
+    /**
+     * Legger nye kandidatlenker til i aggregatet, med én oppsummert rad per kandidat, nettsted og dag.
+     * Bør kalles i samme transaksjon som lenkene lagres.
+     *
+     * @param links nylig lagrede lenker; kandidat og artikkel med nettsted må være satt
+     * @return antall aggregatrader som ble oppdatert
+     */
+    int leggTil(List<KandidatLink> links);
+}
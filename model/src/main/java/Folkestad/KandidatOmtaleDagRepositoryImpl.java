@@ -0,0 +1,56 @@
+package folkestad;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC-implementasjon av {@link KandidatOmtaleDagRepositoryCustom}.
+ */
+public class KandidatOmtaleDagRepositoryImpl implements KandidatOmtaleDagRepositoryCustom {
+
+    private static final String UPSERT_SQL = "INSERT INTO kandidat_omtale_dag "
+            + "(kandidat_navn, nettsted, dag, antall) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE antall = antall + VALUES(antall)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int leggTil(final List<KandidatLink> links) {
+        Map<KandidatOmtaleDagId, Integer> antall = new HashMap<>();
+        for (KandidatLink link : links) {
+            Nettsted nettsted = link.getArtikkel().getNettsted();
+            if (nettsted == null || link.getScrapedAt() == null) {
+                continue;
+            }
+            KandidatOmtaleDagId id = new KandidatOmtaleDagId(
+                    link.getKandidat().getNavn(), nettsted, link.getScrapedAt().toLocalDate());
+            antall.merge(id, 1, Integer::sum);
+        }
+        if (antall.isEmpty()) {
+            return 0;
+        }
+
+        List<Map.Entry<KandidatOmtaleDagId, Integer>> rader = new ArrayList<>(antall.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rader, batchSize, (ps, rad) -> {
+            ps.setString(1, rad.getKey().getKandidatNavn());
+            ps.setString(2, rad.getKey().getNettsted().name());
+            ps.setDate(3, Date.valueOf(rad.getKey().getDag()));
+            ps.setInt(4, rad.getValue());
+        });
+        return rader.size();
+    }
+}
@@ -0,0 +1,16 @@
+package folkestad;
+
+/**
+ * Summen av omtaler for én kandidat på ett nettsted, med kandidatens egenskaper.
+ *
+ * @param navn         kandidatens navn
+ * @param partinavn    partinavn slik det står i kandidatlisten
+ * @param alder        kandidatens alder
+ * @param kjoenn       kandidatens kjønn
+ * @param valgdistrikt kandidatens valgdistrikt
+ * @param nettsted     nettstedet omtalene kommer fra
+ * @param antall       antall omtaler
+ */
+public record KandidatOmtaleRad(String navn, String partinavn, Integer alder, String kjoenn, String valgdistrikt,
+        Nettsted nettsted, Long antall) {
+}
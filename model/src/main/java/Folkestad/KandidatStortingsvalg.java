@@ -1,5 +1,6 @@
 package folkestad;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -13,13 +14,22 @@ import lombok.AllArgsConstructor;
 import lombok.ToString;
 import lombok.EqualsAndHashCode;
 import lombok.Builder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * En kandidat ved stortingsvalget. Kandidatdata endres nesten aldri, så entitetene ligger i
+ * Hibernates andrenivå-cache (regionen {@value #CACHE_REGION}). Import som skriver rett til
+ * tabellen må publisere {@link KandidaterOppdatertEvent} slik at cachen tømmes.
+ */
 @Entity
 @Table(name = "kandidat_stortingsvalg")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = KandidatStortingsvalg.CACHE_REGION)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -29,6 +39,11 @@ import java.util.Set;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class KandidatStortingsvalg {
 
+    /**
+     * Navnet på cache-regionen for kandidater.
+     */
+    public static final String CACHE_REGION = "kandidat";
+
     @Id
     @Column(name = "navn")
     @EqualsAndHashCode.Include
@@ -2,13 +2,34 @@ package folkestad;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository for kandidater. Oppslagene som brukes ofte legges i Hibernates spørringscache,
+ * og kandidatene selv hentes fra andrenivå-cachen. Hibernate ugyldiggjør spørringscachen når
+ * tabellen endres gjennom JPA; endringer som går utenom må publisere {@link KandidaterOppdatertEvent}.
+ */
 @Repository
-public interface KandidatStortingsvalgRepository extends JpaRepository<KandidatStortingsvalg, Long> {
+public interface KandidatStortingsvalgRepository extends JpaRepository<KandidatStortingsvalg, Long>,
+        KandidatStortingsvalgRepositoryCustom {
+
+    /**
+     * Henter alle kandidater, via spørringscachen.
+     *
+     * @return alle kandidater
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<KandidatStortingsvalg> findAll();
 
     /**
      * Finn alle kandidater for et bestemt valgdistrikt.
@@ -16,6 +37,7 @@ public interface KandidatStortingsvalgRepository extends JpaRepository<KandidatS
      * @param valgdistrikt valgdistriktet som skal søkes etter
      * @return liste med kandidater fra det spesifiserte valgdistriktet
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<KandidatStortingsvalg> findByValgdistrikt(String valgdistrikt);
 
     /**
@@ -24,13 +46,16 @@ public interface KandidatStortingsvalgRepository extends JpaRepository<KandidatS
      * @param partikode partikoden som skal søkes etter
      * @return liste med kandidater fra det spesifiserte partiet
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<KandidatStortingsvalg> findByPartikode(String partikode);
 
     /**
-     * @return liste med alle kandidater med links
+     * Finn kandidatene med de gitte navnene.
+     *
+     * @param navn navnene som skal slås opp
+     * @return liste med kandidater som finnes i databasen
      */
-    @Query("SELECT k FROM KandidatStortingsvalg k LEFT JOIN FETCH k.links")
-    List<KandidatStortingsvalg> findAllWithLinks();
+    List<KandidatStortingsvalg> findByNavnIn(Collection<String> navn);
 
     /**
      * Finn alle kandidater for et bestemt parti og valgdistrikt.
@@ -55,6 +80,7 @@ public interface KandidatStortingsvalgRepository extends JpaRepository<KandidatS
      *
      * @return liste med alle unike valgdistrikter sortert alfabetisk
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT DISTINCT k.valgdistrikt FROM KandidatStortingsvalg k ORDER BY k.valgdistrikt")
     List<String> findAllDistinctValgdistrikter();
 
@@ -63,6 +89,7 @@ public interface KandidatStortingsvalgRepository extends JpaRepository<KandidatS
      *
      * @return liste med alle unike partikoder sortert alfabetisk
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT DISTINCT k.partikode FROM KandidatStortingsvalg k ORDER BY k.partikode")
     List<String> findAllDistinctPartikoder();
 }
@@ -0,0 +1,22 @@
+package folkestad;
+
+import java.util.List;
+
+/**
+ * Egendefinerte skriveoperasjoner for kandidater.
+ */
+public interface KandidatStortingsvalgRepositoryCustom {
+
+    /**
+     * Setter inn eller oppdaterer kandidater med navn som nøkkel, med én JDBC-batch.
+     * Går utenom Hibernate, så kalleren må publisere {@link KandidaterOppdatertEvent} etterpå.
+     *
+     * Antallet som returneres er antall kandidater i listen, ikke summen av oppdateringstallene fra
+     * batchen: MySQL teller 1 for en ny rad, 2 for en endret rad og 0 for en uendret rad med
+     * ON DUPLICATE KEY UPDATE, og med omskrevne batcher oppgir driveren bare at setningene lyktes.
+     *
+     * @param kandidater kandidatene som skal lagres
+     * @return antall kandidater som ble lagret, nye og eksisterende, altså størrelsen på listen
+     */
+    int upsert(List<KandidatStortingsvalg> kandidater);
+}
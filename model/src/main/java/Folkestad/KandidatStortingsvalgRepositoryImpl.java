@@ -0,0 +1,59 @@
+package folkestad;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC-implementasjon av {@link KandidatStortingsvalgRepositoryCustom}.
+ */
+public class KandidatStortingsvalgRepositoryImpl implements KandidatStortingsvalgRepositoryCustom {
+
+    private static final String UPSERT_SQL = "INSERT INTO kandidat_stortingsvalg "
+            + "(navn, valg, valgdistrikt, partikode, partinavn, display_order, kandidatnr, bosted, stilling, "
+            + "foedselsdato, alder, kjoenn) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE valg = VALUES(valg), valgdistrikt = VALUES(valgdistrikt), "
+            + "partikode = VALUES(partikode), partinavn = VALUES(partinavn), display_order = VALUES(display_order), "
+            + "kandidatnr = VALUES(kandidatnr), bosted = VALUES(bosted), stilling = VALUES(stilling), "
+            + "foedselsdato = VALUES(foedselsdato), alder = VALUES(alder), kjoenn = VALUES(kjoenn)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int upsert(final List<KandidatStortingsvalg> kandidater) {
+        if (kandidater.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, kandidater, batchSize, (ps, kandidat) -> {
+            ps.setString(1, kandidat.getNavn());
+            ps.setString(2, kandidat.getValg());
+            ps.setString(3, kandidat.getValgdistrikt());
+            ps.setString(4, kandidat.getPartikode());
+            ps.setString(5, kandidat.getPartinavn());
+            ps.setObject(6, kandidat.getDisplayOrder(), Types.INTEGER);
+            ps.setObject(7, kandidat.getKandidatnr(), Types.INTEGER);
+            ps.setString(8, kandidat.getBosted());
+            ps.setString(9, kandidat.getStilling());
+            if (kandidat.getFoedselsdato() != null) {
+                ps.setDate(10, Date.valueOf(kandidat.getFoedselsdato()));
+            } else {
+                ps.setNull(10, Types.DATE);
+            }
+            ps.setObject(11, kandidat.getAlder(), Types.INTEGER);
+            ps.setString(12, kandidat.getKjoenn());
+        });
+        // Oppdateringstallene skiller ikke nye fra endrede kandidater, se grensesnittet
+        return kandidater.size();
+    }
+}
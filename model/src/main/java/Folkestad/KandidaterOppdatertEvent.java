@@ -0,0 +1,10 @@
+package folkestad;
+
+/**
+ * Publiseres når kandidattabellen er endret utenom JPA, f.eks. ved masseimport. Lyttere
+ * tømmer cacher og laster kandidatdata på nytt.
+ *
+ * @param antall antall kandidater som ble lagt til eller endret
+ */
+public record KandidaterOppdatertEvent(int antall) {
+}
@@ -0,0 +1,45 @@
+package folkestad;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Beregner en 64-bits hash av en artikkel-URL, brukt som smal indeksnøkkel i stedet for
+ * hele VARCHAR(1000)-lenken. Hashen er de første 8 bytene av SHA-256, slik at den samme
+ * verdien kan beregnes i MySQL med {@link #sqlExpression(String)} ved migrering av eksisterende rader.
+ */
+public final class LinkHash {
+
+    private LinkHash() {
+    }
+
+    /**
+     * Returnerer et MySQL-uttrykk som gir samme verdi som {@link #of(String)} for en kolonne.
+     *
+     * @param column kolonnen som inneholder lenken
+     * @return SQL-uttrykk
+     */
+    public static String sqlExpression(final String column) {
+        return "CONV(LEFT(SHA2(" + column + ", 256), 16), 16, -10)";
+    }
+
+    /**
+     * Beregner hashen til en lenke.
+     *
+     * @param link lenken som skal hashes
+     * @return 64-bits hash, eller null hvis lenken er null
+     */
+    public static Long of(final String link) {
+        if (link == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(link.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest, 0, Long.BYTES).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 er ikke tilgjengelig", e);
+        }
+    }
+}
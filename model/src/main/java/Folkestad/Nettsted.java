@@ -140,6 +140,22 @@ public enum Nettsted {
                 .findFirst();
     }
 
+    /**
+     * Finner nettstedet for en kilde slik den oppgis i API-et, enten som navn ("vg") eller domene ("vg.no").
+     * @param kilde kilden, uten hensyn til store bokstaver
+     * @return Optional med nettstedet, tom hvis kilden er ukjent
+     */
+    public static Optional<Nettsted> fraKilde(final String kilde) {
+        if (kilde == null) {
+            return Optional.empty();
+        }
+        String normalisert = kilde.trim().toLowerCase();
+        return Arrays.stream(Nettsted.values())
+                .filter(nettsted -> nettsted.name().toLowerCase().equals(normalisert)
+                        || nettsted.domain.equals(normalisert))
+                .findFirst();
+    }
+
     /**
      * Returnerer en array med alle RSS-URLer.
      */
@@ -0,0 +1,60 @@
+package folkestad;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class ArtikkelRepositoryImplTest {
+
+    private static final String URL = "https://www.nrk.no/norge/sak-1.123";
+    private static final String ANNEN_URL = "https://www.vg.no/nyheter/i/abc";
+
+    @Autowired
+    private ArtikkelRepository artikkelRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void finnerSammeIdForSammeUrl() {
+        Artikkel forste = Artikkel.ny(URL, null);
+        Artikkel andre = Artikkel.ny(URL, 42L);
+
+        long id = artikkelRepository.finnEllerOpprett(List.of(forste)).get(URL);
+        artikkelRepository.finnEllerOpprett(List.of(andre));
+
+        assertThat(andre.getId()).isEqualTo(id);
+        assertThat(jdbcTemplate.queryForObject("SELECT innhold_hash FROM artikkel WHERE id = ?", Long.class, id))
+                .isEqualTo(42L);
+    }
+
+    @Test
+    void lagrerUrlMedHashKollisjonSomEgenRad() {
+        // En annen URL med samme hash, lagt inn direkte siden en ekte kollisjon ikke kan konstrueres
+        jdbcTemplate.update("INSERT INTO artikkel (url, url_hash, url_kollisjon, innhold_hash) VALUES (?, ?, 0, 7)",
+                ANNEN_URL, LinkHash.of(URL));
+        long annenId = jdbcTemplate.queryForObject("SELECT id FROM artikkel WHERE url = ?", Long.class, ANNEN_URL);
+
+        Artikkel artikkel = Artikkel.ny(URL, 99L);
+        Map<String, Long> ider = artikkelRepository.finnEllerOpprett(List.of(artikkel));
+
+        assertThat(artikkel.getId()).isNotNull().isNotEqualTo(annenId).isEqualTo(ider.get(URL));
+        assertThat(jdbcTemplate.queryForObject("SELECT url_kollisjon FROM artikkel WHERE id = ?", Integer.class,
+                artikkel.getId())).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT innhold_hash FROM artikkel WHERE id = ?", Long.class, annenId))
+                .isEqualTo(7L);
+
+        Artikkel igjen = Artikkel.ny(URL, null);
+        artikkelRepository.finnEllerOpprett(List.of(igjen));
+        assertThat(igjen.getId()).isEqualTo(artikkel.getId());
+    }
+}
@@ -0,0 +1,53 @@
+package folkestad;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class InnleggRepositoryImplTest {
+
+    private static final String URL = "https://www.nrk.no/norge/sak-1.123";
+    private static final String ANNEN_URL = "https://www.vg.no/nyheter/i/abc";
+
+    @Autowired
+    private InnleggRepository innleggRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void tellerBareInnleggSomBleLagtInn() {
+        assertThat(innleggRepository.insertIgnoringExisting(List.of(innlegg(URL, "Første")))).isEqualTo(1);
+
+        int lagret = innleggRepository.insertIgnoringExisting(
+                List.of(innlegg(URL, "Andre"), innlegg(ANNEN_URL, "Tredje"), innlegg(ANNEN_URL, "Fjerde")));
+
+        assertThat(lagret).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT sammendrag FROM innlegg ORDER BY id", String.class))
+                .containsExactly("Første", "Tredje");
+    }
+
+    @Test
+    void tomListeLagrerIngenting() {
+        assertThat(innleggRepository.insertIgnoringExisting(List.of())).isZero();
+    }
+
+    /**
+     * Lager et innlegg for en artikkel som bare har URL.
+     *
+     * @param url        artikkelens URL
+     * @param sammendrag sammendraget
+     * @return innlegget
+     */
+    private static Innlegg innlegg(final String url, final String sammendrag) {
+        return Innlegg.builder().artikkel(Artikkel.ny(url, null)).sammendrag(sammendrag).build();
+    }
+}
@@ -0,0 +1,236 @@
+package folkestad;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Måler hvordan analyseoppdateringen og lagring av nye lenker skalerer med flere års kandidatlenker, med
+ * alle lenker i kandidat_link og etter at lenker eldre enn tolv måneder er flyttet til kandidat_link_arkiv.
+ * <p>
+ * Kjøres bare med profilen benchmark, mot H2 i minnet som standard:
+ * {@code mvn -B test -pl model -am -P benchmark -Dtest=KandidatLinkArkivBenchmark}. Se README for
+ * kommandoen og målte tall.
+ * </p>
+ */
+@SpringBootTest
+@Tag("benchmark")
+class KandidatLinkArkivBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidatLinkArkivBenchmark.class);
+
+    private static final int LENKER_PER_AAR = 100_000;
+    private static final int KANDIDATER_PER_ARTIKKEL = 4;
+    private static final int KANDIDATER = 200;
+    private static final int NYE_LENKER = 2000;
+    private static final int BATCH = 500;
+    private static final int OPPBEVARING_MAANEDER = 12;
+
+    private static final String LES_ALLE_SQL = "SELECT k.navn, k.partinavn, k.alder, k.kjoenn, k.valgdistrikt, "
+            + "a.url, a.nettsted, kl.scraped_at FROM kandidat_link kl "
+            + "JOIN kandidat_stortingsvalg k ON k.navn = kl.kandidat_navn JOIN artikkel a ON a.id = kl.artikkel_id "
+            + "WHERE kl.id <> ?";
+
+    /** Ny parameterverdi for hver lesing, så H2 ikke gjenbruker forrige resultat. */
+    private long lesing;
+
+    /**
+     * Én lesing av alle aktive lenker.
+     *
+     * @param rader antall rader
+     * @param ms    tiden i millisekunder
+     */
+    private record Lesing(long rader, long ms) {
+    }
+
+    @Autowired
+    private KandidatLinkRepository kandidatLinkRepository;
+
+    @Autowired
+    private ArtikkelRepository artikkelRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void skalererMedAntallAar() {
+        TransactionTemplate transaksjon = new TransactionTemplate(transactionManager);
+        for (int aar : new int[] {1, 2, 4}) {
+            try {
+                LocalDateTime naa = LocalDateTime.now();
+                int artikler = settInn(aar, naa);
+
+                Lesing oppdateringFoer = lesAlle();
+                long lagringFoer = lagreNye(transaksjon, aar, artikler, naa, 0);
+
+                long start = System.nanoTime();
+                LocalDateTime grense = naa.minusMonths(OPPBEVARING_MAANEDER);
+                int flyttet = 0;
+                Integer biter;
+                do {
+                    biter = transaksjon.execute(status -> kandidatLinkRepository.arkiverEldreEnn(grense, BATCH));
+                    flyttet += biter;
+                } while (biter > 0);
+                long arkivering = System.nanoTime() - start;
+
+                Lesing oppdateringEtter = lesAlle();
+                long lagringEtter = lagreNye(transaksjon, aar, artikler, naa, 1);
+
+                LOGGER.info("{} år, {} lenker: oppdatering leser {} rader på {} ms før og {} rader på {} ms etter "
+                        + "arkivering; {} nye lenker lagres på {} ms før og {} ms etter; arkivering av {} lenker "
+                        + "tok {} ms", aar, aar * LENKER_PER_AAR, oppdateringFoer.rader(), oppdateringFoer.ms(),
+                        oppdateringEtter.rader(), oppdateringEtter.ms(), NYE_LENKER, lagringFoer / 1_000_000,
+                        lagringEtter / 1_000_000, flyttet, arkivering / 1_000_000);
+            } finally {
+                for (String tabell : List.of("kandidat_link", "kandidat_link_arkiv", "artikkel",
+                        "kandidat_stortingsvalg")) {
+                    jdbcTemplate.update("DELETE FROM " + tabell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Setter inn kandidater, artikler og lenker jevnt fordelt over årene bak oss.
+     *
+     * @param aar antall år med lenker
+     * @param naa tidspunktet lenkene regnes bakover fra
+     * @return antall artikler
+     */
+    private int settInn(final int aar, final LocalDateTime naa) {
+        for (int k = 0; k < KANDIDATER; k++) {
+            jdbcTemplate.update("INSERT INTO kandidat_stortingsvalg (navn, partinavn, alder, kjoenn, valgdistrikt) "
+                    + "VALUES (?, ?, ?, ?, ?)", navn(k), "Parti " + k % 9, 20 + k % 60, "M", "Distrikt " + k % 19);
+        }
+        int artikler = aar * LENKER_PER_AAR / KANDIDATER_PER_ARTIKKEL;
+        long[] ider = new long[artikler];
+        List<Artikkel> liste = new ArrayList<>();
+        for (int a = 0; a < artikler; a++) {
+            liste.add(Artikkel.ny(url(aar, a), null));
+            if (liste.size() == BATCH * 10 || a == artikler - 1) {
+                artikkelRepository.finnEllerOpprett(liste);
+                for (int i = 0; i < liste.size(); i++) {
+                    ider[a - liste.size() + 1 + i] = liste.get(i).getId();
+                }
+                liste.clear();
+            }
+        }
+
+        long sekunder = (long) aar * 365 * 24 * 3600;
+        for (int fra = 0; fra < artikler; fra += BATCH) {
+            int start = fra;
+            jdbcTemplate.batchUpdate("INSERT INTO kandidat_link (artikkel_id, scraped_at, kandidat_navn) "
+                    + "VALUES (?, ?, ?)", new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+                            int a = start + i / KANDIDATER_PER_ARTIKKEL;
+                            ps.setLong(1, ider[a]);
+                            // Artikkel 0 er den eldste; lenkene fordeles jevnt fram til nå
+                            ps.setTimestamp(2, Timestamp.valueOf(naa.minusSeconds(sekunder - sekunder * a / artikler)));
+                            ps.setString(3, navn((a * 7 + i % KANDIDATER_PER_ARTIKKEL * 31) % KANDIDATER));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return Math.min(BATCH, artikler - start) * KANDIDATER_PER_ARTIKKEL;
+                        }
+                    });
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM kandidat_link", Long.class))
+                .isEqualTo((long) artikler * KANDIDATER_PER_ARTIKKEL);
+        return artikler;
+    }
+
+    /**
+     * Leser alle aktive lenker med samme spørring som {@link KandidatLinkRepository#streamAlleKandidatLinker()}.
+     * Repositoryet ber om fetch size {@link Integer#MIN_VALUE}, som bare MySQL-driveren godtar, så spørringen
+     * kjøres her med JdbcTemplate. Tiden er for den andre av to lesinger.
+     *
+     * @return antall rader og tiden
+     */
+    private Lesing lesAlle() {
+        // Første lesing varmer opp JIT og databasens hurtigbuffer
+        jdbcTemplate.query(LES_ALLE_SQL, rs -> {
+        }, --lesing);
+        long start = System.nanoTime();
+        long[] rader = new long[1];
+        jdbcTemplate.query(LES_ALLE_SQL, rs -> {
+            rader[0]++;
+        }, --lesing);
+        return new Lesing(rader[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Lagrer nye lenker på tilfeldige artikler fra hele perioden, som ved skraping av gamle artikler på nytt.
+     *
+     * @param transaksjon transaksjonsmal
+     * @param aar         antall år med lenker
+     * @param artikler    antall artikler
+     * @param naa         tidspunktet de eksisterende lenkene regnes bakover fra
+     * @param seed        frø for tilfeldige tall
+     * @return tiden i nanosekunder
+     */
+    private long lagreNye(final TransactionTemplate transaksjon, final int aar, final int artikler,
+            final LocalDateTime naa, final long seed) {
+        Random random = new Random(seed);
+        List<Artikkel> utvalg = new ArrayList<>();
+        for (int i = 0; i < NYE_LENKER / KANDIDATER_PER_ARTIKKEL; i++) {
+            utvalg.add(Artikkel.ny(url(aar, random.nextInt(artikler)), null));
+        }
+        artikkelRepository.finnEllerOpprett(utvalg);
+        List<KandidatLink> links = new ArrayList<>();
+        for (Artikkel artikkel : utvalg) {
+            for (int k = 0; k < KANDIDATER_PER_ARTIKKEL; k++) {
+                links.add(KandidatLink.create(artikkel,
+                        KandidatStortingsvalg.builder().navn(navn(random.nextInt(KANDIDATER))).build()));
+            }
+        }
+        long start = System.nanoTime();
+        transaksjon.executeWithoutResult(status -> kandidatLinkRepository.batchInsert(links));
+        long tid = System.nanoTime() - start;
+        // De nye lenkene er nyere enn alle andre og fjernes, så de ikke telles med i neste lesing
+        jdbcTemplate.update("DELETE FROM kandidat_link WHERE scraped_at > ?", Timestamp.valueOf(naa));
+        return tid;
+    }
+
+    /**
+     * Kandidatnavnet for en kandidat-indeks.
+     *
+     * @param k kandidat-indeks
+     * @return navnet
+     */
+    private static String navn(final int k) {
+        return "Kandidat " + k;
+    }
+
+    /**
+     * URL-en til en syntetisk artikkel.
+     *
+     * @param aar antall år i målingen, så hver måling får egne URL-er
+     * @param a   artikkelnummer
+     * @return URL-en
+     */
+    private static String url(final int aar, final int a) {
+        return "https://www.nrk.no/norge/" + aar + "-aar/sak-1." + a;
+    }
+}
@@ -0,0 +1,70 @@
+package folkestad;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class KandidatLinkRepositoryImplTest {
+
+    @Autowired
+    private KandidatLinkRepository kandidatLinkRepository;
+
+    @Autowired
+    private ArtikkelRepository artikkelRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Artikkel artikkel;
+    private KandidatStortingsvalg ola;
+    private KandidatStortingsvalg kari;
+    private KandidatStortingsvalg per;
+
+    @BeforeEach
+    void opprettData() {
+        for (String navn : List.of("Ola", "Kari", "Per")) {
+            jdbcTemplate.update("INSERT INTO kandidat_stortingsvalg (navn) VALUES (?)", navn);
+        }
+        ola = KandidatStortingsvalg.builder().navn("Ola").build();
+        kari = KandidatStortingsvalg.builder().navn("Kari").build();
+        per = KandidatStortingsvalg.builder().navn("Per").build();
+        artikkel = Artikkel.ny("https://www.nrk.no/norge/sak-1.123", null);
+        artikkelRepository.finnEllerOpprett(List.of(artikkel));
+    }
+
+    @Test
+    void returnererBareLenkerSomBleLagtInn() {
+        jdbcTemplate.update("INSERT INTO kandidat_link (artikkel_id, scraped_at, kandidat_navn) VALUES (?, ?, ?)",
+                artikkel.getId(), LocalDateTime.now(), "Ola");
+        jdbcTemplate.update("INSERT INTO kandidat_link_arkiv (id, artikkel_id, scraped_at, kandidat_navn) "
+                + "VALUES (1000, ?, ?, ?)", artikkel.getId(), LocalDateTime.now(), "Per");
+
+        KandidatLink nyKari = KandidatLink.create(artikkel, kari);
+        List<KandidatLink> lagret = kandidatLinkRepository.batchInsert(List.of(
+                KandidatLink.create(artikkel, ola),
+                nyKari,
+                KandidatLink.create(artikkel, kari),
+                KandidatLink.create(artikkel, per)));
+
+        assertThat(lagret).containsExactly(nyKari);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM kandidat_link", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void lagrerIngentingNaarAlleFinnes() {
+        kandidatLinkRepository.batchInsert(List.of(KandidatLink.create(artikkel, ola)));
+
+        assertThat(kandidatLinkRepository.batchInsert(List.of(KandidatLink.create(artikkel, ola)))).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM kandidat_link", Integer.class)).isEqualTo(1);
+    }
+}
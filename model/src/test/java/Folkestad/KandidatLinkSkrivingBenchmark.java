@@ -0,0 +1,141 @@
+package folkestad;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Måler skriving av kandidatlenker med {@code saveAll} mot {@link KandidatLinkRepositoryCustom#batchInsert}.
+ * <p>
+ * Kjøres bare med profilen benchmark, mot H2 i minnet som standard:
+ * {@code mvn -B test -pl model -am -P benchmark -Dtest=KandidatLinkSkrivingBenchmark}. For MySQL settes
+ * {@code spring.datasource.url}, brukernavn og passord som systemegenskaper, med en tom database siden
+ * tabellene opprettes og slettes. Se README for kommandoen og målte tall.
+ * </p>
+ */
+@SpringBootTest
+@Tag("benchmark")
+class KandidatLinkSkrivingBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidatLinkSkrivingBenchmark.class);
+
+    private static final int KANDIDATER = 20;
+    private static final int ARTIKLER = 1000;
+    private static final int RUNDER = 5;
+
+    @Autowired
+    private KandidatLinkRepository kandidatLinkRepository;
+
+    @Autowired
+    private ArtikkelRepository artikkelRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void saveAllMotBatchInsert() {
+        List<KandidatStortingsvalg> kandidater = new ArrayList<>();
+        for (int k = 0; k < KANDIDATER; k++) {
+            String navn = "Benchmark " + k;
+            jdbcTemplate.update("INSERT INTO kandidat_stortingsvalg (navn) VALUES (?)", navn);
+            kandidater.add(KandidatStortingsvalg.builder().navn(navn).build());
+        }
+        TransactionTemplate transaksjon = new TransactionTemplate(transactionManager);
+
+        long[] saveAll = new long[RUNDER];
+        long[] batchInsert = new long[RUNDER];
+        for (int runde = -1; runde < RUNDER; runde++) {
+            long tid = skriv(lenker("saveall", runde, kandidater),
+                    links -> transaksjon.executeWithoutResult(status -> kandidatLinkRepository.saveAll(links)));
+            long batchTid = skriv(lenker("batch", runde, kandidater),
+                    links -> transaksjon.executeWithoutResult(status -> kandidatLinkRepository.batchInsert(links)));
+            // Første runde varmer opp JIT og tilkoblinger
+            if (runde >= 0) {
+                saveAll[runde] = tid;
+                batchInsert[runde] = batchTid;
+            }
+        }
+
+        int rader = KANDIDATER * ARTIKLER;
+        LOGGER.info("{} kandidatlenker mot {}: saveAll {} rader/s, batchInsert {} rader/s (median av {} runder)",
+                rader, url(), raderPerSekund(rader, saveAll), raderPerSekund(rader, batchInsert), RUNDER);
+    }
+
+    /**
+     * JDBC-URL-en målingen kjører mot.
+     *
+     * @return URL-en
+     */
+    private String url() {
+        return jdbcTemplate.execute((ConnectionCallback<String>) tilkobling -> tilkobling.getMetaData().getURL());
+    }
+
+    /**
+     * Lager én lenke per kandidat for nye artikler, slik at ingen lenker finnes fra før.
+     *
+     * @param vei        navn på skrivemåten, for unike URL-er
+     * @param runde      rundenummer, for unike URL-er
+     * @param kandidater kandidatene
+     * @return lenkene
+     */
+    private List<KandidatLink> lenker(final String vei, final int runde, final List<KandidatStortingsvalg> kandidater) {
+        List<Artikkel> artikler = new ArrayList<>();
+        for (int a = 0; a < ARTIKLER; a++) {
+            artikler.add(Artikkel.ny("https://www.nrk.no/" + vei + "/runde-" + runde + "/sak-" + a, null));
+        }
+        artikkelRepository.finnEllerOpprett(artikler);
+        List<KandidatLink> links = new ArrayList<>();
+        for (Artikkel artikkel : artikler) {
+            for (KandidatStortingsvalg kandidat : kandidater) {
+                links.add(KandidatLink.create(artikkel, kandidat));
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Skriver lenkene, sjekker at alle ble lagret og tømmer tabellen igjen.
+     *
+     * @param links  lenkene
+     * @param skriver skrivemåten som måles
+     * @return tiden i nanosekunder
+     */
+    private long skriv(final List<KandidatLink> links, final Consumer<List<KandidatLink>> skriver) {
+        long start = System.nanoTime();
+        skriver.accept(links);
+        long tid = System.nanoTime() - start;
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM kandidat_link", Integer.class))
+                .isEqualTo(links.size());
+        jdbcTemplate.update("DELETE FROM kandidat_link");
+        return tid;
+    }
+
+    /**
+     * Rader per sekund for mediantiden.
+     *
+     * @param rader antall rader per runde
+     * @param tider tider i nanosekunder; sorteres
+     * @return rader per sekund
+     */
+    private static long raderPerSekund(final int rader, final long[] tider) {
+        Arrays.sort(tider);
+        return rader * 1_000_000_000L / tider[tider.length / 2];
+    }
+}
@@ -0,0 +1,254 @@
+package folkestad;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Måler indeksstørrelse og oppslagstid for artikler slått opp på {@link LinkHash} mot en indeks på hele URL-en,
+ * med én million artikler.
+ * <p>
+ * Kjøres bare med profilen benchmark, mot H2 i minnet som standard:
+ * {@code mvn -B test -pl model -am -P benchmark -Dtest=LinkHashBenchmark}. Mot MySQL hentes
+ * indeksstørrelsen fra {@code mysql.innodb_index_stats}. H2 i minnet oppgir ikke plassen, så der måles
+ * økningen i beholdt heap når indeksen opprettes. H2 deler da URL-strengene med radene, så tallet for
+ * URL-indeksen blir for lavt. Nøkkeldataene, altså summen av nøklene i hver indeks, logges derfor også.
+ * Se README for kommandoen og målte tall.
+ * </p>
+ */
+@SpringBootTest
+@Tag("benchmark")
+class LinkHashBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LinkHashBenchmark.class);
+
+    private static final int ARTIKLER = 1_000_000;
+    private static final int BATCH = 1000;
+    private static final int OPPSLAG = 20_000;
+    private static final int I_LISTE = 500;
+
+    private static final String HASH_INDEKS = "uk_artikkel_url_hash_kollisjon";
+    private static final String URL_INDEKS = "idx_benchmark_artikkel_url";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void hashMotUrlIndeks() {
+        boolean mysql = "MySQL".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) tilkobling -> tilkobling.getMetaData().getDatabaseProductName()));
+        try {
+            settInnArtikler();
+            double hashMb = opprettIndeks(mysql, HASH_INDEKS, "ALTER TABLE artikkel DROP CONSTRAINT " + HASH_INDEKS,
+                    "ALTER TABLE artikkel ADD CONSTRAINT " + HASH_INDEKS + " UNIQUE (url_hash, url_kollisjon)");
+            String urlKolonne = "url";
+            if (mysql) {
+                // InnoDB tillater høyst 3072 byte i en indeksnøkkel, altså 768 tegn i utf8mb4
+                urlKolonne = "url(768)";
+            }
+            double urlMb = opprettIndeks(mysql, URL_INDEKS, null,
+                    "CREATE INDEX " + URL_INDEKS + " ON artikkel (" + urlKolonne + ")");
+
+            List<Integer> utvalg = new ArrayList<>();
+            Random random = new Random(7);
+            for (int i = 0; i < OPPSLAG; i++) {
+                utvalg.add(random.nextInt(ARTIKLER));
+            }
+            double hashUs = mikros(utvalg, a -> {
+                String url = url(a);
+                List<String> treff = jdbcTemplate.queryForList("SELECT url FROM artikkel WHERE url_hash = ?",
+                        String.class, LinkHash.of(url));
+                return treff.contains(url);
+            });
+            double urlUs = mikros(utvalg, a -> !jdbcTemplate.queryForList("SELECT id FROM artikkel WHERE url = ?",
+                    Long.class, url(a)).isEmpty());
+            double hashListeUs = mikros(utvalg.subList(0, OPPSLAG / I_LISTE), a -> finnesHash(a) == I_LISTE);
+            double urlListeUs = mikros(utvalg.subList(0, OPPSLAG / I_LISTE), a -> finnesUrl(a) == I_LISTE);
+
+            long urlBytes = 0;
+            for (int a = 0; a < ARTIKLER; a++) {
+                urlBytes += url(a).getBytes(StandardCharsets.UTF_8).length;
+            }
+            LOGGER.info("{} artikler mot {}: nøkkeldata url_hash {} MB, url {} MB; målt indeks på url_hash {} MB, "
+                    + "på url {} MB; oppslag på hash {} us, på url {} us; {} lenker i IN-liste på hash {} us, "
+                    + "på url {} us", ARTIKLER,
+                    jdbcTemplate.execute((ConnectionCallback<String>) tilkobling -> tilkobling.getMetaData().getURL()),
+                    mb((long) ARTIKLER * (Long.BYTES + Integer.BYTES)), mb(urlBytes), hashMb, urlMb, hashUs, urlUs,
+                    I_LISTE, hashListeUs, urlListeUs);
+            jdbcTemplate.execute("DROP INDEX " + URL_INDEKS + onArtikkel(mysql));
+        } finally {
+            jdbcTemplate.update("DELETE FROM artikkel");
+        }
+    }
+
+    /**
+     * Slik DROP INDEX angir tabellen: MySQL krever tabellnavnet, H2 godtar det ikke.
+     *
+     * @param mysql true for MySQL
+     * @return tillegget etter indeksnavnet
+     */
+    private static String onArtikkel(final boolean mysql) {
+        if (mysql) {
+            return " ON artikkel";
+        }
+        return "";
+    }
+
+    /**
+     * Setter inn artiklene i batcher med én transaksjon per batch.
+     */
+    private void settInnArtikler() {
+        for (int fra = 0; fra < ARTIKLER; fra += BATCH) {
+            int start = fra;
+            jdbcTemplate.batchUpdate("INSERT INTO artikkel (url, url_hash, url_kollisjon) VALUES (?, ?, 0)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+                            String url = url(start + i);
+                            ps.setString(1, url);
+                            ps.setLong(2, LinkHash.of(url));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return Math.min(BATCH, ARTIKLER - start);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Oppretter en indeks og måler størrelsen.
+     *
+     * @param mysql     true for MySQL
+     * @param navn      indeksens navn
+     * @param fjern     SQL som fjerner indeksen først, eller null hvis den ikke finnes
+     * @param opprett   SQL som oppretter indeksen
+     * @return størrelsen i MB
+     */
+    private double opprettIndeks(final boolean mysql, final String navn, final String fjern, final String opprett) {
+        if (fjern != null) {
+            jdbcTemplate.execute(fjern);
+        }
+        long foer = brukt();
+        jdbcTemplate.execute(opprett);
+        if (!mysql) {
+            return mb(brukt() - foer);
+        }
+        jdbcTemplate.execute("ANALYZE TABLE artikkel");
+        Long sider = jdbcTemplate.queryForObject("SELECT stat_value FROM mysql.innodb_index_stats "
+                + "WHERE database_name = DATABASE() AND table_name = 'artikkel' AND index_name = ? "
+                + "AND stat_name = 'size'", Long.class, navn);
+        Long sideStoerrelse = jdbcTemplate.queryForObject("SELECT @@innodb_page_size", Long.class);
+        return mb(sider * sideStoerrelse);
+    }
+
+    /**
+     * Slår opp en IN-liste med lenker på hash, slik {@code findExistingLinks} gjør.
+     *
+     * @param start første artikkelnummer
+     * @return antall lenker som fantes
+     */
+    private int finnesHash(final int start) {
+        List<Object> hasher = new ArrayList<>();
+        Set<String> urler = new HashSet<>();
+        for (int a = start; a < start + I_LISTE; a++) {
+            urler.add(url(a % ARTIKLER));
+            hasher.add(LinkHash.of(url(a % ARTIKLER)));
+        }
+        List<String> treff = jdbcTemplate.queryForList("SELECT url FROM artikkel WHERE url_hash IN ("
+                + String.join(", ", Collections.nCopies(I_LISTE, "?")) + ")", String.class, hasher.toArray());
+        return (int) treff.stream().filter(urler::contains).count();
+    }
+
+    /**
+     * Slår opp en IN-liste med lenker på hele URL-en.
+     *
+     * @param start første artikkelnummer
+     * @return antall lenker som fantes
+     */
+    private int finnesUrl(final int start) {
+        List<Object> urler = new ArrayList<>();
+        for (int a = start; a < start + I_LISTE; a++) {
+            urler.add(url(a % ARTIKLER));
+        }
+        return jdbcTemplate.queryForList("SELECT id FROM artikkel WHERE url IN ("
+                + String.join(", ", Collections.nCopies(I_LISTE, "?")) + ")", Long.class, urler.toArray()).size();
+    }
+
+    /**
+     * URL-en til en syntetisk artikkel, på formen NRK bruker.
+     *
+     * @param a artikkelnummer
+     * @return URL-en
+     */
+    private static String url(final int a) {
+        return "https://www.nrk.no/norge/stortingsvalget-kandidat-sier-dette-om-saken-" + (a % 997) + "-1."
+                + (16_000_000 + a);
+    }
+
+    /**
+     * Gjennomsnittlig tid per oppslag i mikrosekunder, etter én oppvarmingsrunde.
+     *
+     * @param utvalg  artikkelnumrene som slås opp
+     * @param oppslag oppslaget, som må finne artikkelen
+     * @return gjennomsnitt i mikrosekunder
+     */
+    private static double mikros(final List<Integer> utvalg, final IntPredicate oppslag) {
+        for (int a : utvalg) {
+            assertThat(oppslag.test(a)).isTrue();
+        }
+        long start = System.nanoTime();
+        for (int a : utvalg) {
+            oppslag.test(a);
+        }
+        return Math.round((System.nanoTime() - start) / (double) utvalg.size() / 100.0) / 10.0;
+    }
+
+    /**
+     * Brukt heap etter gjentatte fulle GC-er.
+     *
+     * @return brukt heap i byte
+     */
+    private static long brukt() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Gjør byte om til megabyte med én desimal.
+     *
+     * @param bytes antall byte
+     * @return megabyte
+     */
+    private static double mb(final long bytes) {
+        return Math.round(bytes / 100_000.0) / 10.0;
+    }
+}
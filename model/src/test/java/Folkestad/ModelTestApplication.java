@@ -0,0 +1,10 @@
+package folkestad;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Spring-kontekst for tester av repositoryene i model-modulen.
+ */
+@SpringBootApplication
+public class ModelTestApplication {
+}
@@ -0,0 +1,23 @@
+package folkestad.server;
+
+import java.time.Clock;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Klokken tjenestene bruker for å finne dagens dato, slik at tester kan bytte den ut med en fast klokke.
+ */
+@Configuration
+public class ClockConfig {
+
+    /**
+     * Systemklokken i standard tidssone.
+     *
+     * @return klokken
+     */
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+}
@@ -0,0 +1,93 @@
+package folkestad.server;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Separate tilkoblingspooler for skriving (scraping, import, arkivering) og lesing (analyse og API),
+ * slik at en lang oppdatering av analysen ikke bruker opp tilkoblingene scraperen trenger, og omvendt.
+ * <p>
+ * Applikasjonen ser bare den primære {@link DataSource}, som velger pool per transaksjon:
+ * {@code @Transactional(readOnly = true)} går til lesepoolen, alt annet til skrivepoolen.
+ * Tilkoblingen hentes først ved første spørring, etter at transaksjonen har satt read-only.
+ * Lesepoolen kan peke på en replika med {@code app.datasource.read.url}; som standard bruker den
+ * samme database som skrivepoolen.
+ * </p>
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Tilkoblingsinnstillinger for skrivepoolen.
+     *
+     * @return innstillinger fra app.datasource.write
+     */
+    @Bean
+    @Primary
+    @ConfigurationProperties("app.datasource.write")
+    public DataSourceProperties writeDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /**
+     * Tilkoblingsinnstillinger for lesepoolen.
+     *
+     * @return innstillinger fra app.datasource.read
+     */
+    @Bean
+    @ConfigurationProperties("app.datasource.read")
+    public DataSourceProperties readDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /**
+     * Pool for skrivende transaksjoner og alt som ikke er merket read-only.
+     *
+     * @param properties tilkoblingsinnstillinger for skrivepoolen
+     * @return Hikari-pool konfigurert fra app.datasource.write.hikari
+     */
+    @Bean
+    @ConfigurationProperties("app.datasource.write.hikari")
+    public HikariDataSource writeDataSource(
+            @Qualifier("writeDataSourceProperties") final DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Pool for read-only-transaksjoner.
+     *
+     * @param properties tilkoblingsinnstillinger for lesepoolen
+     * @return Hikari-pool konfigurert fra app.datasource.read.hikari
+     */
+    @Bean
+    @ConfigurationProperties("app.datasource.read.hikari")
+    public HikariDataSource readDataSource(
+            @Qualifier("readDataSourceProperties") final DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Datakilden JPA og JdbcTemplate bruker, som sender read-only-transaksjoner til lesepoolen.
+     *
+     * @param writeDataSource skrivepoolen
+     * @param readDataSource  lesepoolen
+     * @return datakilde som velger pool ved første spørring
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") final DataSource writeDataSource,
+            @Qualifier("readDataSource") final DataSource readDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(writeDataSource);
+        proxy.setReadOnlyDataSource(readDataSource);
+        return proxy;
+    }
+}
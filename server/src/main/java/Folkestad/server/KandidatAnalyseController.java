@@ -12,9 +12,15 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import folkestad.project.DataDTO;
+import folkestad.project.KubeCelleDTO;
+import folkestad.project.SamomtaleDTO;
 import folkestad.project.SammendragDTO;
+import folkestad.project.TopKandidatDTO;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * REST Controller for kandidat analyse endpoints.
@@ -25,14 +31,17 @@ import java.time.LocalDateTime;
 @RequestMapping("/api/analyse")
 public class KandidatAnalyseController {
 
+    private static final List<String> KUBE_FILTER = List.of("parti", "kjoenn", "valgdistrikt", "aldersgruppe");
+
     @Autowired
     private KandidatAnalyseService kandidatAnalyseService;
 
     /**
      * Retrieves analysis data for the specified source with optional date filtering.
      * GET /api/analyse/{kilde}?fraDato=2025-01-01T00:00:00&tilDato=2025-01-31T23:59:59
+     * GET /api/analyse/nrk,vg or /api/analyse/nrk+vg for several sources combined
      *
-     * @param kilde the source to analyze
+     * @param kilde the source to analyze, or several sources separated by comma or "+"
      * @param fraDato optional start date for filtering
      * @param tilDato optional end date for filtering
      * @return ResponseEntity containing the analysis data or error status
@@ -54,6 +63,128 @@ public class KandidatAnalyseController {
         }
     }
 
+    /**
+     * Aggregates mentions from the precomputed cube, grouped by the requested dimensions.
+     * GET /api/analyse/cube?grupper=parti,dag&kilde=nrk,vg&kjoenn=K&fraDato=2025-01-01T00:00:00
+     * Dimensions are kilde, parti, kjoenn, valgdistrikt, aldersgruppe and dag.
+     *
+     * @param kilde the source, or several sources separated by comma or "+"
+     * @param grupper the dimensions to group by, separated by comma; none gives a single total
+     * @param fraDato optional start date for filtering
+     * @param tilDato optional end date for filtering
+     * @param parametere all query parameters; parti, kjoenn, valgdistrikt and aldersgruppe
+     *                   optionally limit the values included, separated by comma
+     * @return ResponseEntity containing one cell per group, most mentioned first, or error status
+     */
+    @GetMapping("/cube")
+    public ResponseEntity<List<KubeCelleDTO>> getKube(
+            @RequestParam(value = "kilde", defaultValue = "alt") final String kilde,
+            @RequestParam(value = "grupper", required = false) final String grupper,
+            @RequestParam(value = "fraDato", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime fraDato,
+            @RequestParam(value = "tilDato", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime tilDato,
+            @RequestParam final Map<String, String> parametere) {
+        Map<String, String> filter = new HashMap<>();
+        for (String dimensjon : KUBE_FILTER) {
+            filter.put(dimensjon, parametere.get(dimensjon));
+        }
+        try {
+            return ResponseEntity.ok(kandidatAnalyseService.getKube(kilde, fraDato, tilDato, grupper, filter));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Retrieves the candidates most often mentioned in the same articles as a candidate.
+     * GET /api/analyse/person/{navn}/co-mentions?kilde=nrk,vg&k=20&fraDato=2025-01-01T00:00:00
+     *
+     * @param navn the candidate's full name
+     * @param kilde the source, or several sources separated by comma or "+"
+     * @param k number of candidates to return
+     * @param fraDato optional start date for filtering
+     * @param tilDato optional end date for filtering
+     * @return ResponseEntity containing the candidates, most shared articles first, or error status
+     */
+    @GetMapping("/person/{navn}/co-mentions")
+    public ResponseEntity<List<SamomtaleDTO>> getSamomtaler(
+            @PathVariable("navn") final String navn,
+            @RequestParam(value = "kilde", defaultValue = "alt") final String kilde,
+            @RequestParam(value = "k", defaultValue = "20") final int k,
+            @RequestParam(value = "fraDato", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime fraDato,
+            @RequestParam(value = "tilDato", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime tilDato) {
+        try {
+            return kandidatAnalyseService.getSamomtaler(navn, kilde, fraDato, tilDato, k)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Retrieves the most mentioned candidates for a source over the last days.
+     * GET /api/analyse/{kilde}/top?k=10&window=7
+     *
+     * @param kilde the source, or several sources separated by comma or "+"
+     * @param k number of candidates to return
+     * @param window number of days, up to and including today
+     * @return ResponseEntity containing the candidates, most mentioned first, or error status
+     */
+    @GetMapping("/{kilde}/top")
+    public ResponseEntity<List<TopKandidatDTO>> getTopKandidater(
+            @PathVariable("kilde") final String kilde,
+            @RequestParam(value = "k", defaultValue = "10") final int k,
+            @RequestParam(value = "window", defaultValue = "7") final int window) {
+        return toppSvar(kilde, k, window, false);
+    }
+
+    /**
+     * Retrieves the candidates whose mentions grew the most compared with the window before.
+     * GET /api/analyse/{kilde}/trending?k=10&window=7
+     *
+     * @param kilde the source, or several sources separated by comma or "+"
+     * @param k number of candidates to return
+     * @param window number of days, up to and including today
+     * @return ResponseEntity containing the candidates, highest trend first, or error status
+     */
+    @GetMapping("/{kilde}/trending")
+    public ResponseEntity<List<TopKandidatDTO>> getTrendingKandidater(
+            @PathVariable("kilde") final String kilde,
+            @RequestParam(value = "k", defaultValue = "10") final int k,
+            @RequestParam(value = "window", defaultValue = "7") final int window) {
+        return toppSvar(kilde, k, window, true);
+    }
+
+    /**
+     * Builds the response for the top and trending endpoints.
+     *
+     * @param kilde the source
+     * @param k number of candidates
+     * @param window number of days
+     * @param etterTrend true to rank by trend
+     * @return ResponseEntity containing the candidates or error status
+     */
+    private ResponseEntity<List<TopKandidatDTO>> toppSvar(final String kilde, final int k, final int window,
+            final boolean etterTrend) {
+        try {
+            return ResponseEntity.ok(kandidatAnalyseService.getToppKandidater(kilde, k, window, etterTrend));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
     * Retrieves summary for a given link.
     * GET /api/analyse/sammendrag?link=...
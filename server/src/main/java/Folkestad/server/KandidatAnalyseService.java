@@ -1,24 +1,33 @@
 package folkestad.server;
 
 import folkestad.project.DataDTO;
+import folkestad.project.analysis.AnalysisSnapshot;
 import folkestad.project.analysis.KandidateAnalysis;
-import folkestad.project.analysis.KildeDataAnalyzer;
+import folkestad.project.analysis.KubeDimensjon;
+import folkestad.project.analysis.KubeSpoerring;
+import folkestad.Innlegg;
 import folkestad.InnleggRepository;
+import folkestad.Nettsted;
+import folkestad.project.KubeCelleDTO;
+import folkestad.project.SamomtaleDTO;
 import folkestad.project.SammendragDTO;
-import folkestad.project.Person;
-import folkestad.project.ArtikelDTO;
+import folkestad.project.TopKandidatDTO;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.ArrayList;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service for å håndtere HTTP requests til kandidat analyse data.
@@ -27,16 +36,23 @@ import org.springframework.stereotype.Service;
 @Service
 public class KandidatAnalyseService {
 
+    private static final Pattern KILDE_SKILLE = Pattern.compile("[,+\\s]+");
+    private static final Pattern VERDI_SKILLE = Pattern.compile(",");
+
     @Autowired
     private KandidateAnalysis kandidateAnalysis;
 
     @Autowired
     private InnleggRepository innleggRepository;
 
+    @Autowired
+    private Clock clock;
+
     /**
      * Henter analyse data for spesifisert kilde med full validering og dato-filtrering.
      *
-     * @param kilde Kilde å hente data for ("vg", "nrk", "e24", "alt")
+     * @param kilde Kilde å hente data for ("vg", "nrk", "e24", "dagbladet", "aftenposten", "alt"),
+     *              eller flere nettsteder skilt med komma eller "+" ("nrk,vg", "nrk+vg")
      * @param fraDato Fra-dato for filtrering (null = ingen filtrering)
      * @param tilDato Til-dato for filtrering (null = ingen filtrering)
      * @return dataDTO for kilden, eventuelt filtrert
@@ -44,157 +60,194 @@ public class KandidatAnalyseService {
      * @throws IllegalArgumentException hvis ukjent kilde
      */
     public DataDTO getAnalyseDataForKilde(final String kilde, final LocalDateTime fraDato, final LocalDateTime tilDato) {
-        if (!kandidateAnalysis.erDataTilgjengelig()) {
+        AnalysisSnapshot snapshot = kandidateAnalysis.getSnapshot();
+        if (snapshot == null) {
             throw new IllegalStateException("Analyse data er ikke tilgjengelig");
         }
 
-        DataDTO originalData = hentCachetData(kilde);
-
+        Set<Nettsted> nettsteder = finnNettsteder(kilde);
         if (fraDato == null || tilDato == null) {
-            return originalData;
+            return snapshot.omtaler().data(nettsteder);
         }
-
-        LocalDate fraLocalDate = fraDato.toLocalDate();
-        LocalDate tilLocalDate = tilDato.toLocalDate();
-
-        return filtrerData(originalData, fraLocalDate, tilLocalDate);
+        return snapshot.omtaler().data(nettsteder, fraDato.toLocalDate(), tilDato.toLocalDate());
     }
 
     /**
-     * Henter cachet data basert på kilde.
+     * Henter kandidatene med flest omtaler, eller størst økning i omtaler, de siste dagene.
+     * Svaret beregnes fra analysen i minnet, uten databaseoppslag.
      *
-     * @param kilde Kilde å hente data for
-     * @return DataDTO for kilden
+     * @param kilde      kilde å hente for, som i {@link #getAnalyseDataForKilde}
+     * @param antall     hvor mange kandidater som skal returneres
+     * @param vindu      antall dager, til og med dagens dato fra klokken
+     * @param etterTrend true for å rangere etter økning fra dagene før vinduet
+     * @return kandidatene, best først
+     * @throws IllegalStateException hvis data ikke er tilgjengelig
+     * @throws IllegalArgumentException hvis ukjent kilde, eller antall eller vindu er mindre enn 1
      */
-    private DataDTO hentCachetData(final String kilde) {
-        String normalizedKilde = kilde.toLowerCase().trim();
-        switch (normalizedKilde) {
-            case "vg":
-                return kandidateAnalysis.getDataVG();
-            case "nrk":
-                return kandidateAnalysis.getDataNRK();
-            case "e24":
-                return kandidateAnalysis.getDataE24();
-            case "alt":
-            case "all":
-                return kandidateAnalysis.getDataAlt();
-            case "dagbladet":
-                return kandidateAnalysis.getDataDagbladet();
-            default:
-                throw new IllegalArgumentException("Ukjent kilde: " + kilde);
+    public List<TopKandidatDTO> getToppKandidater(final String kilde, final int antall, final int vindu,
+            final boolean etterTrend) {
+        AnalysisSnapshot snapshot = kandidateAnalysis.getSnapshot();
+        if (snapshot == null) {
+            throw new IllegalStateException("Analyse data er ikke tilgjengelig");
         }
+        return snapshot.omtaler().topp(finnNettsteder(kilde), antall, vindu, LocalDate.now(clock), etterTrend);
     }
 
     /**
-     * Filtrerer allerede prosessert dataDTO basert på dato-intervall.
+     * Slår opp i omtalekuben: omtaler og antall kandidater gruppert etter valgte dimensjoner, for
+     * eksempel parti og dag. Svaret beregnes fra kuben i minnet, uten databaseoppslag.
      *
-     * @param originalData original dataDTO
-     * @param fraDato startdato for filtrering
-     * @param tilDato sluttdato for filtrering
-     * @return filtrert dataDTO
+     * @param kilde   kilde å hente for, som i {@link #getAnalyseDataForKilde}
+     * @param fraDato fra-dato for filtrering (null = ingen nedre grense)
+     * @param tilDato til-dato for filtrering (null = ingen øvre grense)
+     * @param grupper dimensjonene det grupperes etter, skilt med komma (null eller tom = ingen)
+     * @param filter  tillatte verdier skilt med komma per dimensjonsnavn; tomme verdier ignoreres
+     * @return én celle per gruppe, flest omtaler først
+     * @throws IllegalStateException hvis data ikke er tilgjengelig
+     * @throws IllegalArgumentException hvis ukjent kilde eller dimensjon
      */
-    private DataDTO filtrerData(final DataDTO originalData, final LocalDate fraDato, final LocalDate tilDato) {
-        List<Person> filtrertPersoner = originalData.getAllePersonernevnt().stream()
-                .map(person -> filtrerPerson(person, fraDato, tilDato))
-                .filter(Objects::nonNull)
-                .filter(person -> !person.getLenker().isEmpty())
-                .collect(Collectors.toList());
-        return byggDataDTO(filtrertPersoner, originalData.getKilde());
+    public List<KubeCelleDTO> getKube(final String kilde, final LocalDateTime fraDato, final LocalDateTime tilDato,
+            final String grupper, final Map<String, String> filter) {
+        AnalysisSnapshot snapshot = kandidateAnalysis.getSnapshot();
+        if (snapshot == null) {
+            throw new IllegalStateException("Analyse data er ikke tilgjengelig");
+        }
+
+        Set<KubeDimensjon> dimensjoner = EnumSet.noneOf(KubeDimensjon.class);
+        if (grupper != null) {
+            for (String del : VERDI_SKILLE.split(grupper)) {
+                if (!del.isBlank()) {
+                    dimensjoner.add(finnDimensjon(del));
+                }
+            }
+        }
+        Map<KubeDimensjon, Set<String>> tillatte = new EnumMap<>(KubeDimensjon.class);
+        for (Map.Entry<String, String> entry : filter.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isBlank()) {
+                continue;
+            }
+            Set<String> verdier = new HashSet<>();
+            for (String verdi : VERDI_SKILLE.split(entry.getValue())) {
+                verdier.add(verdi.trim());
+            }
+            tillatte.put(finnDimensjon(entry.getKey()), verdier);
+        }
+
+        LocalDate fra = null;
+        if (fraDato != null) {
+            fra = fraDato.toLocalDate();
+        }
+        LocalDate til = null;
+        if (tilDato != null) {
+            til = tilDato.toLocalDate();
+        }
+        return snapshot.omtaler().kube().spoer(new KubeSpoerring(finnNettsteder(kilde), fra, til, dimensjoner,
+                tillatte));
     }
 
     /**
-     * Filtrerer en enkelt person sine artikler basert på dato.
+     * Henter kandidatene som oftest er omtalt i samme artikkel som en kandidat. Svaret beregnes fra
+     * samomtalegrafen i minnet, uten databaseoppslag.
      *
-     * @param person person å filtrere
-     * @param fraDato startdato for filtrering
-     * @param tilDato sluttdato for filtrering
-     * @return filtrert Person eller null
+     * @param navn    kandidatens fulle navn
+     * @param kilde   kilde å hente for, som i {@link #getAnalyseDataForKilde}
+     * @param fraDato fra-dato for filtrering (null = ingen nedre grense)
+     * @param tilDato til-dato for filtrering (null = ingen øvre grense)
+     * @param antall  hvor mange kandidater som skal returneres
+     * @return Optional med kandidatene, flest felles artikler først, tom hvis kandidaten er ukjent
+     * @throws IllegalStateException hvis data ikke er tilgjengelig
+     * @throws IllegalArgumentException hvis ukjent kilde, eller antall er mindre enn 1
      */
-    private Person filtrerPerson(final Person person, final LocalDate fraDato, final LocalDate tilDato) {
-
-        List<ArtikelDTO> filtrertArtikler = person.getLenker().stream()
-                .filter(artikkel -> !artikkel.getScraped().isBefore(fraDato)
-                        && !artikkel.getScraped().isAfter(tilDato))
-                .collect(Collectors.toList());
-
-        if (filtrertArtikler.isEmpty()) {
-            return null;
+    public Optional<List<SamomtaleDTO>> getSamomtaler(final String navn, final String kilde,
+            final LocalDateTime fraDato, final LocalDateTime tilDato, final int antall) {
+        AnalysisSnapshot snapshot = kandidateAnalysis.getSnapshot();
+        if (snapshot == null) {
+            throw new IllegalStateException("Analyse data er ikke tilgjengelig");
         }
 
-        return new Person(
-                person.getNavn(),
-                person.getAlder(),
-                person.getKjoenn(),
-                person.getParti(),
-                person.getValgdistrikt(),
-                filtrertArtikler,
-                filtrertArtikler.size());
+        LocalDate fra = null;
+        if (fraDato != null) {
+            fra = fraDato.toLocalDate();
+        }
+        LocalDate til = null;
+        if (tilDato != null) {
+            til = tilDato.toLocalDate();
+        }
+        return snapshot.omtaler().samomtaler(navn.trim(), finnNettsteder(kilde), fra, til, antall);
     }
 
     /**
-     * Bygger ny dataDTO basert på filtrerte personer.
+     * Finner kubedimensjonen for et navn fra forespørselen.
      *
-     * @param personer liste over filtrerte personer
-     * @param kilde kilde
-     * @return dataDTO basert på filtrerte personer
+     * @param navn navnet på dimensjonen
+     * @return dimensjonen
+     * @throws IllegalArgumentException hvis dimensjonen er ukjent
      */
+    private KubeDimensjon finnDimensjon(final String navn) {
+        return KubeDimensjon.fraParameter(navn)
+                .orElseThrow(() -> new IllegalArgumentException("Ukjent dimensjon: " + navn));
+    }
 
-    private DataDTO byggDataDTO(final List<Person> personer, final String kilde) {
-        if (personer.isEmpty()) {
-            return new DataDTO(0.0, 0, new ArrayList<>(), new HashMap<>(),
-                    new HashMap<>(), new HashMap<>(), new HashMap<>(), kilde);
+    /**
+     * Finner nettstedene en kilde viser til. Flere nettsteder kan oppgis skilt med komma eller "+",
+     * for eksempel "nrk,vg" eller "nrk+vg".
+     *
+     * @param kilde kilden fra forespørselen
+     * @return nettstedene, eller null for alle kilder samlet ("alt"/"all")
+     * @throws IllegalArgumentException hvis en kilde er ukjent eller ingen er oppgitt
+     */
+    private Set<Nettsted> finnNettsteder(final String kilde) {
+        Set<Nettsted> nettsteder = EnumSet.noneOf(Nettsted.class);
+        for (String del : KILDE_SKILLE.split(kilde.toLowerCase().trim())) {
+            if (del.isEmpty()) {
+                continue;
+            }
+            if ("alt".equals(del) || "all".equals(del)) {
+                return null;
+            }
+            nettsteder.add(Nettsted.fraKilde(del)
+                    .orElseThrow(() -> new IllegalArgumentException("Ukjent kilde: " + del)));
         }
-
-        double gjennomsnittligAlder = personer.stream()
-                .mapToInt(Person::getAlder)
-                .average()
-                .orElse(0.0);
-
-        int totaltAntallArtikler = personer.stream()
-                .mapToInt(Person::getAntallArtikler)
-                .sum();
-
-        Map<String, Integer> kjoennRatio = personer.stream()
-                .collect(Collectors.groupingBy(
-                        Person::getKjoenn,
-                        Collectors.collectingAndThen(Collectors.counting(), Math::toIntExact)));
-
-        Map<String, Integer> partiMentions = personer.stream()
-                .collect(Collectors.groupingBy(
-                        Person::getParti,
-                        Collectors.summingInt(Person::getAntallArtikler)));
-
-        Map<String, Double> kjoennProsentFordeling = KildeDataAnalyzer.beregnKjoennProsent(kjoennRatio);
-        Map<String, Double> partiProsentFordeling = KildeDataAnalyzer.beregnPartiProsent(partiMentions);
-
-        return new DataDTO(
-                gjennomsnittligAlder,
-                totaltAntallArtikler,
-                new ArrayList<>(personer),
-                kjoennRatio,
-                kjoennProsentFordeling,
-                partiMentions,
-                partiProsentFordeling,
-                kilde);
+        if (nettsteder.isEmpty()) {
+            throw new IllegalArgumentException("Ukjent kilde: " + kilde);
+        }
+        return nettsteder;
     }
 
     /**
      * Hent sammendrag for en gitt link.
+     * Er artikkelen et nesten-duplikat, brukes sammendraget til originalartikkelen.
      *
      * @param link artikkel-link
      * @return SammendragDTO eller null hvis ikke funnet
      */
+    @Transactional(readOnly = true)
     public SammendragDTO getSammendragForLink(final String link) {
         return innleggRepository.findByLink(link)
-                .map(innlegg -> new SammendragDTO(
-                        innlegg.getLink(),
-                        innlegg.getSammendrag(),
-                        innlegg.getKompresjonRatio(),
-                        innlegg.getAntallOrdOriginal(),
-                        innlegg.getAntallOrdSammendrag(),
-                        innlegg.getOpprettetDato()))
+                .map(this::tilSammendragDTO)
                 .orElse(null);
     }
 
+    /**
+     * Bygger SammendragDTO for et innlegg, med sammendrag fra originalen hvis innlegget er et duplikat.
+     *
+     * @param innlegg innlegget som er slått opp
+     * @return SammendragDTO for innlegget
+     */
+    private SammendragDTO tilSammendragDTO(final Innlegg innlegg) {
+        Innlegg kilde = innlegg;
+        if (innlegg.getDuplikatAv() != null) {
+            kilde = innleggRepository.findByArtikkelId(innlegg.getDuplikatAv().getId()).orElse(innlegg);
+        }
+        return new SammendragDTO(
+                innlegg.getLink(),
+                kilde.getSammendrag(),
+                kilde.getKompresjonRatio(),
+                kilde.getAntallOrdOriginal(),
+                kilde.getAntallOrdSammendrag(),
+                innlegg.getOpprettetDato(),
+                innlegg.getDuplikatAvLink());
+    }
+
 }
 
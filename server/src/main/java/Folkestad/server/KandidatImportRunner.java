@@ -0,0 +1,53 @@
+package folkestad.server;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import folkestad.project.importer.KandidatImporter;
+
+/**
+ * Importerer kandidatlisten ved oppstart når {@code kandidat.import.fil} er satt,
+ * f.eks. med {@code --kandidat.import.fil=kandidater-2025.csv}.
+ */
+@Component
+public class KandidatImportRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidatImportRunner.class);
+
+    @Autowired
+    private KandidatImporter kandidatImporter;
+
+    @Value("${kandidat.import.fil:}")
+    private String fil;
+
+    /**
+     * Kjører importen hvis en fil er angitt.
+     *
+     * @param args programargumenter
+     */
+    @Override
+    public void run(final ApplicationArguments args) {
+        if (fil == null || fil.isBlank()) {
+            return;
+        }
+        Path path = Paths.get(fil.trim());
+        if (!Files.isReadable(path)) {
+            LOGGER.error("Fant ikke kandidatlisten {}", path.toAbsolutePath());
+            return;
+        }
+        try {
+            kandidatImporter.importer(path);
+        } catch (RuntimeException e) {
+            LOGGER.error("Feil under import av kandidatliste {}: ", path, e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package folkestad.server;
+
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import folkestad.KandidatLinkRepository;
+
+/**
+ * Planlagt jobb som flytter gamle kandidatlenker fra kandidat_link til kandidat_link_arkiv.
+ * Totaler for arkiverte lenker ligger fortsatt i omtale-aggregatet, så den aktive tabellen
+ * trenger bare å holde lenkene innenfor oppbevaringstiden. Flyttingen skjer i biter, hver i
+ * sin egen transaksjon, for å unngå lange låser.
+ */
+@Component
+public class KandidatLinkArkivering {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KandidatLinkArkivering.class);
+
+    @Autowired
+    private KandidatLinkRepository kandidatLinkRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${kandidat-link.arkiv.maaneder:12}")
+    private int oppbevaringMaaneder;
+
+    @Value("${jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Flytter lenker eldre enn oppbevaringstiden til arkivet.
+     */
+    @Scheduled(cron = "${kandidat-link.arkiv.cron:0 30 3 * * *}")
+    public void arkiver() {
+        LocalDateTime grense = LocalDateTime.now().minusMonths(oppbevaringMaaneder);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long start = System.currentTimeMillis();
+        int totalt = 0;
+
+        try {
+            Integer flyttet;
+            do {
+                flyttet = transaction.execute(status -> kandidatLinkRepository.arkiverEldreEnn(grense, batchSize));
+                if (flyttet == null) {
+                    flyttet = 0;
+                }
+                totalt += flyttet;
+            } while (flyttet > 0);
+        } catch (Exception e) {
+            LOGGER.error("Feil under arkivering av kandidatlenker: ", e);
+        }
+
+        if (totalt > 0) {
+            LOGGER.info("Arkiverte {} kandidatlenker eldre enn {} på {} ms",
+                    totalt, grense, System.currentTimeMillis() - start);
+        }
+    }
+}
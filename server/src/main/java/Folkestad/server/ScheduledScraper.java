@@ -53,6 +53,21 @@ public class ScheduledScraper {
         runScraperAsync();
     }
 
+    /**
+     * Bygger analysen på nytt fra databasen én gang i døgnet for å kontrollere de fortløpende summene.
+     */
+    @Scheduled(cron = "${analyse.verifisering.cron:0 0 4 * * *}")
+    public void verifiserAnalyse() {
+        if (isShuttingDown.get() || !kandidateAnalysis.erDataTilgjengelig()) {
+            return;
+        }
+        try {
+            kandidateAnalysis.verifiser();
+        } catch (Exception e) {
+            LOGGER.error("Feil under verifisering av analysen: ", e);
+        }
+    }
+
     /**
      * Asynkron wrapper for scraping.
      * @return CompletableFuture<Void> som indikerer at scraping er ferdig
@@ -74,9 +89,10 @@ public class ScheduledScraper {
                     scraperStart.startScrapingKandidatNames();
                 }
 
+                // Nye lenker er allerede lagt til i analysen; full analyse kjøres bare første gang
                 if (!isShuttingDown.get()) {
                     LOGGER.info("Starter caching av analyse data...");
-                    kandidateAnalysis.analyzeKandidatData();
+                    kandidateAnalysis.oppdater();
                     LOGGER.info("Caching av analyse data fullført");
                 }
 
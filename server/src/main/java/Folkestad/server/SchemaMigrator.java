@@ -0,0 +1,214 @@
+package folkestad.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import folkestad.LinkHash;
+import folkestad.Nettsted;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Kjører datamigreringer som Hibernate sin ddl-auto=update ikke dekker, f.eks. utfylling av
+ * nye kolonner for eksisterende rader og fjerning av gamle kolonner. Kjøres etter at skjemaet
+ * er oppdatert og før planlagt scraping starter. Hvert steg sjekker skjemaet først og kan
+ * trygt kjøres ved hver oppstart.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaMigrator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Kjører alle migreringssteg. En feil stopper oppstarten, slik at applikasjonen ikke kjører
+     * mot et halvveis migrert skjema.
+     */
+    @PostConstruct
+    public void migrer() {
+        fjernIndeks("artikkel", "uk_artikkel_url_hash");
+        migrerKandidatLinkTilArtikkel();
+        migrerInnleggTilArtikkel();
+        fyllOmtaleAggregat();
+    }
+
+    /**
+     * Flytter URL og nettsted fra kandidat_link til artikkel-tabellen og kobler radene med artikkel_id.
+     * Rader som ville blitt duplikater av samme kandidat og artikkel slettes.
+     *
+     * @throws IllegalStateException hvis en URL ikke fikk en artikkel på grunn av hash-kollisjon
+     */
+    private void migrerKandidatLinkTilArtikkel() {
+        if (!kolonneFinnes("kandidat_link", "link")) {
+            return;
+        }
+        LOGGER.info("Migrerer kandidat_link til artikkel-tabellen...");
+
+        int nye = jdbcTemplate.update("INSERT IGNORE INTO artikkel (url, url_hash, nettsted, forst_sett) "
+                + "SELECT link, " + LinkHash.sqlExpression("link") + ", MAX(nettsted), MIN(scraped_at) "
+                + "FROM kandidat_link WHERE link IS NOT NULL GROUP BY link");
+        LOGGER.info("Opprettet {} artikler fra kandidat_link", nye);
+        fyllNettsted();
+
+        int koblet = jdbcTemplate.update("UPDATE IGNORE kandidat_link kl JOIN artikkel a "
+                + "ON a.url_hash = " + LinkHash.sqlExpression("kl.link") + " AND a.url = kl.link "
+                + "SET kl.artikkel_id = a.id WHERE kl.artikkel_id IS NULL");
+        sjekkAtUrlerHarArtikkel("kandidat_link", "link");
+        int slettet = jdbcTemplate.update("DELETE FROM kandidat_link WHERE artikkel_id IS NULL");
+        LOGGER.info("Koblet {} kandidatlenker til artikler, slettet {} duplikater", koblet, slettet);
+
+        fjernIndeks("kandidat_link", "uk_kandidat_link_hash_navn");
+        fjernKolonne("kandidat_link", "link");
+        fjernKolonne("kandidat_link", "link_hash");
+        fjernKolonne("kandidat_link", "nettsted");
+    }
+
+    /**
+     * Flytter link og duplikat_av fra innlegg til artikkel-tabellen og kobler radene med
+     * artikkel_id og duplikat_av_id.
+     *
+     * @throws IllegalStateException hvis en URL ikke fikk en artikkel på grunn av hash-kollisjon
+     */
+    private void migrerInnleggTilArtikkel() {
+        if (!kolonneFinnes("innlegg", "link")) {
+            return;
+        }
+        LOGGER.info("Migrerer innlegg til artikkel-tabellen...");
+
+        int nye = jdbcTemplate.update("INSERT IGNORE INTO artikkel (url, url_hash, forst_sett) "
+                + "SELECT link, " + LinkHash.sqlExpression("link") + ", opprettet_dato "
+                + "FROM innlegg WHERE link IS NOT NULL");
+        if (kolonneFinnes("innlegg", "duplikat_av")) {
+            nye += jdbcTemplate.update("INSERT IGNORE INTO artikkel (url, url_hash) "
+                    + "SELECT DISTINCT duplikat_av, " + LinkHash.sqlExpression("duplikat_av")
+                    + " FROM innlegg WHERE duplikat_av IS NOT NULL");
+        }
+        LOGGER.info("Opprettet {} artikler fra innlegg", nye);
+        sjekkAtUrlerHarArtikkel("innlegg", "link");
+        if (kolonneFinnes("innlegg", "duplikat_av")) {
+            sjekkAtUrlerHarArtikkel("innlegg", "duplikat_av");
+        }
+        fyllNettsted();
+
+        int koblet = jdbcTemplate.update("UPDATE IGNORE innlegg i JOIN artikkel a "
+                + "ON a.url_hash = " + LinkHash.sqlExpression("i.link") + " AND a.url = i.link "
+                + "SET i.artikkel_id = a.id WHERE i.artikkel_id IS NULL");
+        if (kolonneFinnes("innlegg", "duplikat_av")) {
+            jdbcTemplate.update("UPDATE innlegg i JOIN artikkel a "
+                    + "ON a.url_hash = " + LinkHash.sqlExpression("i.duplikat_av") + " AND a.url = i.duplikat_av "
+                    + "SET i.duplikat_av_id = a.id WHERE i.duplikat_av_id IS NULL");
+        }
+        LOGGER.info("Koblet {} innlegg til artikler", koblet);
+
+        fjernIndeks("innlegg", "idx_link");
+        fjernIndeks("innlegg", "idx_innlegg_link_hash");
+        fjernKolonne("innlegg", "link");
+        fjernKolonne("innlegg", "link_hash");
+        fjernKolonne("innlegg", "duplikat_av");
+    }
+
+    /**
+     * Bygger omtale-aggregatet fra eksisterende kandidatlenker første gang tabellen er tom.
+     * Senere holdes aggregatet oppdatert når nye lenker lagres.
+     */
+    private void fyllOmtaleAggregat() {
+        Integer aggregatRader = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM kandidat_omtale_dag", Integer.class);
+        if (aggregatRader != null && aggregatRader > 0) {
+            return;
+        }
+        int rader = jdbcTemplate.update("INSERT INTO kandidat_omtale_dag (kandidat_navn, nettsted, dag, antall) "
+                + "SELECT kl.kandidat_navn, a.nettsted, DATE(kl.scraped_at), COUNT(*) "
+                + "FROM kandidat_link kl JOIN artikkel a ON a.id = kl.artikkel_id "
+                + "WHERE a.nettsted IS NOT NULL AND kl.scraped_at IS NOT NULL "
+                + "GROUP BY kl.kandidat_navn, a.nettsted, DATE(kl.scraped_at)");
+        if (rader > 0) {
+            LOGGER.info("Bygget omtale-aggregat med {} rader fra eksisterende kandidatlenker", rader);
+        }
+    }
+
+    /**
+     * Sjekker at hver URL i en kolonne har en artikkel. INSERT IGNORE hopper over en URL som har samme
+     * hash som en annen, og uten sjekken ville radene bli stående uten artikkel eller bli slettet.
+     *
+     * @param tabell  tabellen med URL-kolonnen
+     * @param kolonne kolonnen med URL-er
+     * @throws IllegalStateException hvis noen URL-er mangler artikkel
+     */
+    private void sjekkAtUrlerHarArtikkel(final String tabell, final String kolonne) {
+        Integer mangler = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tabell + " t "
+                + "WHERE t." + kolonne + " IS NOT NULL AND NOT EXISTS (SELECT 1 FROM artikkel a "
+                + "WHERE a.url_hash = " + LinkHash.sqlExpression("t." + kolonne) + " AND a.url = t." + kolonne + ")",
+                Integer.class);
+        if (mangler != null && mangler > 0) {
+            throw new IllegalStateException(mangler + " rader i " + tabell + "." + kolonne
+                    + " har en URL med hash-kollisjon og fikk ingen artikkel");
+        }
+    }
+
+    /**
+     * Setter nettsted på artikler som mangler det, ut fra URL-en.
+     */
+    private void fyllNettsted() {
+        List<Object[]> oppdateringer = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, url FROM artikkel WHERE nettsted IS NULL", rs -> {
+            long id = rs.getLong(1);
+            Nettsted.parseFromUrl(rs.getString(2))
+                    .ifPresent(nettsted -> oppdateringer.add(new Object[] {nettsted.name(), id}));
+        });
+        if (!oppdateringer.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE artikkel SET nettsted = ? WHERE id = ?", oppdateringer);
+        }
+    }
+
+    /**
+     * Sjekker om en kolonne finnes.
+     *
+     * @param tabell tabellen
+     * @param kolonne kolonnen
+     * @return true hvis kolonnen finnes
+     */
+    private boolean kolonneFinnes(final String tabell, final String kolonne) {
+        Integer antall = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?",
+                Integer.class, tabell, kolonne);
+        return antall != null && antall > 0;
+    }
+
+    /**
+     * Fjerner en kolonne hvis den finnes.
+     *
+     * @param tabell tabellen kolonnen tilhører
+     * @param kolonne navnet på kolonnen
+     */
+    private void fjernKolonne(final String tabell, final String kolonne) {
+        if (kolonneFinnes(tabell, kolonne)) {
+            jdbcTemplate.execute("ALTER TABLE " + tabell + " DROP COLUMN " + kolonne);
+            LOGGER.info("Fjernet kolonne {} på {}", kolonne, tabell);
+        }
+    }
+
+    /**
+     * Fjerner en indeks hvis den finnes.
+     *
+     * @param tabell tabellen indeksen tilhører
+     * @param indeks navnet på indeksen
+     */
+    private void fjernIndeks(final String tabell, final String indeks) {
+        Integer antall = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.statistics "
+                + "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                Integer.class, tabell, indeks);
+        if (antall != null && antall > 0) {
+            jdbcTemplate.execute("ALTER TABLE " + tabell + " DROP INDEX " + indeks);
+            LOGGER.info("Fjernet indeks {} på {}", indeks, tabell);
+        }
+    }
+}
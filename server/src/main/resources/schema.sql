@@ -1,12 +1,43 @@
-CREATE TABLE IF NOT EXISTS kandidat_link (
+CREATE TABLE IF NOT EXISTS artikkel (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    link VARCHAR(1000) NOT NULL,
+    url VARCHAR(1000) NOT NULL,
+    url_hash BIGINT NOT NULL,
+    url_kollisjon INT NOT NULL DEFAULT 0,
     nettsted VARCHAR(50),
+    forst_sett DATETIME,
+    innhold_hash BIGINT,
+    UNIQUE KEY uk_artikkel_url_hash_kollisjon (url_hash, url_kollisjon)
+);
+
+CREATE TABLE IF NOT EXISTS kandidat_link (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    artikkel_id BIGINT,
     scraped_at DATETIME,
     kandidat_navn VARCHAR(255) NOT NULL,
+    UNIQUE KEY uk_kandidat_link_artikkel_navn (artikkel_id, kandidat_navn),
+    INDEX idx_kandidat_link_scraped_at (scraped_at),
+    FOREIGN KEY (artikkel_id) REFERENCES artikkel(id),
     FOREIGN KEY (kandidat_navn) REFERENCES kandidat_stortingsvalg(navn) ON DELETE CASCADE
 );
 
+CREATE TABLE IF NOT EXISTS kandidat_link_arkiv (
+    id BIGINT PRIMARY KEY,
+    artikkel_id BIGINT,
+    scraped_at DATETIME,
+    kandidat_navn VARCHAR(255) NOT NULL,
+    UNIQUE KEY uk_kandidat_link_arkiv_artikkel_navn (artikkel_id, kandidat_navn),
+    FOREIGN KEY (artikkel_id) REFERENCES artikkel(id),
+    FOREIGN KEY (kandidat_navn) REFERENCES kandidat_stortingsvalg(navn) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS kandidat_omtale_dag (
+    kandidat_navn VARCHAR(255) NOT NULL,
+    nettsted VARCHAR(50) NOT NULL,
+    dag DATE NOT NULL,
+    antall INT NOT NULL,
+    PRIMARY KEY (kandidat_navn, nettsted, dag)
+);
+
 CREATE TABLE IF NOT EXISTS kandidat_stortingsvalg (
     navn VARCHAR(255) PRIMARY KEY,
     valg VARCHAR(255),
@@ -26,11 +57,15 @@ CREATE TABLE IF NOT EXISTS kandidat_stortingsvalg (
 
 CREATE TABLE IF NOT EXISTS innlegg (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    link VARCHAR(1000) NOT NULL UNIQUE,
+    artikkel_id BIGINT,
     sammendrag TEXT,
     kompresjon_ratio DOUBLE,
     antall_ord_original INT,
     antall_ord_sammendrag INT,
-    INDEX idx_link (link),
+    opprettet_dato DATETIME,
+    duplikat_av_id BIGINT,
+    UNIQUE KEY uk_innlegg_artikkel (artikkel_id),
+    FOREIGN KEY (artikkel_id) REFERENCES artikkel(id),
+    FOREIGN KEY (duplikat_av_id) REFERENCES artikkel(id),
     INDEX idx_kompresjon_ratio (kompresjon_ratio)
 );
\ No newline at end of file
@@ -0,0 +1,135 @@
+package folkestad.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tester at {@link DataSourceConfig} sender read-only-transaksjoner til lesepoolen og alt annet til
+ * skrivepoolen, med to H2-databaser som står for hver sin pool.
+ */
+@SpringBootTest(classes = DataSourceConfigTest.TestKonfig.class, properties = {
+    "app.datasource.write.url=jdbc:h2:mem:skriv;DB_CLOSE_DELAY=-1",
+    "app.datasource.write.username=sa",
+    "app.datasource.write.driver-class-name=org.h2.Driver",
+    "app.datasource.write.hikari.pool-name=write",
+    "app.datasource.read.url=jdbc:h2:mem:les;DB_CLOSE_DELAY=-1",
+    "app.datasource.read.username=sa",
+    "app.datasource.read.driver-class-name=org.h2.Driver",
+    "app.datasource.read.hikari.pool-name=read",
+    "app.datasource.read.hikari.read-only=true",
+    "spring.jpa.hibernate.ddl-auto=none"
+})
+class DataSourceConfigTest {
+
+    private static final String SKRIV = "SKRIV";
+    private static final String LES = "LES";
+
+    @Autowired
+    private LeseTjeneste leseTjeneste;
+
+    @Autowired
+    private Tjeneste tjeneste;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void readOnlyTransaksjonBrukerLesepoolen() {
+        assertThat(leseTjeneste.database()).isEqualTo(LES);
+    }
+
+    @Test
+    void skrivendeTransaksjonBrukerSkrivepoolen() {
+        assertThat(tjeneste.databaseISkrivendeTransaksjon()).isEqualTo(SKRIV);
+    }
+
+    @Test
+    void spoerringUtenTransaksjonFallerTilbakeTilSkrivepoolen() {
+        assertThat(databaseNavn(jdbcTemplate)).isEqualTo(SKRIV);
+    }
+
+    @Test
+    void readOnlyInniSkrivendeTransaksjonBrukerSkrivetilkoblingen() {
+        assertThat(tjeneste.readOnlyInniSkrivende()).isEqualTo(SKRIV);
+    }
+
+    /**
+     * Henter navnet på databasen tilkoblingen peker på.
+     *
+     * @param jdbcTemplate jdbcTemplate mot den primære datakilden
+     * @return databasenavnet
+     */
+    private static String databaseNavn(final JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT DATABASE()", String.class).toUpperCase();
+    }
+
+    /**
+     * Minimal Spring Boot-kontekst med datakildene fra {@link DataSourceConfig} og JPA sin
+     * transaksjonshåndtering, som i applikasjonen.
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import({DataSourceConfig.class, LeseTjeneste.class, Tjeneste.class})
+    static class TestKonfig {
+    }
+
+    /**
+     * Tjeneste med en read-only-transaksjon, som analysen i applikasjonen.
+     */
+    static class LeseTjeneste {
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        /**
+         * Slår opp databasen i en read-only-transaksjon.
+         *
+         * @return databasenavnet
+         */
+        @Transactional(readOnly = true)
+        public String database() {
+            return databaseNavn(jdbcTemplate);
+        }
+    }
+
+    /**
+     * Tjeneste med skrivende transaksjoner, som scraping og import i applikasjonen.
+     */
+    static class Tjeneste {
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private LeseTjeneste leseTjeneste;
+
+        /**
+         * Slår opp databasen i en skrivende transaksjon.
+         *
+         * @return databasenavnet
+         */
+        @Transactional
+        public String databaseISkrivendeTransaksjon() {
+            return databaseNavn(jdbcTemplate);
+        }
+
+        /**
+         * Kaller en read-only-metode fra en skrivende transaksjon, som den blir en del av.
+         *
+         * @return databasenavnet read-only-metoden så
+         */
+        @Transactional
+        public String readOnlyInniSkrivende() {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            return leseTjeneste.database();
+        }
+    }
+}